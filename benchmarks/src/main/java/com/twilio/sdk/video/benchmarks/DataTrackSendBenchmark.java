@@ -0,0 +1,109 @@
+package com.twilio.sdk.video.benchmarks;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.twilio.sdk.video.DataTrackOptions;
+import com.twilio.sdk.video.LocalDataTrack;
+import com.twilio.sdk.video.data.DataMessageBatch;
+
+/**
+ * Cost of the <code>LocalDataTrack.send</code> overloads per message.
+ *
+ * The track is not published, so what is measured is the binding and the SDK's handling of the
+ * message up to the transport; the <code>sent</code> counter shows how many messages the track
+ * accepted.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DataTrackSendBenchmark {
+    private static final int BATCH = 64;
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Counters {
+        public long sent;
+    }
+
+    @Param({"16", "1024"})
+    public int messageSize;
+
+    private LocalDataTrack track;
+    private String text;
+    private byte[] bytes;
+    private ByteBuffer direct;
+    private DataMessageBatch batch;
+
+    @Setup(Level.Trial)
+    public void setup(final MediaState media) {
+        this.track = media.getFactory().createDataTrack(new DataTrackOptions.Builder().build());
+
+        final char[] chars = new char[this.messageSize];
+        Arrays.fill(chars, 'x');
+        this.text = new String(chars);
+        this.bytes = this.text.getBytes(StandardCharsets.UTF_8);
+        this.direct = ByteBuffer.allocateDirect(this.messageSize);
+        this.direct.put(this.bytes).flip();
+        this.batch = new DataMessageBatch(this.messageSize * BATCH, BATCH);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        this.track.close();
+    }
+
+    @Benchmark
+    public boolean sendString(final Counters counters) {
+        return count(counters, this.track.send(this.text));
+    }
+
+    @Benchmark
+    public boolean sendByteArray(final Counters counters) {
+        return count(counters, this.track.send(this.bytes));
+    }
+
+    @Benchmark
+    public boolean sendDirectBuffer(final Counters counters) {
+        return count(counters, this.track.send(this.direct, 0, this.messageSize));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public long sendBatch(final Counters counters) {
+        for (int i = 0; i < BATCH; i++) {
+            this.batch.add(this.bytes);
+        }
+        final long sent = this.batch.sendTo(this.track);
+        counters.sent += sent;
+        return sent;
+    }
+
+    private static boolean count(final Counters counters, final boolean sent) {
+        if (sent) {
+            counters.sent++;
+        }
+        return sent;
+    }
+}
@@ -0,0 +1,33 @@
+package com.twilio.sdk.video.benchmarks;
+
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.twilio.sdk.video.MediaFactory;
+import com.twilio.sdk.video.MediaOptions;
+import com.twilio.sdk.video.loader.NativeLoader;
+
+/**
+ * One media factory shared by the threads of a benchmark; nothing here needs a network or credentials.
+ */
+@State(Scope.Benchmark)
+public class MediaState {
+    private MediaFactory factory;
+
+    @Setup
+    public void setup() {
+        NativeLoader.loadNativeLibraries();
+        this.factory = MediaFactory.create(new MediaOptions());
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.factory.close();
+    }
+
+    public MediaFactory getFactory() {
+        return this.factory;
+    }
+}
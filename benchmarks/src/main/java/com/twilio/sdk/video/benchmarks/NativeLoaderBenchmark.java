@@ -0,0 +1,67 @@
+package com.twilio.sdk.video.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.twilio.sdk.video.loader.NativeLoader;
+
+/**
+ * Cold start of the binding: the first <code>loadNativeLibraries()</code> of a JVM, measured once
+ * per fork. <code>cold</code> extracts into an empty cache directory, <code>cached</code> finds the
+ * library extracted by an earlier fork.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+// the discarded warm-up fork fills the shared cache
+@Fork(value = 10, warmups = 1)
+@State(Scope.Benchmark)
+public class NativeLoaderBenchmark {
+    @Param({"cold", "cached"})
+    public String cache;
+
+    private Path directory;
+
+    @Setup
+    public void setup() throws IOException {
+        this.directory = this.cache.equals("cold")
+                ? Files.createTempDirectory("twilio-video-bench-")
+                : Paths.get(System.getProperty("java.io.tmpdir"), "twilio-video-bench-cache");
+        System.setProperty(NativeLoader.CACHE_DIR_PROPERTY, this.directory.toString());
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        if (this.cache.equals("cold")) {
+            // the library stays mapped after its file is deleted
+            try (final Stream<Path> files = Files.walk(this.directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    @Benchmark
+    public boolean loadNativeLibraries() {
+        NativeLoader.loadNativeLibraries();
+        return NativeLoader.isLoaded();
+    }
+}
@@ -0,0 +1,76 @@
+package com.twilio.sdk.video.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.twilio.sdk.video.StatsReport;
+import com.twilio.sdk.video.StatsReportVector;
+import com.twilio.sdk.video.loader.NativeLoader;
+
+/**
+ * Cost of reading <code>StatsReport</code> fields, each of which is a JNI call, and of copying the
+ * reports handed to <code>StatsObserver.onStats</code>, as <code>AsyncRoom.statsAsync</code> does.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class StatsReportBenchmark {
+    @Param({"1", "16"})
+    public int reports;
+
+    private StatsReportVector vector;
+    private StatsReport report;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        NativeLoader.loadNativeLibraries();
+        this.vector = new StatsReportVector();
+        for (int i = 0; i < this.reports; i++) {
+            this.vector.add(new StatsReport());
+        }
+        // a reference into the vector, not a copy
+        this.report = this.vector.get(0);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        this.vector.delete();
+    }
+
+    @Benchmark
+    public String peerConnectionId() {
+        return this.report.getPeer_connection_id();
+    }
+
+    @Benchmark
+    public long trackStatsSizes() {
+        return this.report.getLocal_audio_track_stats().size()
+                + this.report.getLocal_video_track_stats().size()
+                + this.report.getRemote_audio_track_stats().size()
+                + this.report.getRemote_video_track_stats().size();
+    }
+
+    @Benchmark
+    public long copyReports() {
+        final StatsReportVector copy = new StatsReportVector(this.vector);
+        final long size = copy.size();
+        copy.delete();
+        return size;
+    }
+}
@@ -0,0 +1,110 @@
+package com.twilio.sdk.video.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.twilio.sdk.video.ConnectOptions;
+import com.twilio.sdk.video.DataTrackOptions;
+import com.twilio.sdk.video.IceServer;
+import com.twilio.sdk.video.LocalDataTrack;
+import com.twilio.sdk.video.RemoteParticipantMap;
+
+/**
+ * Cost of the collection typemaps of <code>twilio-custom-vectors.i</code> and of
+ * <code>RemoteParticipantMap.keys()</code>, by number of elements.
+ *
+ * Remote participants and the lists returned by <code>%shared_ptr_vector_as_immutable_list</code>
+ * only exist in a connected room, so the map holds empty participants and the shared pointer
+ * typemap is measured through <code>ConnectOptions.Builder</code> (input) and through
+ * <code>LocalDataTrack.echoTracks()</code> (input and output); the cost of the output direction
+ * is the difference between the two.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TypemapBenchmark {
+    @Param({"1", "16", "256"})
+    public int size;
+
+    private IceServer iceServer;
+    private List<String> urls;
+    private RemoteParticipantMap participants;
+    private List<LocalDataTrack> dataTracks;
+    private ConnectOptions.Builder builder;
+
+    @Setup(Level.Trial)
+    public void setup(final MediaState media) {
+        this.urls = new ArrayList<>(this.size);
+        for (int i = 0; i < this.size; i++) {
+            this.urls.add("turn:global.turn.twilio.com:3478?transport=udp&index=" + i);
+        }
+        this.iceServer = new IceServer();
+        this.iceServer.setUrls(this.urls);
+
+        this.participants = new RemoteParticipantMap();
+        for (int i = 0; i < this.size; i++) {
+            this.participants.set("participant-" + i, null);
+        }
+
+        this.dataTracks = new ArrayList<>(this.size);
+        for (int i = 0; i < this.size; i++) {
+            this.dataTracks.add(media.getFactory().createDataTrack(new DataTrackOptions.Builder().build()));
+        }
+        this.builder = new ConnectOptions.Builder("token");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        for (final LocalDataTrack track: this.dataTracks) {
+            track.close();
+        }
+    }
+
+    @Benchmark
+    public List<String> stringVectorOut() {
+        return this.iceServer.getUrls();
+    }
+
+    @Benchmark
+    public void stringVectorIn() {
+        this.iceServer.setUrls(this.urls);
+    }
+
+    @Benchmark
+    public List<String> participantMapKeys() {
+        return this.participants.keys();
+    }
+
+    @Benchmark
+    public ConnectOptions.Builder sharedPtrVectorIn() {
+        return this.builder.setDataTracks(this.dataTracks);
+    }
+
+    @Benchmark
+    public List<LocalDataTrack> sharedPtrVectorRoundTrip() {
+        // every returned proxy owns a shared pointer copy; a caller which drops them leaves them to the cleaner
+        final List<LocalDataTrack> tracks = LocalDataTrack.echoTracks(this.dataTracks);
+        for (final LocalDataTrack track: tracks) {
+            track.close();
+        }
+        return tracks;
+    }
+}
@@ -0,0 +1,117 @@
+package com.twilio.sdk.video.benchmarks;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.twilio.sdk.video.LocalVideoTrack;
+import com.twilio.sdk.video.MediaConstraints;
+import com.twilio.sdk.video.VideoFrame;
+import com.twilio.sdk.video.VideoFrameInjector;
+import com.twilio.sdk.video.VideoRotation;
+import com.twilio.sdk.video.VideoSinkForVideoFrame;
+import com.twilio.sdk.video.VideoSinkWants;
+import com.twilio.sdk.video.VideoTrackOptions;
+
+/**
+ * Cost of a <code>VideoSinkForVideoFrame.OnFrame</code> director upcall.
+ *
+ * Frames pushed into an injector are delivered synchronously to the sinks of its local track, so
+ * one push crosses into native code and, with a director sink attached, back into Java on the same
+ * thread. The difference between the <code>none</code> and <code>director</code> runs is the upcall.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class VideoSinkUpcallBenchmark {
+    private static final int WIDTH = 320;
+    private static final int HEIGHT = 180;
+    // the capturer's adapter drops frames arriving faster than 30 fps of their own timestamps
+    private static final long FRAME_INTERVAL_US = 33334;
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Counters {
+        public long upcalls;
+        public long rejected;
+    }
+
+    private static final class CountingSink extends VideoSinkForVideoFrame {
+        long frames;
+
+        @Override
+        public void OnFrame(final VideoFrame frame) {
+            this.frames++;
+        }
+    }
+
+    @Param({"none", "director"})
+    public String sink;
+
+    private VideoFrameInjector injector;
+    private LocalVideoTrack track;
+    private CountingSink counting;
+    private ByteBuffer y;
+    private ByteBuffer u;
+    private ByteBuffer v;
+    private long timestampUs;
+
+    @Setup(Level.Trial)
+    public void setup(final MediaState media) throws InterruptedException {
+        this.y = ByteBuffer.allocateDirect(WIDTH * HEIGHT);
+        this.u = ByteBuffer.allocateDirect(WIDTH * HEIGHT / 4);
+        this.v = ByteBuffer.allocateDirect(WIDTH * HEIGHT / 4);
+
+        this.injector = new VideoFrameInjector(4);
+        this.track = media.getFactory().createVideoTrack(this.injector, new VideoTrackOptions(true), MediaConstraints.defaultVideoConstraints());
+        for (int i = 0; i < 500 && !this.injector.isStarted(); i++) {
+            Thread.sleep(10);
+        }
+        if (!this.injector.isStarted())
+            throw new IllegalStateException("injector did not start");
+
+        this.counting = new CountingSink();
+        if (this.sink.equals("director")) {
+            this.track.getWebRtcTrack().AddOrUpdateSink(this.counting, new VideoSinkWants());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (this.sink.equals("director")) {
+            this.track.getWebRtcTrack().RemoveSink(this.counting);
+        }
+        this.track.close();
+        this.injector.close();
+    }
+
+    @Benchmark
+    public long pushFrame(final Counters counters) {
+        final long before = this.counting.frames;
+        this.timestampUs += FRAME_INTERVAL_US;
+        final long frameId = this.injector.pushI420(this.y, WIDTH, this.u, WIDTH / 2, this.v, WIDTH / 2,
+                WIDTH, HEIGHT, this.timestampUs, VideoRotation.kVideoRotation_0);
+        if (frameId < 0) {
+            counters.rejected++;
+        }
+        counters.upcalls += this.counting.frames - before;
+        return frameId;
+    }
+}
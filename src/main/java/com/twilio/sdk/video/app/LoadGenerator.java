@@ -0,0 +1,339 @@
+package com.twilio.sdk.video.app;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.twilio.jwt.accesstoken.AccessToken;
+import com.twilio.jwt.accesstoken.VideoGrant;
+
+import com.twilio.sdk.video.loader.Warmup;
+import com.twilio.sdk.video.media.MediaFactoryPool;
+import com.twilio.sdk.video.media.SinkTier;
+import com.twilio.sdk.video.FakeVideoCapturerOptions;
+import com.twilio.sdk.video.FakeVideoPattern;
+import com.twilio.sdk.video.H264Codec;
+import com.twilio.sdk.video.VideoCodec;
+import com.twilio.sdk.video.Vp8Codec;
+import com.twilio.sdk.video.Vp9Codec;
+
+/**
+ * Connects <code>LOAD_ROOMS</code> rooms of <code>LOAD_PARTICIPANTS</code> synthetic participants
+ * each from this JVM, holds them for <code>LOAD_DURATION</code> seconds and writes a report of
+ * connect latencies, received frame rates and the CPU and memory the process needed per
+ * participant; see {@link LoadReport}.
+ *
+ * Participants publish one fake-capturer video track, share the factories of a
+ * {@link MediaFactoryPool}, and are started at <code>LOAD_RAMP_UP_RATE</code> per second. Frame
+ * rates, CPU and memory are measured from the moment the last participant finished connecting, so
+ * the ramp-up does not skew them; the timeline covers the whole run.
+ *
+ * Configured with system properties:
+ *
+ * <ul>
+ * <li><code>ACCOUNT_SID</code>, <code>API_KEY</code>, <code>API_KEY_SECRET</code>: credentials</li>
+ * <li><code>ROOM_NAME</code>: prefix of the room names, random by default</li>
+ * <li><code>LOAD_ROOMS</code>, <code>LOAD_PARTICIPANTS</code>: rooms, and participants per room (1 and 2)</li>
+ * <li><code>LOAD_RAMP_UP_RATE</code>: participants started per second (1)</li>
+ * <li><code>LOAD_CODECS</code>: preferred video codecs handed out in turn, with optional weights,
+ *     e.g. <code>H264:3,VP8:1</code> (<code>H264</code>)</li>
+ * <li><code>LOAD_DURATION</code>: seconds to hold all participants (60)</li>
+ * <li><code>LOAD_FRAME_RATE</code>, <code>LOAD_PATTERN</code>: fake capturer frame rate and
+ *     {@link FakeVideoPattern} (15 and <code>kNoise</code>)</li>
+ * <li><code>LOAD_SINK_TIER</code>: {@link SinkTier} of the received tracks, e.g. <code>THUMBNAIL</code>
+ *     for a grid view (<code>FULL</code>)</li>
+ * <li><code>LOAD_CONNECT_TIMEOUT</code>: seconds before a connect counts as failed (30)</li>
+ * <li><code>LOAD_REPORT</code>: report file, CSV if it ends with <code>.csv</code> (<code>load-report.json</code>)</li>
+ * </ul>
+ */
+public class LoadGenerator {
+    private static final long CLOSE_TIMEOUT_SECONDS = 10;
+    private static final long SAMPLE_INTERVAL_MILLIS = 1000;
+    // names only: codecs are native objects, which cannot be created before the library is loaded
+    private static final List<String> CODECS = Arrays.asList("H264", "VP8", "VP9");
+
+    private final String accountSid;
+    private final String apiKey;
+    private final String apiKeySecret;
+    private final String roomPrefix;
+    private final int rooms;
+    private final int participantsPerRoom;
+    private final double rampUpRate;
+    private final List<String> codecs;
+    private final long durationSeconds;
+    private final int frameRate;
+    private final String pattern;
+    private final SinkTier sinkTier;
+    private final long connectTimeoutSeconds;
+    private final Path reportPath;
+
+    private final List<LoadParticipant> participants;
+    private final List<LoadReport.Sample> timeline;
+
+    LoadGenerator() {
+        this.accountSid = System.getProperty("ACCOUNT_SID");
+        this.apiKey = System.getProperty("API_KEY");
+        this.apiKeySecret = System.getProperty("API_KEY_SECRET");
+        if (this.accountSid == null || this.apiKey == null || this.apiKeySecret == null)
+            throw new IllegalArgumentException("ACCOUNT_SID, API_KEY and API_KEY_SECRET must be set");
+
+        final String roomName = System.getProperty("ROOM_NAME");
+        this.roomPrefix = roomName == null || roomName.isEmpty() ? "load-" + UUID.randomUUID().toString() : roomName;
+        this.rooms = positive("LOAD_ROOMS", Integer.getInteger("LOAD_ROOMS", 1));
+        this.participantsPerRoom = positive("LOAD_PARTICIPANTS", Integer.getInteger("LOAD_PARTICIPANTS", 2));
+        this.rampUpRate = Double.parseDouble(System.getProperty("LOAD_RAMP_UP_RATE", "1"));
+        if (!(this.rampUpRate > 0))
+            throw new IllegalArgumentException("LOAD_RAMP_UP_RATE must be positive");
+        this.codecs = parseCodecs(System.getProperty("LOAD_CODECS", "H264"));
+        this.durationSeconds = positive("LOAD_DURATION", Integer.getInteger("LOAD_DURATION", 60));
+        this.frameRate = positive("LOAD_FRAME_RATE", Integer.getInteger("LOAD_FRAME_RATE", 15));
+        this.pattern = System.getProperty("LOAD_PATTERN", "kNoise");
+        this.sinkTier = SinkTier.valueOf(System.getProperty("LOAD_SINK_TIER", SinkTier.FULL.name()).toUpperCase(Locale.ROOT));
+        this.connectTimeoutSeconds = positive("LOAD_CONNECT_TIMEOUT", Integer.getInteger("LOAD_CONNECT_TIMEOUT", 30));
+        this.reportPath = Paths.get(System.getProperty("LOAD_REPORT", "load-report.json"));
+
+        this.participants = new ArrayList<>();
+        this.timeline = new ArrayList<>();
+    }
+
+    private static int positive(final String name, final int value) {
+        if (value <= 0)
+            throw new IllegalArgumentException(name + " must be positive");
+        return value;
+    }
+
+    /**
+     * Expands <code>H264:3,VP8:1</code> into the order codecs are handed out in.
+     */
+    static List<String> parseCodecs(final String spec) {
+        final List<String> codecs = new ArrayList<>();
+        for (final String entry: spec.split(",")) {
+            final String[] parts = entry.trim().split(":");
+            final String name = parts[0].trim().toUpperCase(Locale.ROOT);
+            if (!CODECS.contains(name))
+                throw new IllegalArgumentException("unknown video codec: " + name);
+            final int weight = parts.length > 1 ? Integer.parseInt(parts[1].trim()) : 1;
+            if (weight <= 0)
+                throw new IllegalArgumentException("codec weights must be positive: " + entry);
+            for (int i = 0; i < weight; i++) {
+                codecs.add(name);
+            }
+        }
+        return codecs;
+    }
+
+    private static VideoCodec createCodec(final String name) {
+        switch (name) {
+        case "H264":
+            return new H264Codec();
+        case "VP8":
+            return new Vp8Codec();
+        case "VP9":
+            return new Vp9Codec();
+        default:
+            throw new IllegalArgumentException("unknown video codec: " + name);
+        }
+    }
+
+    public static void main(final String[] args) throws InterruptedException, IOException {
+        new LoadGenerator().run();
+    }
+
+    void run() throws InterruptedException, IOException {
+        final int total = this.rooms * this.participantsPerRoom;
+        final MediaFactoryPool pool = new MediaFactoryPool();
+        // creating the factories is not part of what a participant costs
+        System.out.println(new Warmup().prestart(pool, Math.min(pool.getSize(), total)).start().join());
+
+        final FakeVideoCapturerOptions capturerOptions = new FakeVideoCapturerOptions();
+        capturerOptions.setFrame_rate(this.frameRate);
+        capturerOptions.setPattern(FakeVideoPattern.valueOf(this.pattern));
+
+        final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(4);
+        final long started = System.nanoTime();
+        final long baselineRss = getRssBytes();
+        final long[] lastCpu = { getProcessCpuNanos(), started };
+        scheduler.scheduleAtFixedRate(() -> sample(started, lastCpu), SAMPLE_INTERVAL_MILLIS, SAMPLE_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+
+        System.out.println(String.format("Starting %d participants in %d rooms at %.1f per second", total, this.rooms, this.rampUpRate));
+        final List<CompletableFuture<?>> connects = new ArrayList<>();
+        for (int i = 0; i < total; i++) {
+            final String room = this.roomPrefix + "-" + (i / this.participantsPerRoom);
+            final String identity = room + "-participant-" + (i % this.participantsPerRoom);
+            final String codec = this.codecs.get(i % this.codecs.size());
+            final LoadParticipant participant = new LoadParticipant(room, identity, codec, this.sinkTier);
+            synchronized (this.participants) {
+                this.participants.add(participant);
+            }
+
+            final long delayMicros = (long) (i * 1e6 / this.rampUpRate);
+            final CompletableFuture<Void> connect = new CompletableFuture<>();
+            scheduler.schedule(() -> {
+                CompletableFuture<?> attempt = null;
+                try {
+                    attempt = participant.connect(pool, createToken(identity), createCodec(codec), capturerOptions, this.connectTimeoutSeconds)
+                            .whenComplete((connected, error) -> {
+                                if (error != null) {
+                                    System.out.println(String.format("%s failed to connect: %s", identity, participant.getError()));
+                                }
+                            });
+                } catch (final RuntimeException e) {
+                    System.out.println(String.format("%s failed to connect: %s", identity, e));
+                } finally {
+                    // the ramp-up waits for every participant, so a failed task must not leave it hanging
+                    if (attempt == null) {
+                        connect.complete(null);
+                    } else {
+                        attempt.whenComplete((connected, error) -> connect.complete(null));
+                    }
+                }
+            }, delayMicros, TimeUnit.MICROSECONDS);
+            connects.add(connect);
+        }
+        CompletableFuture.allOf(connects.toArray(new CompletableFuture<?>[0])).join();
+
+        // the measurement window starts once every participant connected or gave up
+        final long windowStarted = System.nanoTime();
+        final long cpuStarted = getProcessCpuNanos();
+        final long[] framesStarted = new long[total];
+        for (int i = 0; i < total; i++) {
+            framesStarted[i] = this.participants.get(i).getFramesReceived();
+        }
+        System.out.println(String.format("Ramp-up took %.1f s; holding for %d s", (windowStarted - started) / 1e9, this.durationSeconds));
+        Thread.sleep(TimeUnit.SECONDS.toMillis(this.durationSeconds));
+
+        final long windowEnded = System.nanoTime();
+        final long cpuEnded = getProcessCpuNanos();
+        final long rssEnded = getRssBytes();
+        final double windowSeconds = (windowEnded - windowStarted) / 1e9;
+        final List<LoadReport.Row> rows = new ArrayList<>();
+        for (int i = 0; i < total; i++) {
+            final LoadParticipant participant = this.participants.get(i);
+            rows.add(new LoadReport.Row(participant, participant.getFramesReceived() - framesStarted[i], windowSeconds));
+        }
+        scheduler.shutdownNow();
+
+        final List<LoadReport.Sample> timeline;
+        synchronized (this.timeline) {
+            timeline = new ArrayList<>(this.timeline);
+        }
+        final LoadReport report = new LoadReport(getConfig(),
+                rows,
+                timeline,
+                windowSeconds,
+                cpuStarted < 0 || cpuEnded < 0 ? -1 : cpuEnded - cpuStarted,
+                baselineRss < 0 || rssEnded < 0 ? -1 : rssEnded - baselineRss);
+
+        // written first, so that a teardown which hangs or fails does not lose the measurements
+        try {
+            report.write(this.reportPath);
+            System.out.println(String.format("Summary: %s", report.getSummary()));
+            System.out.println(String.format("Report written to %s", this.reportPath.toAbsolutePath()));
+        } finally {
+            close();
+            pool.close();
+        }
+    }
+
+    private String createToken(final String identity) {
+        return new AccessToken.Builder(this.accountSid, this.apiKey, this.apiKeySecret)
+                .identity(identity)
+                .grant(new VideoGrant()).build().toJwt();
+    }
+
+    private void sample(final long started, final long[] lastCpu) {
+        final long now = System.nanoTime();
+        final long cpu = getProcessCpuNanos();
+        final double cores = cpu < 0 || lastCpu[0] < 0 ? -1 : (double) (cpu - lastCpu[0]) / (now - lastCpu[1]);
+        lastCpu[0] = cpu;
+        lastCpu[1] = now;
+
+        int connected = 0;
+        long frames = 0;
+        synchronized (this.participants) {
+            for (final LoadParticipant participant: this.participants) {
+                if (participant.isConnected()) {
+                    connected++;
+                }
+                frames += participant.getFramesReceived();
+            }
+        }
+
+        final LoadReport.Sample sample = new LoadReport.Sample(TimeUnit.NANOSECONDS.toMillis(now - started), connected, cores, getRssBytes(), frames);
+        synchronized (this.timeline) {
+            this.timeline.add(sample);
+        }
+    }
+
+    /**
+     * Disconnects all participants, a few at a time.
+     */
+    private void close() {
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.min(16, Math.max(1, this.participants.size())));
+        final List<CompletableFuture<Void>> closed = new ArrayList<>();
+        for (final LoadParticipant participant: this.participants) {
+            closed.add(CompletableFuture.runAsync(() -> participant.close(CLOSE_TIMEOUT_SECONDS), executor));
+        }
+        CompletableFuture.allOf(closed.toArray(new CompletableFuture<?>[0])).handle((ignored, error) -> null).join();
+        executor.shutdown();
+    }
+
+    private Map<String, Object> getConfig() {
+        final Map<String, Object> config = new LinkedHashMap<>();
+        config.put("room_prefix", this.roomPrefix);
+        config.put("rooms", this.rooms);
+        config.put("participants_per_room", this.participantsPerRoom);
+        config.put("ramp_up_rate", this.rampUpRate);
+        config.put("codecs", String.join(",", this.codecs));
+        config.put("duration_seconds", this.durationSeconds);
+        config.put("frame_rate", this.frameRate);
+        config.put("pattern", this.pattern);
+        config.put("sink_tier", this.sinkTier.name());
+        config.put("connect_timeout_seconds", this.connectTimeoutSeconds);
+        config.put("available_processors", Runtime.getRuntime().availableProcessors());
+        return config;
+    }
+
+    /**
+     * @return CPU time used by the process, or -1 where the JVM does not report it
+     */
+    static long getProcessCpuNanos() {
+        final OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        if (os instanceof com.sun.management.OperatingSystemMXBean) {
+            return ((com.sun.management.OperatingSystemMXBean) os).getProcessCpuTime();
+        }
+        return -1;
+    }
+
+    /**
+     * @return the resident set size of the process, native memory included, or -1 outside Linux
+     */
+    static long getRssBytes() {
+        try {
+            for (final String line: Files.readAllLines(Paths.get("/proc/self/status"), StandardCharsets.US_ASCII)) {
+                if (line.startsWith("VmRSS:")) {
+                    return Long.parseLong(line.substring("VmRSS:".length()).replace("kB", "").trim()) * 1024;
+                }
+            }
+        } catch (final IOException | NumberFormatException e) {
+            // not Linux
+        }
+        return -1;
+    }
+}
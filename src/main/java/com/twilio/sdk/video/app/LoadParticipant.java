@@ -0,0 +1,279 @@
+package com.twilio.sdk.video.app;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.collect.Lists;
+
+import com.twilio.sdk.video.ConnectOptions;
+import com.twilio.sdk.video.FakeVideoCapturerOptions;
+import com.twilio.sdk.video.LocalVideoTrack;
+import com.twilio.sdk.video.MediaConstraints;
+import com.twilio.sdk.video.RemoteParticipant;
+import com.twilio.sdk.video.RemoteParticipantObserver;
+import com.twilio.sdk.video.RemoteVideoTrack;
+import com.twilio.sdk.video.RemoteVideoTrackPublication;
+import com.twilio.sdk.video.Room;
+import com.twilio.sdk.video.RoomObserver;
+import com.twilio.sdk.video.TwilioError;
+import com.twilio.sdk.video.VideoCodec;
+import com.twilio.sdk.video.VideoFrame;
+import com.twilio.sdk.video.VideoSinkForVideoFrame;
+import com.twilio.sdk.video.VideoTrackOptions;
+import com.twilio.sdk.video.async.AsyncRoom;
+import com.twilio.sdk.video.media.MediaFactoryPool;
+import com.twilio.sdk.video.media.SinkTier;
+import com.twilio.sdk.video.media.TieredVideoSink;
+import com.twilio.sdk.video.room.ParticipantRegistry;
+
+/**
+ * One synthetic participant of a {@link LoadGenerator} run: publishes a fake-capturer video track
+ * and counts the frames of every video track it subscribes to, received at the given tier.
+ */
+class LoadParticipant {
+    private static final class CountingSink extends VideoSinkForVideoFrame {
+        private final AtomicLong frames;
+
+        CountingSink(final AtomicLong frames) {
+            this.frames = frames;
+        }
+
+        @Override
+        public void OnFrame(final VideoFrame frame) {
+            this.frames.incrementAndGet();
+        }
+    }
+
+    private final String room;
+    private final String identity;
+    private final String codec;
+    private final SinkTier tier;
+
+    private final AtomicLong framesReceived;
+    private final AtomicInteger videoTracks;
+    // the SDK does not keep the directors alive
+    private final Map<String, TieredVideoSink> sinks;
+    private final RemoteParticipantObserver participantObserver;
+
+    private MediaFactoryPool.Lease lease;
+    private LocalVideoTrack track;
+    private AsyncRoom asyncRoom;
+
+    private final Object connectLock;
+    // once the connect failed or timed out, a late onConnected() must not count it as connected
+    private boolean connectFailed;
+
+    private volatile long connectStarted;
+    private volatile long connectNanos;
+    private volatile String error;
+
+    LoadParticipant(final String room, final String identity, final String codec, final SinkTier tier) {
+        this.room = room;
+        this.identity = identity;
+        this.codec = codec;
+        this.tier = tier;
+
+        this.framesReceived = new AtomicLong();
+        this.videoTracks = new AtomicInteger();
+        this.sinks = new ConcurrentHashMap<>();
+        this.participantObserver = new ParticipantObserver();
+
+        this.connectLock = new Object();
+        this.connectNanos = -1;
+    }
+
+    /**
+     * Leases a factory, creates the track and starts connecting.
+     *
+     * @return completes once the room is connected, or exceptionally on failure or timeout
+     */
+    CompletableFuture<Room> connect(final MediaFactoryPool pool,
+                                    final String token,
+                                    final VideoCodec videoCodec,
+                                    final FakeVideoCapturerOptions capturerOptions,
+                                    final long timeoutSeconds) {
+        this.connectStarted = System.nanoTime();
+        try {
+            this.lease = pool.acquire();
+            this.track = this.lease.getMediaFactory().createVideoTrack(capturerOptions,
+                    new VideoTrackOptions(true),
+                    MediaConstraints.defaultVideoConstraints());
+
+            final ConnectOptions options = new ConnectOptions.Builder(token)
+                    .setRoomName(this.room)
+                    .setMediaFactory(this.lease.getMediaFactory())
+                    .setPreferredVideoCodecs(Lists.newArrayList(videoCodec))
+                    .setVideoTracks(Lists.newArrayList(this.track)).build();
+
+            this.asyncRoom = new AsyncRoom(new Observer());
+            return this.asyncRoom.connectAsync(options, timeoutSeconds, TimeUnit.SECONDS).whenComplete((room, error) -> {
+                if (error != null) {
+                    failConnect();
+                    this.error = String.valueOf(error.getCause() != null ? error.getCause() : error);
+                }
+            });
+        } catch (final RuntimeException e) {
+            failConnect();
+            this.error = e.toString();
+            final CompletableFuture<Room> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+    }
+
+    private void failConnect() {
+        synchronized (this.connectLock) {
+            this.connectFailed = true;
+            this.connectNanos = -1;
+        }
+    }
+
+    private boolean isConnectFailed() {
+        synchronized (this.connectLock) {
+            return this.connectFailed;
+        }
+    }
+
+    /**
+     * Disconnects and releases the room, the track and the lease; waits at most
+     * <code>timeoutSeconds</code> for the room to disconnect.
+     */
+    void close(final long timeoutSeconds) {
+        try {
+            if (this.asyncRoom != null) {
+                try {
+                    this.asyncRoom.disconnectAsync(timeoutSeconds, TimeUnit.SECONDS).handle((ignored, error) -> null).join();
+                } finally {
+                    for (final TieredVideoSink sink: this.sinks.values()) {
+                        sink.close();
+                    }
+                    this.sinks.clear();
+                    final Room room = this.asyncRoom.getRoom();
+                    if (room != null) {
+                        room.close();
+                    }
+                }
+            }
+            if (this.track != null) {
+                this.track.close();
+            }
+        } finally {
+            // the factory goes back to the pool even if the room or the track failed to close
+            if (this.lease != null) {
+                this.lease.close();
+            }
+        }
+    }
+
+    boolean isConnected() {
+        return this.connectNanos >= 0;
+    }
+
+    String getRoom() {
+        return this.room;
+    }
+
+    String getIdentity() {
+        return this.identity;
+    }
+
+    String getCodec() {
+        return this.codec;
+    }
+
+    int getFactoryIndex() {
+        return this.lease == null ? -1 : this.lease.getIndex();
+    }
+
+    /**
+     * @return time from the start of the connect to the connected callback, or -1 if it did not connect
+     */
+    long getConnectNanos() {
+        return this.connectNanos;
+    }
+
+    /**
+     * @return the reason the participant did not connect, or <code>null</code>
+     */
+    String getError() {
+        return this.error;
+    }
+
+    long getFramesReceived() {
+        return this.framesReceived.get();
+    }
+
+    int getVideoTracks() {
+        return this.videoTracks.get();
+    }
+
+    private class Observer extends RoomObserver {
+        private final ParticipantRegistry participants = new ParticipantRegistry();
+
+        @Override
+        public void onConnected(final Room room) {
+            // measured here rather than in the future, which completes on another thread
+            final long connectNanos = System.nanoTime() - LoadParticipant.this.connectStarted;
+            synchronized (LoadParticipant.this.connectLock) {
+                // connected after the timeout; reported as failed, so it receives nothing either
+                if (LoadParticipant.this.connectFailed) {
+                    return;
+                }
+                LoadParticipant.this.connectNanos = connectNanos;
+            }
+            this.participants.onConnected(room);
+            this.participants.forEach(participant -> participant.setObserver(LoadParticipant.this.participantObserver));
+        }
+
+        @Override
+        public void onDisconnected(final Room room, final TwilioError error) {
+            this.participants.onDisconnected();
+            if (error != null && LoadParticipant.this.error == null) {
+                LoadParticipant.this.error = String.format("disconnected: %d %s", error.getCode().swigValue(), error.getMessage());
+            }
+        }
+
+        @Override
+        public void onParticipantConnected(final Room room, final RemoteParticipant participant) {
+            if (isConnectFailed()) {
+                return;
+            }
+            this.participants.onParticipantConnected(participant);
+            participant.setObserver(LoadParticipant.this.participantObserver);
+        }
+
+        @Override
+        public void onParticipantDisconnected(final Room room, final RemoteParticipant participant) {
+            this.participants.onParticipantDisconnected(participant);
+            participant.setObserver(null);
+        }
+    }
+
+    private class ParticipantObserver extends RemoteParticipantObserver {
+        @Override
+        public void onVideoTrackSubscribed(final RemoteParticipant participant,
+                                           final RemoteVideoTrackPublication publication,
+                                           final RemoteVideoTrack track) {
+            final TieredVideoSink sink = new TieredVideoSink(track.getWebRtcTrack(),
+                    new CountingSink(LoadParticipant.this.framesReceived),
+                    LoadParticipant.this.tier);
+            LoadParticipant.this.sinks.put(publication.getTrackSid(), sink);
+            LoadParticipant.this.videoTracks.incrementAndGet();
+        }
+
+        @Override
+        public void onVideoTrackUnsubscribed(final RemoteParticipant participant,
+                                             final RemoteVideoTrackPublication publication,
+                                             final RemoteVideoTrack track) {
+            final TieredVideoSink sink = LoadParticipant.this.sinks.remove(publication.getTrackSid());
+            if (sink != null) {
+                sink.close();
+                LoadParticipant.this.videoTracks.decrementAndGet();
+            }
+        }
+    }
+}
@@ -0,0 +1,327 @@
+package com.twilio.sdk.video.app;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Results of a {@link LoadGenerator} run: the configuration, one row per participant, a timeline of
+ * process samples taken during the run, and a summary computed from them.
+ *
+ * Written as one JSON document, or as CSV: the participant rows to the given file and the timeline
+ * to a second file next to it, with <code>-timeline</code> added to its name.
+ */
+class LoadReport {
+    static final double[] PERCENTILES = { 50, 90, 95, 99 };
+
+    /**
+     * The process at one point of the run.
+     */
+    static final class Sample {
+        final long elapsedMillis;
+        final int connected;
+        final double cpuCores;
+        final long rssBytes;
+        final long framesReceived;
+
+        Sample(final long elapsedMillis, final int connected, final double cpuCores, final long rssBytes, final long framesReceived) {
+            this.elapsedMillis = elapsedMillis;
+            this.connected = connected;
+            this.cpuCores = cpuCores;
+            this.rssBytes = rssBytes;
+            this.framesReceived = framesReceived;
+        }
+    }
+
+    /**
+     * One participant, with its frames counted over the measurement window only.
+     */
+    static final class Row {
+        final String room;
+        final String identity;
+        final String codec;
+        final int factory;
+        final double connectMillis;
+        final int videoTracks;
+        final long framesReceived;
+        final double receivedFps;
+        final String error;
+
+        Row(final LoadParticipant participant, final long framesReceived, final double windowSeconds) {
+            this.room = participant.getRoom();
+            this.identity = participant.getIdentity();
+            this.codec = participant.getCodec();
+            this.factory = participant.getFactoryIndex();
+            this.connectMillis = participant.isConnected() ? participant.getConnectNanos() / 1e6 : -1;
+            this.videoTracks = participant.getVideoTracks();
+            this.framesReceived = framesReceived;
+            this.receivedFps = windowSeconds > 0 ? framesReceived / windowSeconds : 0;
+            this.error = participant.getError();
+        }
+    }
+
+    private final Map<String, Object> config;
+    private final List<Row> rows;
+    private final List<Sample> timeline;
+    private final Map<String, Object> summary;
+
+    /**
+     * @param cpuNanos process CPU time spent during the measurement window, or -1 if unknown
+     * @param rssBytes growth of the resident set from before the first participant to the end of the window, or -1 if unknown
+     */
+    LoadReport(final Map<String, Object> config,
+               final List<Row> rows,
+               final List<Sample> timeline,
+               final double windowSeconds,
+               final long cpuNanos,
+               final long rssBytes) {
+        this.config = new LinkedHashMap<>(config);
+        this.rows = Collections.unmodifiableList(new ArrayList<>(rows));
+        this.timeline = Collections.unmodifiableList(new ArrayList<>(timeline));
+        this.summary = summarize(windowSeconds, cpuNanos, rssBytes);
+    }
+
+    List<Row> getRows() {
+        return this.rows;
+    }
+
+    Map<String, Object> getSummary() {
+        return Collections.unmodifiableMap(this.summary);
+    }
+
+    private Map<String, Object> summarize(final double windowSeconds, final long cpuNanos, final long rssBytes) {
+        final List<Double> connectMillis = new ArrayList<>();
+        final List<Double> receivedFps = new ArrayList<>();
+        for (final Row row: this.rows) {
+            if (row.connectMillis >= 0) {
+                connectMillis.add(row.connectMillis);
+                receivedFps.add(row.receivedFps);
+            }
+        }
+        final int connected = connectMillis.size();
+
+        final Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("participants", this.rows.size());
+        summary.put("connected", connected);
+        summary.put("failed", this.rows.size() - connected);
+        summary.put("window_seconds", windowSeconds);
+
+        final double[] connect = sorted(connectMillis);
+        for (final double percentile: PERCENTILES) {
+            summary.put(String.format(Locale.ROOT, "connect_p%.0f_ms", percentile), percentile(connect, percentile));
+        }
+        summary.put("connect_max_ms", connect.length == 0 ? 0 : connect[connect.length - 1]);
+
+        // low frame rates are the interesting tail
+        final double[] fps = sorted(receivedFps);
+        summary.put("received_fps_mean", mean(fps));
+        summary.put("received_fps_p10", percentile(fps, 10));
+        summary.put("received_fps_min", fps.length == 0 ? 0 : fps[0]);
+
+        summary.put("cpu_cores_per_participant", cpuNanos < 0 || connected == 0 || windowSeconds <= 0
+                ? -1 : cpuNanos / 1e9 / windowSeconds / connected);
+        summary.put("rss_bytes_per_participant", rssBytes < 0 || connected == 0 ? -1 : rssBytes / connected);
+        return summary;
+    }
+
+    private static double[] sorted(final List<Double> values) {
+        final double[] array = new double[values.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = values.get(i);
+        }
+        Arrays.sort(array);
+        return array;
+    }
+
+    /**
+     * Nearest-rank percentile of sorted values; 0 without values.
+     */
+    static double percentile(final double[] sorted, final double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        final int rank = (int) Math.ceil(sorted.length * Math.min(100.0, Math.max(0.0, percentile)) / 100.0);
+        return sorted[Math.max(0, rank - 1)];
+    }
+
+    private static double mean(final double[] values) {
+        if (values.length == 0) {
+            return 0;
+        }
+        double sum = 0;
+        for (final double value: values) {
+            sum += value;
+        }
+        return sum / values.length;
+    }
+
+    /**
+     * Writes CSV if the file name ends with <code>.csv</code>, JSON otherwise.
+     */
+    void write(final Path path) throws IOException {
+        if (path.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".csv")) {
+            writeCsv(path);
+        } else {
+            try (final Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+                writeJson(writer);
+            }
+        }
+    }
+
+    void writeJson(final Writer writer) throws IOException {
+        writer.write("{\n  \"config\": ");
+        writeObject(writer, this.config);
+        writer.write(",\n  \"summary\": ");
+        writeObject(writer, this.summary);
+
+        writer.write(",\n  \"participants\": [");
+        for (int i = 0; i < this.rows.size(); i++) {
+            final Row row = this.rows.get(i);
+            final Map<String, Object> fields = new LinkedHashMap<>();
+            fields.put("room", row.room);
+            fields.put("identity", row.identity);
+            fields.put("codec", row.codec);
+            fields.put("factory", row.factory);
+            fields.put("connect_ms", row.connectMillis);
+            fields.put("video_tracks", row.videoTracks);
+            fields.put("frames_received", row.framesReceived);
+            fields.put("received_fps", row.receivedFps);
+            fields.put("error", row.error);
+            writer.write(i == 0 ? "\n    " : ",\n    ");
+            writeObject(writer, fields);
+        }
+
+        writer.write("\n  ],\n  \"timeline\": [");
+        for (int i = 0; i < this.timeline.size(); i++) {
+            final Sample sample = this.timeline.get(i);
+            final Map<String, Object> fields = new LinkedHashMap<>();
+            fields.put("elapsed_ms", sample.elapsedMillis);
+            fields.put("connected", sample.connected);
+            fields.put("cpu_cores", sample.cpuCores);
+            fields.put("rss_bytes", sample.rssBytes);
+            fields.put("frames_received", sample.framesReceived);
+            writer.write(i == 0 ? "\n    " : ",\n    ");
+            writeObject(writer, fields);
+        }
+        writer.write("\n  ]\n}\n");
+    }
+
+    private void writeCsv(final Path path) throws IOException {
+        try (final Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            writer.write("room,identity,codec,factory,connect_ms,video_tracks,frames_received,received_fps,error\n");
+            for (final Row row: this.rows) {
+                writer.write(String.join(",",
+                        csv(row.room),
+                        csv(row.identity),
+                        csv(row.codec),
+                        Integer.toString(row.factory),
+                        number(row.connectMillis),
+                        Integer.toString(row.videoTracks),
+                        Long.toString(row.framesReceived),
+                        number(row.receivedFps),
+                        csv(row.error)));
+                writer.write('\n');
+            }
+        }
+
+        final String name = path.getFileName().toString();
+        final Path timeline = path.resolveSibling(name.substring(0, name.length() - ".csv".length()) + "-timeline.csv");
+        try (final Writer writer = Files.newBufferedWriter(timeline, StandardCharsets.UTF_8)) {
+            writer.write("elapsed_ms,connected,cpu_cores,rss_bytes,frames_received\n");
+            for (final Sample sample: this.timeline) {
+                writer.write(String.join(",",
+                        Long.toString(sample.elapsedMillis),
+                        Integer.toString(sample.connected),
+                        number(sample.cpuCores),
+                        Long.toString(sample.rssBytes),
+                        Long.toString(sample.framesReceived)));
+                writer.write('\n');
+            }
+        }
+    }
+
+    private static void writeObject(final Writer writer, final Map<String, Object> fields) throws IOException {
+        writer.write('{');
+        boolean first = true;
+        for (final Map.Entry<String, Object> field: fields.entrySet()) {
+            if (!first) {
+                writer.write(", ");
+            }
+            first = false;
+            writer.write(json(field.getKey()));
+            writer.write(": ");
+            writer.write(jsonValue(field.getValue()));
+        }
+        writer.write('}');
+    }
+
+    private static String jsonValue(final Object value) {
+        if (value == null) {
+            return "null";
+        }
+        if (value instanceof Double || value instanceof Float) {
+            return number(((Number) value).doubleValue());
+        }
+        if (value instanceof Number || value instanceof Boolean) {
+            return value.toString();
+        }
+        return json(value.toString());
+    }
+
+    private static String number(final double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return "null";
+        }
+        return String.format(Locale.ROOT, "%.3f", value);
+    }
+
+    private static String json(final String value) {
+        final StringBuilder builder = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            switch (c) {
+            case '"':
+                builder.append("\\\"");
+                break;
+            case '\\':
+                builder.append("\\\\");
+                break;
+            case '\n':
+                builder.append("\\n");
+                break;
+            case '\r':
+                builder.append("\\r");
+                break;
+            case '\t':
+                builder.append("\\t");
+                break;
+            default:
+                if (c < 0x20) {
+                    builder.append(String.format("\\u%04x", (int) c));
+                } else {
+                    builder.append(c);
+                }
+            }
+        }
+        return builder.append('"').toString();
+    }
+
+    private static String csv(final String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
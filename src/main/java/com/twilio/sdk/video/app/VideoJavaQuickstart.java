@@ -1,14 +1,16 @@
 package com.twilio.sdk.video.app;
 
 import java.io.IOException;
-import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 import com.google.common.collect.Lists;
 import com.twilio.jwt.accesstoken.AccessToken;
 import com.twilio.jwt.accesstoken.VideoGrant;
 
-import com.twilio.sdk.video.loader.NativeLoader;
+import com.twilio.sdk.video.loader.StartupProfile;
+import com.twilio.sdk.video.loader.Warmup;
+import com.twilio.sdk.video.room.ParticipantRegistry;
 import com.twilio.sdk.video.AudioTrackOptions;
 import com.twilio.sdk.video.ConnectOptions;
 import com.twilio.sdk.video.H264Codec;
@@ -33,10 +35,6 @@ import com.twilio.sdk.video.VideoSinkForVideoFrame;
 import com.twilio.sdk.video.video;
 
 public class VideoJavaQuickstart {
-    static {
-        NativeLoader.loadNativeLibraries();
-    }
-
     private static class TestSinkForVideoFrame extends VideoSinkForVideoFrame {
         private int frameCount = 0;
 
@@ -216,25 +214,28 @@ public class VideoJavaQuickstart {
 
     private static class TestRoomObserver extends RoomObserver {
         private RemoteParticipantObserver observer;
+        private final ParticipantRegistry participants;
 
         public TestRoomObserver(final RemoteParticipantObserver observer) {
             this.observer = observer;
+            this.participants = new ParticipantRegistry();
         }
 
         @Override
         public void onConnected(Room room) {
+            this.participants.onConnected(room);
+
             System.out.println(String.format("Connected to room: %s", room.getName()));
-            System.out.println(String.format("PARTICIPANTS IN THE ROOM: %d", room.getRemoteParticipants().size()));
-            final List<String> identities = room.getRemoteParticipants().keys();
-            for (final String identity: identities) {
-                System.out.println(String.format("Adding observer for participant %s", identity));
-                final RemoteParticipant participant = room.getRemoteParticipants().get(identity);
+            System.out.println(String.format("PARTICIPANTS IN THE ROOM: %d", this.participants.size()));
+            this.participants.forEach(participant -> {
+                System.out.println(String.format("Adding observer for participant %s", participant.getIdentity()));
                 participant.setObserver(this.observer);
-            }
+            });
         }
 
         @Override
         public void onDisconnected(Room room, TwilioError error) {
+            this.participants.onDisconnected();
             System.out.println(String.format("Room %s disconnected (with%s error)", room.getName(), error == null ? "out" : ""));
             if (error != null) {
                 System.out.println(String.format("Error code = %d, message = %s", error.getCode(), error.getMessage()));
@@ -253,6 +254,7 @@ public class VideoJavaQuickstart {
             System.out.println(String.format("Particpant %s connected to room %s, adding observer ...",
                     participant.getIdentity(),
                     room.getName()));
+            this.participants.onParticipantConnected(participant);
             participant.setObserver(this.observer);
         }
 
@@ -261,6 +263,7 @@ public class VideoJavaQuickstart {
             System.out.println(String.format("Particpant %s disconnected from room %s, removing observer ...",
                     participant.getIdentity(),
                     room.getName()));
+            this.participants.onParticipantDisconnected(participant);
             participant.setObserver(null);
         }
 
@@ -287,6 +290,9 @@ public class VideoJavaQuickstart {
     private static TestRoomObserver roomObserver;
 
     public static void main(String[] args) throws InterruptedException, IOException {
+        // load the native library while waiting for the user
+        final CompletableFuture<StartupProfile> warmup = new Warmup().start();
+
         System.out.println(String.format("Account SID:    %s", System.getProperty("ACCOUNT_SID")));
         System.out.println(String.format("API Key:        %s", System.getProperty("API_KEY")));
         System.out.println(String.format("API Key Secret: %s", System.getProperty("API_KEY_SECRET")));
@@ -311,6 +317,9 @@ public class VideoJavaQuickstart {
                 .identity(identity)
                 .grant(grant).build().toJwt();
 
+        // nothing native may run before the library is loaded
+        System.out.println(warmup.join());
+
         remoteParticipantObserver = new TestRemoteParticipantObserver();
         roomObserver = new TestRoomObserver(remoteParticipantObserver);
 
@@ -326,9 +335,14 @@ public class VideoJavaQuickstart {
                 .setAudioTracks(Lists.newArrayList(audioTrack))
                 .setVideoTracks(Lists.newArrayList(videoTrack)).build();
 
-        final Room room = video.connect(connectOptions, roomObserver);
-        Thread.sleep(10000);
-        room.disconnect();
-        Thread.sleep(5000);
+        try (final Room room = video.connect(connectOptions, roomObserver)) {
+            Thread.sleep(10000);
+            room.disconnect();
+            Thread.sleep(5000);
+        } finally {
+            videoTrack.close();
+            audioTrack.close();
+            mediaFactory.close();
+        }
     }
 }
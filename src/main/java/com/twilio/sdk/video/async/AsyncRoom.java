@@ -0,0 +1,320 @@
+package com.twilio.sdk.video.async;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.twilio.sdk.video.ConnectOptions;
+import com.twilio.sdk.video.RemoteParticipant;
+import com.twilio.sdk.video.Room;
+import com.twilio.sdk.video.RoomObserver;
+import com.twilio.sdk.video.StatsObserver;
+import com.twilio.sdk.video.StatsReport;
+import com.twilio.sdk.video.StatsReportVector;
+import com.twilio.sdk.video.TwilioError;
+import com.twilio.sdk.video.video;
+
+/**
+ * {@link CompletableFuture} facade for connecting to, querying and leaving one room.
+ *
+ * No thread waits for the SDK: the futures are completed from the room callbacks, and the ones
+ * handed out complete on the given executor, so dependent stages never run on the SDK notifier
+ * thread. Cancelling the connect future, or letting it time out, disconnects the room, which
+ * aborts a connect in progress.
+ *
+ * <pre>
+ * final AsyncRoom room = new AsyncRoom(roomObserver);
+ * room.connectAsync(connectOptions, 10, TimeUnit.SECONDS)
+ *         .thenCompose(connected -&gt; room.statsAsync(5, TimeUnit.SECONDS))
+ *         .thenAccept(reports -&gt; ...)
+ *         .thenCompose(ignored -&gt; room.disconnectAsync(10, TimeUnit.SECONDS));
+ * </pre>
+ */
+public class AsyncRoom implements AutoCloseable {
+    private final Executor executor;
+    private final RoomObserver delegate;
+    private final Observer observer;
+
+    private final AtomicBoolean started;
+    private final AtomicBoolean reportedConnected;
+    private final AtomicReference<Room> room;
+    private final CompletableFuture<Room> connected;
+    private final CompletableFuture<Void> disconnected;
+    private final Set<StatsObserver> pendingStats;
+
+    public AsyncRoom() {
+        this(null);
+    }
+
+    /**
+     * @param delegate optional observer which receives all room callbacks, on the SDK notifier thread
+     */
+    public AsyncRoom(final RoomObserver delegate) {
+        this(delegate, ForkJoinPool.commonPool());
+    }
+
+    public AsyncRoom(final RoomObserver delegate, final Executor executor) {
+        if (executor == null)
+            throw new IllegalArgumentException("executor cannot be null");
+
+        this.executor = executor;
+        this.delegate = delegate;
+        this.observer = new Observer();
+
+        this.started = new AtomicBoolean();
+        this.reportedConnected = new AtomicBoolean();
+        this.room = new AtomicReference<>();
+        this.connected = new CompletableFuture<>();
+        this.disconnected = new CompletableFuture<>();
+        this.pendingStats = ConcurrentHashMap.newKeySet();
+
+        this.connected.whenComplete((room, error) -> {
+            if (error != null) {
+                abort(error);
+            }
+        });
+    }
+
+    /**
+     * Starts connecting; the returned future completes once the room is connected.
+     *
+     * May be called only once per instance.
+     */
+    public CompletableFuture<Room> connectAsync(final ConnectOptions options) {
+        return connectAsync(options, 0, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @param timeout how long to wait for the room to connect before disconnecting it; zero or negative waits forever
+     */
+    public CompletableFuture<Room> connectAsync(final ConnectOptions options, final long timeout, final TimeUnit unit) {
+        if (options == null)
+            throw new IllegalArgumentException("options cannot be null");
+
+        if (!this.started.compareAndSet(false, true))
+            throw new IllegalStateException("connectAsync() can be called only once");
+
+        final CompletableFuture<Room> result = forward(this.connected, true);
+        Timeouts.within(result, timeout, unit);
+
+        // the returned proxy owns the room; the ones passed to callbacks do not
+        this.room.set(video.connect(options, this.observer));
+
+        // onConnected() may have run before connect() returned the owning proxy
+        if (this.reportedConnected.get()) {
+            this.connected.complete(this.room.get());
+        }
+
+        // a cancel or timeout which fired while connect() was running had no room to disconnect
+        if (this.connected.isCompletedExceptionally()) {
+            disconnectRoom();
+        }
+
+        return result;
+    }
+
+    /**
+     * Disconnects the room; the returned future completes once the SDK reports it disconnected.
+     */
+    public CompletableFuture<Void> disconnectAsync() {
+        return disconnectAsync(0, TimeUnit.MILLISECONDS);
+    }
+
+    public CompletableFuture<Void> disconnectAsync(final long timeout, final TimeUnit unit) {
+        if (!disconnectRoom()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        // a timeout fails only this caller, not everyone waiting for the room to go away
+        return Timeouts.within(forward(this.disconnected, false), timeout, unit);
+    }
+
+    /**
+     * @return the stats reports of the room's peer connections, copied out of native memory
+     */
+    public CompletableFuture<List<StatsReport>> statsAsync() {
+        return statsAsync(0, TimeUnit.MILLISECONDS);
+    }
+
+    public CompletableFuture<List<StatsReport>> statsAsync(final long timeout, final TimeUnit unit) {
+        final Room room = this.room.get();
+        if (room == null || !this.connected.isDone() || this.connected.isCompletedExceptionally()) {
+            final CompletableFuture<List<StatsReport>> failed = new CompletableFuture<>();
+            failed.completeExceptionally(new IllegalStateException("room is not connected"));
+            return failed;
+        }
+
+        final CompletableFuture<List<StatsReport>> result = new CompletableFuture<>();
+        final StatsObserver statsObserver = new StatsObserver() {
+            @Override
+            public void onStats(final StatsReportVector stats) {
+                // the vector is only valid during this call, and get() returns views into it, so
+                // every report is copied on its own
+                final int size = (int) stats.size();
+                final List<StatsReport> reports = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    reports.add(new StatsReport(stats.get(i)));
+                }
+                result.complete(reports);
+            }
+        };
+
+        // the SDK only holds a weak reference to the observer
+        this.pendingStats.add(statsObserver);
+        result.whenComplete((reports, error) -> this.pendingStats.remove(statsObserver));
+
+        room.getStats(statsObserver);
+        return Timeouts.within(forward(result, true), timeout, unit);
+    }
+
+    /**
+     * @return the room, or null before {@link #connectAsync(ConnectOptions)} is called
+     */
+    public Room getRoom() {
+        return this.room.get();
+    }
+
+    /**
+     * @return completes when the room disconnects, with or without an error
+     */
+    public CompletableFuture<Void> getDisconnectFuture() {
+        return this.disconnected;
+    }
+
+    /**
+     * Disconnects the room if needed and releases it once it is disconnected.
+     */
+    @Override
+    public void close() {
+        disconnectRoom();
+
+        // never from the notifier thread, which is still inside a callback of the room
+        this.disconnected.whenCompleteAsync((ignored, error) -> {
+            final Room room = this.room.get();
+            if (room != null) {
+                room.close();
+            }
+        }, this.executor);
+    }
+
+    private void abort(final Throwable error) {
+        if (error instanceof CancellationException || error instanceof TimeoutException) {
+            disconnectRoom();
+        }
+    }
+
+    private boolean disconnectRoom() {
+        final Room room = this.room.get();
+        if (room == null || this.disconnected.isDone()) {
+            return false;
+        }
+
+        room.disconnect();
+        return true;
+    }
+
+    /**
+     * The futures owned by this class complete inline, on the notifier thread, so their state always
+     * follows the order of the callbacks; callers get a copy which completes on the executor.
+     *
+     * @param propagate whether failing the copy (cancel, timeout) also fails the source
+     */
+    private <T> CompletableFuture<T> forward(final CompletableFuture<T> source, final boolean propagate) {
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        source.whenCompleteAsync((value, error) -> {
+            if (error != null) {
+                result.completeExceptionally(error);
+            } else {
+                result.complete(value);
+            }
+        }, this.executor);
+
+        if (propagate) {
+            result.whenComplete((value, error) -> {
+                if (error != null) {
+                    source.completeExceptionally(error);
+                }
+            });
+        }
+        return result;
+    }
+
+    private class Observer extends RoomObserver {
+        @Override
+        public void onConnected(final Room room) {
+            // complete with the owning proxy, which stays valid after this callback returns
+            AsyncRoom.this.reportedConnected.set(true);
+            final Room owner = AsyncRoom.this.room.get();
+            if (owner != null) {
+                AsyncRoom.this.connected.complete(owner);
+            }
+
+            if (AsyncRoom.this.delegate != null) {
+                AsyncRoom.this.delegate.onConnected(room);
+            }
+        }
+
+        @Override
+        public void onDisconnected(final Room room, final TwilioError error) {
+            if (error != null) {
+                AsyncRoom.this.disconnected.completeExceptionally(new RoomException(error));
+            } else {
+                AsyncRoom.this.disconnected.complete(null);
+            }
+            // a room which disconnects before it connected never will; failing this only after
+            // disconnected is done keeps abort() from disconnecting the room again from inside the callback
+            AsyncRoom.this.connected.completeExceptionally(error == null ? new CancellationException("disconnected") : new RoomException(error));
+
+            if (AsyncRoom.this.delegate != null) {
+                AsyncRoom.this.delegate.onDisconnected(room, error);
+            }
+        }
+
+        @Override
+        public void onConnectFailure(final Room room, final TwilioError error) {
+            AsyncRoom.this.disconnected.complete(null);
+            AsyncRoom.this.connected.completeExceptionally(new RoomException(error));
+
+            if (AsyncRoom.this.delegate != null) {
+                AsyncRoom.this.delegate.onConnectFailure(room, error);
+            }
+        }
+
+        @Override
+        public void onParticipantConnected(final Room room, final RemoteParticipant participant) {
+            if (AsyncRoom.this.delegate != null) {
+                AsyncRoom.this.delegate.onParticipantConnected(room, participant);
+            }
+        }
+
+        @Override
+        public void onParticipantDisconnected(final Room room, final RemoteParticipant participant) {
+            if (AsyncRoom.this.delegate != null) {
+                AsyncRoom.this.delegate.onParticipantDisconnected(room, participant);
+            }
+        }
+
+        @Override
+        public void onRecordingStarted(final Room room) {
+            if (AsyncRoom.this.delegate != null) {
+                AsyncRoom.this.delegate.onRecordingStarted(room);
+            }
+        }
+
+        @Override
+        public void onRecordingStopped(final Room room) {
+            if (AsyncRoom.this.delegate != null) {
+                AsyncRoom.this.delegate.onRecordingStopped(room);
+            }
+        }
+    }
+}
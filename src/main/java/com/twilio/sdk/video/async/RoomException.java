@@ -0,0 +1,22 @@
+package com.twilio.sdk.video.async;
+
+import com.twilio.sdk.video.TwilioError;
+
+/**
+ * Failure reported by the SDK through a {@link TwilioError}; the error is copied, so the exception
+ * stays valid after the native object is gone.
+ */
+public class RoomException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final int code;
+
+    public RoomException(final TwilioError error) {
+        super(error == null ? "unknown error" : error.getMessage());
+        this.code = error == null ? 0 : error.getCode().swigValue();
+    }
+
+    public int getCode() {
+        return this.code;
+    }
+}
@@ -0,0 +1,40 @@
+package com.twilio.sdk.video.async;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Java 8 stand-in for <code>CompletableFuture.orTimeout()</code>: a single daemon thread arms one
+ * timer per pending future and drops it as soon as the future completes.
+ */
+final class Timeouts {
+    private static final ScheduledThreadPoolExecutor TIMER;
+
+    static {
+        TIMER = new ScheduledThreadPoolExecutor(1, runnable -> {
+            final Thread thread = new Thread(runnable, "twilio-video-timeouts");
+            thread.setDaemon(true);
+            return thread;
+        });
+        TIMER.setRemoveOnCancelPolicy(true);
+    }
+
+    private Timeouts() {
+    }
+
+    static <T> CompletableFuture<T> within(final CompletableFuture<T> future, final long timeout, final TimeUnit unit) {
+        if (timeout <= 0 || future.isDone()) {
+            return future;
+        }
+
+        final ScheduledFuture<?> timer = TIMER.schedule(
+                () -> future.completeExceptionally(new TimeoutException(String.format("not completed within %d %s", timeout, unit))),
+                timeout,
+                unit);
+        future.whenComplete((result, error) -> timer.cancel(false));
+        return future;
+    }
+}
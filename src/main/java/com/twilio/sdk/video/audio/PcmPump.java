@@ -0,0 +1,133 @@
+package com.twilio.sdk.video.audio;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+import com.twilio.sdk.video.HeadlessAudioDevice;
+
+/**
+ * Streams interleaved 16-bit native-endian PCM between channels and a {@link HeadlessAudioDevice}.
+ *
+ * The device paces both directions: {@link #publish} waits while the capture ring is full and
+ * {@link #record} waits for the next mixed chunk, so a file can be published as if it came from a
+ * microphone:
+ *
+ * <pre>
+ * try (final FileChannel file = FileChannel.open(path)) {
+ *     new PcmPump(device).publish(file);
+ * }
+ * </pre>
+ *
+ * Data is read into and written from direct buffers allocated once, which the device copies from
+ * without any JNI array copies. Each direction may be used by one thread at a time.
+ */
+public class PcmPump {
+    public static final int DEFAULT_CHUNKS = 10;
+
+    private static final long FULL_WAIT_MILLIS = 5;
+    private static final int PLAYOUT_WAIT_MILLIS = 100;
+
+    private final HeadlessAudioDevice device;
+    private final int chunkBytes;
+
+    private final ByteBuffer publishBuffer;
+    private final ByteBuffer[] publishChunks;
+    private final ByteBuffer recordBuffer;
+    private final ByteBuffer[] recordViews;
+
+    public PcmPump(final HeadlessAudioDevice device) {
+        this(device, DEFAULT_CHUNKS);
+    }
+
+    /**
+     * @param chunks how many 10 ms chunks are read or written per channel call
+     */
+    public PcmPump(final HeadlessAudioDevice device, final int chunks) {
+        if (device == null)
+            throw new IllegalArgumentException("device cannot be null");
+        if (chunks <= 0)
+            throw new IllegalArgumentException("chunks must be positive");
+
+        this.device = device;
+        this.chunkBytes = (int) device.getChunkBytes();
+
+        this.publishBuffer = ByteBuffer.allocateDirect(this.chunkBytes * chunks).order(ByteOrder.nativeOrder());
+        // one view per chunk, so that every push hands exactly one chunk to the device
+        this.publishChunks = new ByteBuffer[chunks];
+        for (int i = 0; i < chunks; i++) {
+            final ByteBuffer view = this.publishBuffer.duplicate();
+            view.position(i * this.chunkBytes).limit((i + 1) * this.chunkBytes);
+            this.publishChunks[i] = view.slice();
+        }
+        this.recordBuffer = ByteBuffer.allocateDirect(this.chunkBytes * chunks).order(ByteOrder.nativeOrder());
+        // views of the first n chunks; the device fills a buffer to its capacity, so a pull never takes
+        // more chunks than the caller still wants
+        this.recordViews = new ByteBuffer[chunks];
+        for (int i = 0; i < chunks; i++) {
+            final ByteBuffer view = this.recordBuffer.duplicate();
+            view.limit((i + 1) * this.chunkBytes);
+            this.recordViews[i] = view.slice();
+        }
+    }
+
+    /**
+     * Publishes everything read from <code>source</code> until its end, at the device's pace; a trailing
+     * partial chunk is dropped.
+     *
+     * @return the number of bytes published
+     */
+    public long publish(final ReadableByteChannel source) throws IOException, InterruptedException {
+        final ByteBuffer buffer = this.publishBuffer;
+        buffer.clear();
+
+        long published = 0;
+        boolean eof = false;
+        while (!eof) {
+            eof = source.read(buffer) < 0;
+
+            final int chunks = buffer.position() / this.chunkBytes;
+            for (int i = 0; i < chunks; i++) {
+                while (this.device.pushCapture(this.publishChunks[i]) == 0) {
+                    Thread.sleep(FULL_WAIT_MILLIS);
+                }
+            }
+            published += (long) chunks * this.chunkBytes;
+
+            // keep the partial chunk, if any, for the next read
+            buffer.flip();
+            buffer.position(chunks * this.chunkBytes);
+            buffer.compact();
+        }
+        return published;
+    }
+
+    /**
+     * Writes <code>chunks</code> chunks of the mixed remote audio to <code>sink</code>, blocking until
+     * they were played out by the device; chunks beyond that stay queued for the next call.
+     *
+     * @return the number of bytes written
+     */
+    public long record(final WritableByteChannel sink, final long chunks) throws IOException, InterruptedException {
+        long recorded = 0;
+        while (recorded < chunks) {
+            if (Thread.interrupted())
+                throw new InterruptedException();
+            if (!this.device.waitForPlayout(PLAYOUT_WAIT_MILLIS)) {
+                continue;
+            }
+
+            final ByteBuffer buffer = this.recordViews[(int) Math.min(chunks - recorded, this.recordViews.length) - 1];
+            final long pulled = this.device.pullPlayout(buffer);
+            buffer.clear();
+            buffer.limit((int) pulled * this.chunkBytes);
+            while (buffer.hasRemaining()) {
+                sink.write(buffer);
+            }
+            recorded += pulled;
+        }
+        return recorded * this.chunkBytes;
+    }
+}
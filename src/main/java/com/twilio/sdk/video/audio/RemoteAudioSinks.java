@@ -0,0 +1,148 @@
+package com.twilio.sdk.video.audio;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiConsumer;
+
+import com.twilio.sdk.video.AudioBatch;
+import com.twilio.sdk.video.AudioBatchObserver;
+import com.twilio.sdk.video.BackpressurePolicy;
+import com.twilio.sdk.video.BatchingAudioSink;
+import com.twilio.sdk.video.RemoteAudioTrack;
+
+/**
+ * Attaches one {@link BatchingAudioSink} per remote audio track, e.g. to transcribe or record every
+ * participant separately:
+ *
+ * <pre>
+ * final RemoteAudioSinks sinks = new RemoteAudioSinks(100, 1000, 16000, 1);
+ * sinks.attach(publication.getTrackSid(), track, (sid, batch) -&gt; transcriber.feed(sid, batch.getData()));
+ * </pre>
+ *
+ * Listeners run on the sink's delivery thread, once per batch; the buffer returned by
+ * {@link AudioBatch#getData()} is only valid until the listener returns.
+ */
+public class RemoteAudioSinks implements AutoCloseable {
+    /**
+     * Receives the batches of one track, together with the key it was attached under.
+     */
+    public interface Listener {
+        void onAudio(String key, AudioBatch batch);
+    }
+
+    private static final class Attachment {
+        final RemoteAudioTrack track;
+        final BatchingAudioSink sink;
+        // the sink only holds a weak reference to its observer
+        final AudioBatchObserver observer;
+
+        Attachment(final RemoteAudioTrack track, final BatchingAudioSink sink, final AudioBatchObserver observer) {
+            this.track = track;
+            this.sink = sink;
+            this.observer = observer;
+        }
+    }
+
+    private final int batchMillis;
+    private final int maxQueuedMillis;
+    private final int sampleRate;
+    private final int channels;
+    private final BackpressurePolicy policy;
+    private final ConcurrentMap<String, Attachment> attachments;
+
+    /**
+     * @param batchMillis audio per upcall, in multiples of 10 ms
+     * @param maxQueuedMillis audio kept while Java is busy; older chunks are dropped beyond it
+     * @param sampleRate the rate to resample to natively, or 0 to keep the track's
+     * @param channels 1 to downmix natively, or 0 to keep the track's channels
+     */
+    public RemoteAudioSinks(final int batchMillis, final int maxQueuedMillis, final int sampleRate, final int channels) {
+        this(batchMillis, maxQueuedMillis, sampleRate, channels, BackpressurePolicy.kDropOldest);
+    }
+
+    public RemoteAudioSinks(final int batchMillis, final int maxQueuedMillis, final int sampleRate, final int channels, final BackpressurePolicy policy) {
+        if (batchMillis < 10 || maxQueuedMillis < batchMillis)
+            throw new IllegalArgumentException("batchMillis must be at least 10 and at most maxQueuedMillis");
+        if (sampleRate < 0 || channels < 0 || channels > 1)
+            throw new IllegalArgumentException("sampleRate must not be negative and channels must be 0 or 1");
+        if (policy == null)
+            throw new IllegalArgumentException("policy cannot be null");
+
+        this.batchMillis = batchMillis;
+        this.maxQueuedMillis = maxQueuedMillis;
+        this.sampleRate = sampleRate;
+        this.channels = channels;
+        this.policy = policy;
+        this.attachments = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Starts delivering the audio of <code>track</code> to <code>listener</code>, replacing any sink
+     * attached under the same key.
+     *
+     * The proxy is owned by this object from then on and closed by {@link #detach(String)}, which keeps
+     * the native track alive until the sink is removed from it; pass a proxy nothing else closes, e.g.
+     * the one handed to <code>RemoteParticipantObserver.onAudioTrackSubscribed</code>.
+     *
+     * @return the sink, e.g. to bind it to {@link com.twilio.sdk.video.metrics.VideoMetrics}
+     */
+    public BatchingAudioSink attach(final String key, final RemoteAudioTrack track, final Listener listener) {
+        if (key == null || track == null || listener == null)
+            throw new IllegalArgumentException("key, track and listener cannot be null");
+
+        final AudioBatchObserver observer = new AudioBatchObserver() {
+            @Override
+            public void onAudio(final AudioBatch batch) {
+                listener.onAudio(key, batch);
+            }
+        };
+        final BatchingAudioSink sink = new BatchingAudioSink(observer, this.batchMillis, this.maxQueuedMillis, this.sampleRate, this.channels, this.policy);
+        track.getWebRtcTrack().AddSink(sink);
+
+        final Attachment previous = this.attachments.put(key, new Attachment(track, sink, observer));
+        if (previous != null) {
+            release(previous);
+        }
+        return sink;
+    }
+
+    /**
+     * Stops the sink attached under <code>key</code>; batches already queued are discarded.
+     */
+    public void detach(final String key) {
+        final Attachment attachment = this.attachments.remove(key);
+        if (attachment != null) {
+            release(attachment);
+        }
+    }
+
+    public BatchingAudioSink getSink(final String key) {
+        final Attachment attachment = this.attachments.get(key);
+        return attachment == null ? null : attachment.sink;
+    }
+
+    public int size() {
+        return this.attachments.size();
+    }
+
+    public void forEach(final BiConsumer<String, BatchingAudioSink> action) {
+        for (final Map.Entry<String, Attachment> entry: this.attachments.entrySet()) {
+            action.accept(entry.getKey(), entry.getValue().sink);
+        }
+    }
+
+    @Override
+    public void close() {
+        for (final String key: this.attachments.keySet()) {
+            detach(key);
+        }
+    }
+
+    private static void release(final Attachment attachment) {
+        // the sink must not be called once it is deleted
+        attachment.track.getWebRtcTrack().RemoveSink(attachment.sink);
+        attachment.sink.close();
+        attachment.track.close();
+    }
+}
@@ -0,0 +1,112 @@
+package com.twilio.sdk.video.data;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+
+import com.twilio.sdk.video.DataTrackSender;
+import com.twilio.sdk.video.LocalDataTrack;
+
+/**
+ * Packs many data track messages into one direct buffer, so that they cross JNI in a single call:
+ *
+ * <pre>
+ * final DataMessageBatch batch = new DataMessageBatch(64 * 1024, 1024);
+ * for (final Sample sample: samples) {
+ *     if (!batch.add(sample.encode())) {
+ *         batch.sendTo(track);
+ *         batch.add(sample.encode());
+ *     }
+ * }
+ * batch.sendTo(track);
+ * </pre>
+ *
+ * The buffers are allocated once and reused after every send; a batch must not be shared between threads.
+ */
+public class DataMessageBatch {
+    private final ByteBuffer messages;
+    private final ByteBuffer lengthBytes;
+    private final IntBuffer lengths;
+
+    private int count;
+
+    public DataMessageBatch(final int maxBytes, final int maxMessages) {
+        if (maxBytes <= 0 || maxMessages <= 0)
+            throw new IllegalArgumentException("maxBytes and maxMessages must be positive");
+
+        this.messages = ByteBuffer.allocateDirect(maxBytes);
+        this.lengthBytes = ByteBuffer.allocateDirect(maxMessages * Integer.BYTES).order(ByteOrder.nativeOrder());
+        this.lengths = this.lengthBytes.asIntBuffer();
+    }
+
+    /**
+     * Copies the remaining bytes of <code>message</code>, leaving its position unchanged.
+     *
+     * @return false, without adding anything, if the batch is full
+     */
+    public boolean add(final ByteBuffer message) {
+        final int length = message.remaining();
+        if (!fits(length)) {
+            return false;
+        }
+        this.messages.put(message.duplicate());
+        this.lengths.put(length);
+        this.count++;
+        return true;
+    }
+
+    public boolean add(final byte[] message) {
+        if (!fits(message.length)) {
+            return false;
+        }
+        this.messages.put(message);
+        this.lengths.put(message.length);
+        this.count++;
+        return true;
+    }
+
+    public boolean add(final String message) {
+        return add(message.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public int size() {
+        return this.count;
+    }
+
+    public int bytes() {
+        return this.messages.position();
+    }
+
+    public void clear() {
+        this.messages.clear();
+        this.lengths.clear();
+        this.count = 0;
+    }
+
+    /**
+     * Sends the batch right away; messages after the first failure are dropped.
+     *
+     * @return the number of messages sent
+     */
+    public long sendTo(final LocalDataTrack track) {
+        final long sent = this.count == 0 ? 0 : track.sendBatch(this.messages, this.lengthBytes, this.count);
+        clear();
+        return sent;
+    }
+
+    /**
+     * Queues the batch on a sender; messages which do not fit in its ring are dropped.
+     *
+     * @return the number of messages queued
+     */
+    public long offerTo(final DataTrackSender sender) {
+        final long queued = this.count == 0 ? 0 : sender.offerBatch(this.messages, this.lengthBytes, this.count);
+        clear();
+        return queued;
+    }
+
+    private boolean fits(final int length) {
+        return this.lengths.hasRemaining() && length <= this.messages.remaining();
+    }
+}
@@ -0,0 +1,190 @@
+package com.twilio.sdk.video.data;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.twilio.sdk.video.BatchingDataReceiver;
+import com.twilio.sdk.video.ReceivedDataBatch;
+import com.twilio.sdk.video.ReceivedDataBatchObserver;
+import com.twilio.sdk.video.RemoteDataTrack;
+
+/**
+ * Receives the messages of many remote data tracks through one {@link BatchingDataReceiver}, so that
+ * a burst of messages crosses JNI once instead of once per message:
+ *
+ * <pre>
+ * final RemoteDataReceiver receiver = new RemoteDataReceiver(256 * 1024, 4096, 20,
+ *         (sid, message, binary) -&gt; decoder.decode(sid, message));
+ * receiver.attach(publication.getTrackSid(), track);
+ * </pre>
+ *
+ * Listeners run on the receiver's delivery thread, once per message, in the order the messages
+ * arrived. The message buffer is a read-only view into the batch, only valid until the listener
+ * returns; copy it to keep it.
+ */
+public class RemoteDataReceiver implements AutoCloseable {
+    /**
+     * Receives one message, together with the sid of the track it arrived on.
+     */
+    public interface Listener {
+        void onMessage(String trackSid, ByteBuffer message, boolean binary);
+
+        /**
+         * Called before a batch when messages were dropped since the previous one.
+         */
+        default void onDropped(final long messages) {
+        }
+    }
+
+    // the layout of ReceivedDataBatch::getIndex(): offset, length, track and kind per message
+    private static final int INDEX_COLUMNS = 4;
+    private static final int BINARY = 1;
+
+    private static final ByteBuffer EMPTY = ByteBuffer.allocateDirect(0).asReadOnlyBuffer();
+
+    private final BatchingDataReceiver receiver;
+    // the receiver only holds a weak reference to its observer
+    private final ReceivedDataBatchObserver observer;
+    private final ConcurrentMap<String, RemoteDataTrack> tracks;
+
+    /**
+     * @param maxBytes payload bytes staged while a batch is delivered; messages beyond it are dropped
+     * @param maxMessages messages staged while a batch is delivered
+     * @param maxLatencyMillis how long a message waits for others before its batch is delivered
+     */
+    public RemoteDataReceiver(final int maxBytes, final int maxMessages, final int maxLatencyMillis, final Listener listener) {
+        if (maxBytes <= 0 || maxMessages <= 0)
+            throw new IllegalArgumentException("maxBytes and maxMessages must be positive");
+        if (maxLatencyMillis < 0)
+            throw new IllegalArgumentException("maxLatencyMillis must not be negative");
+        if (listener == null)
+            throw new IllegalArgumentException("listener cannot be null");
+
+        this.observer = observer(listener);
+        this.receiver = new BatchingDataReceiver(this.observer, maxBytes, maxMessages, maxLatencyMillis);
+        this.tracks = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Adapts a listener to the batches of a {@link BatchingDataReceiver}, slicing every message out
+     * of the batch's buffer without copying it. Track sids are read across JNI once per track and batch.
+     */
+    public static ReceivedDataBatchObserver observer(final Listener listener) {
+        if (listener == null)
+            throw new IllegalArgumentException("listener cannot be null");
+
+        return new ReceivedDataBatchObserver() {
+            // only touched on the delivery thread; the numbers of forgotten tracks are reused, so
+            // sids are only cached for the batch at hand
+            private final List<String> sids = new ArrayList<>();
+
+            @Override
+            public void onMessages(final ReceivedDataBatch batch) {
+                final long dropped = batch.getDroppedSinceLastBatch().longValue();
+                if (dropped > 0) {
+                    listener.onDropped(dropped);
+                }
+
+                final ByteBuffer data = batch.getData();
+                final ByteBuffer view = data == null ? EMPTY : data;
+                final IntBuffer index = batch.getIndex().order(ByteOrder.nativeOrder()).asIntBuffer();
+                final int count = index.remaining() / INDEX_COLUMNS;
+                this.sids.clear();
+                for (int i = 0; i < count; i++) {
+                    final int offset = index.get();
+                    final int length = index.get();
+                    final int track = index.get();
+                    final boolean binary = index.get() == BINARY;
+
+                    view.clear();
+                    view.limit(offset + length);
+                    view.position(offset);
+                    listener.onMessage(sid(batch, track), view, binary);
+                }
+            }
+
+            private String sid(final ReceivedDataBatch batch, final int track) {
+                while (this.sids.size() <= track) {
+                    this.sids.add(null);
+                }
+                String sid = this.sids.get(track);
+                if (sid == null) {
+                    sid = batch.getTrackSid(track);
+                    this.sids.set(track, sid);
+                }
+                return sid;
+            }
+        };
+    }
+
+    /**
+     * Starts receiving the messages of <code>track</code>, replacing any track attached under the same
+     * key. The proxy is owned by this object from then on and closed by {@link #detach(String)}; pass
+     * a proxy nothing else closes, e.g. the one handed to
+     * <code>RemoteParticipantObserver.onDataTrackSubscribed</code>.
+     */
+    public void attach(final String key, final RemoteDataTrack track) {
+        if (key == null || track == null)
+            throw new IllegalArgumentException("key and track cannot be null");
+
+        track.setObserver(this.receiver);
+        final RemoteDataTrack previous = this.tracks.put(key, track);
+        if (previous != null && previous != track) {
+            release(previous);
+        }
+    }
+
+    /**
+     * Stops receiving the messages of the track attached under <code>key</code>; messages already
+     * staged are still delivered.
+     */
+    public void detach(final String key) {
+        final RemoteDataTrack track = this.tracks.remove(key);
+        if (track != null) {
+            release(track);
+        }
+    }
+
+    /**
+     * Delivers the staged messages now instead of waiting for the batch to fill or time out.
+     */
+    public void flush() {
+        this.receiver.flush();
+    }
+
+    /**
+     * @return the native receiver, e.g. to bind it to {@link com.twilio.sdk.video.metrics.VideoMetrics}
+     */
+    public BatchingDataReceiver getReceiver() {
+        return this.receiver;
+    }
+
+    public int size() {
+        return this.tracks.size();
+    }
+
+    /**
+     * Detaches every track, then stops the delivery thread; staged messages are discarded. Must not
+     * be called from a listener.
+     */
+    @Override
+    public void close() {
+        for (final Map.Entry<String, RemoteDataTrack> entry: this.tracks.entrySet()) {
+            detach(entry.getKey());
+        }
+        this.receiver.delete();
+    }
+
+    private void release(final RemoteDataTrack track) {
+        track.setObserver(null);
+        // frees the track's number once its staged messages were delivered
+        this.receiver.forgetTrack(track.getSid());
+        track.close();
+    }
+}
@@ -0,0 +1,150 @@
+package com.twilio.sdk.video.event;
+
+import java.util.function.Consumer;
+
+import com.twilio.sdk.video.RemoteAudioTrack;
+import com.twilio.sdk.video.RemoteAudioTrackPublication;
+import com.twilio.sdk.video.RemoteDataTrack;
+import com.twilio.sdk.video.RemoteDataTrackPublication;
+import com.twilio.sdk.video.RemoteParticipant;
+import com.twilio.sdk.video.RemoteParticipantObserver;
+import com.twilio.sdk.video.RemoteVideoTrack;
+import com.twilio.sdk.video.RemoteVideoTrackPublication;
+import com.twilio.sdk.video.TwilioError;
+
+/**
+ * Forwards the callbacks of a remote participant to a delegate, on the lane of the room it belongs to.
+ *
+ * Create with {@link DispatchingRoomObserver#wrap(RemoteParticipantObserver)}.
+ *
+ * The participant passed to a callback only lives as long as the callback, so the delegate gets the
+ * room observer's owned proxy of the same participant instead, which is released once the participant
+ * has disconnected and that event was delivered. Events of participants the room observer has not
+ * seen connect are dropped and reported to the dispatcher's error handler. Publications and tracks are
+ * passed as <code>std::shared_ptr</code>s, whose proxies own a copy, and errors are copied.
+ */
+public class DispatchingRemoteParticipantObserver extends RemoteParticipantObserver {
+    private final DispatchingRoomObserver room;
+    private final EventDispatcher.Lane lane;
+    private final RemoteParticipantObserver delegate;
+
+    DispatchingRemoteParticipantObserver(final DispatchingRoomObserver room,
+            final EventDispatcher.Lane lane,
+            final RemoteParticipantObserver delegate) {
+        if (delegate == null)
+            throw new IllegalArgumentException("delegate cannot be null");
+
+        this.room = room;
+        this.lane = lane;
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void onAudioTrackPublished(final RemoteParticipant participant, final RemoteAudioTrackPublication publication) {
+        submit(EventType.AUDIO_TRACK_PUBLISHED, participant, owned -> this.delegate.onAudioTrackPublished(owned, publication));
+    }
+
+    @Override
+    public void onAudioTrackUnpublished(final RemoteParticipant participant, final RemoteAudioTrackPublication publication) {
+        submit(EventType.AUDIO_TRACK_UNPUBLISHED, participant, owned -> this.delegate.onAudioTrackUnpublished(owned, publication));
+    }
+
+    @Override
+    public void onAudioTrackEnabled(final RemoteParticipant participant, final RemoteAudioTrackPublication publication) {
+        submit(EventType.AUDIO_TRACK_ENABLED, participant, owned -> this.delegate.onAudioTrackEnabled(owned, publication));
+    }
+
+    @Override
+    public void onAudioTrackDisabled(final RemoteParticipant participant, final RemoteAudioTrackPublication publication) {
+        submit(EventType.AUDIO_TRACK_DISABLED, participant, owned -> this.delegate.onAudioTrackDisabled(owned, publication));
+    }
+
+    @Override
+    public void onAudioTrackSubscribed(final RemoteParticipant participant, final RemoteAudioTrackPublication publication, final RemoteAudioTrack track) {
+        submit(EventType.AUDIO_TRACK_SUBSCRIBED, participant, owned -> this.delegate.onAudioTrackSubscribed(owned, publication, track));
+    }
+
+    @Override
+    public void onAudioTrackSubscriptionFailed(final RemoteParticipant participant, final RemoteAudioTrackPublication publication, final TwilioError error) {
+        final TwilioError copy = DispatchingRoomObserver.copy(error);
+        submit(EventType.AUDIO_TRACK_SUBSCRIPTION_FAILED, participant, owned -> this.delegate.onAudioTrackSubscriptionFailed(owned, publication, copy));
+    }
+
+    @Override
+    public void onAudioTrackUnsubscribed(final RemoteParticipant participant, final RemoteAudioTrackPublication publication, final RemoteAudioTrack track) {
+        submit(EventType.AUDIO_TRACK_UNSUBSCRIBED, participant, owned -> this.delegate.onAudioTrackUnsubscribed(owned, publication, track));
+    }
+
+    @Override
+    public void onVideoTrackPublished(final RemoteParticipant participant, final RemoteVideoTrackPublication publication) {
+        submit(EventType.VIDEO_TRACK_PUBLISHED, participant, owned -> this.delegate.onVideoTrackPublished(owned, publication));
+    }
+
+    @Override
+    public void onVideoTrackUnpublished(final RemoteParticipant participant, final RemoteVideoTrackPublication publication) {
+        submit(EventType.VIDEO_TRACK_UNPUBLISHED, participant, owned -> this.delegate.onVideoTrackUnpublished(owned, publication));
+    }
+
+    @Override
+    public void onVideoTrackEnabled(final RemoteParticipant participant, final RemoteVideoTrackPublication publication) {
+        submit(EventType.VIDEO_TRACK_ENABLED, participant, owned -> this.delegate.onVideoTrackEnabled(owned, publication));
+    }
+
+    @Override
+    public void onVideoTrackDisabled(final RemoteParticipant participant, final RemoteVideoTrackPublication publication) {
+        submit(EventType.VIDEO_TRACK_DISABLED, participant, owned -> this.delegate.onVideoTrackDisabled(owned, publication));
+    }
+
+    @Override
+    public void onVideoTrackSubscribed(final RemoteParticipant participant, final RemoteVideoTrackPublication publication, final RemoteVideoTrack track) {
+        submit(EventType.VIDEO_TRACK_SUBSCRIBED, participant, owned -> this.delegate.onVideoTrackSubscribed(owned, publication, track));
+    }
+
+    @Override
+    public void onVideoTrackSubscriptionFailed(final RemoteParticipant participant, final RemoteVideoTrackPublication publication, final TwilioError error) {
+        final TwilioError copy = DispatchingRoomObserver.copy(error);
+        submit(EventType.VIDEO_TRACK_SUBSCRIPTION_FAILED, participant, owned -> this.delegate.onVideoTrackSubscriptionFailed(owned, publication, copy));
+    }
+
+    @Override
+    public void onVideoTrackUnsubscribed(final RemoteParticipant participant, final RemoteVideoTrackPublication publication, final RemoteVideoTrack track) {
+        submit(EventType.VIDEO_TRACK_UNSUBSCRIBED, participant, owned -> this.delegate.onVideoTrackUnsubscribed(owned, publication, track));
+    }
+
+    @Override
+    public void onDataTrackPublished(final RemoteParticipant participant, final RemoteDataTrackPublication publication) {
+        submit(EventType.DATA_TRACK_PUBLISHED, participant, owned -> this.delegate.onDataTrackPublished(owned, publication));
+    }
+
+    @Override
+    public void onDataTrackUnpublished(final RemoteParticipant participant, final RemoteDataTrackPublication publication) {
+        submit(EventType.DATA_TRACK_UNPUBLISHED, participant, owned -> this.delegate.onDataTrackUnpublished(owned, publication));
+    }
+
+    @Override
+    public void onDataTrackSubscribed(final RemoteParticipant participant, final RemoteDataTrackPublication publication, final RemoteDataTrack track) {
+        submit(EventType.DATA_TRACK_SUBSCRIBED, participant, owned -> this.delegate.onDataTrackSubscribed(owned, publication, track));
+    }
+
+    @Override
+    public void onDataTrackSubscriptionFailed(final RemoteParticipant participant, final RemoteDataTrackPublication publication, final TwilioError error) {
+        final TwilioError copy = DispatchingRoomObserver.copy(error);
+        submit(EventType.DATA_TRACK_SUBSCRIPTION_FAILED, participant, owned -> this.delegate.onDataTrackSubscriptionFailed(owned, publication, copy));
+    }
+
+    @Override
+    public void onDataTrackUnsubscribed(final RemoteParticipant participant, final RemoteDataTrackPublication publication, final RemoteDataTrack track) {
+        submit(EventType.DATA_TRACK_UNSUBSCRIBED, participant, owned -> this.delegate.onDataTrackUnsubscribed(owned, publication, track));
+    }
+
+    private void submit(final EventType type, final RemoteParticipant participant, final Consumer<RemoteParticipant> handler) {
+        final RemoteParticipant owned = this.room.getParticipant(participant);
+        if (owned == null) {
+            this.room.getDispatcher().reject(new IllegalStateException(
+                    "dropped " + type + " of participant " + participant.getSid() + ", which is not in the room"));
+            return;
+        }
+
+        this.lane.submit(type, () -> handler.accept(owned));
+    }
+}
@@ -0,0 +1,131 @@
+package com.twilio.sdk.video.event;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.twilio.sdk.video.RemoteParticipant;
+import com.twilio.sdk.video.RemoteParticipantMap;
+import com.twilio.sdk.video.RemoteParticipantObserver;
+import com.twilio.sdk.video.Room;
+import com.twilio.sdk.video.RoomObserver;
+import com.twilio.sdk.video.TwilioError;
+
+/**
+ * Forwards the callbacks of one room to a delegate on the executor of an {@link EventDispatcher}.
+ *
+ * The <code>Room</code> passed to the delegate is the same native object as the one returned by
+ * <code>connect()</code>, so it must not be deleted while events are pending. Participants and errors
+ * are owned copies, which stay valid after the native callback has returned.
+ */
+public class DispatchingRoomObserver extends RoomObserver {
+    private final EventDispatcher dispatcher;
+    private final EventDispatcher.Lane lane;
+    private final RoomObserver delegate;
+
+    // owned proxies of the participants in the room, by SID; the participant passed to a
+    // RemoteParticipantObserver callback is only valid until the callback returns, so participant
+    // events carry one of these instead
+    private final ConcurrentMap<String, RemoteParticipant> participants;
+
+    DispatchingRoomObserver(final EventDispatcher dispatcher, final EventDispatcher.Lane lane, final RoomObserver delegate) {
+        if (delegate == null)
+            throw new IllegalArgumentException("delegate cannot be null");
+
+        this.dispatcher = dispatcher;
+        this.lane = lane;
+        this.delegate = delegate;
+        this.participants = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * @return an observer for a participant of this room whose callbacks are ordered with the room's own
+     */
+    public DispatchingRemoteParticipantObserver wrap(final RemoteParticipantObserver delegate) {
+        return new DispatchingRemoteParticipantObserver(this, this.lane, delegate);
+    }
+
+    public EventDispatcher getDispatcher() {
+        return this.dispatcher;
+    }
+
+    @Override
+    public void onConnected(final Room room) {
+        // the map hands out owned copies, unlike the participant observer callbacks
+        final RemoteParticipantMap remoteParticipants = room.getRemoteParticipants();
+        for (final String identity: remoteParticipants.keys()) {
+            retain(remoteParticipants.get(identity));
+        }
+
+        this.lane.submit(EventType.CONNECTED, () -> this.delegate.onConnected(room));
+    }
+
+    @Override
+    public void onDisconnected(final Room room, final TwilioError error) {
+        final TwilioError copy = copy(error);
+        final boolean submitted = this.lane.submit(EventType.DISCONNECTED, () -> {
+            try {
+                this.delegate.onDisconnected(room, copy);
+            } finally {
+                this.participants.clear();
+            }
+        });
+        if (!submitted) {
+            this.participants.clear();
+        }
+    }
+
+    @Override
+    public void onConnectFailure(final Room room, final TwilioError error) {
+        final TwilioError copy = copy(error);
+        this.lane.submit(EventType.CONNECT_FAILURE, () -> this.delegate.onConnectFailure(room, copy));
+    }
+
+    @Override
+    public void onParticipantConnected(final Room room, final RemoteParticipant participant) {
+        retain(participant);
+        this.lane.submit(EventType.PARTICIPANT_CONNECTED, () -> this.delegate.onParticipantConnected(room, participant));
+    }
+
+    @Override
+    public void onParticipantDisconnected(final Room room, final RemoteParticipant participant) {
+        // the participant's own events queued before this one still need its proxy
+        final String sid = participant.getSid();
+        final boolean submitted = this.lane.submit(EventType.PARTICIPANT_DISCONNECTED, () -> {
+            try {
+                this.delegate.onParticipantDisconnected(room, participant);
+            } finally {
+                this.participants.remove(sid);
+            }
+        });
+        if (!submitted) {
+            this.participants.remove(sid);
+        }
+    }
+
+    @Override
+    public void onRecordingStarted(final Room room) {
+        this.lane.submit(EventType.RECORDING_STARTED, () -> this.delegate.onRecordingStarted(room));
+    }
+
+    @Override
+    public void onRecordingStopped(final Room room) {
+        this.lane.submit(EventType.RECORDING_STOPPED, () -> this.delegate.onRecordingStopped(room));
+    }
+
+    /**
+     * @return the owned proxy of a participant, looked up by the SID of one passed to a callback, or null
+     */
+    RemoteParticipant getParticipant(final RemoteParticipant participant) {
+        return this.participants.get(participant.getSid());
+    }
+
+    static TwilioError copy(final TwilioError error) {
+        return error == null ? null : error.copy();
+    }
+
+    private void retain(final RemoteParticipant participant) {
+        if (participant != null) {
+            this.participants.put(participant.getSid(), participant);
+        }
+    }
+}
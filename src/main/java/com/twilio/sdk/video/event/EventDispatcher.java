@@ -0,0 +1,268 @@
+package com.twilio.sdk.video.event;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import com.twilio.sdk.video.RoomObserver;
+
+/**
+ * Moves observer callbacks off the SDK notifier thread.
+ *
+ * The native thread only enqueues the event and returns; handlers run on the given executor, which
+ * may be a thread pool or, on recent JDKs, a virtual-thread-per-task executor. Events of the same
+ * room are delivered one at a time and in the order they were raised, events of different rooms
+ * run concurrently.
+ *
+ * At most <code>capacity</code> events are pending across all rooms. When the limit is reached,
+ * the {@link OverflowPolicy} decides between dropping the event and blocking the notifier thread
+ * until a slot frees up.
+ *
+ * <pre>
+ * final EventDispatcher dispatcher = new EventDispatcher(executor, 1024, OverflowPolicy.BLOCK);
+ * final DispatchingRoomObserver observer = dispatcher.wrap(roomObserver);
+ * final Room room = video.connect(connectOptions, observer);
+ * ...
+ * participant.setObserver(observer.wrap(participantObserver));
+ * </pre>
+ */
+public class EventDispatcher {
+    public enum OverflowPolicy {
+        // drop the new event and count it in getEventsDropped()
+        DROP,
+        // make the notifier thread wait for a free slot, as if the handler ran inline
+        BLOCK
+    }
+
+    private static final int MAX_EVENTS_PER_DRAIN = 64;
+    private static final Consumer<Throwable> NO_ERROR_HANDLER = error -> { };
+
+    private final Executor executor;
+    private final int capacity;
+    private final OverflowPolicy policy;
+    private final Semaphore slots;
+    private final Map<EventType, LatencyHistogram> latencies;
+
+    private final AtomicLong eventsSubmitted;
+    private final AtomicLong eventsDispatched;
+    private final AtomicLong eventsDropped;
+    private final AtomicLong eventsBlocked;
+    private final AtomicLong handlerFailures;
+
+    private volatile Consumer<Throwable> errorHandler;
+
+    public EventDispatcher(final Executor executor, final int capacity, final OverflowPolicy policy) {
+        if (executor == null || policy == null)
+            throw new IllegalArgumentException("executor and policy cannot be null");
+        if (capacity <= 0)
+            throw new IllegalArgumentException("capacity must be positive");
+
+        this.executor = executor;
+        this.capacity = capacity;
+        this.policy = policy;
+        this.slots = new Semaphore(capacity);
+
+        this.latencies = new EnumMap<>(EventType.class);
+        for (final EventType type: EventType.values()) {
+            this.latencies.put(type, new LatencyHistogram());
+        }
+
+        this.eventsSubmitted = new AtomicLong();
+        this.eventsDispatched = new AtomicLong();
+        this.eventsDropped = new AtomicLong();
+        this.eventsBlocked = new AtomicLong();
+        this.handlerFailures = new AtomicLong();
+        this.errorHandler = NO_ERROR_HANDLER;
+    }
+
+    /**
+     * @return an observer which forwards the callbacks of one room to <code>delegate</code> through this dispatcher
+     */
+    public DispatchingRoomObserver wrap(final RoomObserver delegate) {
+        return new DispatchingRoomObserver(this, newLane(), delegate);
+    }
+
+    /**
+     * @return a lane; events submitted to the same lane never run concurrently and keep their order
+     */
+    public Lane newLane() {
+        return new Lane();
+    }
+
+    /**
+     * Called with exceptions thrown by handlers and with the reason events were dropped; ignored by
+     * default, since both are always counted in {@link #getHandlerFailures()} and {@link #getEventsDropped()}.
+     */
+    public void setErrorHandler(final Consumer<Throwable> errorHandler) {
+        this.errorHandler = errorHandler == null ? NO_ERROR_HANDLER : errorHandler;
+    }
+
+    public int getCapacity() {
+        return this.capacity;
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return this.policy;
+    }
+
+    public int getQueuedEvents() {
+        return this.capacity - this.slots.availablePermits();
+    }
+
+    public long getEventsSubmitted() {
+        return this.eventsSubmitted.get();
+    }
+
+    public long getEventsDispatched() {
+        return this.eventsDispatched.get();
+    }
+
+    public long getEventsDropped() {
+        return this.eventsDropped.get();
+    }
+
+    /**
+     * @return how many times the notifier thread had to wait for a free slot with {@link OverflowPolicy#BLOCK}
+     */
+    public long getEventsBlocked() {
+        return this.eventsBlocked.get();
+    }
+
+    public long getHandlerFailures() {
+        return this.handlerFailures.get();
+    }
+
+    /**
+     * @return time from the native callback until the handler returned, for events of the given type
+     */
+    public LatencyHistogram getLatency(final EventType type) {
+        return this.latencies.get(type);
+    }
+
+    /**
+     * Counts an event which could not be submitted at all as dropped, and reports why.
+     */
+    void reject(final Throwable reason) {
+        this.eventsSubmitted.incrementAndGet();
+        this.eventsDropped.incrementAndGet();
+        this.errorHandler.accept(reason);
+    }
+
+    private boolean acquireSlot() {
+        if (this.slots.tryAcquire()) {
+            return true;
+        }
+
+        if (this.policy == OverflowPolicy.DROP) {
+            return false;
+        }
+
+        this.eventsBlocked.incrementAndGet();
+        this.slots.acquireUninterruptibly();
+        return true;
+    }
+
+    private static final class Event {
+        final EventType type;
+        final Runnable handler;
+        final long enqueuedNanos;
+
+        Event(final EventType type, final Runnable handler) {
+            this.type = type;
+            this.handler = handler;
+            this.enqueuedNanos = System.nanoTime();
+        }
+    }
+
+    /**
+     * Serializes the events of one room on top of the shared executor.
+     */
+    public final class Lane {
+        private final Queue<Event> events;
+        private final AtomicBoolean scheduled;
+        private final Runnable drain;
+
+        private Lane() {
+            this.events = new ConcurrentLinkedQueue<>();
+            this.scheduled = new AtomicBoolean();
+            this.drain = this::drain;
+        }
+
+        /**
+         * Enqueues <code>handler</code> without running it; called on the notifier thread.
+         *
+         * @return false if the event was dropped because the dispatcher is full
+         */
+        public boolean submit(final EventType type, final Runnable handler) {
+            eventsSubmitted.incrementAndGet();
+            if (!acquireSlot()) {
+                eventsDropped.incrementAndGet();
+                return false;
+            }
+
+            this.events.add(new Event(type, handler));
+            schedule();
+            return true;
+        }
+
+        private void schedule() {
+            if (this.scheduled.compareAndSet(false, true)) {
+                try {
+                    executor.execute(this.drain);
+                } catch (final RejectedExecutionException e) {
+                    // the executor is shutting down; drop the backlog rather than running handlers on the notifier thread
+                    dropBacklog(e);
+                }
+            }
+        }
+
+        private void dropBacklog(final RejectedExecutionException reason) {
+            do {
+                while (this.events.poll() != null) {
+                    eventsDropped.incrementAndGet();
+                    slots.release();
+                }
+                this.scheduled.set(false);
+                // an event added after the last poll saw the lane scheduled and relies on this loop
+            } while (!this.events.isEmpty() && this.scheduled.compareAndSet(false, true));
+
+            errorHandler.accept(reason);
+        }
+
+        private void drain() {
+            // a bounded batch per task keeps one busy room from monopolizing an executor thread
+            for (int i = 0; i < MAX_EVENTS_PER_DRAIN; i++) {
+                final Event event = this.events.poll();
+                if (event == null) {
+                    break;
+                }
+                run(event);
+            }
+
+            this.scheduled.set(false);
+            if (!this.events.isEmpty()) {
+                schedule();
+            }
+        }
+
+        private void run(final Event event) {
+            try {
+                event.handler.run();
+            } catch (final Throwable t) {
+                handlerFailures.incrementAndGet();
+                errorHandler.accept(t);
+            } finally {
+                latencies.get(event.type).record(System.nanoTime() - event.enqueuedNanos);
+                eventsDispatched.incrementAndGet();
+                slots.release();
+            }
+        }
+    }
+}
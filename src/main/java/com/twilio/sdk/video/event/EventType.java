@@ -0,0 +1,37 @@
+package com.twilio.sdk.video.event;
+
+/**
+ * Callbacks of {@link com.twilio.sdk.video.RoomObserver} and {@link com.twilio.sdk.video.RemoteParticipantObserver}
+ * which are dispatched by an {@link EventDispatcher}.
+ */
+public enum EventType {
+    CONNECTED,
+    DISCONNECTED,
+    CONNECT_FAILURE,
+    PARTICIPANT_CONNECTED,
+    PARTICIPANT_DISCONNECTED,
+    RECORDING_STARTED,
+    RECORDING_STOPPED,
+
+    AUDIO_TRACK_PUBLISHED,
+    AUDIO_TRACK_UNPUBLISHED,
+    AUDIO_TRACK_ENABLED,
+    AUDIO_TRACK_DISABLED,
+    AUDIO_TRACK_SUBSCRIBED,
+    AUDIO_TRACK_SUBSCRIPTION_FAILED,
+    AUDIO_TRACK_UNSUBSCRIBED,
+
+    VIDEO_TRACK_PUBLISHED,
+    VIDEO_TRACK_UNPUBLISHED,
+    VIDEO_TRACK_ENABLED,
+    VIDEO_TRACK_DISABLED,
+    VIDEO_TRACK_SUBSCRIBED,
+    VIDEO_TRACK_SUBSCRIPTION_FAILED,
+    VIDEO_TRACK_UNSUBSCRIBED,
+
+    DATA_TRACK_PUBLISHED,
+    DATA_TRACK_UNPUBLISHED,
+    DATA_TRACK_SUBSCRIBED,
+    DATA_TRACK_SUBSCRIPTION_FAILED,
+    DATA_TRACK_UNSUBSCRIBED
+}
@@ -0,0 +1,112 @@
+package com.twilio.sdk.video.event;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of latencies with power-of-two microsecond buckets.
+ *
+ * Bucket <code>i</code> counts samples in <code>[2^(i-1), 2^i)</code> microseconds (bucket 0 holds
+ * sub-microsecond samples), so percentiles are accurate to within a factor of two, which is
+ * plenty to tell a 50us handler from a 50 ms one.
+ */
+public class LatencyHistogram {
+    public static final int BUCKETS = 40;
+
+    private final AtomicLongArray buckets;
+    private final AtomicLong count;
+    private final AtomicLong totalNanos;
+    private final AtomicLong maxNanos;
+
+    public LatencyHistogram() {
+        this.buckets = new AtomicLongArray(BUCKETS);
+        this.count = new AtomicLong();
+        this.totalNanos = new AtomicLong();
+        this.maxNanos = new AtomicLong();
+    }
+
+    public void record(final long nanos) {
+        final long value = Math.max(0, nanos);
+        this.buckets.incrementAndGet(bucketOf(value));
+        this.count.incrementAndGet();
+        this.totalNanos.addAndGet(value);
+
+        long max = this.maxNanos.get();
+        while (value > max && !this.maxNanos.compareAndSet(max, value)) {
+            max = this.maxNanos.get();
+        }
+    }
+
+    public long getCount() {
+        return this.count.get();
+    }
+
+    public long getMean(final TimeUnit unit) {
+        final long count = this.count.get();
+        return count == 0 ? 0 : unit.convert(this.totalNanos.get() / count, TimeUnit.NANOSECONDS);
+    }
+
+    public long getSum(final TimeUnit unit) {
+        return unit.convert(this.totalNanos.get(), TimeUnit.NANOSECONDS);
+    }
+
+    public long getMax(final TimeUnit unit) {
+        return unit.convert(this.maxNanos.get(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     * @return upper bound of the bucket holding the given percentile, or 0 without samples
+     */
+    public long getPercentile(final double percentile, final TimeUnit unit) {
+        final long[] snapshot = getBuckets();
+        long total = 0;
+        for (final long bucket: snapshot) {
+            total += bucket;
+        }
+        if (total == 0) {
+            return 0;
+        }
+
+        final long rank = (long) Math.ceil(total * Math.min(100.0, Math.max(0.0, percentile)) / 100.0);
+        long seen = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            seen += snapshot[i];
+            if (seen >= Math.max(1, rank)) {
+                return unit.convert(upperBoundMicros(i), TimeUnit.MICROSECONDS);
+            }
+        }
+        return getMax(unit);
+    }
+
+    /**
+     * @return a copy of the bucket counters; see the class comment for the bucket bounds
+     */
+    public long[] getBuckets() {
+        final long[] snapshot = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = this.buckets.get(i);
+        }
+        return snapshot;
+    }
+
+    public static long upperBoundMicros(final int bucket) {
+        return 1L << bucket;
+    }
+
+    private static int bucketOf(final long nanos) {
+        final long micros = nanos / 1000;
+        return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count=%d mean=%dus p50=%dus p99=%dus max=%dus",
+                getCount(),
+                getMean(TimeUnit.MICROSECONDS),
+                getPercentile(50, TimeUnit.MICROSECONDS),
+                getPercentile(99, TimeUnit.MICROSECONDS),
+                getMax(TimeUnit.MICROSECONDS));
+    }
+}
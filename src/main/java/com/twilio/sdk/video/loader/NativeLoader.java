@@ -1,20 +1,136 @@
 package com.twilio.sdk.video.loader;
 
+import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.math.BigInteger;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.List;
 import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public abstract class NativeLoader
 {
+    /**
+     * System property overriding the directory libraries are cached in, by default
+     * <code>${java.io.tmpdir}/twilio-video-${user.name}</code>.
+     */
+    public static final String CACHE_DIR_PROPERTY = "twilio.video.nativeCacheDir";
+
     private static final String[] NATIVE_LIBRARIES = {
         "twilio-video-1.0.0",
     };
 
+    private static final Set<PosixFilePermission> OWNER_ONLY = PosixFilePermissions.fromString("rwx------");
+
     private static final Object lock = new Object();
     private static volatile boolean loaded = false;
 
+    private static final List<LoadReport> reports = new CopyOnWriteArrayList<>();
+
+    /**
+     * How one library was loaded, for startup metrics.
+     */
+    public static final class LoadReport
+    {
+        private final String libraryName;
+        private final String path;
+        private final String hash;
+        private final boolean cacheHit;
+        private final long extractNanos;
+        private final long loadNanos;
+
+        LoadReport(final String libraryName, final String path, final String hash, final boolean cacheHit, final long extractNanos, final long loadNanos)
+        {
+            this.libraryName = libraryName;
+            this.path = path;
+            this.hash = hash;
+            this.cacheHit = cacheHit;
+            this.extractNanos = extractNanos;
+            this.loadNanos = loadNanos;
+        }
+
+        public String getLibraryName()
+        {
+            return this.libraryName;
+        }
+
+        /**
+         * @return the file the library was loaded from, or null if it was found by {@link System#loadLibrary(String)}
+         */
+        public String getPath()
+        {
+            return this.path;
+        }
+
+        /**
+         * @return the SHA-256 of the library, or null if it was not extracted into the cache
+         */
+        public String getHash()
+        {
+            return this.hash;
+        }
+
+        /**
+         * @return true if a previous JVM already extracted the library
+         */
+        public boolean isCacheHit()
+        {
+            return this.cacheHit;
+        }
+
+        /**
+         * @return time spent finding or extracting the library file
+         */
+        public long getExtractNanos()
+        {
+            return this.extractNanos;
+        }
+
+        /**
+         * @return time spent in {@link System#load(String)}, including the library's initializers
+         */
+        public long getLoadNanos()
+        {
+            return this.loadNanos;
+        }
+    }
+
+    private static final class Extraction
+    {
+        final File file;
+        final String hash;
+        final boolean cacheHit;
+
+        Extraction(final File file, final String hash, final boolean cacheHit)
+        {
+            this.file = file;
+            this.hash = hash;
+            this.cacheHit = cacheHit;
+        }
+    }
+
     public static void loadNativeLibraries()
     {
         if (loaded)
@@ -33,6 +149,22 @@ public abstract class NativeLoader
         }
     }
 
+    /**
+     * @return true once {@link #loadNativeLibraries()} completed, e.g. on a {@link Warmup} thread
+     */
+    public static boolean isLoaded()
+    {
+        return loaded;
+    }
+
+    /**
+     * @return one report per library loaded so far, in load order
+     */
+    public static List<LoadReport> getLoadReports()
+    {
+        return Collections.unmodifiableList(reports);
+    }
+
     /**
      * Attempt to load <code>libraryName</code> first from inside our JAR file, then using normal means.
      *
@@ -40,11 +172,17 @@ public abstract class NativeLoader
      * at path <code>/libs/${os.arch}-${os.name}/</code>.  The arch and
      * name variables will have all spaces converted into underscores.
      *
-     * The library will be extracted from the JAR and written to a temporary
-     * directory, and then loaded.
+     * The library is extracted once into a cache directory shared by every
+     * JVM of the same user, under a subdirectory named after its SHA-256,
+     * and loaded from there by later JVMs without being copied again. The
+     * hash is read from a <code>.sha256</code> resource next to the library,
+     * written by the build, or computed from the resource if there is none.
+     * A lock file serializes extraction between JVMs, and the library is
+     * only renamed into place once it is complete, so that a crashed JVM
+     * never leaves a truncated library behind.
      *
-     * A shutdown hook will be installed that deletes the library and its
-     * temporary directory.
+     * If the cache directory cannot be used, the library is written to a
+     * new temporary directory instead, which a shutdown hook deletes.
      *
      * If this fails for any reason, it will throw an exception.
      *
@@ -55,90 +193,269 @@ public abstract class NativeLoader
         if (libraryName == null)
             throw new IllegalArgumentException("libraryName cannot be null");
 
-        InputStream is = null;
-        FileOutputStream os = null;
-        File libfile = null;
-
+        final long started = System.nanoTime();
         try {
             final String osArch = System.getProperty("os.arch").replace(" ", "_").toLowerCase();
             final String osName = System.getProperty("os.name").replace(" ", "_").toLowerCase();
             final String libraryFilename = System.mapLibraryName(libraryName);
             final String resourceName = "/libs/" + osArch + "-" + osName + "/" + libraryFilename;
 
-            is = NativeLoader.class.getResourceAsStream(resourceName);
-            if (is == null)
+            if (NativeLoader.class.getResource(resourceName) == null)
                 throw new RuntimeException("Unable to load native library file '" + resourceName + "'");
 
+            Extraction extraction;
+            try {
+                extraction = extractCached(resourceName, libraryFilename);
+            } catch (final Exception e) {
+                extraction = extractTemporary(resourceName, libraryFilename);
+            }
+
+            final long extracted = System.nanoTime();
+            System.load(extraction.file.getAbsolutePath());
+            reports.add(new LoadReport(libraryName, extraction.file.getAbsolutePath(), extraction.hash, extraction.cacheHit, extracted - started, System.nanoTime() - extracted));
+        } catch (final Exception e) {
+            try {
+                // if that fails, try to load the "normal" way
+                final long loading = System.nanoTime();
+                System.loadLibrary(libraryName);
+                reports.add(new LoadReport(libraryName, null, null, false, loading - started, System.nanoTime() - loading));
+            } catch (final UnsatisfiedLinkError e1) {
+                throw new RuntimeException(e);  // propagate the original error
+            }
+        }
+    }
+
+    /**
+     * @return the cache directory, created readable by its owner only where permissions are supported
+     * @throws IOException if it cannot be created, or could have been tampered with by another user
+     */
+    private static Path cacheDirectory() throws IOException
+    {
+        String directory = System.getProperty(CACHE_DIR_PROPERTY);
+        if (directory == null) {
             final String tmpDir = System.getProperty("java.io.tmpdir");
             if (tmpDir == null)
-                throw new RuntimeException("Unable to find system temporary directory");
-
-            File tmpDirFile = null;
-            for (int retries = 0; retries < 100; ++retries) {
-                tmpDirFile = new File(tmpDir, new BigInteger(128, new Random()).toString(16));
-                if (!tmpDirFile.exists() && tmpDirFile.mkdirs())
-                    break;
-                tmpDirFile = null;
-            }
+                throw new IOException("Unable to find system temporary directory");
+            directory = new File(tmpDir, "twilio-video-" + System.getProperty("user.name", "default")).getPath();
+        }
 
-            if (tmpDirFile == null)
-                throw new RuntimeException("Can't create temporary directory '" + tmpDir + "'");
+        final Path path = Paths.get(directory);
+        final boolean posix = FileSystems.getDefault().supportedFileAttributeViews().contains("posix");
+        if (!Files.isDirectory(path)) {
+            if (posix)
+                Files.createDirectories(path, PosixFilePermissions.asFileAttribute(OWNER_ONLY));
+            else
+                Files.createDirectories(path);
+        }
 
-            if (!tmpDirFile.setWritable(true, false) ||
-                !tmpDirFile.setReadable(true, false) ||
-                !tmpDirFile.setExecutable(true, false))
-            {
-                throw new RuntimeException("Unable to set permissions on temporary directory");
+        // whoever can write to the directory can replace the library we are about to load
+        if (posix) {
+            final String user = System.getProperty("user.name");
+            if (user != null && !user.equals(Files.getOwner(path).getName()))
+                throw new IOException("Cache directory '" + path + "' is owned by " + Files.getOwner(path).getName());
+            final Set<PosixFilePermission> permissions = Files.getPosixFilePermissions(path);
+            if (permissions.contains(PosixFilePermission.GROUP_WRITE) || permissions.contains(PosixFilePermission.OTHERS_WRITE))
+                throw new IOException("Cache directory '" + path + "' is writable by other users");
+        }
+        return path;
+    }
+
+    private static Extraction extractCached(final String resourceName, final String libraryFilename) throws IOException
+    {
+        final Path cacheDir = cacheDirectory();
+
+        String hash = readHash(resourceName + ".sha256");
+        if (hash == null)
+            hash = digest(resourceName);
+
+        // a library is only ever renamed into place complete, so finding it needs no lock
+        final Path cached = cacheDir.resolve(hash).resolve(libraryFilename);
+        final long size = resourceSize(resourceName);
+        if (isCached(cached, size))
+            return new Extraction(cached.toFile(), hash, true);
+
+        try (final FileChannel lockChannel = FileChannel.open(cacheDir.resolve(".lock"), StandardOpenOption.CREATE, StandardOpenOption.WRITE))
+        {
+            final FileLock fileLock = lockChannel.lock();
+            try {
+                // only the holder of the lock writes temporary files, so any left are from a JVM which died extracting
+                try (final DirectoryStream<Path> orphans = Files.newDirectoryStream(cacheDir, "*.tmp")) {
+                    for (final Path orphan : orphans)
+                        Files.deleteIfExists(orphan);
+                }
+
+                // another JVM may have extracted it while we waited for the lock
+                if (isCached(cached, size))
+                    return new Extraction(cached.toFile(), hash, true);
+
+                final Path temporary = Files.createTempFile(cacheDir, libraryFilename + ".", ".tmp");
+                try {
+                    copy(resourceName, temporary);
+                    Files.createDirectories(cached.getParent());
+                    // replaces a cached copy of the wrong size
+                    Files.move(temporary, cached, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                    return new Extraction(cached.toFile(), hash, false);
+                } finally {
+                    Files.deleteIfExists(temporary);
+                }
+            } finally {
+                fileLock.release();
             }
+        }
+    }
+
+    /**
+     * Only the size of a cached library is compared, not its hash: hashing it on every start would
+     * cost as much as the extraction the cache saves. The directory is private to its owner and files
+     * are renamed into place complete, so the size is there to catch a copy truncated or replaced by
+     * something outside this loader, e.g. a temporary file cleaner or a full disk.
+     *
+     * @param size the expected size in bytes, or -1 to accept any size
+     */
+    private static boolean isCached(final Path cached, final long size) throws IOException
+    {
+        return Files.isRegularFile(cached) && (size < 0 || Files.size(cached) == size);
+    }
+
+    /**
+     * @return the uncompressed size of a resource, or -1 if its URL does not tell
+     */
+    private static long resourceSize(final String resourceName) throws IOException
+    {
+        final URL url = NativeLoader.class.getResource(resourceName);
+        if (url == null)
+            throw new IOException("Unable to load native library file '" + resourceName + "'");
+
+        final URLConnection connection = url.openConnection();
+        // without caching, closing the stream also closes the jar file the connection opened
+        connection.setUseCaches(false);
+        final InputStream is = connection.getInputStream();
+        try {
+            return connection.getContentLengthLong();
+        } finally {
+            is.close();
+        }
+    }
+
+    /**
+     * @return the lowercase hex SHA-256 stored in <code>resourceName</code>, or null if there is no such resource
+     */
+    private static String readHash(final String resourceName) throws IOException
+    {
+        final InputStream is = NativeLoader.class.getResourceAsStream(resourceName);
+        if (is == null)
+            return null;
+
+        try (final BufferedReader reader = new BufferedReader(new InputStreamReader(is, StandardCharsets.US_ASCII))) {
+            final String line = reader.readLine();
+            // sha256sum prints the hash followed by the file name
+            final String hash = line == null ? "" : line.trim().split("\\s+")[0].toLowerCase();
+            if (!hash.matches("[0-9a-f]{64}"))
+                throw new IOException("Malformed hash in '" + resourceName + "'");
+            return hash;
+        }
+    }
 
-            // make sure nobody tried to do something funny
-            // in our new directory before we set perms
-            if (!deleteContents(tmpDirFile))
-                throw new RuntimeException("Failed to clean out temporary directory. Someone is likely messing with you!");
+    /**
+     * Hashes a resource when the build did not store its hash; reading it is still much cheaper
+     * than writing it out again.
+     */
+    private static String digest(final String resourceName) throws IOException
+    {
+        final MessageDigest md;
+        try {
+            md = MessageDigest.getInstance("SHA-256");
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
 
-            libfile = new File(tmpDirFile, libraryFilename);
-            os = new FileOutputStream(libfile);
+        try (final InputStream is = open(resourceName)) {
             final byte[] buf = new byte[64*1024];
             int bin;
             while ((bin = is.read(buf)) > 0)
-                os.write(buf, 0, bin);
+                md.update(buf, 0, bin);
+        }
+        return String.format("%064x", new BigInteger(1, md.digest()));
+    }
 
-            os.close();
-            os = null;
+    /**
+     * Copies a resource into <code>destination</code> and forces it to disk, so that it is complete
+     * before being renamed into the cache.
+     */
+    private static void copy(final String resourceName, final Path destination) throws IOException
+    {
+        try (final ReadableByteChannel in = Channels.newChannel(open(resourceName));
+             final FileChannel out = FileChannel.open(destination, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))
+        {
+            long position = 0;
+            long transferred;
+            while ((transferred = out.transferFrom(in, position, Long.MAX_VALUE)) > 0)
+                position += transferred;
+            out.force(true);
+        }
+    }
 
-            final File finalLibfile = libfile;
-            final File finalTmpDirFile = tmpDirFile;
-            Runtime.getRuntime().addShutdownHook(new Thread()
-            {
-                @Override
-                public void run()
-                {
-                    try {
-                        finalLibfile.delete();
-                        finalTmpDirFile.delete();
-                    } catch (final Exception e) { }
-                }
-            });
+    private static InputStream open(final String resourceName) throws IOException
+    {
+        final InputStream is = NativeLoader.class.getResourceAsStream(resourceName);
+        if (is == null)
+            throw new IOException("Unable to load native library file '" + resourceName + "'");
+        return is;
+    }
 
-            System.load(libfile.getAbsolutePath());
-        } catch (final Exception e) {
-            try {
-                // if that fails, try to load the "normal" way
-                System.loadLibrary(libraryName);
-            } catch (final UnsatisfiedLinkError e1) {
-                throw new RuntimeException(e);  // propagate the original error
-            }
-        } finally {
-            if (os != null) {
-                // something failed.  close and delete.
-                try {  os.close(); } catch (final Exception e) { }
-                if (libfile != null)
-                    try { libfile.delete(); } catch (final Exception e)  { }
-            }
+    private static Extraction extractTemporary(final String resourceName, final String libraryFilename) throws IOException
+    {
+        final String tmpDir = System.getProperty("java.io.tmpdir");
+        if (tmpDir == null)
+            throw new RuntimeException("Unable to find system temporary directory");
+
+        File tmpDirFile = null;
+        for (int retries = 0; retries < 100; ++retries) {
+            tmpDirFile = new File(tmpDir, new BigInteger(128, new Random()).toString(16));
+            if (!tmpDirFile.exists() && tmpDirFile.mkdirs())
+                break;
+            tmpDirFile = null;
+        }
+
+        if (tmpDirFile == null)
+            throw new RuntimeException("Can't create temporary directory '" + tmpDir + "'");
+
+        if (!tmpDirFile.setWritable(true, false) ||
+            !tmpDirFile.setReadable(true, false) ||
+            !tmpDirFile.setExecutable(true, false))
+        {
+            throw new RuntimeException("Unable to set permissions on temporary directory");
+        }
+
+        // make sure nobody tried to do something funny
+        // in our new directory before we set perms
+        if (!deleteContents(tmpDirFile))
+            throw new RuntimeException("Failed to clean out temporary directory. Someone is likely messing with you!");
 
-            if (is != null)
-                try { is.close(); } catch (final Exception e) { }
+        final File libfile = new File(tmpDirFile, libraryFilename);
+        try {
+            Files.createFile(libfile.toPath());
+            copy(resourceName, libfile.toPath());
+        } catch (final IOException e) {
+            // something failed.  delete.
+            try { libfile.delete(); } catch (final Exception e1)  { }
+            throw e;
         }
+
+        final File finalTmpDirFile = tmpDirFile;
+        Runtime.getRuntime().addShutdownHook(new Thread()
+        {
+            @Override
+            public void run()
+            {
+                try {
+                    libfile.delete();
+                    finalTmpDirFile.delete();
+                } catch (final Exception e) { }
+            }
+        });
+
+        return new Extraction(libfile, null, false);
     }
 
     private static boolean deleteContents(final File directory)
@@ -0,0 +1,82 @@
+package com.twilio.sdk.video.loader;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The phases of a {@link Warmup} in the order they ran, with the time each one took.
+ */
+public final class StartupProfile {
+    /**
+     * One step of the startup, e.g. <code>native_load</code> or <code>media_factory_0</code>.
+     */
+    public static final class Phase {
+        private final String name;
+        private final long nanos;
+
+        Phase(final String name, final long nanos) {
+            this.name = name;
+            this.nanos = nanos;
+        }
+
+        public String getName() {
+            return this.name;
+        }
+
+        public long getNanos() {
+            return this.nanos;
+        }
+    }
+
+    private final List<Phase> phases;
+    private final String thread;
+    private final long totalNanos;
+
+    StartupProfile(final List<Phase> phases, final String thread, final long totalNanos) {
+        this.phases = Collections.unmodifiableList(new ArrayList<>(phases));
+        this.thread = thread;
+        this.totalNanos = totalNanos;
+    }
+
+    public List<Phase> getPhases() {
+        return this.phases;
+    }
+
+    /**
+     * @return the time spent in the named phase, or -1 if there was no such phase
+     */
+    public long getNanos(final String name) {
+        for (final Phase phase: this.phases) {
+            if (phase.name.equals(name)) {
+                return phase.nanos;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the thread the warm-up ran on
+     */
+    public String getThread() {
+        return this.thread;
+    }
+
+    /**
+     * @return wall time from the start of the warm-up to its end; phases which already ran in an
+     *         earlier warm-up or load are reported but not included
+     */
+    public long getTotalNanos() {
+        return this.totalNanos;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder();
+        builder.append(String.format("startup %.1f ms on %s:", this.totalNanos / 1e6, this.thread));
+        for (final Phase phase: this.phases) {
+            builder.append(String.format(" %s=%.1fms", phase.name, phase.nanos / 1e6));
+        }
+        return builder.toString();
+    }
+}
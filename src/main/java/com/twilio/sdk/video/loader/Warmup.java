@@ -0,0 +1,127 @@
+package com.twilio.sdk.video.loader;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import com.twilio.sdk.video.media.MediaFactoryPool;
+
+/**
+ * Pays the cold-start cost of the binding ahead of its first use: extracting and loading the
+ * native library, then optionally creating media factories, whose first creation also initializes
+ * WebRTC and its codec factories.
+ *
+ * <pre>
+ * final CompletableFuture&lt;StartupProfile&gt; warmup = new Warmup()
+ *         .prestart(pool, 1)
+ *         .start();
+ * ... // parse configuration, bind ports
+ * System.out.println(warmup.join());
+ * </pre>
+ *
+ * {@link NativeLoader#loadNativeLibraries()} still has to be called before other classes of the
+ * binding are used; while a warm-up is loading the library it simply waits for it, and returns
+ * immediately afterwards.
+ */
+public class Warmup {
+    public static final String THREAD_NAME = "twilio-video-warmup";
+
+    private static final class Task {
+        final String phase;
+        final Runnable action;
+
+        Task(final String phase, final Runnable action) {
+            this.phase = phase;
+            this.action = action;
+        }
+    }
+
+    private final List<Task> tasks;
+
+    private CompletableFuture<StartupProfile> started;
+
+    public Warmup() {
+        this.tasks = new ArrayList<>();
+    }
+
+    /**
+     * Adds a step run after the native library is loaded, in the order steps are added.
+     */
+    public synchronized Warmup then(final String phase, final Runnable action) {
+        if (phase == null || action == null)
+            throw new IllegalArgumentException("phase and action cannot be null");
+        if (this.started != null)
+            throw new IllegalStateException("warm-up already started");
+
+        this.tasks.add(new Task(phase, action));
+        return this;
+    }
+
+    /**
+     * Creates the factories of the first <code>factories</code> slots of a pool, each in its own
+     * phase named <code>media_factory_</code><i>index</i>.
+     */
+    public Warmup prestart(final MediaFactoryPool pool, final int factories) {
+        if (pool == null)
+            throw new IllegalArgumentException("pool cannot be null");
+        if (factories <= 0 || factories > pool.getSize())
+            throw new IllegalArgumentException("factories must be between 1 and the size of the pool");
+
+        for (int i = 0; i < factories; i++) {
+            final int count = i + 1;
+            then("media_factory_" + i, () -> pool.prestart(count));
+        }
+        return this;
+    }
+
+    /**
+     * Runs the warm-up on a daemon thread; later calls return the same future.
+     */
+    public synchronized CompletableFuture<StartupProfile> start() {
+        if (this.started == null) {
+            final CompletableFuture<StartupProfile> future = new CompletableFuture<>();
+            final Thread thread = new Thread(() -> {
+                try {
+                    future.complete(run());
+                } catch (final Throwable t) {
+                    future.completeExceptionally(t);
+                }
+            }, THREAD_NAME);
+            thread.setDaemon(true);
+            this.started = future;
+            thread.start();
+        }
+        return this.started;
+    }
+
+    /**
+     * Runs the warm-up on the calling thread.
+     */
+    public StartupProfile run() {
+        final List<Task> tasks;
+        synchronized (this) {
+            tasks = new ArrayList<>(this.tasks);
+        }
+
+        final long started = System.nanoTime();
+        final List<StartupProfile.Phase> phases = new ArrayList<>();
+
+        NativeLoader.loadNativeLibraries();
+        long extract = 0;
+        long load = 0;
+        for (final NativeLoader.LoadReport report: NativeLoader.getLoadReports()) {
+            extract += report.getExtractNanos();
+            load += report.getLoadNanos();
+        }
+        phases.add(new StartupProfile.Phase("native_extract", extract));
+        phases.add(new StartupProfile.Phase("native_load", load));
+
+        for (final Task task: tasks) {
+            final long phaseStarted = System.nanoTime();
+            task.action.run();
+            phases.add(new StartupProfile.Phase(task.phase, System.nanoTime() - phaseStarted));
+        }
+
+        return new StartupProfile(phases, Thread.currentThread().getName(), System.nanoTime() - started);
+    }
+}
@@ -0,0 +1,125 @@
+package com.twilio.sdk.video.media;
+
+import java.nio.ByteBuffer;
+
+import com.twilio.sdk.video.ConvertOptions;
+import com.twilio.sdk.video.ConvertedFrame;
+import com.twilio.sdk.video.ConvertingVideoSink;
+import com.twilio.sdk.video.VideoSinkWants;
+import com.twilio.sdk.video.VideoTrackInterface;
+
+/**
+ * Reads the latest frame of a video track, cropped, scaled and converted natively, into one reused
+ * direct buffer; e.g. a 160x90 RGB thumbnail of a remote track:
+ *
+ * <pre>
+ * final ConvertOptions options = new ConvertOptions();
+ * options.setWidth(160);
+ * options.setFormat(PixelFormat.kBGR24);
+ * try (final FrameReader reader = new FrameReader(track.getWebRtcTrack(), options)) {
+ *     final ByteBuffer pixels = reader.read();
+ *     if (pixels != null) {
+ *         draw(pixels, reader.getLastFrame().getWidth(), reader.getLastFrame().getHeight());
+ *     }
+ * }
+ * </pre>
+ *
+ * Frames are only converted when read, so a reader polled a few times per second costs little more
+ * than the decode. The returned buffer is only valid until the next read, so a reader must not be
+ * shared between threads.
+ */
+public class FrameReader implements AutoCloseable {
+    private final VideoTrackInterface track;
+    private final ConvertingVideoSink sink;
+
+    private ByteBuffer buffer;
+    private boolean closed;
+
+    public FrameReader(final VideoTrackInterface track, final ConvertOptions options) {
+        if (track == null)
+            throw new IllegalArgumentException("track cannot be null");
+        if (options == null)
+            throw new IllegalArgumentException("options cannot be null");
+
+        this.track = track;
+        this.sink = new ConvertingVideoSink(null, options);
+
+        // the sink rotates while converting, which is cheaper than a rotated copy of every frame
+        final VideoSinkWants wants = new VideoSinkWants();
+        wants.setRotation_applied(false);
+        this.track.AddOrUpdateSink(this.sink, wants);
+    }
+
+    /**
+     * Converts the latest frame.
+     *
+     * @return the pixels, from position 0 to the limit, or <code>null</code> before the first frame or if
+     *         the crop lies outside the frame
+     * @throws IllegalStateException if the frame cannot be converted with the current options
+     */
+    public ByteBuffer read() {
+        if (this.closed)
+            throw new IllegalStateException("reader is closed");
+
+        long timestamp = ConvertingVideoSink.kBufferTooSmall;
+        // the frame size can change between the two calls, so grow and retry
+        while (timestamp == ConvertingVideoSink.kBufferTooSmall) {
+            final int required = (int) this.sink.getRequiredCapacity();
+            if (required == 0) {
+                return null;
+            }
+            if (this.buffer == null || this.buffer.capacity() < required) {
+                this.buffer = ByteBuffer.allocateDirect(required);
+            }
+            timestamp = this.sink.convertLatest(this.buffer);
+        }
+        if (timestamp == ConvertingVideoSink.kNoFrame) {
+            return null;
+        }
+        if (timestamp == ConvertingVideoSink.kConversionFailed)
+            throw new IllegalStateException("cannot convert frame with " + describe(this.sink.getOptions()));
+
+        this.buffer.clear();
+        this.buffer.limit((int) this.sink.getLastConverted().getSize());
+        return this.buffer;
+    }
+
+    private static String describe(final ConvertOptions options) {
+        return String.format("%dx%d %s, crop %d,%d %dx%d", options.getWidth(), options.getHeight(), options.getFormat(),
+                options.getCrop_x(), options.getCrop_y(), options.getCrop_width(), options.getCrop_height());
+    }
+
+    /**
+     * @return the geometry and timestamp of the frame returned by the last {@link #read()}
+     */
+    public ConvertedFrame getLastFrame() {
+        return this.sink.getLastConverted();
+    }
+
+    /**
+     * Changes the output of the next {@link #read()}.
+     */
+    public void setOptions(final ConvertOptions options) {
+        if (options == null)
+            throw new IllegalArgumentException("options cannot be null");
+
+        this.sink.setOptions(options);
+    }
+
+    public ConvertingVideoSink getSink() {
+        return this.sink;
+    }
+
+    /**
+     * Detaches the sink from the track and releases it.
+     */
+    @Override
+    public void close() {
+        if (this.closed) {
+            return;
+        }
+        this.closed = true;
+        this.track.RemoveSink(this.sink);
+        this.sink.close();
+    }
+}
@@ -0,0 +1,143 @@
+package com.twilio.sdk.video.media;
+
+import com.twilio.sdk.video.FakeVideoCapturerOptions;
+import com.twilio.sdk.video.HeadlessAudioDevice;
+import com.twilio.sdk.video.LoopbackCall;
+import com.twilio.sdk.video.LoopbackState;
+import com.twilio.sdk.video.MediaConstraints;
+import com.twilio.sdk.video.MediaThreadGroup;
+import com.twilio.sdk.video.VideoFrameInjector;
+import com.twilio.sdk.video.VideoTrackInterface;
+
+/**
+ * Sends video between two peer connections inside the process, for measuring capture, encoding,
+ * decoding and sinks without a network or a Twilio account:
+ *
+ * <pre>
+ * try (final Loopback loopback = new Loopback("loopback")) {
+ *     final int track = loopback.addVideoTrack(injector);
+ *     loopback.connect(10_000);
+ *     loopback.getRemoteVideoTrack(track).AddOrUpdateSink(sink, new VideoSinkWants());
+ *     ...
+ * }
+ * </pre>
+ *
+ * The received tracks are the ones {@link com.twilio.sdk.video.RemoteVideoTrack#getWebRtcTrack()}
+ * returns in a room, so sinks attached to them see the same frames; there are no rooms,
+ * participants or their observers. Sinks must be removed before the loopback is closed.
+ */
+public class Loopback implements AutoCloseable {
+    // the device is only needed to create the factory, so its rings stay small
+    private static final int SAMPLE_RATE = 48000;
+    private static final int CHANNELS = 1;
+    private static final long BUFFERED_CHUNKS = 4;
+
+    private final MediaThreadGroup group;
+    private final HeadlessAudioDevice device;
+    private final LoopbackCall call;
+
+    private boolean closed;
+
+    /**
+     * @param name prefix of the native thread names, e.g. <code>loopback-worker</code>
+     */
+    public Loopback(final String name) {
+        if (name == null)
+            throw new IllegalArgumentException("name cannot be null");
+
+        this.group = new MediaThreadGroup(name);
+        this.device = new HeadlessAudioDevice(SAMPLE_RATE, CHANNELS, BUFFERED_CHUNKS);
+        this.call = new LoopbackCall(this.group, this.device);
+    }
+
+    /**
+     * Adds a track sending the frames pushed into <code>injector</code>.
+     *
+     * @return the index of the track
+     */
+    public int addVideoTrack(final VideoFrameInjector injector) {
+        return addVideoTrack(injector, MediaConstraints.defaultVideoConstraints());
+    }
+
+    public synchronized int addVideoTrack(final VideoFrameInjector injector, final MediaConstraints constraints) {
+        if (injector == null)
+            throw new IllegalArgumentException("injector cannot be null");
+
+        return checkTrack(this.call.addVideoTrack(injector, constraints));
+    }
+
+    /**
+     * Adds a track sending generated frames.
+     *
+     * @return the index of the track
+     */
+    public synchronized int addFakeVideoTrack(final FakeVideoCapturerOptions options, final MediaConstraints constraints) {
+        if (options == null)
+            throw new IllegalArgumentException("options cannot be null");
+
+        return checkTrack(this.call.addFakeVideoTrack(options, constraints));
+    }
+
+    private int checkTrack(final int index) {
+        if (index < 0)
+            throw new IllegalStateException("tracks can only be added before connecting: " + this.call.getState());
+        return index;
+    }
+
+    /**
+     * Negotiates the call and waits until media can flow.
+     *
+     * @throws IllegalStateException if the call fails, or is not connected within the timeout
+     */
+    public synchronized void connect(final int timeoutMs) {
+        if (this.closed)
+            throw new IllegalStateException("loopback is closed");
+        if (!this.call.start())
+            throw new IllegalStateException("cannot start the call: " + describe());
+        if (!this.call.waitForConnected(timeoutMs))
+            throw new IllegalStateException("not connected after " + timeoutMs + " ms: " + describe());
+    }
+
+    private String describe() {
+        final String error = this.call.getError();
+        return error.isEmpty() ? this.call.getState().toString() : error;
+    }
+
+    public LoopbackState getState() {
+        return this.call.getState();
+    }
+
+    public int getVideoTrackCount() {
+        return this.call.getVideoTrackCount();
+    }
+
+    public VideoTrackInterface getLocalVideoTrack(final int index) {
+        return this.call.getLocalVideoTrack(index);
+    }
+
+    /**
+     * @return the received track, or <code>null</code> until the receiving peer has seen it
+     */
+    public VideoTrackInterface getRemoteVideoTrack(final int index) {
+        return this.call.getRemoteVideoTrack(index);
+    }
+
+    public MediaThreadGroup getThreadGroup() {
+        return this.group;
+    }
+
+    /**
+     * Closes the call, then the device and the threads it ran on.
+     */
+    @Override
+    public synchronized void close() {
+        if (this.closed) {
+            return;
+        }
+        this.closed = true;
+        // the peer connections use the group's threads until they are deleted
+        this.call.close();
+        this.device.close();
+        this.group.close();
+    }
+}
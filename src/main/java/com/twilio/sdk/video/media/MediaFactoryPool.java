@@ -0,0 +1,247 @@
+package com.twilio.sdk.video.media;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import com.twilio.sdk.video.MediaFactory;
+import com.twilio.sdk.video.MediaOptions;
+import com.twilio.sdk.video.MediaThreadGroup;
+
+/**
+ * Multiplexes many rooms over a bounded number of media factories and native threads.
+ *
+ * Every factory created with <code>MediaFactory.create(new MediaOptions())</code> starts its own
+ * worker, signaling and network threads. A pool instead creates at most <code>size</code>
+ * {@link MediaThreadGroup}s, each with one factory running on it, and hands out the factory with
+ * the fewest rooms on every {@link #acquire()}:
+ *
+ * <pre>
+ * try (final MediaFactoryPool.Lease lease = pool.acquire()) {
+ *     final MediaFactory factory = lease.getMediaFactory();
+ *     ...
+ * }
+ * </pre>
+ *
+ * Factories stay alive between leases and are only released by {@link #close()}, after every room
+ * and track created from them.
+ */
+public class MediaFactoryPool implements AutoCloseable {
+    /**
+     * System property overriding {@link #defaultSize()}.
+     */
+    public static final String SIZE_PROPERTY = "twilio.video.mediaThreadGroups";
+
+    private static final class Slot {
+        final int index;
+        MediaThreadGroup group;
+        MediaFactory factory;
+        int active;
+        final AtomicLong leases = new AtomicLong();
+
+        Slot(final int index) {
+            this.index = index;
+        }
+    }
+
+    /**
+     * A factory handed out by the pool; closing it returns the room slot, not the factory.
+     */
+    public static final class Lease implements AutoCloseable {
+        private final MediaFactoryPool pool;
+        private final Slot slot;
+        private final AtomicBoolean closed;
+
+        private Lease(final MediaFactoryPool pool, final Slot slot) {
+            this.pool = pool;
+            this.slot = slot;
+            this.closed = new AtomicBoolean();
+        }
+
+        public MediaFactory getMediaFactory() {
+            return this.slot.factory;
+        }
+
+        public MediaThreadGroup getThreadGroup() {
+            return this.slot.group;
+        }
+
+        public int getIndex() {
+            return this.slot.index;
+        }
+
+        @Override
+        public void close() {
+            if (this.closed.compareAndSet(false, true)) {
+                this.pool.release(this.slot);
+            }
+        }
+    }
+
+    private final String name;
+    private final Supplier<MediaOptions> options;
+    private final Slot[] slots;
+
+    private boolean closed;
+
+    /**
+     * One thread group per two cores by default, leaving the other half to encoding helpers and the application.
+     */
+    public static int defaultSize() {
+        return Math.max(1, Integer.getInteger(SIZE_PROPERTY, Runtime.getRuntime().availableProcessors() / 2));
+    }
+
+    public MediaFactoryPool() {
+        this("media", defaultSize(), MediaOptions::new);
+    }
+
+    public MediaFactoryPool(final int size) {
+        this("media", size, MediaOptions::new);
+    }
+
+    /**
+     * @param name prefix of the native thread names, e.g. <code>media-0-worker</code>
+     * @param options creates the options of each factory; their threads are replaced by the pool's
+     */
+    public MediaFactoryPool(final String name, final int size, final Supplier<MediaOptions> options) {
+        if (name == null || options == null)
+            throw new IllegalArgumentException("name and options cannot be null");
+        if (size <= 0)
+            throw new IllegalArgumentException("size must be positive");
+
+        this.name = name;
+        this.options = options;
+        this.slots = new Slot[size];
+        for (int i = 0; i < size; i++) {
+            this.slots[i] = new Slot(i);
+        }
+    }
+
+    /**
+     * Leases the factory with the fewest active leases, creating its threads on first use.
+     */
+    public synchronized Lease acquire() {
+        if (this.closed)
+            throw new IllegalStateException("pool is closed");
+
+        Slot best = this.slots[0];
+        for (final Slot slot: this.slots) {
+            if (slot.active < best.active) {
+                best = slot;
+            }
+        }
+
+        start(best);
+        best.active++;
+        best.leases.incrementAndGet();
+        return new Lease(this, best);
+    }
+
+    /**
+     * Creates the threads and factories of the first <code>count</code> slots ahead of their first
+     * lease, e.g. from a {@link com.twilio.sdk.video.loader.Warmup}, so that no lease pays for it.
+     */
+    public synchronized void prestart(final int count) {
+        if (this.closed)
+            throw new IllegalStateException("pool is closed");
+
+        for (int i = 0; i < Math.min(count, this.slots.length); i++) {
+            start(this.slots[i]);
+        }
+    }
+
+    /**
+     * @return true if the slot's factory already exists
+     */
+    public synchronized boolean isStarted(final int index) {
+        return this.slots[index].factory != null;
+    }
+
+    private void start(final Slot slot) {
+        if (slot.factory != null) {
+            return;
+        }
+
+        final MediaThreadGroup group = new MediaThreadGroup(this.name + "-" + slot.index);
+        try {
+            final MediaOptions options = this.options.get();
+            options.setThreadGroup(group);
+            slot.factory = MediaFactory.create(options);
+        } catch (final RuntimeException e) {
+            group.close();
+            throw e;
+        }
+        slot.group = group;
+    }
+
+    private synchronized void release(final Slot slot) {
+        slot.active--;
+    }
+
+    /**
+     * Posts a probe to every started thread; see {@link MediaThreadGroup#probe()}.
+     */
+    public synchronized void probe() {
+        for (final Slot slot: this.slots) {
+            if (slot.group != null) {
+                slot.group.probe();
+            }
+        }
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    public int getSize() {
+        return this.slots.length;
+    }
+
+    /**
+     * @return the thread group of the given slot, or <code>null</code> if nothing was leased from it yet
+     */
+    public synchronized MediaThreadGroup getThreadGroup(final int index) {
+        return this.slots[index].group;
+    }
+
+    public synchronized int getActiveLeases(final int index) {
+        return this.slots[index].active;
+    }
+
+    public synchronized int getActiveLeases() {
+        int active = 0;
+        for (final Slot slot: this.slots) {
+            active += slot.active;
+        }
+        return active;
+    }
+
+    public long getTotalLeases(final int index) {
+        return this.slots[index].leases.get();
+    }
+
+    /**
+     * Releases every factory, then its threads.
+     *
+     * @throws IllegalStateException if a lease is still active
+     */
+    @Override
+    public synchronized void close() {
+        if (this.closed) {
+            return;
+        }
+        if (getActiveLeases() > 0)
+            throw new IllegalStateException(getActiveLeases() + " leases are still active");
+
+        this.closed = true;
+        for (final Slot slot: this.slots) {
+            if (slot.factory != null) {
+                // the factory uses the group's threads until it is deleted
+                slot.factory.close();
+                slot.group.close();
+                slot.factory = null;
+                slot.group = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.twilio.sdk.video.media;
+
+import com.twilio.sdk.video.VideoSinkTier;
+
+/**
+ * Common {@link VideoSinkTier}s, from full quality down to thumbnails.
+ */
+public enum SinkTier {
+    FULL(0, 0),
+    HD(1280 * 720, 30),
+    SD(640 * 360, 30),
+    THUMBNAIL(320 * 180, 15);
+
+    private final int maxPixelCount;
+    private final int maxFrameRate;
+
+    SinkTier(final int maxPixelCount, final int maxFrameRate) {
+        this.maxPixelCount = maxPixelCount;
+        this.maxFrameRate = maxFrameRate;
+    }
+
+    /**
+     * @return at most this many pixels per frame, or 0 for no limit
+     */
+    public int getMaxPixelCount() {
+        return this.maxPixelCount;
+    }
+
+    /**
+     * @return at most this many frames per second, or 0 for no limit
+     */
+    public int getMaxFrameRate() {
+        return this.maxFrameRate;
+    }
+
+    public VideoSinkTier toVideoSinkTier() {
+        return new VideoSinkTier(this.maxPixelCount, 0, this.maxFrameRate);
+    }
+}
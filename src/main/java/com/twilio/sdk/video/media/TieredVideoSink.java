@@ -0,0 +1,110 @@
+package com.twilio.sdk.video.media;
+
+import com.twilio.sdk.video.AdaptingVideoSink;
+import com.twilio.sdk.video.VideoSinkForVideoFrame;
+import com.twilio.sdk.video.VideoSinkTier;
+import com.twilio.sdk.video.VideoTrackInterface;
+
+/**
+ * Attaches a sink to a video track with its own resolution and frame rate limits, which can be
+ * changed while frames flow; e.g. a grid of thumbnails where the active speaker is shown larger:
+ *
+ * <pre>
+ * final TieredVideoSink tile = new TieredVideoSink(track.getWebRtcTrack(), sink, SinkTier.THUMBNAIL);
+ * ...
+ * tile.setTier(SinkTier.HD);
+ * </pre>
+ *
+ * Frames are dropped and scaled down natively by an {@link AdaptingVideoSink} before they reach
+ * the sink, which can itself be native, e.g. a {@link com.twilio.sdk.video.ConvertingVideoSink}.
+ * Frames keep their rotation as metadata instead of being rotated, so sinks must honour
+ * {@link com.twilio.sdk.video.VideoFrame#rotation()} when they draw.
+ */
+public class TieredVideoSink implements AutoCloseable {
+    private final VideoTrackInterface track;
+    // the adapter only holds a native pointer, so the sink must stay reachable from here
+    private final VideoSinkForVideoFrame sink;
+    private final AdaptingVideoSink adapter;
+
+    private boolean closed;
+
+    public TieredVideoSink(final VideoTrackInterface track, final VideoSinkForVideoFrame sink, final SinkTier tier) {
+        this(track, sink, tier, false);
+    }
+
+    /**
+     * @param blackFrames deliver black frames while the track is disabled, instead of none
+     */
+    public TieredVideoSink(final VideoTrackInterface track,
+            final VideoSinkForVideoFrame sink,
+            final SinkTier tier,
+            final boolean blackFrames) {
+        this(track, sink, tier == null ? null : tier.toVideoSinkTier(), blackFrames);
+    }
+
+    public TieredVideoSink(final VideoTrackInterface track, final VideoSinkForVideoFrame sink, final VideoSinkTier tier) {
+        this(track, sink, tier, false);
+    }
+
+    public TieredVideoSink(final VideoTrackInterface track,
+            final VideoSinkForVideoFrame sink,
+            final VideoSinkTier tier,
+            final boolean blackFrames) {
+        if (track == null)
+            throw new IllegalArgumentException("track cannot be null");
+        if (sink == null)
+            throw new IllegalArgumentException("sink cannot be null");
+        if (tier == null)
+            throw new IllegalArgumentException("tier cannot be null");
+
+        this.track = track;
+        this.sink = sink;
+        this.adapter = new AdaptingVideoSink(sink, tier, blackFrames);
+        this.track.AddOrUpdateSink(this.adapter, this.adapter.getWants());
+    }
+
+    public void setTier(final SinkTier tier) {
+        if (tier == null)
+            throw new IllegalArgumentException("tier cannot be null");
+
+        setTier(tier.toVideoSinkTier());
+    }
+
+    /**
+     * Applies the tier from the next frame on, and updates the wants the track's source sees.
+     */
+    public synchronized void setTier(final VideoSinkTier tier) {
+        if (tier == null)
+            throw new IllegalArgumentException("tier cannot be null");
+        if (this.closed)
+            throw new IllegalStateException("sink is closed");
+
+        this.adapter.setTier(tier);
+        this.track.AddOrUpdateSink(this.adapter, this.adapter.getWants());
+    }
+
+    public VideoSinkTier getTier() {
+        return this.adapter.getTier();
+    }
+
+    public VideoSinkForVideoFrame getSink() {
+        return this.sink;
+    }
+
+    public AdaptingVideoSink getAdapter() {
+        return this.adapter;
+    }
+
+    /**
+     * Detaches the sink from the track; the sink itself is left to the caller.
+     */
+    @Override
+    public synchronized void close() {
+        if (this.closed) {
+            return;
+        }
+        this.closed = true;
+        this.track.RemoveSink(this.adapter);
+        this.adapter.close();
+    }
+}
@@ -0,0 +1,210 @@
+package com.twilio.sdk.video.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import com.twilio.sdk.video.event.LatencyHistogram;
+
+/**
+ * Publishes a {@link MetricsRegistry} as one read-only MBean, with an attribute per sample.
+ *
+ * Attribute names are the metric names followed by their label values, e.g.
+ * <code>twilio_video_track_bitrate_bps.MT123</code>; histograms are flattened into
+ * <code>_count</code>, <code>_mean_us</code>, <code>_p50_us</code>, <code>_p99_us</code> and <code>_max_us</code>.
+ *
+ * Reading a single attribute only evaluates the metrics of its name, or the one source which
+ * produced it, as found when the registry was last read in full.
+ */
+public class JmxExporter implements DynamicMBean, AutoCloseable {
+    public static final String DEFAULT_NAME = "com.twilio.sdk.video:type=Metrics";
+
+    private final MetricsRegistry registry;
+    private final ObjectName name;
+    private final MBeanServer server;
+
+    // attribute -> the metric name or the MetricSource which produced it
+    private volatile Map<String, Object> owners;
+
+    public JmxExporter(final MetricsRegistry registry) throws JMException {
+        this(registry, DEFAULT_NAME, ManagementFactory.getPlatformMBeanServer());
+    }
+
+    public JmxExporter(final MetricsRegistry registry, final String name, final MBeanServer server) throws JMException {
+        if (registry == null || name == null || server == null)
+            throw new IllegalArgumentException("registry, name and server cannot be null");
+
+        this.registry = registry;
+        this.name = new ObjectName(name);
+        this.server = server;
+        this.owners = Collections.emptyMap();
+        this.server.registerMBean(this, this.name);
+    }
+
+    @Override
+    public void close() throws JMException {
+        if (this.server.isRegistered(this.name)) {
+            this.server.unregisterMBean(this.name);
+        }
+    }
+
+    @Override
+    public Object getAttribute(final String attribute) throws AttributeNotFoundException {
+        Object owner = this.owners.get(attribute);
+        if (owner == null || (owner instanceof MetricSource && !this.registry.getSources().contains(owner))) {
+            // new or moved since the last full read
+            snapshot();
+            owner = this.owners.get(attribute);
+        }
+        if (owner == null)
+            throw new AttributeNotFoundException(attribute);
+
+        final Collector collector = new Collector(new HashMap<>(), null, owner);
+        if (owner instanceof MetricSource) {
+            ((MetricSource) owner).collect(collector);
+        } else {
+            this.registry.visitMetrics((String) owner, collector);
+        }
+
+        Object value = collector.values.get(attribute);
+        if (value == null) {
+            value = snapshot().get(attribute);
+        }
+        if (value == null)
+            throw new AttributeNotFoundException(attribute);
+        return value;
+    }
+
+    @Override
+    public AttributeList getAttributes(final String[] attributes) {
+        final Map<String, Object> snapshot = snapshot();
+        final AttributeList list = new AttributeList();
+        for (final String attribute: attributes) {
+            final Object value = snapshot.get(attribute);
+            if (value != null) {
+                list.add(new Attribute(attribute, value));
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public void setAttribute(final Attribute attribute) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException(attribute.getName() + " is read-only");
+    }
+
+    @Override
+    public AttributeList setAttributes(final AttributeList attributes) {
+        return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(final String actionName, final Object[] params, final String[] signature) {
+        throw new UnsupportedOperationException(actionName);
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        final List<MBeanAttributeInfo> attributes = new ArrayList<>();
+        for (final Map.Entry<String, Object> entry: snapshot().entrySet()) {
+            attributes.add(new MBeanAttributeInfo(entry.getKey(),
+                    entry.getValue().getClass().getName(),
+                    entry.getKey(),
+                    true,
+                    false,
+                    false));
+        }
+
+        return new MBeanInfo(getClass().getName(),
+                "Twilio Video metrics",
+                attributes.toArray(new MBeanAttributeInfo[0]),
+                null,
+                null,
+                null);
+    }
+
+    private Map<String, Object> snapshot() {
+        final Map<String, Object> values = new LinkedHashMap<>();
+        final Map<String, Object> owners = new HashMap<>();
+
+        this.registry.visitMetrics(new Collector(values, owners, null));
+        for (final MetricSource source: this.registry.getSources()) {
+            source.collect(new Collector(values, owners, source));
+        }
+
+        this.owners = owners;
+        return values;
+    }
+
+    private static final class Collector implements MetricsRegistry.Visitor {
+        final Map<String, Object> values;
+        final Map<String, Object> owners;
+        // the source being collected, or null for the registry's own metrics, which are owned by their name
+        final Object owner;
+
+        Collector(final Map<String, Object> values, final Map<String, Object> owners, final Object owner) {
+            this.values = values;
+            this.owners = owners;
+            this.owner = owner;
+        }
+
+        @Override
+        public void sample(final MetricsRegistry.Type type, final String name, final String help, final String labels, final double value) {
+            put(name, attributeName(name, labels), value);
+        }
+
+        @Override
+        public void histogram(final String name, final String help, final String labels, final LatencyHistogram histogram) {
+            final String attribute = attributeName(name, labels);
+            put(name, attribute + "_count", histogram.getCount());
+            put(name, attribute + "_mean_us", histogram.getMean(TimeUnit.MICROSECONDS));
+            put(name, attribute + "_p50_us", histogram.getPercentile(50, TimeUnit.MICROSECONDS));
+            put(name, attribute + "_p99_us", histogram.getPercentile(99, TimeUnit.MICROSECONDS));
+            put(name, attribute + "_max_us", histogram.getMax(TimeUnit.MICROSECONDS));
+        }
+
+        private void put(final String name, final String attribute, final Object value) {
+            this.values.put(attribute, value);
+            if (this.owners != null) {
+                this.owners.put(attribute, this.owner == null ? name : this.owner);
+            }
+        }
+    }
+
+    private static String attributeName(final String name, final String labels) {
+        if (labels.isEmpty()) {
+            return name;
+        }
+
+        // {a="x",b="y"} -> name.x.y
+        final StringBuilder builder = new StringBuilder(name);
+        boolean inValue = false;
+        for (int i = 0; i < labels.length(); i++) {
+            final char ch = labels.charAt(i);
+            if (ch == '"' && labels.charAt(i - 1) != '\\') {
+                inValue = !inValue;
+                if (inValue) {
+                    builder.append('.');
+                }
+            } else if (inValue && ch != '\\') {
+                builder.append(ch);
+            }
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,9 @@
+package com.twilio.sdk.video.metrics;
+
+/**
+ * Produces samples whose set of labels is only known when the metrics are read, e.g. one
+ * gauge per track of a {@link com.twilio.sdk.video.StatsCollector}.
+ */
+public interface MetricSource {
+    void collect(MetricsRegistry.Visitor visitor);
+}
@@ -0,0 +1,210 @@
+package com.twilio.sdk.video.metrics;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+import java.util.function.Supplier;
+
+import com.twilio.sdk.video.event.LatencyHistogram;
+
+/**
+ * Named counters, gauges and latency histograms, read by {@link PrometheusExporter} and {@link JmxExporter}.
+ *
+ * Recording never takes a lock: counters are {@link LongAdder}s and histograms are arrays of
+ * atomic buckets. Gauges and {@link MetricSource}s are only evaluated when the metrics are read,
+ * so values which live in native code cost nothing between scrapes.
+ *
+ * Labels are given as alternating names and values, e.g. <code>counter("frames", "...", "track", sid)</code>.
+ */
+public class MetricsRegistry {
+    public enum Type {
+        COUNTER,
+        GAUGE,
+        HISTOGRAM
+    }
+
+    /**
+     * Receives every sample when the registry is read.
+     */
+    public interface Visitor {
+        void sample(Type type, String name, String help, String labels, double value);
+
+        void histogram(String name, String help, String labels, LatencyHistogram histogram);
+    }
+
+    private static final class Metric {
+        final Type type;
+        final String name;
+        final String help;
+        final String labels;
+        final Object value;
+
+        Metric(final Type type, final String name, final String help, final String labels, final Object value) {
+            this.type = type;
+            this.name = name;
+            this.help = help;
+            this.labels = labels;
+            this.value = value;
+        }
+    }
+
+    private final ConcurrentMap<String, Metric> metrics;
+    private final List<MetricSource> sources;
+
+    public MetricsRegistry() {
+        this.metrics = new ConcurrentHashMap<>();
+        this.sources = new CopyOnWriteArrayList<>();
+    }
+
+    /**
+     * @return the counter with the given name and labels, created on first use
+     */
+    public LongAdder counter(final String name, final String help, final String... labels) {
+        return (LongAdder) get(Type.COUNTER, name, help, labels, LongAdder::new).value;
+    }
+
+    /**
+     * @return the histogram with the given name and labels, created on first use
+     */
+    public LatencyHistogram histogram(final String name, final String help, final String... labels) {
+        return (LatencyHistogram) get(Type.HISTOGRAM, name, help, labels, LatencyHistogram::new).value;
+    }
+
+    /**
+     * Exposes an existing histogram, e.g. one owned by an {@link com.twilio.sdk.video.event.EventDispatcher}.
+     */
+    public void histogram(final String name, final String help, final LatencyHistogram histogram, final String... labels) {
+        put(Type.HISTOGRAM, name, help, labels, histogram);
+    }
+
+    public void gauge(final String name, final String help, final DoubleSupplier value, final String... labels) {
+        put(Type.GAUGE, name, help, labels, value);
+    }
+
+    /**
+     * Exposes an existing counter-like value, which must never decrease.
+     */
+    public void counter(final String name, final String help, final DoubleSupplier value, final String... labels) {
+        put(Type.COUNTER, name, help, labels, value);
+    }
+
+    public void register(final MetricSource source) {
+        this.sources.add(source);
+    }
+
+    public void unregister(final MetricSource source) {
+        this.sources.remove(source);
+    }
+
+    /**
+     * Removes every metric with the given name and labels, whatever its type.
+     */
+    public void remove(final String name, final String... labels) {
+        this.metrics.remove(name + labels(labels));
+    }
+
+    public void visit(final Visitor visitor) {
+        visitMetrics(visitor);
+
+        for (final MetricSource source: this.sources) {
+            source.collect(visitor);
+        }
+    }
+
+    /**
+     * Visits the counters, gauges and histograms, but not the sources.
+     */
+    public void visitMetrics(final Visitor visitor) {
+        for (final Metric metric: this.metrics.values()) {
+            visit(metric, visitor);
+        }
+    }
+
+    /**
+     * Visits the counters, gauges and histograms with the given name, evaluating no other gauge.
+     */
+    public void visitMetrics(final String name, final Visitor visitor) {
+        for (final Metric metric: this.metrics.values()) {
+            if (metric.name.equals(name)) {
+                visit(metric, visitor);
+            }
+        }
+    }
+
+    /**
+     * @return the registered sources, in registration order
+     */
+    public List<MetricSource> getSources() {
+        return Collections.unmodifiableList(this.sources);
+    }
+
+    /**
+     * Renders labels in Prometheus syntax, e.g. <code>{track="MT123",kind="video"}</code>, or an empty string.
+     */
+    public static String labels(final String... labels) {
+        if (labels == null || labels.length == 0) {
+            return "";
+        }
+        if (labels.length % 2 != 0)
+            throw new IllegalArgumentException("labels must be name/value pairs");
+
+        final StringBuilder builder = new StringBuilder("{");
+        for (int i = 0; i < labels.length; i += 2) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append(labels[i]).append("=\"");
+            final String value = labels[i + 1] == null ? "" : labels[i + 1];
+            for (int c = 0; c < value.length(); c++) {
+                final char ch = value.charAt(c);
+                if (ch == '\\' || ch == '"') {
+                    builder.append('\\').append(ch);
+                } else if (ch == '\n') {
+                    builder.append("\\n");
+                } else {
+                    builder.append(ch);
+                }
+            }
+            builder.append('"');
+        }
+        return builder.append('}').toString();
+    }
+
+    private static void visit(final Metric metric, final Visitor visitor) {
+        switch (metric.type) {
+            case HISTOGRAM:
+                visitor.histogram(metric.name, metric.help, metric.labels, (LatencyHistogram) metric.value);
+                break;
+            default:
+                visitor.sample(metric.type, metric.name, metric.help, metric.labels, valueOf(metric.value));
+                break;
+        }
+    }
+
+    private static double valueOf(final Object value) {
+        if (value instanceof LongAdder) {
+            return ((LongAdder) value).sum();
+        }
+        return ((DoubleSupplier) value).getAsDouble();
+    }
+
+    private Metric get(final Type type, final String name, final String help, final String[] labels, final Supplier<Object> factory) {
+        final String rendered = labels(labels);
+        final Metric metric = this.metrics.computeIfAbsent(name + rendered, key -> new Metric(type, name, help, rendered, factory.get()));
+        if (metric.type != type)
+            throw new IllegalArgumentException(String.format("%s%s is already registered as %s", name, rendered, metric.type));
+        return metric;
+    }
+
+    private void put(final Type type, final String name, final String help, final String[] labels, final Object value) {
+        if (value == null)
+            throw new IllegalArgumentException("value cannot be null");
+
+        final String rendered = labels(labels);
+        this.metrics.put(name + rendered, new Metric(type, name, help, rendered, value));
+    }
+}
@@ -0,0 +1,157 @@
+package com.twilio.sdk.video.metrics;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import com.sun.net.httpserver.HttpServer;
+
+import com.twilio.sdk.video.event.LatencyHistogram;
+
+/**
+ * Serves a {@link MetricsRegistry} in the Prometheus text format (version 0.0.4) at <code>/metrics</code>.
+ *
+ * Histograms are exported in seconds, with power-of-two buckets from 1us to about 67s.
+ */
+public class PrometheusExporter implements AutoCloseable {
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private static final int MAX_EXPORTED_BUCKET = 26;
+
+    private final MetricsRegistry registry;
+    private HttpServer server;
+    // HttpServer.stop() leaves the executor it was given running
+    private ExecutorService executor;
+
+    public PrometheusExporter(final MetricsRegistry registry) {
+        if (registry == null)
+            throw new IllegalArgumentException("registry cannot be null");
+
+        this.registry = registry;
+    }
+
+    /**
+     * Starts serving on the loopback interface; use port 0 to pick a free one.
+     */
+    public synchronized void start(final int port) throws IOException {
+        start(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+    }
+
+    public synchronized void start(final InetSocketAddress address) throws IOException {
+        if (this.server != null)
+            throw new IllegalStateException("exporter is already started");
+
+        this.server = HttpServer.create(address, 0);
+        this.server.createContext("/metrics", exchange -> {
+            final byte[] body = render().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, body.length);
+            try (final OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "twilio-video-metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.server.setExecutor(this.executor);
+        this.server.start();
+    }
+
+    /**
+     * @return the port the exporter listens on, or -1 when it is not started
+     */
+    public synchronized int getPort() {
+        return this.server == null ? -1 : this.server.getAddress().getPort();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (this.server != null) {
+            this.server.stop(0);
+            this.server = null;
+        }
+        if (this.executor != null) {
+            this.executor.shutdownNow();
+            this.executor = null;
+        }
+    }
+
+    /**
+     * @return the current content of the registry in the Prometheus text format
+     */
+    public String render() {
+        // samples of one family must be contiguous and preceded by a single HELP and TYPE
+        final Map<String, StringBuilder> families = new TreeMap<>();
+
+        this.registry.visit(new MetricsRegistry.Visitor() {
+            @Override
+            public void sample(final MetricsRegistry.Type type, final String name, final String help, final String labels, final double value) {
+                final StringBuilder family = family(families, name, help, type == MetricsRegistry.Type.COUNTER ? "counter" : "gauge");
+                line(family, name, labels, value);
+            }
+
+            @Override
+            public void histogram(final String name, final String help, final String labels, final LatencyHistogram histogram) {
+                final StringBuilder family = family(families, name, help, "histogram");
+                final long[] buckets = histogram.getBuckets();
+
+                long cumulative = 0;
+                for (int i = 0; i < buckets.length; i++) {
+                    cumulative += buckets[i];
+                    if (i <= MAX_EXPORTED_BUCKET) {
+                        final double le = LatencyHistogram.upperBoundMicros(i) / 1e6;
+                        line(family, name + "_bucket", withLabel(labels, "le", Double.toString(le)), cumulative);
+                    }
+                }
+                line(family, name + "_bucket", withLabel(labels, "le", "+Inf"), cumulative);
+                line(family, name + "_sum", labels, histogram.getSum(TimeUnit.NANOSECONDS) / 1e9);
+                line(family, name + "_count", labels, cumulative);
+            }
+        });
+
+        final StringBuilder out = new StringBuilder();
+        for (final StringBuilder family: families.values()) {
+            out.append(family);
+        }
+        return out.toString();
+    }
+
+    private static StringBuilder family(final Map<String, StringBuilder> families, final String name, final String help, final String type) {
+        return families.computeIfAbsent(name, key -> {
+            final StringBuilder family = new StringBuilder();
+            if (help != null && !help.isEmpty()) {
+                family.append("# HELP ").append(name).append(' ').append(help.replace("\\", "\\\\").replace("\n", "\\n")).append('\n');
+            }
+            family.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+            return family;
+        });
+    }
+
+    private static void line(final StringBuilder family, final String name, final String labels, final double value) {
+        family.append(name).append(labels).append(' ');
+        if (Double.isNaN(value)) {
+            family.append("NaN");
+        } else if (Double.isInfinite(value)) {
+            family.append(value > 0 ? "+Inf" : "-Inf");
+        } else if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            family.append((long) value);
+        } else {
+            family.append(value);
+        }
+        family.append('\n');
+    }
+
+    private static String withLabel(final String labels, final String name, final String value) {
+        final String label = name + "=\"" + value + "\"";
+        return labels.isEmpty() ? "{" + label + "}" : labels.substring(0, labels.length() - 1) + "," + label + "}";
+    }
+}
@@ -0,0 +1,485 @@
+package com.twilio.sdk.video.metrics;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.twilio.sdk.video.BatchingAudioSink;
+import com.twilio.sdk.video.BatchingDataReceiver;
+import com.twilio.sdk.video.BatchingVideoSink;
+import com.twilio.sdk.video.DataTrackSender;
+import com.twilio.sdk.video.HeadlessAudioDevice;
+import com.twilio.sdk.video.MediaThreadGroup;
+import com.twilio.sdk.video.MediaThreadKind;
+import com.twilio.sdk.video.StatsCollector;
+import com.twilio.sdk.video.StatsMetric;
+import com.twilio.sdk.video.VideoFrameInjector;
+import com.twilio.sdk.video.event.EventDispatcher;
+import com.twilio.sdk.video.event.EventType;
+import com.twilio.sdk.video.event.LatencyHistogram;
+import com.twilio.sdk.video.loader.NativeLoader;
+import com.twilio.sdk.video.loader.StartupProfile;
+import com.twilio.sdk.video.media.MediaFactoryPool;
+import com.twilio.sdk.video.room.ParticipantRegistry;
+import com.twilio.sdk.video.util.NativeCleaner;
+
+/**
+ * The metrics of this binding, recorded into a {@link MetricsRegistry}.
+ *
+ * Objects which already count what they do (dispatchers, native sinks, injectors, stats
+ * collectors) are bound once and read only when the registry is scraped, so binding them adds
+ * nothing to their hot paths. Rates such as JNI crossings per second are left to the consumer,
+ * e.g. <code>rate(twilio_video_jni_upcalls_total[1m])</code> in Prometheus.
+ *
+ * Reading the registry never changes it, so any number of exporters can share one. The only
+ * periodic work is probing the threads of bound factory pools, on a daemon thread which
+ * {@link #close()} stops.
+ */
+public class VideoMetrics implements AutoCloseable {
+    public static final long DEFAULT_PROBE_INTERVAL_MS = 1000;
+
+    private final MetricsRegistry registry;
+
+    private final LatencyHistogram connectLatency;
+    private final LongAdder connects;
+    private final LongAdder connectFailures;
+
+    private static final MediaThreadKind[] MEDIA_THREADS = {MediaThreadKind.kWorker, MediaThreadKind.kSignaling, MediaThreadKind.kNetwork};
+
+    private final ConcurrentMap<String, ParticipantRegistry> rooms;
+    private final ConcurrentMap<String, MetricSource> statsSources;
+    private final ConcurrentMap<MediaFactoryPool, PoolProbe> pools;
+    private final LongAdder probeFailures;
+
+    // created by the first pool binding
+    private ScheduledExecutorService prober;
+
+    public VideoMetrics(final MetricsRegistry registry) {
+        if (registry == null)
+            throw new IllegalArgumentException("registry cannot be null");
+
+        this.registry = registry;
+        this.connectLatency = registry.histogram("twilio_video_connect_latency_seconds", "Time from connect to the room being connected");
+        this.connects = registry.counter("twilio_video_connects_total", "Successful connects");
+        this.connectFailures = registry.counter("twilio_video_connect_failures_total", "Failed, cancelled or timed out connects");
+
+        this.rooms = new ConcurrentHashMap<>();
+        this.statsSources = new ConcurrentHashMap<>();
+        this.pools = new ConcurrentHashMap<>();
+        this.probeFailures = registry.counter("twilio_video_metrics_probe_failures_total", "Probes of a factory pool which threw");
+
+        registry.gauge("twilio_video_live_objects", "Native objects currently alive", () -> this.rooms.size(), "type", "room");
+        registry.gauge("twilio_video_live_objects", "Native objects currently alive", this::participants, "type", "participant");
+        registry.gauge("twilio_video_live_objects", "Native objects currently alive", this::publications, "type", "publication");
+
+        registry.counter("twilio_video_native_leaks_total", "Native objects released by the cleaner instead of close()", () -> NativeCleaner.getLeaked());
+        registry.counter("twilio_video_native_release_failures_total", "Cleaner releases which threw", () -> NativeCleaner.getReleaseFailures());
+        registry.register(visitor -> {
+            for (final Map.Entry<String, Long> entry: NativeCleaner.getLiveByType().entrySet()) {
+                visitor.sample(MetricsRegistry.Type.GAUGE,
+                        "twilio_video_native_proxies",
+                        "Proxies owning a native object which are neither closed nor collected",
+                        MetricsRegistry.labels("type", entry.getKey()),
+                        entry.getValue());
+            }
+        });
+        registry.register(visitor -> {
+            for (final NativeLoader.LoadReport report: NativeLoader.getLoadReports()) {
+                visitor.sample(MetricsRegistry.Type.GAUGE,
+                        "twilio_video_native_load_seconds",
+                        "Time spent extracting and loading a native library at startup",
+                        MetricsRegistry.labels("library", report.getLibraryName(), "phase", "extract"),
+                        report.getExtractNanos() / 1e9);
+                visitor.sample(MetricsRegistry.Type.GAUGE,
+                        "twilio_video_native_load_seconds",
+                        "Time spent extracting and loading a native library at startup",
+                        MetricsRegistry.labels("library", report.getLibraryName(), "phase", "load"),
+                        report.getLoadNanos() / 1e9);
+                visitor.sample(MetricsRegistry.Type.GAUGE,
+                        "twilio_video_native_cache_hit",
+                        "1 if a native library was found already extracted by a previous JVM",
+                        MetricsRegistry.labels("library", report.getLibraryName()),
+                        report.isCacheHit() ? 1 : 0);
+            }
+        });
+    }
+
+    public MetricsRegistry getRegistry() {
+        return this.registry;
+    }
+
+    /**
+     * Records the latency and the outcome of a connect, e.g. one returned by
+     * {@link com.twilio.sdk.video.async.AsyncRoom#connectAsync}.
+     *
+     * @return <code>connect</code>, for chaining
+     */
+    public <T> CompletableFuture<T> timeConnect(final CompletableFuture<T> connect) {
+        final long started = System.nanoTime();
+        connect.whenComplete((room, error) -> {
+            if (error == null) {
+                this.connects.increment();
+                this.connectLatency.record(System.nanoTime() - started);
+            } else {
+                this.connectFailures.increment();
+            }
+        });
+        return connect;
+    }
+
+    /**
+     * Exposes observer queueing, drops and per-event callback latency of a dispatcher.
+     */
+    public void bind(final EventDispatcher dispatcher, final String name) {
+        final String[] labels = {"dispatcher", name};
+        this.registry.counter("twilio_video_jni_upcalls_total", "Callbacks from native code", () -> dispatcher.getEventsSubmitted(), "source", "observer", "name", name);
+        this.registry.counter("twilio_video_dispatcher_events_dropped_total", "Events dropped because the dispatcher was full", () -> dispatcher.getEventsDropped(), labels);
+        this.registry.counter("twilio_video_dispatcher_events_blocked_total", "Events which blocked the notifier thread", () -> dispatcher.getEventsBlocked(), labels);
+        this.registry.counter("twilio_video_dispatcher_handler_failures_total", "Exceptions thrown by event handlers", () -> dispatcher.getHandlerFailures(), labels);
+        this.registry.gauge("twilio_video_dispatcher_queued_events", "Events waiting to be handled", () -> dispatcher.getQueuedEvents(), labels);
+
+        for (final EventType type: EventType.values()) {
+            this.registry.histogram("twilio_video_upcall_latency_seconds",
+                    "Time from the native callback until its handler returned",
+                    dispatcher.getLatency(type),
+                    "dispatcher", name, "event", type.name().toLowerCase());
+        }
+    }
+
+    public void unbindDispatcher(final String name) {
+        this.registry.remove("twilio_video_jni_upcalls_total", "source", "observer", "name", name);
+        this.registry.remove("twilio_video_dispatcher_events_dropped_total", "dispatcher", name);
+        this.registry.remove("twilio_video_dispatcher_events_blocked_total", "dispatcher", name);
+        this.registry.remove("twilio_video_dispatcher_handler_failures_total", "dispatcher", name);
+        this.registry.remove("twilio_video_dispatcher_queued_events", "dispatcher", name);
+
+        for (final EventType type: EventType.values()) {
+            this.registry.remove("twilio_video_upcall_latency_seconds", "dispatcher", name, "event", type.name().toLowerCase());
+        }
+    }
+
+    /**
+     * Exposes the frame counters of a native batching sink.
+     */
+    public void bind(final BatchingVideoSink sink, final String name) {
+        final String[] labels = {"sink", name};
+        this.registry.counter("twilio_video_jni_upcalls_total", "Callbacks from native code", () -> sink.getBatchesDelivered().doubleValue(), "source", "sink", "name", name);
+        this.registry.counter("twilio_video_sink_frames_received_total", "Frames received by a sink", () -> sink.getFramesReceived().doubleValue(), labels);
+        this.registry.counter("twilio_video_sink_frames_delivered_total", "Frames delivered to Java", () -> sink.getFramesDelivered().doubleValue(), labels);
+        this.registry.counter("twilio_video_sink_frames_dropped_total", "Frames dropped by backpressure", () -> sink.getFramesDropped().doubleValue(), labels);
+        this.registry.gauge("twilio_video_sink_queued_frames", "Frames waiting for delivery", () -> sink.getQueuedFrames(), labels);
+    }
+
+    public void unbindSink(final String name) {
+        this.registry.remove("twilio_video_jni_upcalls_total", "source", "sink", "name", name);
+        this.registry.remove("twilio_video_sink_frames_received_total", "sink", name);
+        this.registry.remove("twilio_video_sink_frames_delivered_total", "sink", name);
+        this.registry.remove("twilio_video_sink_frames_dropped_total", "sink", name);
+        this.registry.remove("twilio_video_sink_queued_frames", "sink", name);
+    }
+
+    /**
+     * Exposes the 10 ms chunk counters of a native audio sink.
+     */
+    public void bind(final BatchingAudioSink sink, final String name) {
+        final String[] labels = {"sink", name};
+        this.registry.counter("twilio_video_jni_upcalls_total", "Callbacks from native code", () -> sink.getBatchesDelivered().doubleValue(), "source", "audio_sink", "name", name);
+        this.registry.counter("twilio_video_audio_sink_chunks_received_total", "10 ms chunks received by an audio sink", () -> sink.getChunksReceived().doubleValue(), labels);
+        this.registry.counter("twilio_video_audio_sink_chunks_delivered_total", "10 ms chunks delivered to Java", () -> sink.getChunksDelivered().doubleValue(), labels);
+        this.registry.counter("twilio_video_audio_sink_chunks_dropped_total", "10 ms chunks dropped by backpressure, failed conversion or a missing observer", () -> sink.getChunksDropped().doubleValue(), labels);
+        this.registry.gauge("twilio_video_audio_sink_queued_chunks", "10 ms chunks waiting for delivery", () -> sink.getQueuedChunks(), labels);
+    }
+
+    public void unbindAudioSink(final String name) {
+        this.registry.remove("twilio_video_jni_upcalls_total", "source", "audio_sink", "name", name);
+        this.registry.remove("twilio_video_audio_sink_chunks_received_total", "sink", name);
+        this.registry.remove("twilio_video_audio_sink_chunks_delivered_total", "sink", name);
+        this.registry.remove("twilio_video_audio_sink_chunks_dropped_total", "sink", name);
+        this.registry.remove("twilio_video_audio_sink_queued_chunks", "sink", name);
+    }
+
+    /**
+     * Exposes the queue and the counters of a data track sender.
+     */
+    public void bind(final DataTrackSender sender, final String name) {
+        final String[] labels = {"sender", name};
+        this.registry.counter("twilio_video_data_messages_sent_total", "Data track messages sent", () -> sender.getMessagesSent().doubleValue(), labels);
+        this.registry.counter("twilio_video_data_bytes_sent_total", "Data track payload bytes sent", () -> sender.getBytesSent().doubleValue(), labels);
+        this.registry.counter("twilio_video_data_messages_rejected_total", "Data track messages refused because the send queue was full", () -> sender.getMessagesRejected().doubleValue(), labels);
+        this.registry.counter("twilio_video_data_messages_failed_total", "Data track messages refused by the track", () -> sender.getMessagesFailed().doubleValue(), labels);
+        this.registry.gauge("twilio_video_data_queued_messages", "Data track messages waiting to be sent", () -> sender.getQueuedMessages(), labels);
+        this.registry.gauge("twilio_video_data_buffered_bytes", "Data track payload bytes waiting to be sent", () -> sender.getBufferedBytes(), labels);
+    }
+
+    public void unbindDataSender(final String name) {
+        this.registry.remove("twilio_video_data_messages_sent_total", "sender", name);
+        this.registry.remove("twilio_video_data_bytes_sent_total", "sender", name);
+        this.registry.remove("twilio_video_data_messages_rejected_total", "sender", name);
+        this.registry.remove("twilio_video_data_messages_failed_total", "sender", name);
+        this.registry.remove("twilio_video_data_queued_messages", "sender", name);
+        this.registry.remove("twilio_video_data_buffered_bytes", "sender", name);
+    }
+
+    /**
+     * Exposes the message counters of a batching data receiver; dropped messages did not fit in its staging buffer.
+     */
+    public void bind(final BatchingDataReceiver receiver, final String name) {
+        final String[] labels = {"receiver", name};
+        this.registry.counter("twilio_video_jni_upcalls_total", "Callbacks from native code", () -> receiver.getBatchesDelivered().doubleValue(), "source", "data_receiver", "name", name);
+        this.registry.counter("twilio_video_data_messages_received_total", "Data track messages received", () -> receiver.getMessagesReceived().doubleValue(), labels);
+        this.registry.counter("twilio_video_data_bytes_received_total", "Data track payload bytes received", () -> receiver.getBytesReceived().doubleValue(), labels);
+        this.registry.counter("twilio_video_data_messages_delivered_total", "Data track messages delivered to Java", () -> receiver.getMessagesDelivered().doubleValue(), labels);
+        this.registry.counter("twilio_video_data_messages_dropped_total", "Data track messages dropped because the staging buffer was full", () -> receiver.getMessagesDropped().doubleValue(), labels);
+        this.registry.gauge("twilio_video_data_staged_messages", "Data track messages waiting for delivery", () -> receiver.getStagedMessages(), labels);
+    }
+
+    public void unbindDataReceiver(final String name) {
+        this.registry.remove("twilio_video_jni_upcalls_total", "source", "data_receiver", "name", name);
+        this.registry.remove("twilio_video_data_messages_received_total", "receiver", name);
+        this.registry.remove("twilio_video_data_bytes_received_total", "receiver", name);
+        this.registry.remove("twilio_video_data_messages_delivered_total", "receiver", name);
+        this.registry.remove("twilio_video_data_messages_dropped_total", "receiver", name);
+        this.registry.remove("twilio_video_data_staged_messages", "receiver", name);
+    }
+
+    /**
+     * Exposes the counters of a frame injector; rejected frames are the ones dropped on the publishing side.
+     */
+    public void bind(final VideoFrameInjector injector, final String name) {
+        final String[] labels = {"injector", name};
+        this.registry.counter("twilio_video_injector_frames_pushed_total", "Frames pushed into an injector", () -> injector.getFramesPushed().doubleValue(), labels);
+        this.registry.counter("twilio_video_injector_frames_rejected_total", "Frames rejected because of backpressure", () -> injector.getFramesRejected().doubleValue(), labels);
+        this.registry.gauge("twilio_video_injector_frames_in_flight", "Frames pushed but not yet released", () -> injector.getFramesInFlight(), labels);
+    }
+
+    public void unbindInjector(final String name) {
+        this.registry.remove("twilio_video_injector_frames_pushed_total", "injector", name);
+        this.registry.remove("twilio_video_injector_frames_rejected_total", "injector", name);
+        this.registry.remove("twilio_video_injector_frames_in_flight", "injector", name);
+    }
+
+    /**
+     * Exposes the chunk counters of a headless audio device; underruns are chunks replaced by silence.
+     */
+    public void bind(final HeadlessAudioDevice device, final String name) {
+        final String[] labels = {"device", name};
+        this.registry.counter("twilio_video_audio_capture_chunks_total", "10 ms chunks handed to WebRTC", () -> device.getCaptureChunks().doubleValue(), labels);
+        this.registry.counter("twilio_video_audio_capture_underruns_total", "10 ms chunks sent as silence because nothing was pushed", () -> device.getCaptureUnderruns().doubleValue(), labels);
+        this.registry.counter("twilio_video_audio_capture_overruns_total", "10 ms chunks refused because the capture ring was full", () -> device.getCaptureOverruns().doubleValue(), labels);
+        this.registry.counter("twilio_video_audio_playout_chunks_total", "10 ms chunks of mixed audio queued for Java", () -> device.getPlayoutChunks().doubleValue(), labels);
+        this.registry.counter("twilio_video_audio_playout_overruns_total", "10 ms chunks dropped because Java did not pull", () -> device.getPlayoutOverruns().doubleValue(), labels);
+        this.registry.counter("twilio_video_audio_late_ticks_total", "Device ticks which started more than 10 ms late", () -> device.getLateTicks().doubleValue(), labels);
+    }
+
+    public void unbindAudioDevice(final String name) {
+        this.registry.remove("twilio_video_audio_capture_chunks_total", "device", name);
+        this.registry.remove("twilio_video_audio_capture_underruns_total", "device", name);
+        this.registry.remove("twilio_video_audio_capture_overruns_total", "device", name);
+        this.registry.remove("twilio_video_audio_playout_chunks_total", "device", name);
+        this.registry.remove("twilio_video_audio_playout_overruns_total", "device", name);
+        this.registry.remove("twilio_video_audio_late_ticks_total", "device", name);
+    }
+
+    /**
+     * Exposes the latest bitrate, packet loss, frame rate and round-trip time of every track of a stats collector.
+     */
+    public void bind(final StatsCollector collector, final String room) {
+        final MetricSource source = visitor -> {
+            final long tracks = collector.getTrackCount();
+            for (long i = 0; i < tracks; i++) {
+                final String sid = collector.getTrackSid(i);
+                final String labels = MetricsRegistry.labels("room", room, "track", sid, "kind", collector.getTrackKind(i).name());
+                track(visitor, "twilio_video_track_bitrate_bps", "Bitrate over the last stats interval", labels, collector.getLatest(sid, StatsMetric.kBitrateBps));
+                track(visitor, "twilio_video_track_packet_loss_percent", "Packet loss over the last stats interval", labels, collector.getLatest(sid, StatsMetric.kPacketLossPercent));
+                track(visitor, "twilio_video_track_frame_rate", "Frame rate reported for the track", labels, collector.getLatest(sid, StatsMetric.kFrameRate));
+                track(visitor, "twilio_video_track_rtt_seconds", "Round-trip time reported for the track", labels, collector.getLatest(sid, StatsMetric.kRoundTripTimeMs) / 1000.0);
+            }
+            visitor.sample(MetricsRegistry.Type.COUNTER, "twilio_video_jni_upcalls_total", "Callbacks from native code",
+                    MetricsRegistry.labels("source", "stats", "name", room), collector.getReports().doubleValue());
+        };
+
+        final MetricSource previous = this.statsSources.put(room, source);
+        if (previous != null) {
+            this.registry.unregister(previous);
+        }
+        this.registry.register(source);
+    }
+
+    /**
+     * Exposes the rooms and the queue depth and queueing delay of every native thread of a factory pool,
+     * probing its threads every {@link #DEFAULT_PROBE_INTERVAL_MS} milliseconds.
+     */
+    public void bind(final MediaFactoryPool pool) {
+        bind(pool, DEFAULT_PROBE_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Like {@link #bind(MediaFactoryPool)}; each probe reads the delay of the previous one and posts a new one,
+     * so the threads are never waited for, and the maximum is the worst delay of the last interval.
+     */
+    public synchronized void bind(final MediaFactoryPool pool, final long interval, final TimeUnit unit) {
+        if (pool == null)
+            throw new IllegalArgumentException("pool cannot be null");
+        if (interval <= 0)
+            throw new IllegalArgumentException("interval must be positive");
+
+        unbindPool(pool);
+        if (this.prober == null) {
+            this.prober = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                final Thread thread = new Thread(runnable, "twilio-video-metrics-prober");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        final PoolProbe probe = new PoolProbe(pool, this.probeFailures);
+        probe.future = this.prober.scheduleAtFixedRate(probe, 0, interval, unit);
+        this.pools.put(pool, probe);
+        this.registry.register(probe);
+    }
+
+    public synchronized void unbindPool(final MediaFactoryPool pool) {
+        final PoolProbe probe = this.pools.remove(pool);
+        if (probe != null) {
+            probe.future.cancel(false);
+            this.registry.unregister(probe);
+        }
+    }
+
+    /**
+     * Exposes the phases of a warm-up, e.g. <code>new Warmup().start().thenAccept(metrics::bind)</code>.
+     */
+    public void bind(final StartupProfile profile) {
+        for (final StartupProfile.Phase phase: profile.getPhases()) {
+            this.registry.gauge("twilio_video_startup_phase_seconds", "Time spent in a startup phase", () -> phase.getNanos() / 1e9, "phase", phase.getName());
+        }
+        this.registry.gauge("twilio_video_startup_seconds", "Wall time of the warm-up", () -> profile.getTotalNanos() / 1e9);
+    }
+
+    public void unbindStats(final String room) {
+        final MetricSource source = this.statsSources.remove(room);
+        if (source != null) {
+            this.registry.unregister(source);
+        }
+    }
+
+    /**
+     * Counts the room and the participants and publications in it as live objects until {@link #unbindRoom(String)}.
+     */
+    public void bindRoom(final String room, final ParticipantRegistry participants) {
+        this.rooms.put(room, participants);
+    }
+
+    public void unbindRoom(final String room) {
+        this.rooms.remove(room);
+    }
+
+    /**
+     * Unbinds every factory pool and stops probing; everything else stays bound.
+     */
+    @Override
+    public synchronized void close() {
+        for (final MediaFactoryPool pool: this.pools.keySet()) {
+            unbindPool(pool);
+        }
+        if (this.prober != null) {
+            this.prober.shutdownNow();
+            this.prober = null;
+        }
+    }
+
+    private double participants() {
+        long count = 0;
+        for (final ParticipantRegistry participants: this.rooms.values()) {
+            count += participants.size();
+        }
+        return count;
+    }
+
+    private double publications() {
+        long count = 0;
+        for (final ParticipantRegistry participants: this.rooms.values()) {
+            count += participants.publications();
+        }
+        return count;
+    }
+
+    private static final class PoolProbe implements Runnable, MetricSource {
+        private final MediaFactoryPool pool;
+        private final LongAdder failures;
+        // labels -> worst queueing delay in seconds of the last complete interval
+        private volatile Map<String, Double> maxLatency;
+        private ScheduledFuture<?> future;
+
+        PoolProbe(final MediaFactoryPool pool, final LongAdder failures) {
+            this.pool = pool;
+            this.failures = failures;
+            this.maxLatency = Collections.emptyMap();
+        }
+
+        @Override
+        public void run() {
+            try {
+                final Map<String, Double> maxLatency = new HashMap<>();
+                for (int i = 0; i < this.pool.getSize(); i++) {
+                    final MediaThreadGroup group = this.pool.getThreadGroup(i);
+                    if (group == null) {
+                        continue;
+                    }
+                    for (final MediaThreadKind kind: MEDIA_THREADS) {
+                        maxLatency.put(labels(this.pool, group, kind), group.getMaxLatencyUs(kind) / 1e6);
+                    }
+                    group.resetMaxLatency();
+                }
+                this.maxLatency = maxLatency;
+                this.pool.probe();
+            } catch (final RuntimeException e) {
+                // an exception would cancel the schedule; the next interval tries again
+                this.failures.increment();
+            }
+        }
+
+        @Override
+        public void collect(final MetricsRegistry.Visitor visitor) {
+            final Map<String, Double> maxLatency = this.maxLatency;
+            for (int i = 0; i < this.pool.getSize(); i++) {
+                final MediaThreadGroup group = this.pool.getThreadGroup(i);
+                if (group == null) {
+                    continue;
+                }
+                visitor.sample(MetricsRegistry.Type.GAUGE, "twilio_video_media_factory_rooms", "Active leases of a pooled media factory",
+                        MetricsRegistry.labels("pool", this.pool.getName(), "group", group.getName()), this.pool.getActiveLeases(i));
+                for (final MediaThreadKind kind: MEDIA_THREADS) {
+                    final String labels = labels(this.pool, group, kind);
+                    visitor.sample(MetricsRegistry.Type.GAUGE, "twilio_video_media_thread_pending_messages", "Messages queued on a native media thread",
+                            labels, group.getPendingMessages(kind));
+                    visitor.sample(MetricsRegistry.Type.GAUGE, "twilio_video_media_thread_latency_seconds", "Queueing delay of the last probe of a native media thread",
+                            labels, group.getLastLatencyUs(kind) / 1e6);
+                    final Double max = maxLatency.get(labels);
+                    if (max != null) {
+                        visitor.sample(MetricsRegistry.Type.GAUGE, "twilio_video_media_thread_max_latency_seconds", "Worst queueing delay of a native media thread over the last probe interval",
+                                labels, max);
+                    }
+                }
+            }
+        }
+
+        private static String labels(final MediaFactoryPool pool, final MediaThreadGroup group, final MediaThreadKind kind) {
+            return MetricsRegistry.labels("pool", pool.getName(), "group", group.getName(), "thread", kind.name().substring(1).toLowerCase());
+        }
+    }
+
+    private static void track(final MetricsRegistry.Visitor visitor, final String name, final String help, final String labels, final double value) {
+        if (!Double.isNaN(value)) {
+            visitor.sample(MetricsRegistry.Type.GAUGE, name, help, labels, value);
+        }
+    }
+}
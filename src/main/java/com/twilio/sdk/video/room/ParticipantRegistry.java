@@ -0,0 +1,166 @@
+package com.twilio.sdk.video.room;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Consumer;
+
+import com.twilio.sdk.video.RemoteParticipant;
+import com.twilio.sdk.video.RemoteParticipantMap;
+import com.twilio.sdk.video.Room;
+import com.twilio.sdk.video.util.VersionedList;
+
+/**
+ * Remote participants of a room, kept up to date from {@link com.twilio.sdk.video.RoomObserver} events.
+ *
+ * The native participant map is read once, when the room connects; afterwards the registry is only
+ * updated incrementally, so lookups and iteration never marshal the map across JNI again. Lookups by
+ * identity and SID are O(1) and safe to call from any thread; iteration is weakly consistent and does
+ * not copy the registry.
+ */
+public class ParticipantRegistry {
+    private final ConcurrentMap<String, RemoteParticipant> byIdentity;
+    private final ConcurrentMap<String, RemoteParticipant> bySid;
+    private final ConcurrentMap<String, String> sidByIdentity;
+    private final ConcurrentMap<RemoteParticipant, Publications> publications;
+
+    public ParticipantRegistry() {
+        this.byIdentity = new ConcurrentHashMap<>();
+        this.bySid = new ConcurrentHashMap<>();
+        this.sidByIdentity = new ConcurrentHashMap<>();
+        this.publications = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Seeds the registry with the participants already in the room; call from <code>onConnected</code>.
+     */
+    public void onConnected(final Room room) {
+        clear();
+
+        final RemoteParticipantMap participants = room.getRemoteParticipants();
+        final List<String> identities = participants.keys();
+        for (final String identity: identities) {
+            add(identity, participants.get(identity));
+        }
+    }
+
+    /**
+     * Forgets all participants; call from <code>onDisconnected</code>.
+     */
+    public void onDisconnected() {
+        clear();
+    }
+
+    public void onParticipantConnected(final RemoteParticipant participant) {
+        add(participant.getIdentity(), participant);
+    }
+
+    /**
+     * Forgets the participant with the SID of <code>participant</code>; if the same identity already
+     * reconnected under a new SID, the new participant is kept.
+     */
+    public void onParticipantDisconnected(final RemoteParticipant participant) {
+        final String identity = participant.getIdentity();
+        final String sid = participant.getSid();
+        if (identity == null) {
+            return;
+        }
+        if (sid == null || sid.isEmpty()) {
+            // only indexed by identity; see add()
+            if (!this.sidByIdentity.containsKey(identity)) {
+                final RemoteParticipant removed = this.byIdentity.remove(identity);
+                if (removed != null) {
+                    this.publications.remove(removed);
+                }
+            }
+            return;
+        }
+
+        final RemoteParticipant removed = this.bySid.remove(sid);
+        if (this.sidByIdentity.remove(identity, sid) && removed != null) {
+            this.byIdentity.remove(identity, removed);
+            this.publications.remove(removed);
+        }
+    }
+
+    public RemoteParticipant getByIdentity(final String identity) {
+        return this.byIdentity.get(identity);
+    }
+
+    public RemoteParticipant getBySid(final String sid) {
+        return this.bySid.get(sid);
+    }
+
+    public boolean contains(final String identity) {
+        return this.byIdentity.containsKey(identity);
+    }
+
+    public int size() {
+        return this.byIdentity.size();
+    }
+
+    /**
+     * @return a live, read-only view of the participants
+     */
+    public Collection<RemoteParticipant> participants() {
+        return Collections.unmodifiableCollection(this.byIdentity.values());
+    }
+
+    public void forEach(final Consumer<RemoteParticipant> action) {
+        this.byIdentity.values().forEach(action);
+    }
+
+    /**
+     * @return the number of tracks published by all participants; the track lists are marshalled
+     *         across JNI again only for participants whose publications changed since the last call
+     */
+    public long publications() {
+        long count = 0;
+        for (final Publications publications: this.publications.values()) {
+            count += publications.size();
+        }
+        return count;
+    }
+
+    private void add(final String identity, final RemoteParticipant participant) {
+        if (identity == null || participant == null) {
+            return;
+        }
+
+        final String sid = participant.getSid();
+        final RemoteParticipant previous = this.byIdentity.put(identity, participant);
+        if (previous != null && previous != participant) {
+            this.publications.remove(previous);
+        }
+        this.publications.putIfAbsent(participant, new Publications(participant));
+        if (sid != null && !sid.isEmpty()) {
+            this.bySid.put(sid, participant);
+            this.sidByIdentity.put(identity, sid);
+        }
+    }
+
+    private void clear() {
+        this.byIdentity.clear();
+        this.bySid.clear();
+        this.sidByIdentity.clear();
+        this.publications.clear();
+    }
+
+    private static final class Publications {
+        private final VersionedList<?> audio;
+        private final VersionedList<?> video;
+        private final VersionedList<?> data;
+
+        Publications(final RemoteParticipant participant) {
+            this.audio = new VersionedList<>(participant::getRemoteAudioTracksVersion, participant::getRemoteAudioTracks);
+            this.video = new VersionedList<>(participant::getRemoteVideoTracksVersion, participant::getRemoteVideoTracks);
+            this.data = new VersionedList<>(participant::getRemoteDataTracksVersion, participant::getRemoteDataTracks);
+        }
+
+        int size() {
+            return this.audio.get().size() + this.video.get().size() + this.data.get().size();
+        }
+    }
+}
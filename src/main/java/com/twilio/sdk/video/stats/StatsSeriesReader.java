@@ -0,0 +1,72 @@
+package com.twilio.sdk.video.stats;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+
+import com.twilio.sdk.video.StatsCollector;
+import com.twilio.sdk.video.StatsMetric;
+
+/**
+ * Reads time series out of a {@link StatsCollector} into one reused direct buffer.
+ *
+ * Each read is a single JNI call and allocates nothing; the returned {@link DoubleBuffer} is only
+ * valid until the next read through the same reader, so a reader must not be shared between threads.
+ *
+ * <pre>
+ * final StatsSeriesReader reader = new StatsSeriesReader(collector);
+ * final DoubleBuffer bitrate = reader.read(trackSid, StatsMetric.kBitrateBps);
+ * while (bitrate.hasRemaining()) {
+ *     plot(bitrate.get());
+ * }
+ * </pre>
+ */
+public class StatsSeriesReader {
+    private final StatsCollector collector;
+    private final ByteBuffer buffer;
+    private final DoubleBuffer values;
+
+    public static final int DEFAULT_MAX_TRACKS = 64;
+
+    public StatsSeriesReader(final StatsCollector collector) {
+        this(collector, DEFAULT_MAX_TRACKS);
+    }
+
+    /**
+     * @param maxTracks how many tracks {@link #readLatest()} returns at most
+     */
+    public StatsSeriesReader(final StatsCollector collector, final int maxTracks) {
+        if (collector == null)
+            throw new IllegalArgumentException("collector cannot be null");
+        if (maxTracks <= 0)
+            throw new IllegalArgumentException("maxTracks must be positive");
+
+        this.collector = collector;
+
+        // large enough for either a full series or the latest sample of maxTracks tracks
+        final int doubles = (int) Math.max(collector.getCapacity(), StatsCollector.kColumns * maxTracks);
+        this.buffer = ByteBuffer.allocateDirect(doubles * Double.BYTES).order(ByteOrder.nativeOrder());
+        this.values = this.buffer.asDoubleBuffer();
+    }
+
+    /**
+     * @return the metric of the given track, oldest sample first; empty for unknown tracks
+     */
+    public DoubleBuffer read(final String sid, final StatsMetric metric) {
+        final int count = (int) this.collector.readSeries(sid, metric, this.buffer);
+        this.values.clear();
+        this.values.limit(count);
+        return this.values;
+    }
+
+    /**
+     * @return the latest sample of every track, {@link StatsCollector#kColumns} values per track, indexed by
+     *         {@link StatsMetric#swigValue()} and in the order of {@link StatsCollector#getTrackSid(long)}
+     */
+    public DoubleBuffer readLatest() {
+        final int tracks = (int) this.collector.readLatest(this.buffer);
+        this.values.clear();
+        this.values.limit(tracks * (int) StatsCollector.kColumns);
+        return this.values;
+    }
+}
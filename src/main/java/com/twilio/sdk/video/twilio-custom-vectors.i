@@ -12,12 +12,13 @@
          pgcppname="temp$javainput") std::vector<std::shared_ptr<CType>> "temp$javainput"
 
 %typemap(javaout) std::vector<std::shared_ptr<CType>> {
-    final java.util.List<JType> jtype_list = new java.util.ArrayList<>();
     final long[] cptrs = $jnicall;
-    if (cptrs != null) {
-      for (long cptr: cptrs) {
-        jtype_list.add(new JType(cptr, true));
-      }
+    if (cptrs == null) {
+      return java.util.Collections.emptyList();
+    }
+    final java.util.List<JType> jtype_list = new java.util.ArrayList<>(cptrs.length);
+    for (long cptr: cptrs) {
+      jtype_list.add(new JType(cptr, true));
     }
     return java.util.Collections.unmodifiableList(jtype_list);
 }
@@ -30,6 +31,10 @@
     jint size = JCALL1(GetArrayLength, jenv, $input);
     jboolean is_copy = JNI_FALSE;
     jlong *elements = (jlong *) JCALL2(GetPrimitiveArrayCritical, jenv, $input, &is_copy);
+    if (!elements) {
+      SWIG_JavaThrowException(jenv, SWIG_JavaOutOfMemoryError, "cannot access the array of $1_type");
+      return $null;
+    }
     for (int i = 0; i < size; i++) {
       *(std::shared_ptr<CType> **) &ctype = (std::shared_ptr<CType> *) elements[i];
       $1.push_back(*ctype);
@@ -39,19 +44,42 @@
 }
 
 %typemap(out) std::vector<std::shared_ptr<CType>> {
-  if ($1.size() > 0) {
-    $result = JCALL1(NewLongArray, jenv, $1.size());
-    jlong *cptrs = new jlong[$1.size()];
-    for (int i = 0; i < $1.size(); i++) {
-      std::shared_ptr<CType> ctype = $1.at(i);
-      cptrs[i] = (jlong) new std::shared_ptr<CType>(ctype);
-      JCALL4(SetLongArrayRegion, jenv, $result, 0, $1.size(), cptrs);
+  const jsize size = (jsize) $1.size();
+  if (size > 0) {
+    $result = JCALL1(NewLongArray, jenv, size);
+    if ($result) {
+      // fill the Java array in place; no JNI calls are allowed until it is released
+      jlong *cptrs = (jlong *) JCALL2(GetPrimitiveArrayCritical, jenv, $result, NULL);
+      if (!cptrs) {
+        SWIG_JavaThrowException(jenv, SWIG_JavaOutOfMemoryError, "cannot access the array of $1_type");
+        return $null;
+      }
+      for (jsize i = 0; i < size; i++) {
+        cptrs[i] = (jlong) new std::shared_ptr<CType>($1[i]);
+      }
+      JCALL3(ReleasePrimitiveArrayCritical, jenv, $result, (void *) cptrs, 0);
     }
-    delete[] cptrs;
   }
 }
 %enddef
 
+// add a cheap version of a std::vector<std::shared_ptr<>> accessor, which changes whenever the
+// elements returned by the accessor change; pair it with com.twilio.sdk.video.util.VersionedList
+// to re-fetch the list across JNI only when it actually changed
+%define %shared_ptr_vector_version(Class, Method, VersionMethod)
+%extend Class {
+    int64_t VersionMethod() const {
+        const auto elements = $self->Method();
+        uint64_t version = 14695981039346656037ULL;
+        for (const auto &element: elements) {
+            version ^= (uint64_t) (uintptr_t) element.get();
+            version *= 1099511628211ULL;
+        }
+        return (int64_t) ((version ^ elements.size()) & 0x7fffffffffffffffULL);
+    }
+};
+%enddef
+
 // wrap std::vector<std::string> as java.util.List<String>
 %typemap(jni) std::vector<std::string> "jobjectArray"
 %typemap(jtype) std::vector<std::string> "String[]"
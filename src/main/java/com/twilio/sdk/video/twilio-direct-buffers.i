@@ -0,0 +1,19 @@
+// pass a direct java.nio.ByteBuffer to native code as its address and capacity, without copying;
+// position and limit are not consulted, so use ByteBuffer.slice() to pass a region of a larger buffer
+%typemap(jni) (unsigned char *DIRECT, size_t CAPACITY) "jobject"
+%typemap(jtype) (unsigned char *DIRECT, size_t CAPACITY) "java.nio.ByteBuffer"
+%typemap(jstype) (unsigned char *DIRECT, size_t CAPACITY) "java.nio.ByteBuffer"
+%typemap(javain) (unsigned char *DIRECT, size_t CAPACITY) "$javainput"
+
+%typemap(in) (unsigned char *DIRECT, size_t CAPACITY) {
+  if (!$input) {
+    SWIG_JavaThrowException(jenv, SWIG_JavaNullPointerException, "java.nio.ByteBuffer is null");
+    return $null;
+  }
+  $1 = (unsigned char *) JCALL1(GetDirectBufferAddress, jenv, $input);
+  if ($1 == NULL) {
+    SWIG_JavaThrowException(jenv, SWIG_JavaIllegalArgumentException, "java.nio.ByteBuffer must be a direct buffer");
+    return $null;
+  }
+  $2 = (size_t) JCALL1(GetDirectBufferCapacity, jenv, $input);
+}
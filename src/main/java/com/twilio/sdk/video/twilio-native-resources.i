@@ -0,0 +1,295 @@
+// Proxies of the types below implement com.twilio.sdk.video.util.NativeResource: close() (an alias
+// of delete()) releases the native object right away, and a phantom-reference cleaner replaces
+// finalize() as the backstop for proxies which are dropped without being closed.
+//
+// The bodies mirror the ones generated by std_shared_ptr.i and for plain classes; the only
+// additions are the NativeCleaner registration and its use in delete(). A proxy is registered once,
+// by its most derived constructor, which builds its bases with register set to false and hands the
+// cleaner one action releasing every pointer the proxy and its bases own. Only owning proxies are
+// counted as live objects; borrowed ones, e.g. callback arguments, just have the copies held by their
+// bases attached to them.
+
+// a class without a wrapped base, held either by std::shared_ptr or by plain pointer
+%define %native_resource(TYPE)
+%typemap(javainterfaces) TYPE "com.twilio.sdk.video.util.NativeResource"
+%typemap(javafinalize) TYPE ""
+
+%typemap(javabody) TYPE %{
+  private transient long swigCPtr;
+  protected transient boolean swigCMemOwn;
+  private transient com.twilio.sdk.video.util.NativeCleaner.Registration swigCleanup;
+
+  private static final class SwigReleaser implements Runnable {
+    private final long cPtr;
+
+    SwigReleaser(long cPtr) {
+      this.cPtr = cPtr;
+    }
+
+    public void run() {
+      $imclassname.delete_$javaclassname(cPtr);
+    }
+  }
+
+  protected $javaclassname(long cPtr, boolean cMemoryOwn) {
+    this(cPtr, cMemoryOwn, true);
+  }
+
+  protected $javaclassname(long cPtr, boolean cMemoryOwn, boolean register) {
+    swigCMemOwn = cMemoryOwn;
+    swigCPtr = cPtr;
+    swigCleanup = register && cMemoryOwn && cPtr != 0 ? com.twilio.sdk.video.util.NativeCleaner.register(this, swigReleaser()) : null;
+  }
+
+  protected static long getCPtr($javaclassname obj) {
+    return (obj == null) ? 0 : obj.swigCPtr;
+  }
+
+  // releases what this proxy owns, or null if it owns nothing
+  protected Runnable swigReleaser() {
+    return swigCMemOwn && swigCPtr != 0 ? new SwigReleaser(swigCPtr) : null;
+  }
+
+  // called once a derived proxy's registration released everything
+  protected void swigDisown() {
+    swigCMemOwn = false;
+  }
+
+  public synchronized boolean isClosed() {
+    return swigCPtr == 0;
+  }
+%}
+
+%typemap(javadestruct, methodname="delete", methodmodifiers="public synchronized") TYPE {
+    if (swigCPtr != 0) {
+      if (swigCMemOwn) {
+        swigCMemOwn = false;
+        if (swigCleanup != null) {
+          swigCleanup.release();
+        } else {
+          $jnicall;
+        }
+      }
+      swigCPtr = 0;
+    }
+  }
+%enddef
+
+// a std::shared_ptr held class whose base is also wrapped; every base proxy owns its own upcast copy
+%define %native_resource_derived(TYPE)
+%typemap(javafinalize) TYPE ""
+
+%typemap(javabody_derived) TYPE %{
+  private transient long swigCPtr;
+  private transient boolean swigCMemOwnDerived;
+  private transient com.twilio.sdk.video.util.NativeCleaner.Registration swigCleanup;
+
+  private static final class SwigReleaser implements Runnable {
+    private final long cPtr;
+    private final Runnable base;
+
+    SwigReleaser(long cPtr, Runnable base) {
+      this.cPtr = cPtr;
+      this.base = base;
+    }
+
+    public void run() {
+      try {
+        if (cPtr != 0) {
+          $imclassname.delete_$javaclassname(cPtr);
+        }
+      } finally {
+        if (base != null) {
+          base.run();
+        }
+      }
+    }
+  }
+
+  protected $javaclassname(long cPtr, boolean cMemoryOwn) {
+    this(cPtr, cMemoryOwn, true);
+  }
+
+  protected $javaclassname(long cPtr, boolean cMemoryOwn, boolean register) {
+    super($imclassname.$javaclazznameSWIGSmartPtrUpcast(cPtr), true, false);
+    swigCMemOwnDerived = cMemoryOwn;
+    swigCPtr = cPtr;
+    if (register && cPtr != 0) {
+      swigCleanup = cMemoryOwn
+          ? com.twilio.sdk.video.util.NativeCleaner.register(this, swigReleaser())
+          : com.twilio.sdk.video.util.NativeCleaner.attach(this, swigReleaser());
+    }
+  }
+
+  protected static long getCPtr($javaclassname obj) {
+    return (obj == null) ? 0 : obj.swigCPtr;
+  }
+
+  protected Runnable swigReleaser() {
+    final Runnable base = super.swigReleaser();
+    final long owned = swigCMemOwnDerived ? swigCPtr : 0;
+    return owned != 0 || base != null ? new SwigReleaser(owned, base) : null;
+  }
+
+  protected void swigDisown() {
+    swigCMemOwnDerived = false;
+    super.swigDisown();
+  }
+%}
+
+%typemap(javadestruct_derived, methodname="delete", methodmodifiers="public synchronized") TYPE {
+    if (swigCPtr != 0) {
+      if (swigCleanup != null) {
+        // releases the copies held by the bases too
+        swigCleanup.release();
+        swigCleanup = null;
+        swigDisown();
+      } else if (swigCMemOwnDerived) {
+        swigCMemOwnDerived = false;
+        $jnicall;
+      }
+      swigCPtr = 0;
+    }
+    super.delete();
+  }
+%enddef
+
+// a class held by plain pointer whose base is also wrapped, e.g. a native sink; the base proxy is
+// built without ownership, so only this proxy releases the object, and never from finalize()
+%define %native_resource_plain_derived(TYPE)
+%typemap(javainterfaces) TYPE "com.twilio.sdk.video.util.NativeResource"
+%typemap(javafinalize) TYPE ""
+
+%typemap(javabody_derived) TYPE %{
+  private transient long swigCPtr;
+  private transient boolean swigCMemOwnDerived;
+  private transient com.twilio.sdk.video.util.NativeCleaner.Registration swigCleanup;
+
+  private static final class SwigReleaser implements Runnable {
+    private final long cPtr;
+
+    SwigReleaser(long cPtr) {
+      this.cPtr = cPtr;
+    }
+
+    public void run() {
+      $imclassname.delete_$javaclassname(cPtr);
+    }
+  }
+
+  protected $javaclassname(long cPtr, boolean cMemoryOwn) {
+    super($imclassname.$javaclazznameSWIGUpcast(cPtr), false);
+    swigCMemOwnDerived = cMemoryOwn;
+    swigCPtr = cPtr;
+    swigCleanup = cMemoryOwn && cPtr != 0 ? com.twilio.sdk.video.util.NativeCleaner.register(this, new SwigReleaser(cPtr)) : null;
+  }
+
+  protected static long getCPtr($javaclassname obj) {
+    return (obj == null) ? 0 : obj.swigCPtr;
+  }
+
+  // overrides the base's finalize(), which would call delete(); being empty, it also keeps the JVM
+  // from tracking these proxies as finalizable
+  @SuppressWarnings("deprecation")
+  protected void finalize() {
+  }
+
+  public synchronized boolean isClosed() {
+    return swigCPtr == 0;
+  }
+%}
+
+%typemap(javadestruct_derived, methodname="delete", methodmodifiers="public synchronized") TYPE {
+    if (swigCPtr != 0) {
+      if (swigCMemOwnDerived) {
+        swigCMemOwnDerived = false;
+        if (swigCleanup != null) {
+          swigCleanup.release();
+        } else {
+          $jnicall;
+        }
+      }
+      swigCPtr = 0;
+    }
+    super.delete();
+  }
+%enddef
+
+// a std::shared_ptr held class whose base is a wrapped director rather than a native resource, e.g. a
+// native observer; the base proxy owns its upcast copy as usual, and the cleaner action of this proxy
+// releases that copy along with its own pointer, so neither proxy is left to finalize()
+%define %native_resource_director_derived(TYPE, BASE)
+%typemap(javainterfaces) TYPE "com.twilio.sdk.video.util.NativeResource"
+%typemap(javafinalize) TYPE ""
+
+%typemap(javabody_derived) TYPE %{
+  private transient long swigCPtr;
+  private transient boolean swigCMemOwnDerived;
+  private transient com.twilio.sdk.video.util.NativeCleaner.Registration swigCleanup;
+  private transient SwigReleaser swigReleaser;
+
+  private static final class SwigReleaser implements Runnable {
+    private final long cPtr;
+    // zeroed once the base proxy released its copy itself
+    private long baseCPtr;
+
+    SwigReleaser(long cPtr, long baseCPtr) {
+      this.cPtr = cPtr;
+      this.baseCPtr = baseCPtr;
+    }
+
+    public void run() {
+      try {
+        if (cPtr != 0) {
+          $imclassname.delete_$javaclassname(cPtr);
+        }
+      } finally {
+        if (baseCPtr != 0) {
+          $imclassname.delete_##BASE(baseCPtr);
+        }
+      }
+    }
+  }
+
+  protected $javaclassname(long cPtr, boolean cMemoryOwn) {
+    super($imclassname.$javaclazznameSWIGSmartPtrUpcast(cPtr), true);
+    swigCMemOwnDerived = cMemoryOwn;
+    swigCPtr = cPtr;
+    if (cPtr != 0) {
+      swigReleaser = new SwigReleaser(cMemoryOwn ? cPtr : 0, BASE.getCPtr(this));
+      swigCleanup = cMemoryOwn
+          ? com.twilio.sdk.video.util.NativeCleaner.register(this, swigReleaser)
+          : com.twilio.sdk.video.util.NativeCleaner.attach(this, swigReleaser);
+    }
+  }
+
+  protected static long getCPtr($javaclassname obj) {
+    return (obj == null) ? 0 : obj.swigCPtr;
+  }
+
+  // overrides the base's finalize(), which would call delete(); the cleaner releases both copies instead
+  @SuppressWarnings("deprecation")
+  protected void finalize() {
+  }
+
+  public synchronized boolean isClosed() {
+    return swigCPtr == 0;
+  }
+%}
+
+%typemap(javadestruct_derived, methodname="delete", methodmodifiers="public synchronized") TYPE {
+    if (swigCPtr != 0) {
+      if (swigCleanup != null) {
+        // super.delete() below releases the base copy
+        swigReleaser.baseCPtr = 0;
+        swigCleanup.release();
+        swigCleanup = null;
+      } else if (swigCMemOwnDerived) {
+        $jnicall;
+      }
+      swigCMemOwnDerived = false;
+      swigCPtr = 0;
+    }
+    super.delete();
+  }
+%enddef
@@ -0,0 +1,162 @@
+#include "twilio-video-adapter.h"
+
+#include <algorithm>
+#include <cmath>
+#include <limits>
+
+#include "webrtc/base/timeutils.h"
+#include "webrtc/api/video/i420_buffer.h"
+
+namespace twilio {
+namespace media {
+namespace adapter {
+
+FrameRateLimiter::FrameRateLimiter(): next_frame_us_(0) {
+}
+
+bool FrameRateLimiter::shouldDrop(int max_frame_rate, int64_t now_us) {
+    if (max_frame_rate <= 0) {
+        return false;
+    }
+    const int64_t interval_us = rtc::kNumMicrosecsPerSec / max_frame_rate;
+    // like webrtc's VideoAdapter, a frame up to a quarter of an interval early still takes its slot,
+    // so that a source at the limit is not halved by delivery jitter
+    if (now_us < next_frame_us_ - interval_us / 4) {
+        return true;
+    }
+    // stay on the schedule despite jitter, but do not catch up after a gap
+    next_frame_us_ = now_us - next_frame_us_ < interval_us ? next_frame_us_ + interval_us : now_us + interval_us;
+    return false;
+}
+
+void getAdaptedSize(const VideoSinkTier &tier, int width, int height, int *adapted_width, int *adapted_height) {
+    *adapted_width = width;
+    *adapted_height = height;
+
+    int64_t limit = std::numeric_limits<int64_t>::max();
+    if (tier.max_pixel_count > 0) {
+        limit = tier.max_pixel_count;
+    }
+    if (tier.target_pixel_count > 0) {
+        limit = std::min<int64_t>(limit, tier.target_pixel_count);
+    }
+    if (width <= 0 || height <= 0 || (int64_t) width * height <= limit) {
+        return;
+    }
+
+    // rounding both sides down keeps the product under the limit; I420 wants even sizes
+    const double scale = std::sqrt((double) limit / ((double) width * height));
+    *adapted_width = std::max(2, (int) (width * scale) & ~1);
+    *adapted_height = std::max(2, (int) (height * scale) & ~1);
+}
+
+AdaptingVideoSink::AdaptingVideoSink(rtc::VideoSinkInterface<webrtc::VideoFrame> *sink,
+                                     const VideoSinkTier &tier,
+                                     bool black_frames):
+    sink_(sink),
+    black_frames_(black_frames),
+    tier_(tier),
+    frames_received_(0),
+    frames_delivered_(0),
+    frames_dropped_(0),
+    frames_scaled_(0) {
+}
+
+AdaptingVideoSink::~AdaptingVideoSink() {
+}
+
+void AdaptingVideoSink::OnFrame(const webrtc::VideoFrame &frame) {
+    frames_received_++;
+
+    VideoSinkTier tier;
+    {
+        rtc::CritScope cs(&lock_);
+        tier = tier_;
+    }
+
+    if (limiter_.shouldDrop(tier.max_frame_rate, rtc::TimeMicros())) {
+        frames_dropped_++;
+        return;
+    }
+
+    rtc::scoped_refptr<webrtc::VideoFrameBuffer> buffer = frame.video_frame_buffer();
+    int width;
+    int height;
+    getAdaptedSize(tier, buffer->width(), buffer->height(), &width, &height);
+    if (width == buffer->width() && height == buffer->height()) {
+        sink_->OnFrame(frame);
+        frames_delivered_++;
+        return;
+    }
+
+    if (buffer->native_handle() != nullptr) {
+        buffer = buffer->NativeToI420Buffer();
+    }
+    rtc::scoped_refptr<webrtc::I420Buffer> scaled = pool_.CreateBuffer(width, height);
+    if (!buffer || !scaled) {
+        // a full-size frame is better than none
+        sink_->OnFrame(frame);
+        frames_delivered_++;
+        return;
+    }
+    scaled->ScaleFrom(*buffer);
+
+    webrtc::VideoFrame adapted(scaled, frame.rotation(), frame.timestamp_us());
+    adapted.set_timestamp(frame.timestamp());
+    adapted.set_ntp_time_ms(frame.ntp_time_ms());
+    sink_->OnFrame(adapted);
+    frames_delivered_++;
+    frames_scaled_++;
+}
+
+void AdaptingVideoSink::setTier(const VideoSinkTier &tier) {
+    rtc::CritScope cs(&lock_);
+    tier_ = tier;
+}
+
+VideoSinkTier AdaptingVideoSink::getTier() const {
+    rtc::CritScope cs(&lock_);
+    return tier_;
+}
+
+rtc::VideoSinkWants AdaptingVideoSink::getWants() const {
+    const VideoSinkTier tier = getTier();
+
+    rtc::VideoSinkWants wants;
+    wants.rotation_applied = false;
+    wants.black_frames = black_frames_;
+    if (tier.max_pixel_count > 0) {
+        wants.max_pixel_count = tier.max_pixel_count;
+    }
+    if (tier.target_pixel_count > 0) {
+        wants.target_pixel_count = rtc::Optional<int>(tier.target_pixel_count);
+    }
+    if (tier.max_frame_rate > 0) {
+        wants.max_framerate_fps = tier.max_frame_rate;
+    }
+    return wants;
+}
+
+bool AdaptingVideoSink::getBlackFrames() const {
+    return black_frames_;
+}
+
+uint64_t AdaptingVideoSink::getFramesReceived() const {
+    return frames_received_;
+}
+
+uint64_t AdaptingVideoSink::getFramesDelivered() const {
+    return frames_delivered_;
+}
+
+uint64_t AdaptingVideoSink::getFramesDropped() const {
+    return frames_dropped_;
+}
+
+uint64_t AdaptingVideoSink::getFramesScaled() const {
+    return frames_scaled_;
+}
+
+} // namespace adapter
+} // namespace media
+} // namespace twilio
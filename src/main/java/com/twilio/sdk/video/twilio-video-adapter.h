@@ -0,0 +1,112 @@
+#ifndef _TWILIO_VIDEO_ADAPTER_H_
+#define _TWILIO_VIDEO_ADAPTER_H_
+
+#include <atomic>
+
+#include "webrtc/base/criticalsection.h"
+#include "webrtc/api/video/video_frame.h"
+#include "webrtc/common_video/include/i420_buffer_pool.h"
+#include "webrtc/media/base/videosinkinterface.h"
+#include "webrtc/media/base/videosourceinterface.h"
+
+namespace twilio {
+namespace media {
+namespace adapter {
+
+// The quality one sink asks of a track, with the meaning of the fields of rtc::VideoSinkWants;
+// 0 leaves a limit off.
+struct VideoSinkTier {
+    // frames with more pixels are scaled down to at most this many
+    int max_pixel_count;
+    // frames with more pixels are scaled down to about this many, if below max_pixel_count
+    int target_pixel_count;
+    int max_frame_rate;
+
+    VideoSinkTier():
+        max_pixel_count(0),
+        target_pixel_count(0),
+        max_frame_rate(0) {
+    }
+
+    VideoSinkTier(int max_pixel_count, int target_pixel_count, int max_frame_rate):
+        max_pixel_count(max_pixel_count),
+        target_pixel_count(target_pixel_count),
+        max_frame_rate(max_frame_rate) {
+    }
+};
+
+#ifndef SWIG
+// Passes frames on a fixed schedule of at most max_frame_rate per second; frames arriving more than
+// a quarter of an interval early for their slot are dropped, and a gap does not let a burst through
+// afterwards.
+class FrameRateLimiter {
+public:
+    FrameRateLimiter();
+
+    // max_frame_rate of 0 or less passes every frame
+    bool shouldDrop(int max_frame_rate, int64_t now_us);
+
+private:
+    int64_t next_frame_us_;
+};
+
+// the size, with even dimensions, that a width x height frame is scaled to for tier
+void getAdaptedSize(const VideoSinkTier &tier, int width, int height, int *adapted_width, int *adapted_height);
+#endif
+
+// Sits between a track and one sink, and applies the sink's tier to its frames alone: frames over
+// the frame rate are dropped before any work is done, and larger frames are scaled down into
+// pooled buffers. Rotation stays metadata of the frames, so the source is asked for unrotated
+// frames and sinks rotate when they draw, if at all.
+//
+// A track's source only sees the least demanding wants of all its sinks; a local capturer adapts
+// to them, so it does not produce more than the most demanding sink needs, while remote tracks
+// always deliver what was decoded. Either way each sink gets no more than its own tier.
+class AdaptingVideoSink: public rtc::VideoSinkInterface<webrtc::VideoFrame> {
+public:
+    // sink must outlive the adapter; with black_frames a disabled track still delivers frames,
+    // black ones, instead of none
+    AdaptingVideoSink(rtc::VideoSinkInterface<webrtc::VideoFrame> *sink,
+                      const VideoSinkTier &tier,
+                      bool black_frames = false);
+    ~AdaptingVideoSink();
+
+    void OnFrame(const webrtc::VideoFrame &frame) override;
+
+    // takes effect with the next frame; re-attach the adapter with getWants() to tell the source
+    void setTier(const VideoSinkTier &tier);
+    VideoSinkTier getTier() const;
+
+    // the wants to attach the adapter with: the tier, with rotation left to the sink
+    rtc::VideoSinkWants getWants() const;
+    bool getBlackFrames() const;
+
+    uint64_t getFramesReceived() const;
+    uint64_t getFramesDelivered() const;
+    // frames not delivered because of max_frame_rate
+    uint64_t getFramesDropped() const;
+    // delivered frames which were scaled down
+    uint64_t getFramesScaled() const;
+
+private:
+    rtc::VideoSinkInterface<webrtc::VideoFrame> *sink_;
+    const bool black_frames_;
+
+    mutable rtc::CriticalSection lock_;
+    VideoSinkTier tier_;
+
+    // only touched on the thread delivering frames
+    FrameRateLimiter limiter_;
+    webrtc::I420BufferPool pool_;
+
+    std::atomic<uint64_t> frames_received_;
+    std::atomic<uint64_t> frames_delivered_;
+    std::atomic<uint64_t> frames_dropped_;
+    std::atomic<uint64_t> frames_scaled_;
+};
+
+} // namespace adapter
+} // namespace media
+} // namespace twilio
+
+#endif /* !_TWILIO_VIDEO_ADAPTER_H_ */
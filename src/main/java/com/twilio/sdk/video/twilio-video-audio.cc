@@ -0,0 +1,407 @@
+#include "twilio-video-audio.h"
+
+#include <chrono>
+#include <cstring>
+#include <thread>
+
+#include "webrtc/base/criticalsection.h"
+#include "webrtc/base/event.h"
+#include "webrtc/base/platform_thread.h"
+#include "webrtc/base/refcount.h"
+#include "webrtc/modules/audio_device/include/fake_audio_device.h"
+
+namespace twilio {
+namespace media {
+namespace audio {
+
+namespace {
+
+const int kChunkMs = 10;
+const size_t kBytesPerSample = 2;
+
+} // namespace
+
+PcmRing::PcmRing(size_t chunk_bytes, size_t chunks):
+    chunk_bytes_(chunk_bytes),
+    chunks_(chunks),
+    data_(chunk_bytes * chunks),
+    written_(0),
+    read_(0) {
+}
+
+bool PcmRing::write(const unsigned char *chunk) {
+    const uint64_t written = written_.load(std::memory_order_relaxed);
+    if (written - read_.load(std::memory_order_acquire) >= chunks_) {
+        return false;
+    }
+    std::memcpy(&data_[(written % chunks_) * chunk_bytes_], chunk, chunk_bytes_);
+    written_.store(written + 1, std::memory_order_release);
+    return true;
+}
+
+bool PcmRing::read(unsigned char *chunk) {
+    const uint64_t read = read_.load(std::memory_order_relaxed);
+    if (read == written_.load(std::memory_order_acquire)) {
+        return false;
+    }
+    std::memcpy(chunk, &data_[(read % chunks_) * chunk_bytes_], chunk_bytes_);
+    read_.store(read + 1, std::memory_order_release);
+    return true;
+}
+
+size_t PcmRing::size() const {
+    return static_cast<size_t>(written_.load(std::memory_order_acquire) - read_.load(std::memory_order_acquire));
+}
+
+size_t PcmRing::capacity() const {
+    return chunks_;
+}
+
+// The module handed to WebRTC; it outlives the Java-owned HeadlessAudioDevice as long as a factory uses it.
+// Everything not listed here keeps the no-op defaults of FakeAudioDeviceModule.
+class HeadlessAudioDevice::Module: public webrtc::FakeAudioDeviceModule {
+public:
+    Module(int sample_rate, int channels, size_t buffered_chunks):
+        sample_rate_(sample_rate),
+        channels_(channels),
+        chunk_samples_(static_cast<size_t>(sample_rate / (1000 / kChunkMs))),
+        chunk_bytes_(chunk_samples_ * channels * kBytesPerSample),
+        capture_(chunk_bytes_, buffered_chunks),
+        playout_(chunk_bytes_, buffered_chunks),
+        capture_chunks_(0),
+        capture_underruns_(0),
+        capture_overruns_(0),
+        playout_chunks_(0),
+        playout_overruns_(0),
+        late_ticks_(0),
+        capture_chunk_(chunk_bytes_, 0),
+        playout_chunk_(chunk_bytes_, 0),
+        playout_ready_(false, false),
+        callback_(nullptr),
+        playout_initialized_(false),
+        recording_initialized_(false),
+        playing_(false),
+        recording_(false) {
+    }
+
+    ~Module() override {
+        stopThread();
+    }
+
+    int32_t RegisterAudioCallback(webrtc::AudioTransport *callback) override {
+        rtc::CritScope lock(&callback_lock_);
+        callback_ = callback;
+        return 0;
+    }
+
+    int32_t Init() override {
+        return 0;
+    }
+
+    bool Initialized() const override {
+        return true;
+    }
+
+    int32_t PlayoutIsAvailable(bool *available) override {
+        *available = true;
+        return 0;
+    }
+
+    int32_t InitPlayout() override {
+        playout_initialized_ = true;
+        return 0;
+    }
+
+    bool PlayoutIsInitialized() const override {
+        return playout_initialized_;
+    }
+
+    int32_t StartPlayout() override {
+        playing_ = true;
+        updateThread();
+        return 0;
+    }
+
+    int32_t StopPlayout() override {
+        playing_ = false;
+        updateThread();
+        return 0;
+    }
+
+    bool Playing() const override {
+        return playing_;
+    }
+
+    int32_t RecordingIsAvailable(bool *available) override {
+        *available = true;
+        return 0;
+    }
+
+    int32_t InitRecording() override {
+        recording_initialized_ = true;
+        return 0;
+    }
+
+    bool RecordingIsInitialized() const override {
+        return recording_initialized_;
+    }
+
+    int32_t StartRecording() override {
+        recording_ = true;
+        updateThread();
+        return 0;
+    }
+
+    int32_t StopRecording() override {
+        recording_ = false;
+        updateThread();
+        return 0;
+    }
+
+    bool Recording() const override {
+        return recording_;
+    }
+
+    // the channel count is fixed when the device is created
+    int32_t StereoPlayoutIsAvailable(bool *available) const override {
+        *available = channels_ == 2;
+        return 0;
+    }
+
+    int32_t SetStereoPlayout(bool enable) override {
+        return enable == (channels_ == 2) ? 0 : -1;
+    }
+
+    int32_t StereoPlayout(bool *enabled) const override {
+        *enabled = channels_ == 2;
+        return 0;
+    }
+
+    int32_t StereoRecordingIsAvailable(bool *available) const override {
+        *available = channels_ == 2;
+        return 0;
+    }
+
+    int32_t SetStereoRecording(bool enable) override {
+        return enable == (channels_ == 2) ? 0 : -1;
+    }
+
+    int32_t StereoRecording(bool *enabled) const override {
+        *enabled = channels_ == 2;
+        return 0;
+    }
+
+    int32_t PlayoutDelay(uint16_t *delay_ms) const override {
+        *delay_ms = 0;
+        return 0;
+    }
+
+    size_t pushCapture(const unsigned char *data, size_t capacity) {
+        size_t pushed = 0;
+        for (size_t offset = 0; offset + chunk_bytes_ <= capacity; offset += chunk_bytes_) {
+            if (!capture_.write(data + offset)) {
+                capture_overruns_ += (capacity - offset) / chunk_bytes_;
+                break;
+            }
+            pushed++;
+        }
+        return pushed;
+    }
+
+    size_t pullPlayout(unsigned char *data, size_t capacity) {
+        size_t pulled = 0;
+        for (size_t offset = 0; offset + chunk_bytes_ <= capacity; offset += chunk_bytes_) {
+            if (!playout_.read(data + offset)) {
+                break;
+            }
+            pulled++;
+        }
+        return pulled;
+    }
+
+    bool waitForPlayout(int timeout_ms) {
+        return playout_.size() > 0 || (playout_ready_.Wait(timeout_ms) && playout_.size() > 0);
+    }
+
+    const int sample_rate_;
+    const int channels_;
+    const size_t chunk_samples_;
+    const size_t chunk_bytes_;
+
+    PcmRing capture_;
+    PcmRing playout_;
+
+    std::atomic<uint64_t> capture_chunks_;
+    std::atomic<uint64_t> capture_underruns_;
+    std::atomic<uint64_t> capture_overruns_;
+    std::atomic<uint64_t> playout_chunks_;
+    std::atomic<uint64_t> playout_overruns_;
+    std::atomic<uint64_t> late_ticks_;
+
+private:
+    static bool Run(void *module) {
+        static_cast<Module *>(module)->tick();
+        return true;
+    }
+
+    void tick() {
+        {
+            rtc::CritScope lock(&callback_lock_);
+            if (recording_) {
+                if (capture_.read(capture_chunk_.data())) {
+                    capture_chunks_++;
+                } else {
+                    std::memset(capture_chunk_.data(), 0, chunk_bytes_);
+                    capture_underruns_++;
+                }
+                if (callback_ != nullptr) {
+                    uint32_t new_mic_level = 0;
+                    callback_->RecordedDataIsAvailable(capture_chunk_.data(), chunk_samples_, kBytesPerSample * channels_,
+                            channels_, sample_rate_, 0, 0, 0, false, new_mic_level);
+                }
+            }
+            if (playing_ && callback_ != nullptr) {
+                size_t samples = 0;
+                int64_t elapsed_time_ms = 0;
+                int64_t ntp_time_ms = 0;
+                callback_->NeedMorePlayData(chunk_samples_, kBytesPerSample * channels_, channels_, sample_rate_,
+                        playout_chunk_.data(), samples, &elapsed_time_ms, &ntp_time_ms);
+                if (playout_.write(playout_chunk_.data())) {
+                    playout_chunks_++;
+                    playout_ready_.Set();
+                } else {
+                    playout_overruns_++;
+                }
+            }
+        }
+
+        // absolute deadlines, so the period does not drift with the time spent in the callbacks
+        next_tick_ += std::chrono::milliseconds(kChunkMs);
+        const std::chrono::steady_clock::time_point now = std::chrono::steady_clock::now();
+        if (now > next_tick_ + std::chrono::milliseconds(kChunkMs)) {
+            late_ticks_++;
+            next_tick_ = now;
+        }
+        std::this_thread::sleep_until(next_tick_);
+    }
+
+    void updateThread() {
+        rtc::CritScope lock(&thread_lock_);
+        if ((playing_ || recording_) && !thread_) {
+            next_tick_ = std::chrono::steady_clock::now();
+            thread_.reset(new rtc::PlatformThread(&Module::Run, this, "HeadlessAudio"));
+            thread_->Start();
+            thread_->SetPriority(rtc::kRealtimePriority);
+        } else if (!playing_ && !recording_ && thread_) {
+            thread_->Stop();
+            thread_.reset();
+        }
+    }
+
+    void stopThread() {
+        rtc::CritScope lock(&thread_lock_);
+        if (thread_) {
+            thread_->Stop();
+            thread_.reset();
+        }
+    }
+
+    std::vector<unsigned char> capture_chunk_;
+    std::vector<unsigned char> playout_chunk_;
+    rtc::Event playout_ready_;
+
+    rtc::CriticalSection callback_lock_;
+    webrtc::AudioTransport *callback_;
+
+    rtc::CriticalSection thread_lock_;
+    std::unique_ptr<rtc::PlatformThread> thread_;
+    std::chrono::steady_clock::time_point next_tick_;
+
+    std::atomic<bool> playout_initialized_;
+    std::atomic<bool> recording_initialized_;
+    std::atomic<bool> playing_;
+    std::atomic<bool> recording_;
+};
+
+HeadlessAudioDevice::HeadlessAudioDevice(int sample_rate, int channels, size_t buffered_chunks):
+    module_(new rtc::RefCountedObject<Module>(sample_rate, channels, buffered_chunks)) {
+}
+
+HeadlessAudioDevice::~HeadlessAudioDevice() {
+}
+
+int HeadlessAudioDevice::getSampleRate() const {
+    return module_->sample_rate_;
+}
+
+int HeadlessAudioDevice::getChannels() const {
+    return module_->channels_;
+}
+
+size_t HeadlessAudioDevice::getChunkSamples() const {
+    return module_->chunk_samples_;
+}
+
+size_t HeadlessAudioDevice::getChunkBytes() const {
+    return module_->chunk_bytes_;
+}
+
+size_t HeadlessAudioDevice::pushCapture(unsigned char *data, size_t capacity) {
+    return module_->pushCapture(data, capacity);
+}
+
+size_t HeadlessAudioDevice::pullPlayout(unsigned char *data, size_t capacity) {
+    return module_->pullPlayout(data, capacity);
+}
+
+bool HeadlessAudioDevice::waitForPlayout(int timeout_ms) {
+    return module_->waitForPlayout(timeout_ms);
+}
+
+bool HeadlessAudioDevice::isRecording() const {
+    return module_->Recording();
+}
+
+bool HeadlessAudioDevice::isPlaying() const {
+    return module_->Playing();
+}
+
+size_t HeadlessAudioDevice::getQueuedCapture() const {
+    return module_->capture_.size();
+}
+
+size_t HeadlessAudioDevice::getQueuedPlayout() const {
+    return module_->playout_.size();
+}
+
+uint64_t HeadlessAudioDevice::getCaptureChunks() const {
+    return module_->capture_chunks_.load();
+}
+
+uint64_t HeadlessAudioDevice::getCaptureUnderruns() const {
+    return module_->capture_underruns_.load();
+}
+
+uint64_t HeadlessAudioDevice::getCaptureOverruns() const {
+    return module_->capture_overruns_.load();
+}
+
+uint64_t HeadlessAudioDevice::getPlayoutChunks() const {
+    return module_->playout_chunks_.load();
+}
+
+uint64_t HeadlessAudioDevice::getPlayoutOverruns() const {
+    return module_->playout_overruns_.load();
+}
+
+uint64_t HeadlessAudioDevice::getLateTicks() const {
+    return module_->late_ticks_.load();
+}
+
+webrtc::AudioDeviceModule *HeadlessAudioDevice::getModule() const {
+    return module_.get();
+}
+
+} // namespace audio
+} // namespace media
+} // namespace twilio
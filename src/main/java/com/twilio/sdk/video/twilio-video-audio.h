@@ -0,0 +1,91 @@
+#ifndef _TWILIO_VIDEO_AUDIO_H_
+#define _TWILIO_VIDEO_AUDIO_H_
+
+#include <atomic>
+#include <vector>
+
+#include "webrtc/base/scoped_ref_ptr.h"
+#include "webrtc/modules/audio_device/include/audio_device.h"
+
+namespace twilio {
+namespace media {
+namespace audio {
+
+// Fixed-size chunks of interleaved 16-bit PCM passed from one producer thread to one consumer thread.
+class PcmRing {
+public:
+    PcmRing(size_t chunk_bytes, size_t chunks);
+
+    // false if the ring is full
+    bool write(const unsigned char *chunk);
+    // false if the ring is empty
+    bool read(unsigned char *chunk);
+    size_t size() const;
+    size_t capacity() const;
+
+private:
+    const size_t chunk_bytes_;
+    const size_t chunks_;
+    std::vector<unsigned char> data_;
+    std::atomic<uint64_t> written_;
+    std::atomic<uint64_t> read_;
+};
+
+// An audio device module without hardware for headless servers. Every 10 ms its own thread hands
+// one chunk pushed from Java to WebRTC as microphone input, and queues one chunk of the mixed remote
+// audio WebRTC would have played for Java to pull. Both directions copy straight between direct
+// buffers and preallocated rings; nothing is allocated once the device is started.
+//
+// Set it on the MediaOptions of a factory with setAudioDevice(); the factory keeps the module
+// alive, so the device may be closed before it.
+class HeadlessAudioDevice {
+public:
+    // buffered_chunks bounds both rings, i.e. how far Java may push ahead and fall behind pulling
+    HeadlessAudioDevice(int sample_rate, int channels, size_t buffered_chunks);
+    ~HeadlessAudioDevice();
+
+    int getSampleRate() const;
+    int getChannels() const;
+    // samples per channel in 10 ms
+    size_t getChunkSamples() const;
+    size_t getChunkBytes() const;
+
+    // queues whole chunks of data, up to capacity bytes, until the capture ring is full;
+    // returns the number of chunks queued
+    size_t pushCapture(unsigned char *data, size_t capacity);
+    // copies whole queued playout chunks into data, up to capacity bytes; returns the number of chunks copied
+    size_t pullPlayout(unsigned char *data, size_t capacity);
+    // waits until a playout chunk is queued or the timeout expires; false on timeout
+    bool waitForPlayout(int timeout_ms);
+
+    bool isRecording() const;
+    bool isPlaying() const;
+    size_t getQueuedCapture() const;
+    size_t getQueuedPlayout() const;
+
+    // chunks handed to WebRTC, and the ones replaced by silence because nothing was pushed in time
+    uint64_t getCaptureChunks() const;
+    uint64_t getCaptureUnderruns() const;
+    // chunks refused by pushCapture() because the capture ring was full
+    uint64_t getCaptureOverruns() const;
+    // chunks queued for Java, and the ones dropped because the playout ring was full
+    uint64_t getPlayoutChunks() const;
+    uint64_t getPlayoutOverruns() const;
+    // ticks which started more than one period late; the device then resynchronizes instead of catching up
+    uint64_t getLateTicks() const;
+
+#ifndef SWIG
+    webrtc::AudioDeviceModule *getModule() const;
+#endif
+
+private:
+    class Module;
+
+    rtc::scoped_refptr<Module> module_;
+};
+
+} // namespace audio
+} // namespace media
+} // namespace twilio
+
+#endif /* !_TWILIO_VIDEO_AUDIO_H_ */
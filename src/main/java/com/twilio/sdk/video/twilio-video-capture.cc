@@ -1,5 +1,10 @@
 #include "twilio-video-capture.h"
 
+#include <algorithm>
+
+#include "webrtc/base/timeutils.h"
+#include "webrtc/common_video/include/video_frame_buffer.h"
+#include "webrtc/common_video/libyuv/include/webrtc_libyuv.h"
 #include "webrtc/modules/video_capture/video_capture.h"
 #include "webrtc/modules/video_capture/video_capture_factory.h"
 #include "webrtc/media/engine/webrtcvideocapturerfactory.h"
@@ -12,7 +17,17 @@ namespace twilio {
 namespace media {
 namespace capture {
 
-FakeVideoCapturer::FakeVideoCapturer(): started_(false), timestamp_(0) {
+FakeVideoCapturer::FakeVideoCapturer(): FakeVideoCapturer(FakeVideoCapturerOptions()) {
+}
+
+FakeVideoCapturer::FakeVideoCapturer(const FakeVideoCapturerOptions &options):
+    options_(options),
+    started_(false),
+    pattern_(options.pattern, options.noise_level, options.text),
+    frame_rate_(kDefaultFrameRate),
+    start_time_us_(0),
+    frame_count_(0),
+    frames_generated_(0) {
     SetId("FakeVideoCapturer");
 }
 
@@ -37,6 +52,19 @@ void FakeVideoCapturer::Run(rtc::Thread *thread) {
 cricket::CaptureState FakeVideoCapturer::Start(const cricket::VideoFormat &capture_format) {
     if (!started_) {
         SetCaptureFormat(&capture_format);
+
+        if (options_.frame_rate > 0) {
+            frame_rate_ = options_.frame_rate;
+        } else if (capture_format.interval > 0) {
+            frame_rate_ = cricket::VideoFormat::IntervalToFps(capture_format.interval);
+        } else {
+            frame_rate_ = kDefaultFrameRate;
+        }
+        start_time_us_ = 0;
+        frame_count_ = 0;
+        frames_generated_ = 0;
+        buffer_pool_.clear();
+
         capture_thread_.reset(new rtc::Thread());
         capture_thread_->SetName("FakeVideoCapturer", nullptr);
         started_ = capture_thread_->Start(this);
@@ -73,27 +101,369 @@ void FakeVideoCapturer::generateFrame() {
     int height = GetCaptureFormat()->height;
     int width = GetCaptureFormat()->width;
 
-    if (timestamp_ == 0) {
-        timestamp_ = (time(NULL)*rtc::kNumMicrosecsPerSec);
-    } else {
-        timestamp_ += rtc::kNumMicrosecsPerSec/kFrameRate;
+    // frame times are derived from the monotonic clock and the frame index, so rounding
+    // of the scheduling delay never accumulates into drift
+    const int64_t now_us = rtc::TimeMicros();
+    if (start_time_us_ == 0) {
+        start_time_us_ = now_us;
+    }
+    int64_t timestamp_us = start_time_us_ + frame_count_ * rtc::kNumMicrosecsPerSec / frame_rate_;
+    if (now_us - timestamp_us > rtc::kNumMicrosecsPerSec / frame_rate_) {
+        // we fell behind by more than a frame (e.g. the host was suspended); restart the schedule
+        start_time_us_ = now_us;
+        frame_count_ = 0;
+        timestamp_us = now_us;
     }
 
-    rtc::scoped_refptr<webrtc::I420Buffer> buffer(webrtc::I420Buffer::Create(width, height));
-    buffer->InitializeData();
-    buffer->SetToBlack();
-    OnFrame(webrtc::VideoFrame(buffer, webrtc::kVideoRotation_0, timestamp_), width, height);
+    bool fresh = false;
+    rtc::scoped_refptr<webrtc::I420Buffer> buffer(acquireBuffer(width, height, &fresh));
+    if (fresh || !pattern_.isStatic()) {
+        pattern_.fill(buffer.get(), frames_generated_);
+    }
+    frames_generated_++;
+    OnFrame(webrtc::VideoFrame(buffer, webrtc::kVideoRotation_0, timestamp_us), width, height);
+
+    frame_count_++;
+    const int64_t next_frame_us = start_time_us_ + frame_count_ * rtc::kNumMicrosecsPerSec / frame_rate_;
+    const int64_t delay_ms = std::max<int64_t>(0, (next_frame_us - rtc::TimeMicros()) / rtc::kNumMicrosecsPerMillisec);
 
     invoker_->AsyncInvokeDelayed<void>(RTC_FROM_HERE, capture_thread_.get(),
                                        rtc::Bind(&FakeVideoCapturer::generateFrame, this),
-                                       33,
+                                       static_cast<uint32_t>(delay_ms),
                                        0);
 }
 
+rtc::scoped_refptr<webrtc::I420Buffer> FakeVideoCapturer::acquireBuffer(int width, int height, bool *fresh) {
+    *fresh = true;
+    if (!options_.pooled_buffers) {
+        rtc::scoped_refptr<webrtc::I420Buffer> buffer(webrtc::I420Buffer::Create(width, height));
+        buffer->InitializeData();
+        return buffer;
+    }
+
+    // a pooled buffer is free again once the pipeline has dropped all its references; static
+    // patterns never change, so such a buffer does not have to be filled again
+    for (const rtc::scoped_refptr<PooledI420Buffer> &pooled: buffer_pool_) {
+        if (pooled->HasOneRef() && pooled->width() == width && pooled->height() == height) {
+            *fresh = false;
+            return pooled;
+        }
+    }
+
+    rtc::scoped_refptr<PooledI420Buffer> buffer(new PooledI420Buffer(width, height));
+    if (buffer_pool_.size() < kMaxPooledBuffers) {
+        buffer_pool_.push_back(buffer);
+    } else {
+        // the pool is exhausted, so drop a stale entry sized for a previous format if there is one
+        for (rtc::scoped_refptr<PooledI420Buffer> &pooled: buffer_pool_) {
+            if (pooled->width() != width || pooled->height() != height) {
+                pooled = buffer;
+                break;
+            }
+        }
+    }
+    return buffer;
+}
+
+namespace {
+
+// keeps the in-flight slot (and optionally a source buffer) alive until the pipeline drops the frame
+struct FrameReleaser {
+    rtc::scoped_refptr<InFlightFrames> in_flight_;
+    int64_t frame_id_;
+    rtc::scoped_refptr<webrtc::VideoFrameBuffer> source_;
+
+    void operator()() const {
+        in_flight_->release(frame_id_);
+    }
+};
+
+} // namespace
+
+InFlightFrames::InFlightFrames(size_t max_frames): max_frames_(max_frames > 0 ? max_frames : 1), next_frame_id_(0) {
+}
+
+int64_t InFlightFrames::add() {
+    rtc::CritScope cs(&lock_);
+    if (frames_.size() >= max_frames_) {
+        return VideoFrameInjector::kFrameRejected;
+    }
+    const int64_t frame_id = next_frame_id_++;
+    frames_.insert(frame_id);
+    return frame_id;
+}
+
+void InFlightFrames::release(int64_t frame_id) {
+    rtc::CritScope cs(&lock_);
+    frames_.erase(frame_id);
+}
+
+bool InFlightFrames::isReleased(int64_t frame_id) const {
+    rtc::CritScope cs(&lock_);
+    return frame_id >= 0 && frame_id < next_frame_id_ && frames_.find(frame_id) == frames_.end();
+}
+
+size_t InFlightFrames::size() const {
+    rtc::CritScope cs(&lock_);
+    return frames_.size();
+}
+
+bool InFlightFrames::isFull() const {
+    rtc::CritScope cs(&lock_);
+    return frames_.size() >= max_frames_;
+}
+
+const int64_t VideoFrameInjector::kFrameRejected;
+const int64_t VideoFrameInjector::kNotStarted;
+const int64_t VideoFrameInjector::kInvalidFrame;
+
+VideoFrameInjector::VideoFrameInjector(int max_frames_in_flight):
+    capturer_(nullptr),
+    deliveries_(0),
+    delivered_(true, true),
+    in_flight_(new rtc::RefCountedObject<InFlightFrames>(max_frames_in_flight > 0 ? max_frames_in_flight : 1)),
+    frames_pushed_(0),
+    frames_rejected_(0) {
+}
+
+VideoFrameInjector::~VideoFrameInjector() {
+}
+
+int64_t VideoFrameInjector::pushI420(unsigned char *data_y, size_t capacity_y, int stride_y,
+                                     unsigned char *data_u, size_t capacity_u, int stride_u,
+                                     unsigned char *data_v, size_t capacity_v, int stride_v,
+                                     int width, int height,
+                                     int64_t timestamp_us,
+                                     webrtc::VideoRotation rotation) {
+    const int chroma_width = (width + 1) / 2;
+    const int chroma_height = (height + 1) / 2;
+    if (width <= 0 || height <= 0 ||
+        stride_y < width || stride_u < chroma_width || stride_v < chroma_width ||
+        capacity_y < (size_t) stride_y * height ||
+        capacity_u < (size_t) stride_u * chroma_height ||
+        capacity_v < (size_t) stride_v * chroma_height) {
+        return kInvalidFrame;
+    }
+    if (!isStarted()) {
+        return kNotStarted;
+    }
+
+    const int64_t frame_id = in_flight_->add();
+    if (frame_id < 0) {
+        frames_rejected_++;
+        return kFrameRejected;
+    }
+
+    FrameReleaser releaser;
+    releaser.in_flight_ = in_flight_;
+    releaser.frame_id_ = frame_id;
+    rtc::scoped_refptr<webrtc::VideoFrameBuffer> buffer(
+        new rtc::RefCountedObject<webrtc::WrappedI420Buffer>(width, height,
+                                                             data_y, stride_y,
+                                                             data_u, stride_u,
+                                                             data_v, stride_v,
+                                                             rtc::Callback0<void>(releaser)));
+    return deliver(buffer, frame_id, timestamp_us, rotation);
+}
+
+int64_t VideoFrameInjector::pushNV12(unsigned char *data, size_t capacity,
+                                     int width, int height,
+                                     int64_t timestamp_us,
+                                     webrtc::VideoRotation rotation) {
+    const size_t size = (size_t) width * height + 2 * (size_t) ((width + 1) / 2) * ((height + 1) / 2);
+    if (width <= 0 || height <= 0 || capacity < size) {
+        return kInvalidFrame;
+    }
+    if (!isStarted()) {
+        return kNotStarted;
+    }
+
+    const int64_t frame_id = in_flight_->add();
+    if (frame_id < 0) {
+        frames_rejected_++;
+        return kFrameRejected;
+    }
+
+    // the encoders only take planar I420, so NV12 is converted once into a pooled buffer and the
+    // caller's memory is free again as soon as this returns
+    rtc::scoped_refptr<webrtc::I420Buffer> converted;
+    {
+        rtc::CritScope cs(&lock_);
+        converted = nv12_pool_.CreateBuffer(width, height);
+    }
+    if (!converted ||
+        webrtc::ConvertToI420(webrtc::VideoType::kNV12, data, 0, 0, width, height, size,
+                              webrtc::kVideoRotation_0, converted.get()) != 0) {
+        in_flight_->release(frame_id);
+        frames_rejected_++;
+        return kFrameRejected;
+    }
+    in_flight_->release(frame_id);
+
+    return deliver(converted, frame_id, timestamp_us, rotation);
+}
+
+int64_t VideoFrameInjector::pushBuffer(const rtc::scoped_refptr<webrtc::VideoFrameBuffer> &buffer,
+                                       int64_t timestamp_us,
+                                       webrtc::VideoRotation rotation) {
+    if (!buffer || buffer->DataY() == nullptr) {
+        return kInvalidFrame;
+    }
+    if (!isStarted()) {
+        return kNotStarted;
+    }
+
+    const int64_t frame_id = in_flight_->add();
+    if (frame_id < 0) {
+        frames_rejected_++;
+        return kFrameRejected;
+    }
+
+    // wrap rather than forward the buffer so that it is counted as in flight until the encoder is done
+    FrameReleaser releaser;
+    releaser.in_flight_ = in_flight_;
+    releaser.frame_id_ = frame_id;
+    releaser.source_ = buffer;
+    rtc::scoped_refptr<webrtc::VideoFrameBuffer> wrapped(
+        new rtc::RefCountedObject<webrtc::WrappedI420Buffer>(buffer->width(), buffer->height(),
+                                                             buffer->DataY(), buffer->StrideY(),
+                                                             buffer->DataU(), buffer->StrideU(),
+                                                             buffer->DataV(), buffer->StrideV(),
+                                                             rtc::Callback0<void>(releaser)));
+    return deliver(wrapped, frame_id, timestamp_us, rotation);
+}
+
+bool VideoFrameInjector::isStarted() const {
+    rtc::CritScope cs(&lock_);
+    return capturer_ != nullptr;
+}
+
+bool VideoFrameInjector::isBackpressured() const {
+    return in_flight_->isFull();
+}
+
+bool VideoFrameInjector::isFrameReleased(int64_t frame_id) const {
+    return in_flight_->isReleased(frame_id);
+}
+
+size_t VideoFrameInjector::getFramesInFlight() const {
+    return in_flight_->size();
+}
+
+uint64_t VideoFrameInjector::getFramesPushed() const {
+    return frames_pushed_;
+}
+
+uint64_t VideoFrameInjector::getFramesRejected() const {
+    return frames_rejected_;
+}
+
+void VideoFrameInjector::attach(ExternalVideoCapturer *capturer) {
+    rtc::CritScope cs(&lock_);
+    capturer_ = capturer;
+}
+
+void VideoFrameInjector::detach(ExternalVideoCapturer *capturer) {
+    {
+        rtc::CritScope cs(&lock_);
+        if (capturer_ == capturer) {
+            capturer_ = nullptr;
+        }
+        if (deliveries_ == 0) {
+            return;
+        }
+        delivered_.Reset();
+    }
+    // frames already handed to the capturer are finished outside the lock; the capturer must
+    // outlive them, so stopping waits here rather than letting deliver() hold it
+    delivered_.Wait(rtc::Event::kForever);
+}
+
+int64_t VideoFrameInjector::deliver(const rtc::scoped_refptr<webrtc::VideoFrameBuffer> &buffer,
+                                    int64_t frame_id,
+                                    int64_t timestamp_us,
+                                    webrtc::VideoRotation rotation) {
+    const webrtc::VideoFrame frame(buffer, rotation, timestamp_us > 0 ? timestamp_us : rtc::TimeMicros());
+    ExternalVideoCapturer *capturer;
+    {
+        // counted under the lock so that detach() waits for this frame before the capturer goes away
+        rtc::CritScope cs(&lock_);
+        if (capturer_ == nullptr) {
+            return kNotStarted;
+        }
+        capturer = capturer_;
+        deliveries_++;
+    }
+
+    capturer->deliverFrame(frame);
+
+    {
+        rtc::CritScope cs(&lock_);
+        if (--deliveries_ == 0) {
+            delivered_.Set();
+        }
+    }
+    frames_pushed_++;
+    return frame_id;
+}
+
+ExternalVideoCapturer::ExternalVideoCapturer(std::shared_ptr<VideoFrameInjector> injector):
+    injector_(injector),
+    started_(false) {
+    SetId("ExternalVideoCapturer");
+}
+
+ExternalVideoCapturer::~ExternalVideoCapturer() {
+    Stop();
+}
+
+cricket::CaptureState ExternalVideoCapturer::Start(const cricket::VideoFormat &capture_format) {
+    if (!started_) {
+        SetCaptureFormat(&capture_format);
+        injector_->attach(this);
+        started_ = true;
+    }
+
+    return cricket::CS_RUNNING;
+}
+
+void ExternalVideoCapturer::Stop() {
+    if (started_) {
+        injector_->detach(this);
+        SetCaptureFormat(nullptr);
+        started_ = false;
+    }
+}
+
+bool ExternalVideoCapturer::IsRunning() {
+    return started_;
+}
+
+bool ExternalVideoCapturer::IsScreencast() const {
+    return false;
+}
+
+void ExternalVideoCapturer::deliverFrame(const webrtc::VideoFrame &frame) {
+    OnFrame(frame, frame.width(), frame.height());
+}
+
+bool ExternalVideoCapturer::GetPreferredFourccs(std::vector<uint32_t> *fourccs) {
+    fourccs->push_back(cricket::FOURCC_I420);
+    return true;
+}
+
 cricket::VideoCapturer *VideoCapturerFactory::CreateFakeVideoCapturer() {
     return new FakeVideoCapturer();
 }
 
+cricket::VideoCapturer *VideoCapturerFactory::CreateFakeVideoCapturer(const FakeVideoCapturerOptions &options) {
+    return new FakeVideoCapturer(options);
+}
+
+cricket::VideoCapturer *VideoCapturerFactory::CreateExternalVideoCapturer(std::shared_ptr<VideoFrameInjector> injector) {
+    return new ExternalVideoCapturer(injector);
+}
+
 cricket::VideoCapturer *VideoCapturerFactory::CreateVideoCapturer() {
     cricket::VideoCapturer *capturer = nullptr;
 
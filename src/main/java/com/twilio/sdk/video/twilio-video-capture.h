@@ -3,19 +3,45 @@
 
 #include <atomic>
 #include <memory>
+#include <set>
+#include <vector>
 
 #include "webrtc/base/thread.h"
 #include "webrtc/base/asyncinvoker.h"
+#include "webrtc/base/refcount.h"
+#include "webrtc/base/criticalsection.h"
+#include "webrtc/base/event.h"
+#include "webrtc/api/video/i420_buffer.h"
 #include "webrtc/media/base/videocapturer.h"
+#include "webrtc/common_video/include/i420_buffer_pool.h"
 #include "webrtc/modules/video_coding/timing.h"
 
+#include "twilio-video-pattern.h"
+
 namespace twilio {
 namespace media {
 namespace capture {
 
+struct FakeVideoCapturerOptions {
+    // frames per second; zero or negative means use the rate of the negotiated capture format
+    int frame_rate;
+    // reuse a small set of frame buffers instead of allocating and clearing one per frame
+    bool pooled_buffers;
+    // synthetic content of the frames; anything but kBlack costs the encoder a realistic amount of work
+    FakeVideoPattern pattern;
+    // amplitude of kNoise in percent, from flat gray (0) to full-range noise (100)
+    int noise_level;
+    // message rendered by kScrollingText
+    std::string text;
+
+    FakeVideoCapturerOptions(): frame_rate(0), pooled_buffers(true), pattern(FakeVideoPattern::kBlack), noise_level(50) {
+    }
+};
+
 class FakeVideoCapturer: public cricket::VideoCapturer, public rtc::Runnable {
 public:
     FakeVideoCapturer();
+    explicit FakeVideoCapturer(const FakeVideoCapturerOptions &options);
     ~FakeVideoCapturer();
 
     void Run(rtc::Thread *thread) override;
@@ -29,21 +55,128 @@ protected:
     bool GetPreferredFourccs(std::vector<uint32_t> *fourccs) override;
 
 private:
-    const static int kFrameRate = 30;
+    typedef rtc::RefCountedObject<webrtc::I420Buffer> PooledI420Buffer;
+
+    const static int kDefaultFrameRate = 30;
+    const static size_t kMaxPooledBuffers = 8;
 
     void generateFrame();
+    rtc::scoped_refptr<webrtc::I420Buffer> acquireBuffer(int width, int height, bool *fresh);
 
+    const FakeVideoCapturerOptions options_;
     std::unique_ptr<rtc::Thread> capture_thread_;
     std::unique_ptr<rtc::AsyncInvoker> invoker_;
     sigslot::signal1<FakeVideoCapturer *> signalDestroyed;
     std::atomic<bool> started_;
-    int64_t timestamp_;
+    std::vector<rtc::scoped_refptr<PooledI420Buffer>> buffer_pool_;
+    TestPatternGenerator pattern_;
+    int frame_rate_;
+    int64_t start_time_us_;
+    int64_t frame_count_;
+    int64_t frames_generated_;
+};
+
+class ExternalVideoCapturer;
+
+class InFlightFrames: public rtc::RefCountInterface {
+public:
+    explicit InFlightFrames(size_t max_frames);
+
+    int64_t add();
+    void release(int64_t frame_id);
+    bool isReleased(int64_t frame_id) const;
+    size_t size() const;
+    bool isFull() const;
+
+private:
+    const size_t max_frames_;
+    mutable rtc::CriticalSection lock_;
+    std::set<int64_t> frames_;
+    int64_t next_frame_id_;
+};
+
+// Frames pushed here are forwarded, without copying, to the capturer of the track created with
+// MediaFactory::createVideoTrack(injector, ...). Memory passed to pushI420() must stay untouched
+// until isFrameReleased() returns true for the returned frame id.
+class VideoFrameInjector {
+public:
+    static const int64_t kFrameRejected = -1;
+    static const int64_t kNotStarted = -2;
+    static const int64_t kInvalidFrame = -3;
+
+    explicit VideoFrameInjector(int max_frames_in_flight);
+    ~VideoFrameInjector();
+
+    int64_t pushI420(unsigned char *data_y, size_t capacity_y, int stride_y,
+                     unsigned char *data_u, size_t capacity_u, int stride_u,
+                     unsigned char *data_v, size_t capacity_v, int stride_v,
+                     int width, int height,
+                     int64_t timestamp_us,
+                     webrtc::VideoRotation rotation);
+
+    int64_t pushNV12(unsigned char *data, size_t capacity,
+                     int width, int height,
+                     int64_t timestamp_us,
+                     webrtc::VideoRotation rotation);
+
+    int64_t pushBuffer(const rtc::scoped_refptr<webrtc::VideoFrameBuffer> &buffer,
+                       int64_t timestamp_us,
+                       webrtc::VideoRotation rotation);
+
+    bool isStarted() const;
+    bool isBackpressured() const;
+    bool isFrameReleased(int64_t frame_id) const;
+    size_t getFramesInFlight() const;
+    uint64_t getFramesPushed() const;
+    uint64_t getFramesRejected() const;
+
+#ifndef SWIG
+    void attach(ExternalVideoCapturer *capturer);
+    void detach(ExternalVideoCapturer *capturer);
+#endif
+
+private:
+    int64_t deliver(const rtc::scoped_refptr<webrtc::VideoFrameBuffer> &buffer,
+                    int64_t frame_id,
+                    int64_t timestamp_us,
+                    webrtc::VideoRotation rotation);
+
+    mutable rtc::CriticalSection lock_;
+    ExternalVideoCapturer *capturer_;
+    int deliveries_;
+    rtc::Event delivered_;
+    rtc::scoped_refptr<InFlightFrames> in_flight_;
+    webrtc::I420BufferPool nv12_pool_;
+    std::atomic<uint64_t> frames_pushed_;
+    std::atomic<uint64_t> frames_rejected_;
+};
+
+class ExternalVideoCapturer: public cricket::VideoCapturer {
+public:
+    explicit ExternalVideoCapturer(std::shared_ptr<VideoFrameInjector> injector);
+    ~ExternalVideoCapturer();
+
+    cricket::CaptureState Start(const cricket::VideoFormat &capture_format) override;
+    void Stop() override;
+    bool IsRunning() override;
+    bool IsScreencast() const override;
+
+    void deliverFrame(const webrtc::VideoFrame &frame);
+
+protected:
+    bool GetPreferredFourccs(std::vector<uint32_t> *fourccs) override;
+
+private:
+    std::shared_ptr<VideoFrameInjector> injector_;
+    std::atomic<bool> started_;
 };
 
 class VideoCapturerFactory {
 public:
     static cricket::VideoCapturer *CreateFakeVideoCapturer();
+    static cricket::VideoCapturer *CreateFakeVideoCapturer(const FakeVideoCapturerOptions &options);
     static cricket::VideoCapturer *CreateVideoCapturer();
+    static cricket::VideoCapturer *CreateExternalVideoCapturer(std::shared_ptr<VideoFrameInjector> injector);
 };
 
 } // namespace capture
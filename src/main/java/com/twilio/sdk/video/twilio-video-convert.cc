@@ -0,0 +1,514 @@
+#include "twilio-video-convert.h"
+
+#include <algorithm>
+
+#include "webrtc/base/timeutils.h"
+#include "webrtc/api/video/i420_buffer.h"
+#include "libyuv/convert_from.h"
+#include "libyuv/planar_functions.h"
+#include "libyuv/rotate.h"
+#include "libyuv/scale.h"
+
+namespace twilio {
+namespace media {
+namespace convert {
+
+namespace {
+
+// three I420 planes, either of a webrtc buffer or laid out in a destination
+struct Planes {
+    const uint8_t *y;
+    const uint8_t *u;
+    const uint8_t *v;
+    int stride_y;
+    int stride_u;
+    int stride_v;
+    int width;
+    int height;
+};
+
+Planes planesOf(const webrtc::VideoFrameBuffer &buffer) {
+    return Planes { buffer.DataY(), buffer.DataU(), buffer.DataV(),
+                    buffer.StrideY(), buffer.StrideU(), buffer.StrideV(),
+                    buffer.width(), buffer.height() };
+}
+
+// packed planes in the layout PixelFormat::kI420 documents
+Planes packedPlanes(uint8_t *data, int width, int height) {
+    const int chroma_width = (width + 1) / 2;
+    const int chroma_height = (height + 1) / 2;
+    uint8_t *u = data + (size_t) width * height;
+    uint8_t *v = u + (size_t) chroma_width * chroma_height;
+    return Planes { data, u, v, width, chroma_width, chroma_width, width, height };
+}
+
+libyuv::FilterMode filterMode(ScaleFilter filter) {
+    switch (filter) {
+    case ScaleFilter::kNone:
+        return libyuv::kFilterNone;
+    case ScaleFilter::kLinear:
+        return libyuv::kFilterLinear;
+    case ScaleFilter::kBox:
+        return libyuv::kFilterBox;
+    case ScaleFilter::kBilinear:
+    default:
+        return libyuv::kFilterBilinear;
+    }
+}
+
+int scale(const Planes &source, const Planes &destination, ScaleFilter filter) {
+    return libyuv::I420Scale(source.y, source.stride_y,
+                             source.u, source.stride_u,
+                             source.v, source.stride_v,
+                             source.width, source.height,
+                             const_cast<uint8_t *>(destination.y), destination.stride_y,
+                             const_cast<uint8_t *>(destination.u), destination.stride_u,
+                             const_cast<uint8_t *>(destination.v), destination.stride_v,
+                             destination.width, destination.height,
+                             filterMode(filter));
+}
+
+int rotate(const Planes &source, const Planes &destination, webrtc::VideoRotation rotation) {
+    // webrtc::VideoRotation and libyuv::RotationMode are both in degrees
+    return libyuv::I420Rotate(source.y, source.stride_y,
+                              source.u, source.stride_u,
+                              source.v, source.stride_v,
+                              const_cast<uint8_t *>(destination.y), destination.stride_y,
+                              const_cast<uint8_t *>(destination.u), destination.stride_u,
+                              const_cast<uint8_t *>(destination.v), destination.stride_v,
+                              source.width, source.height,
+                              static_cast<libyuv::RotationMode>(rotation));
+}
+
+int convertPlanes(const Planes &source, PixelFormat format, uint8_t *destination) {
+    const int width = source.width;
+    const int height = source.height;
+    switch (format) {
+    case PixelFormat::kI420: {
+        const Planes packed = packedPlanes(destination, width, height);
+        return libyuv::I420Copy(source.y, source.stride_y,
+                                source.u, source.stride_u,
+                                source.v, source.stride_v,
+                                const_cast<uint8_t *>(packed.y), packed.stride_y,
+                                const_cast<uint8_t *>(packed.u), packed.stride_u,
+                                const_cast<uint8_t *>(packed.v), packed.stride_v,
+                                width, height);
+    }
+    case PixelFormat::kNV12: {
+        const int uv_stride = 2 * ((width + 1) / 2);
+        return libyuv::I420ToNV12(source.y, source.stride_y,
+                                  source.u, source.stride_u,
+                                  source.v, source.stride_v,
+                                  destination, width,
+                                  destination + (size_t) width * height, uv_stride,
+                                  width, height);
+    }
+    // libyuv names formats by the order of a little-endian word, so its ARGB is BGRA in memory
+    case PixelFormat::kBGRA:
+        return libyuv::I420ToARGB(source.y, source.stride_y,
+                                  source.u, source.stride_u,
+                                  source.v, source.stride_v,
+                                  destination, width * 4,
+                                  width, height);
+    case PixelFormat::kRGBA:
+        return libyuv::I420ToABGR(source.y, source.stride_y,
+                                  source.u, source.stride_u,
+                                  source.v, source.stride_v,
+                                  destination, width * 4,
+                                  width, height);
+    case PixelFormat::kBGR24:
+        return libyuv::I420ToRGB24(source.y, source.stride_y,
+                                   source.u, source.stride_u,
+                                   source.v, source.stride_v,
+                                   destination, width * 3,
+                                   width, height);
+    case PixelFormat::kRGB24:
+        return libyuv::I420ToRAW(source.y, source.stride_y,
+                                 source.u, source.stride_u,
+                                 source.v, source.stride_v,
+                                 destination, width * 3,
+                                 width, height);
+    }
+    return -1;
+}
+
+struct Crop {
+    int x;
+    int y;
+    int width;
+    int height;
+};
+
+Crop cropOf(const ConvertOptions &options, int source_width, int source_height) {
+    // chroma is subsampled, so the crop starts on an even pixel
+    Crop crop;
+    crop.x = std::min(std::max(options.crop_x, 0) & ~1, source_width);
+    crop.y = std::min(std::max(options.crop_y, 0) & ~1, source_height);
+    crop.width = options.crop_width > 0 ? std::min(options.crop_width, source_width - crop.x) : source_width - crop.x;
+    crop.height = options.crop_height > 0 ? std::min(options.crop_height, source_height - crop.y) : source_height - crop.y;
+    return crop;
+}
+
+bool swapsDimensions(webrtc::VideoRotation rotation) {
+    return rotation == webrtc::kVideoRotation_90 || rotation == webrtc::kVideoRotation_270;
+}
+
+} // namespace
+
+size_t getFrameSize(PixelFormat format, int width, int height) {
+    if (width <= 0 || height <= 0) {
+        return 0;
+    }
+    const size_t pixels = (size_t) width * height;
+    switch (format) {
+    case PixelFormat::kI420:
+    case PixelFormat::kNV12:
+        return pixels + 2 * (size_t) ((width + 1) / 2) * ((height + 1) / 2);
+    case PixelFormat::kBGRA:
+    case PixelFormat::kRGBA:
+        return pixels * 4;
+    case PixelFormat::kBGR24:
+    case PixelFormat::kRGB24:
+        return pixels * 3;
+    }
+    return 0;
+}
+
+ConvertedFrame::ConvertedFrame():
+    width_(0),
+    height_(0),
+    format_(PixelFormat::kI420),
+    rotation_(webrtc::kVideoRotation_0),
+    timestamp_us_(0),
+    source_width_(0),
+    source_height_(0),
+    data_(nullptr),
+    size_(0) {
+}
+
+int ConvertedFrame::getWidth() const {
+    return width_;
+}
+
+int ConvertedFrame::getHeight() const {
+    return height_;
+}
+
+PixelFormat ConvertedFrame::getFormat() const {
+    return format_;
+}
+
+webrtc::VideoRotation ConvertedFrame::getRotation() const {
+    return rotation_;
+}
+
+int64_t ConvertedFrame::getTimestampUs() const {
+    return timestamp_us_;
+}
+
+int ConvertedFrame::getSourceWidth() const {
+    return source_width_;
+}
+
+int ConvertedFrame::getSourceHeight() const {
+    return source_height_;
+}
+
+size_t ConvertedFrame::getSize() const {
+    return size_;
+}
+
+twilio::media::frame::FramePlane ConvertedFrame::getData() const {
+    return twilio::media::frame::FramePlane(data_, data_ != nullptr ? size_ : 0);
+}
+
+FrameConverter::FrameConverter() {
+}
+
+bool FrameConverter::describe(const ConvertOptions &options,
+                              int source_width,
+                              int source_height,
+                              webrtc::VideoRotation rotation,
+                              ConvertedFrame *frame) {
+    if (source_width <= 0 || source_height <= 0) {
+        return false;
+    }
+    const Crop crop = cropOf(options, source_width, source_height);
+    if (crop.width <= 0 || crop.height <= 0) {
+        return false;
+    }
+
+    const bool swap = options.apply_rotation && swapsDimensions(rotation);
+    const int upright_width = swap ? crop.height : crop.width;
+    const int upright_height = swap ? crop.width : crop.height;
+
+    int width = options.width;
+    int height = options.height;
+    if (width <= 0 && height <= 0) {
+        width = upright_width;
+        height = upright_height;
+    } else if (width <= 0) {
+        width = std::max(1, (int) (((int64_t) upright_width * height + upright_height / 2) / upright_height));
+    } else if (height <= 0) {
+        height = std::max(1, (int) (((int64_t) upright_height * width + upright_width / 2) / upright_width));
+    }
+
+    frame->width_ = width;
+    frame->height_ = height;
+    frame->format_ = options.format;
+    frame->rotation_ = options.apply_rotation ? webrtc::kVideoRotation_0 : rotation;
+    frame->source_width_ = source_width;
+    frame->source_height_ = source_height;
+    frame->size_ = getFrameSize(options.format, width, height);
+    return true;
+}
+
+size_t FrameConverter::convert(const rtc::scoped_refptr<webrtc::VideoFrameBuffer> &source,
+                               webrtc::VideoRotation rotation,
+                               const ConvertOptions &options,
+                               uint8_t *destination,
+                               size_t capacity,
+                               ConvertedFrame *frame) {
+    if (!source || destination == nullptr) {
+        return 0;
+    }
+    rtc::scoped_refptr<webrtc::VideoFrameBuffer> buffer = source;
+    if (buffer->native_handle() != nullptr) {
+        // texture frames are read back once; every later step works on memory
+        buffer = buffer->NativeToI420Buffer();
+        if (!buffer) {
+            return 0;
+        }
+    }
+    if (!describe(options, buffer->width(), buffer->height(), rotation, frame) || capacity < frame->size_) {
+        return 0;
+    }
+
+    // cropping is only an offset into the source planes
+    Planes planes = planesOf(*buffer);
+    const Crop crop = cropOf(options, planes.width, planes.height);
+    planes.y += (size_t) crop.y * planes.stride_y + crop.x;
+    planes.u += (size_t) (crop.y / 2) * planes.stride_u + crop.x / 2;
+    planes.v += (size_t) (crop.y / 2) * planes.stride_v + crop.x / 2;
+    planes.width = crop.width;
+    planes.height = crop.height;
+
+    const webrtc::VideoRotation applied = options.apply_rotation ? rotation : webrtc::kVideoRotation_0;
+    const bool swap = swapsDimensions(applied);
+    const int scaled_width = swap ? frame->height_ : frame->width_;
+    const int scaled_height = swap ? frame->width_ : frame->height_;
+    const bool planar = options.format == PixelFormat::kI420;
+
+    // every step but the last goes through the pool; the last one writes into the destination
+    rtc::scoped_refptr<webrtc::I420Buffer> scaled;
+    if (scaled_width != planes.width || scaled_height != planes.height) {
+        Planes target;
+        if (planar && applied == webrtc::kVideoRotation_0) {
+            target = packedPlanes(destination, scaled_width, scaled_height);
+        } else {
+            scaled = pool_.CreateBuffer(scaled_width, scaled_height);
+            if (!scaled) {
+                return 0;
+            }
+            target = planesOf(*scaled);
+        }
+        if (scale(planes, target, options.filter) != 0) {
+            return 0;
+        }
+        if (!scaled) {
+            return frame->size_;
+        }
+        planes = target;
+    }
+
+    rtc::scoped_refptr<webrtc::I420Buffer> rotated;
+    if (applied != webrtc::kVideoRotation_0) {
+        Planes target;
+        if (planar) {
+            target = packedPlanes(destination, frame->width_, frame->height_);
+        } else {
+            rotated = pool_.CreateBuffer(frame->width_, frame->height_);
+            if (!rotated) {
+                return 0;
+            }
+            target = planesOf(*rotated);
+        }
+        if (rotate(planes, target, applied) != 0) {
+            return 0;
+        }
+        if (!rotated) {
+            return frame->size_;
+        }
+        planes = target;
+    }
+
+    if (convertPlanes(planes, options.format, destination) != 0) {
+        return 0;
+    }
+    return frame->size_;
+}
+
+ConvertingVideoSink::ConvertingVideoSink(std::shared_ptr<ConvertedFrameObserver> observer,
+                                         const ConvertOptions &options):
+    observer_(observer),
+    has_observer_(observer != nullptr),
+    options_(options),
+    latest_timestamp_us_(0),
+    latest_rotation_(webrtc::kVideoRotation_0),
+    frames_received_(0),
+    frames_converted_(0),
+    frames_skipped_(0),
+    conversion_failures_(0),
+    convert_nanos_(0) {
+}
+
+ConvertingVideoSink::~ConvertingVideoSink() {
+}
+
+void ConvertingVideoSink::OnFrame(const webrtc::VideoFrame &frame) {
+    frames_received_++;
+
+    ConvertOptions options;
+    {
+        rtc::CritScope cs(&lock_);
+        latest_buffer_ = frame.video_frame_buffer();
+        latest_timestamp_us_ = frame.timestamp_us();
+        latest_rotation_ = frame.rotation();
+        options = options_;
+    }
+
+    if (!has_observer_) {
+        return;
+    }
+
+    if (limiter_.shouldDrop(options.max_frame_rate, rtc::TimeMicros())) {
+        frames_skipped_++;
+        return;
+    }
+
+    if (!convertForObserver(frame, options)) {
+        conversion_failures_++;
+    }
+}
+
+bool ConvertingVideoSink::convertForObserver(const webrtc::VideoFrame &frame, const ConvertOptions &options) {
+    std::shared_ptr<ConvertedFrameObserver> observer = observer_.lock();
+    if (!observer) {
+        return true;
+    }
+
+    const rtc::scoped_refptr<webrtc::VideoFrameBuffer> &buffer = frame.video_frame_buffer();
+    ConvertedFrame converted;
+    if (!FrameConverter::describe(options, buffer->width(), buffer->height(), frame.rotation(), &converted)) {
+        return false;
+    }
+    // the buffer only grows, so it stops being reallocated once the largest frame was seen
+    if (push_buffer_.size() < converted.size_) {
+        push_buffer_.resize(converted.size_);
+    }
+
+    const int64_t started = rtc::TimeNanos();
+    const size_t size = push_converter_.convert(buffer, frame.rotation(), options,
+                                                push_buffer_.data(), push_buffer_.size(), &converted);
+    convert_nanos_ += rtc::TimeNanos() - started;
+    if (size == 0) {
+        return false;
+    }
+    frames_converted_++;
+
+    converted.timestamp_us_ = frame.timestamp_us();
+    converted.data_ = push_buffer_.data();
+    converted.size_ = size;
+    observer->onFrame(converted);
+    return true;
+}
+
+void ConvertingVideoSink::setOptions(const ConvertOptions &options) {
+    rtc::CritScope cs(&lock_);
+    options_ = options;
+}
+
+ConvertOptions ConvertingVideoSink::getOptions() const {
+    rtc::CritScope cs(&lock_);
+    return options_;
+}
+
+size_t ConvertingVideoSink::getRequiredCapacity() const {
+    rtc::CritScope cs(&lock_);
+    ConvertedFrame frame;
+    if (!latest_buffer_ ||
+        !FrameConverter::describe(options_, latest_buffer_->width(), latest_buffer_->height(), latest_rotation_, &frame)) {
+        return 0;
+    }
+    return frame.size_;
+}
+
+int64_t ConvertingVideoSink::convertLatest(unsigned char *data, size_t capacity) {
+    rtc::scoped_refptr<webrtc::VideoFrameBuffer> buffer;
+    int64_t timestamp_us;
+    webrtc::VideoRotation rotation;
+    ConvertOptions options;
+    {
+        rtc::CritScope cs(&lock_);
+        buffer = latest_buffer_;
+        timestamp_us = latest_timestamp_us_;
+        rotation = latest_rotation_;
+        options = options_;
+    }
+    if (!buffer) {
+        return kNoFrame;
+    }
+
+    rtc::CritScope cs(&pull_lock_);
+    ConvertedFrame frame;
+    if (!FrameConverter::describe(options, buffer->width(), buffer->height(), rotation, &frame)) {
+        conversion_failures_++;
+        return kConversionFailed;
+    }
+    if (data == nullptr || capacity < frame.size_) {
+        return kBufferTooSmall;
+    }
+
+    const int64_t started = rtc::TimeNanos();
+    const size_t size = pull_converter_.convert(buffer, rotation, options, data, capacity, &frame);
+    convert_nanos_ += rtc::TimeNanos() - started;
+    if (size == 0) {
+        conversion_failures_++;
+        return kConversionFailed;
+    }
+    frames_converted_++;
+
+    // the caller owns the pixels, so only the geometry is kept
+    frame.timestamp_us_ = timestamp_us;
+    last_converted_ = frame;
+    return timestamp_us;
+}
+
+ConvertedFrame ConvertingVideoSink::getLastConverted() const {
+    rtc::CritScope cs(&pull_lock_);
+    return last_converted_;
+}
+
+uint64_t ConvertingVideoSink::getFramesReceived() const {
+    return frames_received_;
+}
+
+uint64_t ConvertingVideoSink::getFramesConverted() const {
+    return frames_converted_;
+}
+
+uint64_t ConvertingVideoSink::getFramesSkipped() const {
+    return frames_skipped_;
+}
+
+uint64_t ConvertingVideoSink::getConversionFailures() const {
+    return conversion_failures_;
+}
+
+uint64_t ConvertingVideoSink::getConvertNanos() const {
+    return convert_nanos_;
+}
+
+} // namespace convert
+} // namespace media
+} // namespace twilio
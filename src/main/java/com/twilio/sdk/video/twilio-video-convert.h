@@ -0,0 +1,207 @@
+#ifndef _TWILIO_VIDEO_CONVERT_H_
+#define _TWILIO_VIDEO_CONVERT_H_
+
+#include <atomic>
+#include <memory>
+#include <vector>
+
+#include "webrtc/base/criticalsection.h"
+#include "webrtc/api/video/video_frame.h"
+#include "webrtc/api/video/video_frame_buffer.h"
+#include "webrtc/common_video/include/i420_buffer_pool.h"
+#include "webrtc/media/base/videosinkinterface.h"
+
+#include "twilio-video-adapter.h"
+#include "twilio-video-frame.h"
+
+namespace twilio {
+namespace media {
+namespace convert {
+
+// Layout of converted frames, named by byte order in memory. Planes and rows are packed without
+// padding: kI420 is Y, then U, then V; kNV12 is Y, then interleaved UV; chroma planes are
+// (width + 1) / 2 by (height + 1) / 2.
+enum class PixelFormat {
+    kI420,
+    kNV12,
+    // 4 bytes per pixel; an int read in little-endian order is 0xAARRGGBB
+    kBGRA,
+    kRGBA,
+    // 3 bytes per pixel; kBGR24 matches BufferedImage.TYPE_3BYTE_BGR
+    kBGR24,
+    kRGB24
+};
+
+enum class ScaleFilter {
+    kNone,
+    kLinear,
+    kBilinear,
+    kBox
+};
+
+struct ConvertOptions {
+    // output size; 0 for both keeps the size of the cropped and rotated source, and 0 for one of
+    // them derives it from the other, keeping the aspect ratio
+    int width;
+    int height;
+    PixelFormat format;
+    // crop rectangle in pixels of the decoded frame, before rotation; a width or height of 0 means
+    // up to the edge; the origin is rounded down to even coordinates
+    int crop_x;
+    int crop_y;
+    int crop_width;
+    int crop_height;
+    // rotate the pixels upright; otherwise the rotation is only reported with the frame
+    bool apply_rotation;
+    ScaleFilter filter;
+    // at most this many frames per second are converted for the observer; 0 converts every frame
+    int max_frame_rate;
+
+    ConvertOptions():
+        width(0),
+        height(0),
+        format(PixelFormat::kI420),
+        crop_x(0),
+        crop_y(0),
+        crop_width(0),
+        crop_height(0),
+        apply_rotation(true),
+        filter(ScaleFilter::kBilinear),
+        max_frame_rate(0) {
+    }
+};
+
+// bytes needed by a frame of the given format and size
+size_t getFrameSize(PixelFormat format, int width, int height);
+
+class ConvertedFrame {
+public:
+    ConvertedFrame();
+
+    int getWidth() const;
+    int getHeight() const;
+    PixelFormat getFormat() const;
+    // kVideoRotation_0 once the rotation was applied
+    webrtc::VideoRotation getRotation() const;
+    int64_t getTimestampUs() const;
+    int getSourceWidth() const;
+    int getSourceHeight() const;
+    size_t getSize() const;
+    // the pixels, only valid during ConvertedFrameObserver::onFrame()
+    twilio::media::frame::FramePlane getData() const;
+
+#ifndef SWIG
+    int width_;
+    int height_;
+    PixelFormat format_;
+    webrtc::VideoRotation rotation_;
+    int64_t timestamp_us_;
+    int source_width_;
+    int source_height_;
+    const uint8_t *data_;
+    size_t size_;
+#endif
+};
+
+class ConvertedFrameObserver {
+public:
+    virtual ~ConvertedFrameObserver() {}
+
+    virtual void onFrame(const ConvertedFrame &frame) = 0;
+};
+
+// Crops, scales, rotates and converts decoded frames with libyuv. Intermediate I420 frames come
+// from a pool owned by the converter, and the last step writes straight into the destination.
+// Not thread-safe: every thread converting frames needs its own converter.
+class FrameConverter {
+public:
+    FrameConverter();
+
+    // fills in the geometry of the frame that convert() would produce; false if the source is empty
+    static bool describe(const ConvertOptions &options,
+                         int source_width,
+                         int source_height,
+                         webrtc::VideoRotation rotation,
+                         ConvertedFrame *frame);
+
+    // returns the number of bytes written, or 0 if the destination is too small or libyuv failed
+    size_t convert(const rtc::scoped_refptr<webrtc::VideoFrameBuffer> &source,
+                   webrtc::VideoRotation rotation,
+                   const ConvertOptions &options,
+                   uint8_t *destination,
+                   size_t capacity,
+                   ConvertedFrame *frame);
+
+private:
+    webrtc::I420BufferPool pool_;
+};
+
+// A video sink which hands frames to Java already cropped, scaled and converted, so that only
+// the bytes a consumer needs cross JNI. Frames are either pushed to an observer, from a buffer
+// the sink reuses, or converted on demand into a caller's buffer by convertLatest(), e.g. for a
+// thumbnail polled a few times per second; the sink then only keeps a reference to the latest
+// decoded frame, and costs nothing per frame.
+class ConvertingVideoSink: public rtc::VideoSinkInterface<webrtc::VideoFrame> {
+public:
+    static const int64_t kNoFrame = -1;
+    static const int64_t kBufferTooSmall = -2;
+    static const int64_t kConversionFailed = -3;
+
+    // observer may be null to only convert on demand
+    ConvertingVideoSink(std::shared_ptr<ConvertedFrameObserver> observer, const ConvertOptions &options);
+    ~ConvertingVideoSink();
+
+    void OnFrame(const webrtc::VideoFrame &frame) override;
+
+    // takes effect with the next frame
+    void setOptions(const ConvertOptions &options);
+    ConvertOptions getOptions() const;
+
+    // bytes convertLatest() needs for the latest frame with the current options; 0 before the first frame
+    size_t getRequiredCapacity() const;
+    // converts the latest frame into data; returns its timestamp, or one of the constants above
+    int64_t convertLatest(unsigned char *data, size_t capacity);
+    // the geometry of the last frame converted by convertLatest()
+    ConvertedFrame getLastConverted() const;
+
+    uint64_t getFramesReceived() const;
+    uint64_t getFramesConverted() const;
+    // frames not converted for the observer because of max_frame_rate
+    uint64_t getFramesSkipped() const;
+    uint64_t getConversionFailures() const;
+    // total time spent converting, on both paths
+    uint64_t getConvertNanos() const;
+
+private:
+    bool convertForObserver(const webrtc::VideoFrame &frame, const ConvertOptions &options);
+
+    std::weak_ptr<ConvertedFrameObserver> observer_;
+    const bool has_observer_;
+
+    mutable rtc::CriticalSection lock_;
+    ConvertOptions options_;
+    rtc::scoped_refptr<webrtc::VideoFrameBuffer> latest_buffer_;
+    int64_t latest_timestamp_us_;
+    webrtc::VideoRotation latest_rotation_;
+
+    // only touched on the thread delivering frames
+    FrameConverter push_converter_;
+    std::vector<uint8_t> push_buffer_;
+    twilio::media::adapter::FrameRateLimiter limiter_;
+
+    mutable rtc::CriticalSection pull_lock_;
+    FrameConverter pull_converter_;
+    ConvertedFrame last_converted_;
+
+    std::atomic<uint64_t> frames_received_;
+    std::atomic<uint64_t> frames_converted_;
+    std::atomic<uint64_t> frames_skipped_;
+    std::atomic<uint64_t> conversion_failures_;
+    std::atomic<uint64_t> convert_nanos_;
+};
+
+} // namespace convert
+} // namespace media
+} // namespace twilio
+
+#endif /* !_TWILIO_VIDEO_CONVERT_H_ */
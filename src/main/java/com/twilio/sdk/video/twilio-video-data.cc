@@ -0,0 +1,482 @@
+#include "twilio-video-data.h"
+
+#include <algorithm>
+#include <cstring>
+#include <limits>
+
+#include "webrtc/base/bind.h"
+#include "webrtc/base/timeutils.h"
+
+namespace twilio {
+namespace media {
+namespace data {
+
+namespace {
+
+const size_t kHeader = sizeof(uint32_t);
+// a header telling the reader that the rest of the ring is padding
+const uint32_t kWrap = 0xFFFFFFFF;
+
+inline bool inBounds(size_t capacity, size_t offset, size_t length) {
+    return offset <= capacity && length <= capacity - offset;
+}
+
+} // namespace
+
+bool sendDirect(LocalDataTrack *track, const uint8_t *data, size_t capacity, size_t offset, size_t length) {
+    if (!inBounds(capacity, offset, length)) {
+        return false;
+    }
+    return track->send(data + offset, length);
+}
+
+size_t sendGather(LocalDataTrack *track,
+                  const uint8_t *messages, size_t messages_capacity,
+                  const uint8_t *lengths, size_t lengths_capacity,
+                  size_t count) {
+    if (count > lengths_capacity / sizeof(int32_t)) {
+        count = lengths_capacity / sizeof(int32_t);
+    }
+
+    size_t offset = 0;
+    for (size_t i = 0; i < count; i++) {
+        int32_t length;
+        std::memcpy(&length, lengths + i * sizeof(int32_t), sizeof(int32_t));
+        if (length < 0 || !inBounds(messages_capacity, offset, static_cast<size_t>(length))
+                || !track->send(messages + offset, static_cast<size_t>(length))) {
+            return i;
+        }
+        offset += static_cast<size_t>(length);
+    }
+    return count;
+}
+
+DataTrackSender::DataTrackSender(std::shared_ptr<twilio::media::LocalDataTrack> track, size_t capacity_bytes):
+    track_(track),
+    capacity_(std::max(capacity_bytes, kHeader * 2)),
+    ring_(capacity_),
+    write_(0),
+    read_(0),
+    queued_messages_(0),
+    buffered_bytes_(0),
+    drained_(false, false),
+    drain_pending_(false),
+    messages_sent_(0),
+    bytes_sent_(0),
+    messages_rejected_(0),
+    messages_failed_(0) {
+    send_thread_.reset(new rtc::Thread());
+    send_thread_->SetName("DataTrackSender", nullptr);
+    send_thread_->Start();
+    invoker_.reset(new rtc::AsyncInvoker());
+}
+
+DataTrackSender::~DataTrackSender() {
+    send_thread_->Stop();
+    invoker_.reset();
+    send_thread_.reset();
+}
+
+bool DataTrackSender::offer(unsigned char *data, size_t capacity, size_t offset, size_t length) {
+    if (!inBounds(capacity, offset, length)) {
+        return false;
+    }
+
+    bool queued;
+    {
+        rtc::CritScope cs(&lock_);
+        queued = enqueue(data + offset, length);
+    }
+    if (!queued) {
+        messages_rejected_++;
+        return false;
+    }
+
+    if (!drain_pending_.exchange(true)) {
+        invoker_->AsyncInvoke<void>(RTC_FROM_HERE, send_thread_.get(),
+                                    rtc::Bind(&DataTrackSender::drain, this));
+    }
+    return true;
+}
+
+size_t DataTrackSender::offerBatch(unsigned char *messages, size_t messages_capacity,
+                                   unsigned char *lengths, size_t lengths_capacity,
+                                   size_t count) {
+    if (count > lengths_capacity / sizeof(int32_t)) {
+        count = lengths_capacity / sizeof(int32_t);
+    }
+
+    size_t queued = 0;
+    {
+        rtc::CritScope cs(&lock_);
+        size_t offset = 0;
+        for (; queued < count; queued++) {
+            int32_t length;
+            std::memcpy(&length, lengths + queued * sizeof(int32_t), sizeof(int32_t));
+            if (length < 0 || !inBounds(messages_capacity, offset, static_cast<size_t>(length))
+                    || !enqueue(messages + offset, static_cast<size_t>(length))) {
+                break;
+            }
+            offset += static_cast<size_t>(length);
+        }
+    }
+    messages_rejected_ += count - queued;
+
+    if (queued > 0 && !drain_pending_.exchange(true)) {
+        invoker_->AsyncInvoke<void>(RTC_FROM_HERE, send_thread_.get(),
+                                    rtc::Bind(&DataTrackSender::drain, this));
+    }
+    return queued;
+}
+
+bool DataTrackSender::enqueue(const uint8_t *data, size_t length) {
+    if (length > capacity_ - kHeader) {
+        return false;
+    }
+
+    size_t position = static_cast<size_t>(write_ % capacity_);
+    if (read_ == write_ && position != 0) {
+        // nothing is queued or being sent, so an empty ring starts over at 0; otherwise a message
+        // longer than the space left before the end would need more than the whole ring
+        write_ += capacity_ - position;
+        read_ = write_;
+        position = 0;
+    }
+    size_t padding = 0;
+    if (capacity_ - position < kHeader + length) {
+        // messages are stored contiguously, so one which does not fit before the end starts over at 0
+        padding = capacity_ - position;
+    }
+    const uint64_t free = capacity_ - (write_ - read_);
+    if (free < padding + kHeader + length) {
+        return false;
+    }
+
+    if (padding > 0) {
+        if (padding >= kHeader) {
+            std::memcpy(&ring_[position], &kWrap, kHeader);
+        }
+        write_ += padding;
+        position = 0;
+    }
+
+    const uint32_t header = static_cast<uint32_t>(length);
+    std::memcpy(&ring_[position], &header, kHeader);
+    if (length > 0) {
+        std::memcpy(&ring_[position + kHeader], data, length);
+    }
+    write_ += kHeader + length;
+    queued_messages_++;
+    buffered_bytes_ += length;
+    return true;
+}
+
+void DataTrackSender::drain() {
+    drain_pending_ = false;
+
+    for (;;) {
+        const uint8_t *message;
+        uint32_t length;
+        {
+            rtc::CritScope cs(&lock_);
+            if (read_ == write_) {
+                break;
+            }
+            const size_t position = static_cast<size_t>(read_ % capacity_);
+            if (capacity_ - position < kHeader) {
+                read_ += capacity_ - position;
+                continue;
+            }
+            std::memcpy(&length, &ring_[position], kHeader);
+            if (length == kWrap) {
+                read_ += capacity_ - position;
+                continue;
+            }
+            message = &ring_[position + kHeader];
+        }
+
+        // producers only write between write_ and read_ + capacity_, so the message stays put
+        // while it is sent without the lock
+        if (track_->send(message, length)) {
+            messages_sent_++;
+            bytes_sent_ += length;
+        } else {
+            messages_failed_++;
+        }
+
+        {
+            rtc::CritScope cs(&lock_);
+            read_ += kHeader + length;
+            queued_messages_--;
+            buffered_bytes_ -= length;
+        }
+        drained_.Set();
+    }
+}
+
+bool DataTrackSender::waitForBufferedBelow(size_t bytes, int timeout_ms) {
+    const int64_t deadline = rtc::TimeMillis() + timeout_ms;
+    for (;;) {
+        if (getBufferedBytes() <= bytes) {
+            return true;
+        }
+        const int64_t remaining = deadline - rtc::TimeMillis();
+        if (remaining <= 0) {
+            return false;
+        }
+        drained_.Wait(static_cast<int>(remaining));
+    }
+}
+
+size_t DataTrackSender::getCapacityBytes() const {
+    return capacity_;
+}
+
+size_t DataTrackSender::getQueuedMessages() const {
+    rtc::CritScope cs(&lock_);
+    return queued_messages_;
+}
+
+size_t DataTrackSender::getBufferedBytes() const {
+    rtc::CritScope cs(&lock_);
+    return buffered_bytes_;
+}
+
+uint64_t DataTrackSender::getMessagesSent() const {
+    return messages_sent_;
+}
+
+uint64_t DataTrackSender::getBytesSent() const {
+    return bytes_sent_;
+}
+
+uint64_t DataTrackSender::getMessagesRejected() const {
+    return messages_rejected_;
+}
+
+uint64_t DataTrackSender::getMessagesFailed() const {
+    return messages_failed_;
+}
+
+ReceivedDataBatch::ReceivedDataBatch(): dropped_since_last_batch_(0) {
+}
+
+ReceivedDataBatch::~ReceivedDataBatch() {
+}
+
+size_t ReceivedDataBatch::size() const {
+    return index_.size() / kIndexColumns;
+}
+
+uint64_t ReceivedDataBatch::getDroppedSinceLastBatch() const {
+    return dropped_since_last_batch_;
+}
+
+twilio::media::frame::FramePlane ReceivedDataBatch::getData() const {
+    return twilio::media::frame::FramePlane(data_.data(), data_.size());
+}
+
+twilio::media::frame::FramePlane ReceivedDataBatch::getIndex() const {
+    return twilio::media::frame::FramePlane(reinterpret_cast<const uint8_t *>(index_.data()),
+                                            index_.size() * sizeof(int32_t));
+}
+
+std::string ReceivedDataBatch::getTrackSid(int track) const {
+    if (track < 0 || static_cast<size_t>(track) >= track_sids_.size()) {
+        return std::string();
+    }
+    return track_sids_[track];
+}
+
+BatchingDataReceiver::BatchingDataReceiver(std::shared_ptr<ReceivedDataBatchObserver> observer,
+                                           size_t max_bytes,
+                                           size_t max_messages,
+                                           int max_latency_ms):
+    observer_(observer),
+    // offsets and lengths are int32 values in the index
+    max_bytes_(std::min<size_t>(max_bytes > 0 ? max_bytes : 1, std::numeric_limits<int32_t>::max())),
+    max_messages_(max_messages > 0 ? max_messages : 1),
+    max_latency_ms_(std::max(max_latency_ms, 0)),
+    delivery_pending_(false),
+    messages_received_(0),
+    bytes_received_(0),
+    messages_delivered_(0),
+    messages_dropped_(0),
+    batches_delivered_(0) {
+    // both buffers are sized once, so staging a message never allocates
+    staging_.data_.reserve(max_bytes_);
+    staging_.index_.reserve(max_messages_ * ReceivedDataBatch::kIndexColumns);
+    batch_.data_.reserve(max_bytes_);
+    batch_.index_.reserve(max_messages_ * ReceivedDataBatch::kIndexColumns);
+
+    delivery_thread_.reset(new rtc::Thread());
+    delivery_thread_->SetName("BatchingDataReceiver", nullptr);
+    delivery_thread_->Start();
+    invoker_.reset(new rtc::AsyncInvoker());
+}
+
+BatchingDataReceiver::~BatchingDataReceiver() {
+    delivery_thread_->Stop();
+    invoker_.reset();
+    delivery_thread_.reset();
+}
+
+void BatchingDataReceiver::onMessage(twilio::media::RemoteDataTrack *track, const std::string &message) {
+    stage(track, reinterpret_cast<const uint8_t *>(message.data()), message.size(), ReceivedDataBatch::kText);
+}
+
+void BatchingDataReceiver::onMessage(twilio::media::RemoteDataTrack *track, const uint8_t *message, size_t size) {
+    stage(track, message, size, ReceivedDataBatch::kBinary);
+}
+
+void BatchingDataReceiver::stage(twilio::media::RemoteDataTrack *track, const uint8_t *message, size_t size, int kind) {
+    messages_received_++;
+    bytes_received_ += size;
+
+    bool first = false;
+    bool batch_ready = false;
+    {
+        rtc::CritScope cs(&lock_);
+        std::vector<uint8_t> &data = staging_.data_;
+        std::vector<int32_t> &index = staging_.index_;
+        if (size > max_bytes_ - data.size() || index.size() / ReceivedDataBatch::kIndexColumns == max_messages_) {
+            messages_dropped_++;
+            staging_.dropped_since_last_batch_++;
+            return;
+        }
+
+        // tracks are numbered by sid when first seen, reusing the numbers of forgotten tracks
+        const std::string sid = track != nullptr ? track->getSid() : std::string();
+        std::map<std::string, int>::iterator it = tracks_.find(sid);
+        if (it == tracks_.end()) {
+            int number;
+            if (free_tracks_.empty()) {
+                number = static_cast<int>(track_sids_.size());
+                track_sids_.push_back(sid);
+            } else {
+                number = free_tracks_.back();
+                free_tracks_.pop_back();
+                track_sids_[number] = sid;
+            }
+            it = tracks_.insert(std::make_pair(sid, number)).first;
+        }
+
+        first = index.empty();
+        index.push_back(static_cast<int32_t>(data.size()));
+        index.push_back(static_cast<int32_t>(size));
+        index.push_back(it->second);
+        index.push_back(kind);
+        data.insert(data.end(), message, message + size);
+
+        // delivering at half capacity leaves the other half for messages arriving during delivery
+        batch_ready = data.size() >= max_bytes_ / 2
+                || index.size() / ReceivedDataBatch::kIndexColumns >= (max_messages_ + 1) / 2;
+    }
+
+    if (batch_ready) {
+        flush();
+    } else if (first) {
+        // bounds the latency of the message which opened the batch; a stale timer firing on a later
+        // batch only delivers that one early
+        invoker_->AsyncInvokeDelayed<void>(RTC_FROM_HERE, delivery_thread_.get(),
+                                           rtc::Bind(&BatchingDataReceiver::deliver, this),
+                                           max_latency_ms_,
+                                           0);
+    }
+}
+
+void BatchingDataReceiver::flush() {
+    if (!delivery_pending_.exchange(true)) {
+        invoker_->AsyncInvoke<void>(RTC_FROM_HERE, delivery_thread_.get(),
+                                    rtc::Bind(&BatchingDataReceiver::deliver, this));
+    }
+}
+
+void BatchingDataReceiver::forgetTrack(const std::string &sid) {
+    {
+        rtc::CritScope cs(&lock_);
+        std::map<std::string, int>::iterator it = tracks_.find(sid);
+        if (it == tracks_.end()) {
+            return;
+        }
+        forgotten_tracks_.push_back(it->second);
+        tracks_.erase(it);
+    }
+    // the number is freed by the next delivery, which also takes the track's staged messages
+    flush();
+}
+
+uint64_t BatchingDataReceiver::getMessagesReceived() const {
+    return messages_received_;
+}
+
+uint64_t BatchingDataReceiver::getBytesReceived() const {
+    return bytes_received_;
+}
+
+uint64_t BatchingDataReceiver::getMessagesDelivered() const {
+    return messages_delivered_;
+}
+
+uint64_t BatchingDataReceiver::getMessagesDropped() const {
+    return messages_dropped_;
+}
+
+uint64_t BatchingDataReceiver::getBatchesDelivered() const {
+    return batches_delivered_;
+}
+
+size_t BatchingDataReceiver::getStagedMessages() const {
+    rtc::CritScope cs(&lock_);
+    return staging_.index_.size() / ReceivedDataBatch::kIndexColumns;
+}
+
+size_t BatchingDataReceiver::getTracks() const {
+    rtc::CritScope cs(&lock_);
+    return tracks_.size();
+}
+
+void BatchingDataReceiver::deliver() {
+    delivery_pending_ = false;
+
+    // the batch is only touched on the delivery thread; swapping hands it the staged messages and
+    // gives staging the batch's emptied storage without copying either
+    std::vector<int> forgotten;
+    {
+        rtc::CritScope cs(&lock_);
+        std::swap(staging_.data_, batch_.data_);
+        std::swap(staging_.index_, batch_.index_);
+        batch_.dropped_since_last_batch_ = staging_.dropped_since_last_batch_;
+        staging_.dropped_since_last_batch_ = 0;
+        // assigning reuses the batch's storage once the set of tracks is stable
+        batch_.track_sids_ = track_sids_;
+        // every message of these tracks is in the batch now, so later messages cannot be given their numbers
+        std::swap(forgotten, forgotten_tracks_);
+    }
+
+    if (!batch_.index_.empty()) {
+        const size_t count = batch_.size();
+        std::shared_ptr<ReceivedDataBatchObserver> observer = observer_.lock();
+        if (observer) {
+            observer->onMessages(batch_);
+            messages_delivered_ += count;
+            batches_delivered_++;
+        } else {
+            messages_dropped_ += count;
+        }
+        batch_.data_.clear();
+        batch_.index_.clear();
+    }
+
+    if (!forgotten.empty()) {
+        rtc::CritScope cs(&lock_);
+        for (const int number: forgotten) {
+            track_sids_[number].clear();
+            free_tracks_.push_back(number);
+        }
+    }
+}
+
+} // namespace data
+} // namespace media
+} // namespace twilio
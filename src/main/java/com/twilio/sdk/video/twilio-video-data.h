@@ -0,0 +1,189 @@
+#ifndef _TWILIO_VIDEO_DATA_H_
+#define _TWILIO_VIDEO_DATA_H_
+
+#include <atomic>
+#include <map>
+#include <memory>
+#include <string>
+#include <vector>
+
+#include "webrtc/base/thread.h"
+#include "webrtc/base/asyncinvoker.h"
+#include "webrtc/base/criticalsection.h"
+#include "webrtc/base/event.h"
+
+#include "media/track.h"
+#include "media/track_observer.h"
+
+#include "twilio-video-frame.h"
+
+namespace twilio {
+namespace media {
+namespace data {
+
+#ifndef SWIG
+// sends length bytes at offset of a buffer of the given capacity; false if they are out of bounds
+bool sendDirect(LocalDataTrack *track, const uint8_t *data, size_t capacity, size_t offset, size_t length);
+
+// sends count messages laid out back to back in messages, their lengths being native int32 values
+// in lengths; stops at the first message which is out of bounds or fails, returns the number sent
+size_t sendGather(LocalDataTrack *track,
+                  const uint8_t *messages, size_t messages_capacity,
+                  const uint8_t *lengths, size_t lengths_capacity,
+                  size_t count);
+#endif
+
+// Queues messages for a local data track and sends them from its own thread, so that callers never
+// wait for the SDK. Messages are copied into one preallocated ring; offers which do not fit are
+// refused instead of blocking, and the queued bytes are reported for flow control.
+class DataTrackSender {
+public:
+    DataTrackSender(std::shared_ptr<twilio::media::LocalDataTrack> track, size_t capacity_bytes);
+    ~DataTrackSender();
+
+    // false without queueing anything if the message does not fit in the ring
+    bool offer(unsigned char *data, size_t capacity, size_t offset, size_t length);
+    // the gather form of offer(), with the layout of sendGather(); returns the number of messages queued
+    size_t offerBatch(unsigned char *messages, size_t messages_capacity,
+                      unsigned char *lengths, size_t lengths_capacity,
+                      size_t count);
+
+    // waits until at most `bytes` are queued; false on timeout
+    bool waitForBufferedBelow(size_t bytes, int timeout_ms);
+
+    size_t getCapacityBytes() const;
+    size_t getQueuedMessages() const;
+    // payload bytes queued, not counting the ring's framing
+    size_t getBufferedBytes() const;
+
+    uint64_t getMessagesSent() const;
+    uint64_t getBytesSent() const;
+    // refused by offer() because the ring was full
+    uint64_t getMessagesRejected() const;
+    // refused by the track
+    uint64_t getMessagesFailed() const;
+
+private:
+    bool enqueue(const uint8_t *data, size_t length);
+    void drain();
+
+    std::shared_ptr<twilio::media::LocalDataTrack> track_;
+    const size_t capacity_;
+
+    mutable rtc::CriticalSection lock_;
+    std::vector<uint8_t> ring_;
+    uint64_t write_;
+    uint64_t read_;
+    size_t queued_messages_;
+    size_t buffered_bytes_;
+    rtc::Event drained_;
+
+    std::unique_ptr<rtc::Thread> send_thread_;
+    std::unique_ptr<rtc::AsyncInvoker> invoker_;
+    std::atomic<bool> drain_pending_;
+
+    std::atomic<uint64_t> messages_sent_;
+    std::atomic<uint64_t> bytes_sent_;
+    std::atomic<uint64_t> messages_rejected_;
+    std::atomic<uint64_t> messages_failed_;
+};
+
+// Messages received by a BatchingDataReceiver, stored back to back in one buffer. The index holds
+// kIndexColumns native int32 values per message: offset, length, track and kBinary or kText.
+class ReceivedDataBatch {
+public:
+    static const size_t kIndexColumns = 4;
+    static const int kText = 0;
+    static const int kBinary = 1;
+
+    ReceivedDataBatch();
+    ~ReceivedDataBatch();
+
+    size_t size() const;
+    uint64_t getDroppedSinceLastBatch() const;
+    // both only valid during ReceivedDataBatchObserver::onMessages()
+    twilio::media::frame::FramePlane getData() const;
+    twilio::media::frame::FramePlane getIndex() const;
+    // the sid of a track number found in the index; numbers are only stable within one batch
+    std::string getTrackSid(int track) const;
+
+#ifndef SWIG
+    std::vector<uint8_t> data_;
+    std::vector<int32_t> index_;
+    std::vector<std::string> track_sids_;
+    uint64_t dropped_since_last_batch_;
+#endif
+};
+
+class ReceivedDataBatchObserver {
+public:
+    virtual ~ReceivedDataBatchObserver() {}
+
+    virtual void onMessages(const ReceivedDataBatch &batch) = 0;
+};
+
+// Receives the messages of any number of remote data tracks in place of a Java observer: messages
+// are staged natively and handed to Java in batches on the receiver's own thread, so the signaling
+// thread never waits for Java. A batch is delivered once half the staging capacity is used or its
+// oldest message is max_latency_ms old; messages which do not fit in the staging buffer are dropped.
+class BatchingDataReceiver: public twilio::media::RemoteDataTrackObserver {
+public:
+    BatchingDataReceiver(std::shared_ptr<ReceivedDataBatchObserver> observer,
+                         size_t max_bytes,
+                         size_t max_messages,
+                         int max_latency_ms);
+    ~BatchingDataReceiver();
+
+    void onMessage(twilio::media::RemoteDataTrack *track, const std::string &message) override;
+    void onMessage(twilio::media::RemoteDataTrack *track, const uint8_t *message, size_t size) override;
+
+    void flush();
+    // frees the number of a track which no longer delivers messages, once its staged messages were
+    // delivered; a later message of the same sid is numbered afresh
+    void forgetTrack(const std::string &sid);
+
+    uint64_t getMessagesReceived() const;
+    // tracks which currently have a number
+    size_t getTracks() const;
+    uint64_t getBytesReceived() const;
+    uint64_t getMessagesDelivered() const;
+    uint64_t getMessagesDropped() const;
+    uint64_t getBatchesDelivered() const;
+    size_t getStagedMessages() const;
+
+private:
+    void stage(twilio::media::RemoteDataTrack *track, const uint8_t *message, size_t size, int kind);
+    void deliver();
+
+    std::weak_ptr<ReceivedDataBatchObserver> observer_;
+    const size_t max_bytes_;
+    const size_t max_messages_;
+    const int max_latency_ms_;
+
+    mutable rtc::CriticalSection lock_;
+    // staging and delivery alternate between the two, so messages are copied once
+    ReceivedDataBatch staging_;
+    ReceivedDataBatch batch_;
+    std::map<std::string, int> tracks_;
+    // by track number; numbers of forgotten tracks are empty until reused
+    std::vector<std::string> track_sids_;
+    std::vector<int> free_tracks_;
+    // forgotten, but possibly still referenced by staged messages
+    std::vector<int> forgotten_tracks_;
+
+    std::unique_ptr<rtc::Thread> delivery_thread_;
+    std::unique_ptr<rtc::AsyncInvoker> invoker_;
+    std::atomic<bool> delivery_pending_;
+
+    std::atomic<uint64_t> messages_received_;
+    std::atomic<uint64_t> bytes_received_;
+    std::atomic<uint64_t> messages_delivered_;
+    std::atomic<uint64_t> messages_dropped_;
+    std::atomic<uint64_t> batches_delivered_;
+};
+
+} // namespace data
+} // namespace media
+} // namespace twilio
+
+#endif /* !_TWILIO_VIDEO_DATA_H_ */
@@ -0,0 +1,354 @@
+
+#include "twilio-video-frame.h"
+
+#include <algorithm>
+#include <cstring>
+
+#include "webrtc/base/timeutils.h"
+
+namespace twilio {
+namespace media {
+namespace frame {
+
+namespace {
+
+const size_t kBufferAlignment = 64;
+
+void copyPlane(const uint8_t *src, int src_stride, uint8_t *dst, int width, int height) {
+    if (src_stride == width) {
+        memcpy(dst, src, (size_t) width * height);
+        return;
+    }
+    for (int row = 0; row < height; row++) {
+        memcpy(dst, src, width);
+        src += src_stride;
+        dst += width;
+    }
+}
+
+} // namespace
+
+FrameHandle::FrameHandle(std::shared_ptr<FramePool> pool,
+                         const rtc::scoped_refptr<webrtc::VideoFrameBuffer> &buffer,
+                         int64_t timestamp_us):
+    pool_(pool),
+    width_(buffer->width()),
+    height_(buffer->height()),
+    timestamp_us_(timestamp_us),
+    created_ms_(rtc::TimeMillis()),
+    references_(1),
+    buffer_(buffer),
+    buffer_viewed_(false),
+    slot_(kNoSlot),
+    pooled_data_(nullptr) {
+}
+
+FrameHandle::~FrameHandle() {
+    if (references_ > 0) {
+        references_ = 0;
+        releaseResources();
+        pool_->handleReleased(this, true);
+    }
+}
+
+void FrameHandle::retain() {
+    int references = references_.load();
+    while (references > 0 && !references_.compare_exchange_weak(references, references + 1)) {
+    }
+}
+
+void FrameHandle::release() {
+    int references = references_.load();
+    while (references > 0 && !references_.compare_exchange_weak(references, references - 1)) {
+    }
+
+    if (references == 1) {
+        releaseResources();
+        pool_->handleReleased(this, false);
+    }
+}
+
+bool FrameHandle::isReleased() const {
+    return references_ == 0;
+}
+
+int FrameHandle::getReferenceCount() const {
+    return references_;
+}
+
+int FrameHandle::getWidth() const {
+    return width_;
+}
+
+int FrameHandle::getHeight() const {
+    return height_;
+}
+
+int FrameHandle::getChromaWidth() const {
+    return (width_ + 1) / 2;
+}
+
+int FrameHandle::getChromaHeight() const {
+    return (height_ + 1) / 2;
+}
+
+int64_t FrameHandle::getTimestampUs() const {
+    return timestamp_us_;
+}
+
+bool FrameHandle::copyToPool() {
+    rtc::CritScope cs(&lock_);
+    if (pooled_data_ != nullptr) {
+        return true;
+    }
+    if (!buffer_ || buffer_->DataY() == nullptr) {
+        return false;
+    }
+
+    const size_t size_y = (size_t) width_ * height_;
+    const size_t size_uv = (size_t) getChromaWidth() * getChromaHeight();
+    uint8_t *data = pool_->checkout(size_y + 2 * size_uv, &slot_);
+    if (data == nullptr) {
+        return false;
+    }
+
+    copyPlane(buffer_->DataY(), buffer_->StrideY(), data, width_, height_);
+    copyPlane(buffer_->DataU(), buffer_->StrideU(), data + size_y, getChromaWidth(), getChromaHeight());
+    copyPlane(buffer_->DataV(), buffer_->StrideV(), data + size_y + size_uv, getChromaWidth(), getChromaHeight());
+
+    // the decoder buffer can go back to its own pool as soon as the copy is done, unless views
+    // into it were handed out; those must stay valid for as long as the handle is retained
+    pooled_data_ = data;
+    if (!buffer_viewed_) {
+        buffer_ = nullptr;
+    }
+    return true;
+}
+
+bool FrameHandle::isPooled() const {
+    rtc::CritScope cs(&lock_);
+    return pooled_data_ != nullptr;
+}
+
+rtc::scoped_refptr<webrtc::VideoFrameBuffer> FrameHandle::getBuffer() const {
+    rtc::CritScope cs(&lock_);
+    // the reference keeps the buffer alive by itself
+    return pooled_data_ != nullptr ? nullptr : buffer_;
+}
+
+int FrameHandle::getStrideY() const {
+    rtc::CritScope cs(&lock_);
+    if (pooled_data_ != nullptr) {
+        return width_;
+    }
+    return buffer_ ? buffer_->StrideY() : 0;
+}
+
+int FrameHandle::getStrideU() const {
+    rtc::CritScope cs(&lock_);
+    if (pooled_data_ != nullptr) {
+        return getChromaWidth();
+    }
+    return buffer_ ? buffer_->StrideU() : 0;
+}
+
+int FrameHandle::getStrideV() const {
+    rtc::CritScope cs(&lock_);
+    if (pooled_data_ != nullptr) {
+        return getChromaWidth();
+    }
+    return buffer_ ? buffer_->StrideV() : 0;
+}
+
+FramePlane FrameHandle::getPlaneY() const {
+    rtc::CritScope cs(&lock_);
+    if (pooled_data_ != nullptr) {
+        return FramePlane(pooled_data_, (size_t) width_ * height_);
+    }
+    if (!buffer_) {
+        return FramePlane();
+    }
+    buffer_viewed_ = true;
+    return FramePlane(buffer_->DataY(), (size_t) buffer_->StrideY() * height_);
+}
+
+FramePlane FrameHandle::getPlaneU() const {
+    rtc::CritScope cs(&lock_);
+    if (pooled_data_ != nullptr) {
+        return FramePlane(pooled_data_ + (size_t) width_ * height_,
+                          (size_t) getChromaWidth() * getChromaHeight());
+    }
+    if (!buffer_) {
+        return FramePlane();
+    }
+    buffer_viewed_ = true;
+    return FramePlane(buffer_->DataU(), (size_t) buffer_->StrideU() * getChromaHeight());
+}
+
+FramePlane FrameHandle::getPlaneV() const {
+    rtc::CritScope cs(&lock_);
+    if (pooled_data_ != nullptr) {
+        return FramePlane(pooled_data_ + (size_t) width_ * height_ + (size_t) getChromaWidth() * getChromaHeight(),
+                          (size_t) getChromaWidth() * getChromaHeight());
+    }
+    if (!buffer_) {
+        return FramePlane();
+    }
+    buffer_viewed_ = true;
+    return FramePlane(buffer_->DataV(), (size_t) buffer_->StrideV() * getChromaHeight());
+}
+
+FramePlane FrameHandle::getData() const {
+    rtc::CritScope cs(&lock_);
+    if (pooled_data_ == nullptr) {
+        return FramePlane();
+    }
+    return FramePlane(pooled_data_, (size_t) width_ * height_ + 2 * (size_t) getChromaWidth() * getChromaHeight());
+}
+
+void FrameHandle::releaseResources() {
+    rtc::CritScope cs(&lock_);
+    buffer_ = nullptr;
+    if (slot_ != kNoSlot) {
+        pool_->checkin(slot_);
+        slot_ = kNoSlot;
+        pooled_data_ = nullptr;
+    }
+}
+
+FramePool::FramePool(size_t max_buffers):
+    max_buffers_(max_buffers),
+    buffers_in_use_(0),
+    allocated_bytes_(0),
+    handles_created_(0),
+    handles_leaked_(0),
+    pool_misses_(0) {
+    buffers_.reserve(max_buffers_);
+}
+
+FramePool::~FramePool() {
+}
+
+FrameHandle *FramePool::acquire(const rtc::scoped_refptr<webrtc::VideoFrameBuffer> &buffer, int64_t timestamp_us) {
+    if (!buffer) {
+        return nullptr;
+    }
+
+    FrameHandle *handle = new FrameHandle(shared_from_this(), buffer, timestamp_us);
+    {
+        rtc::CritScope cs(&lock_);
+        outstanding_.insert(handle);
+    }
+    handles_created_++;
+    return handle;
+}
+
+size_t FramePool::getCapacity() const {
+    return max_buffers_;
+}
+
+size_t FramePool::getAllocatedBuffers() const {
+    rtc::CritScope cs(&lock_);
+    return buffers_.size();
+}
+
+size_t FramePool::getBuffersInUse() const {
+    rtc::CritScope cs(&lock_);
+    return buffers_in_use_;
+}
+
+size_t FramePool::getAllocatedBytes() const {
+    rtc::CritScope cs(&lock_);
+    return allocated_bytes_;
+}
+
+size_t FramePool::getOutstandingHandles() const {
+    rtc::CritScope cs(&lock_);
+    return outstanding_.size();
+}
+
+int64_t FramePool::getOldestHandleAgeMs() const {
+    const int64_t now = rtc::TimeMillis();
+    int64_t oldest = 0;
+
+    rtc::CritScope cs(&lock_);
+    for (const FrameHandle *handle: outstanding_) {
+        oldest = std::max(oldest, now - handle->created_ms_);
+    }
+    return oldest;
+}
+
+uint64_t FramePool::getHandlesCreated() const {
+    return handles_created_;
+}
+
+uint64_t FramePool::getHandlesLeaked() const {
+    return handles_leaked_;
+}
+
+uint64_t FramePool::getPoolMisses() const {
+    return pool_misses_;
+}
+
+uint8_t *FramePool::checkout(size_t size, size_t *slot) {
+    rtc::CritScope cs(&lock_);
+
+    // prefer a free buffer which is already large enough, then any free buffer, then a new one
+    size_t candidate = buffers_.size();
+    for (size_t i = 0; i < buffers_.size(); i++) {
+        if (buffers_[i].in_use_) {
+            continue;
+        }
+        if (buffers_[i].size_ >= size) {
+            candidate = i;
+            break;
+        }
+        if (candidate == buffers_.size()) {
+            candidate = i;
+        }
+    }
+
+    if (candidate == buffers_.size()) {
+        if (buffers_.size() >= max_buffers_) {
+            pool_misses_++;
+            return nullptr;
+        }
+        buffers_.push_back(PooledBuffer());
+        buffers_.back().size_ = 0;
+        buffers_.back().in_use_ = false;
+    }
+
+    PooledBuffer &pooled = buffers_[candidate];
+    if (pooled.size_ < size) {
+        allocated_bytes_ -= pooled.size_;
+        pooled.data_.reset(static_cast<uint8_t *>(webrtc::AlignedMalloc(size, kBufferAlignment)));
+        pooled.size_ = size;
+        allocated_bytes_ += size;
+    }
+
+    pooled.in_use_ = true;
+    buffers_in_use_++;
+    *slot = candidate;
+    return pooled.data_.get();
+}
+
+void FramePool::checkin(size_t slot) {
+    rtc::CritScope cs(&lock_);
+    if (slot < buffers_.size() && buffers_[slot].in_use_) {
+        buffers_[slot].in_use_ = false;
+        buffers_in_use_--;
+    }
+}
+
+void FramePool::handleReleased(FrameHandle *handle, bool leaked) {
+    if (leaked) {
+        handles_leaked_++;
+    }
+
+    rtc::CritScope cs(&lock_);
+    outstanding_.erase(handle);
+}
+
+} // namespace frame
+} // namespace media
+} // namespace twilio
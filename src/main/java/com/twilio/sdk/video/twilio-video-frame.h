@@ -0,0 +1,135 @@
+#ifndef _TWILIO_VIDEO_FRAME_H_
+#define _TWILIO_VIDEO_FRAME_H_
+
+#include <atomic>
+#include <memory>
+#include <set>
+#include <vector>
+
+#include "webrtc/base/criticalsection.h"
+#include "webrtc/api/video/video_frame_buffer.h"
+#include "webrtc/system_wrappers/include/aligned_malloc.h"
+
+namespace twilio {
+namespace media {
+namespace frame {
+
+struct FramePlane {
+    const uint8_t *data_;
+    size_t size_;
+    FramePlane(): data_(nullptr), size_(0) {
+    }
+    FramePlane(const uint8_t *data, size_t size): data_(data), size_(size) {
+    }
+};
+
+class FramePool;
+
+class FrameHandle {
+public:
+    ~FrameHandle();
+
+    void retain();
+    void release();
+    bool isReleased() const;
+    int getReferenceCount() const;
+
+    int getWidth() const;
+    int getHeight() const;
+    int getChromaWidth() const;
+    int getChromaHeight() const;
+    int64_t getTimestampUs() const;
+
+    // copies the planes into a pooled buffer, after which the planes are read from it; the decoder
+    // buffer is released right away unless planes were already read from it, in which case it is
+    // kept until the handle is released, so that those views stay valid
+    bool copyToPool();
+    bool isPooled() const;
+
+    rtc::scoped_refptr<webrtc::VideoFrameBuffer> getBuffer() const;
+
+    int getStrideY() const;
+    int getStrideU() const;
+    int getStrideV() const;
+
+    FramePlane getPlaneY() const;
+    FramePlane getPlaneU() const;
+    FramePlane getPlaneV() const;
+    FramePlane getData() const;
+
+private:
+    friend class FramePool;
+
+    FrameHandle(std::shared_ptr<FramePool> pool,
+                const rtc::scoped_refptr<webrtc::VideoFrameBuffer> &buffer,
+                int64_t timestamp_us);
+
+    void releaseResources();
+
+    std::shared_ptr<FramePool> pool_;
+    const int width_;
+    const int height_;
+    const int64_t timestamp_us_;
+    const int64_t created_ms_;
+    std::atomic<int> references_;
+
+    // handles are shared by every holder, so copyToPool() must not race with readers of the planes
+    mutable rtc::CriticalSection lock_;
+    rtc::scoped_refptr<webrtc::VideoFrameBuffer> buffer_;
+    // a plane of buffer_ was handed out, so buffer_ must outlive copyToPool()
+    mutable bool buffer_viewed_;
+
+    // valid only after copyToPool(), otherwise planes are read straight from buffer_
+    static const size_t kNoSlot = static_cast<size_t>(-1);
+    size_t slot_;
+    uint8_t *pooled_data_;
+};
+
+class FramePool: public std::enable_shared_from_this<FramePool> {
+public:
+    explicit FramePool(size_t max_buffers);
+    ~FramePool();
+
+    FrameHandle *acquire(const rtc::scoped_refptr<webrtc::VideoFrameBuffer> &buffer, int64_t timestamp_us);
+
+    size_t getCapacity() const;
+    size_t getAllocatedBuffers() const;
+    size_t getBuffersInUse() const;
+    size_t getAllocatedBytes() const;
+    size_t getOutstandingHandles() const;
+    int64_t getOldestHandleAgeMs() const;
+    uint64_t getHandlesCreated() const;
+    uint64_t getHandlesLeaked() const;
+    uint64_t getPoolMisses() const;
+
+private:
+    friend class FrameHandle;
+
+    struct PooledBuffer {
+        std::unique_ptr<uint8_t, webrtc::AlignedFreeDeleter> data_;
+        size_t size_;
+        bool in_use_;
+    };
+
+    uint8_t *checkout(size_t size, size_t *slot);
+    void checkin(size_t slot);
+    void handleReleased(FrameHandle *handle, bool leaked);
+
+    const size_t max_buffers_;
+
+    mutable rtc::CriticalSection lock_;
+    std::vector<PooledBuffer> buffers_;
+    std::set<FrameHandle *> outstanding_;
+    size_t buffers_in_use_;
+    size_t allocated_bytes_;
+
+    std::atomic<uint64_t> handles_created_;
+    std::atomic<uint64_t> handles_leaked_;
+    std::atomic<uint64_t> pool_misses_;
+};
+
+} // namespace frame
+} // namespace media
+} // namespace twilio
+
+#endif /* !_TWILIO_VIDEO_FRAME_H_ */
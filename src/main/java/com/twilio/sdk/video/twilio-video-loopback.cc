@@ -0,0 +1,404 @@
+#include "twilio-video-loopback.h"
+
+#include <cstdio>
+
+#include "webrtc/api/jsep.h"
+
+namespace twilio {
+namespace media {
+namespace loopback {
+
+namespace {
+
+const char kStreamLabel[] = "loopback";
+const char kVideoTrackPrefix[] = "video-";
+
+} // namespace
+
+// One side of the call. Every callback runs on the factory's signaling thread, and so does every
+// relay to the other side, which is what keeps the peers free of locks.
+class LoopbackPeer: public webrtc::PeerConnectionObserver {
+public:
+    LoopbackPeer(LoopbackCall *call, bool caller): call_(call), caller_(caller), remote_description_set_(false) {
+    }
+
+    ~LoopbackPeer() {
+        // the connection calls this observer until it is released
+        pc_ = nullptr;
+    }
+
+    void setPeerConnection(rtc::scoped_refptr<webrtc::PeerConnectionInterface> pc) {
+        pc_ = pc;
+    }
+
+    webrtc::PeerConnectionInterface *getPeerConnection() const {
+        return pc_.get();
+    }
+
+    void createOffer();
+    void onDescriptionCreated(webrtc::SessionDescriptionInterface *description);
+    void onRemoteDescriptionSet(bool answer);
+    void receiveDescription(const std::string &type, const std::string &sdp);
+    void receiveCandidate(const std::string &sdp_mid, int sdp_mline_index, const std::string &sdp);
+
+    // webrtc::PeerConnectionObserver
+    void OnSignalingChange(webrtc::PeerConnectionInterface::SignalingState new_state) override {
+    }
+
+    void OnAddStream(rtc::scoped_refptr<webrtc::MediaStreamInterface> stream) override {
+        if (!caller_) {
+            call_->onRemoteStream(stream);
+        }
+    }
+
+    void OnRemoveStream(rtc::scoped_refptr<webrtc::MediaStreamInterface> stream) override {
+    }
+
+    void OnDataChannel(rtc::scoped_refptr<webrtc::DataChannelInterface> data_channel) override {
+    }
+
+    void OnRenegotiationNeeded() override {
+    }
+
+    void OnIceConnectionChange(webrtc::PeerConnectionInterface::IceConnectionState new_state) override {
+        if (!caller_) {
+            call_->onConnectionChange(new_state);
+        }
+    }
+
+    void OnIceGatheringChange(webrtc::PeerConnectionInterface::IceGatheringState new_state) override {
+    }
+
+    void OnIceCandidate(const webrtc::IceCandidateInterface *candidate) override {
+        std::string sdp;
+        if (!candidate->ToString(&sdp)) {
+            return;
+        }
+        LoopbackPeer *other = call_->getOtherPeer(this);
+        if (other != nullptr) {
+            other->receiveCandidate(candidate->sdp_mid(), candidate->sdp_mline_index(), sdp);
+        }
+    }
+
+private:
+    LoopbackCall *call_;
+    const bool caller_;
+    bool remote_description_set_;
+    // candidates which arrived before the remote description
+    std::vector<std::unique_ptr<webrtc::IceCandidateInterface>> pending_candidates_;
+    rtc::scoped_refptr<webrtc::PeerConnectionInterface> pc_;
+};
+
+namespace {
+
+class CreateDescriptionObserver: public webrtc::CreateSessionDescriptionObserver {
+public:
+    CreateDescriptionObserver(LoopbackPeer *peer, LoopbackCall *call): peer_(peer), call_(call) {
+    }
+
+    void OnSuccess(webrtc::SessionDescriptionInterface *description) override {
+        peer_->onDescriptionCreated(description);
+    }
+
+    void OnFailure(const std::string &error) override {
+        call_->fail("creating a session description failed: " + error);
+    }
+
+private:
+    LoopbackPeer *peer_;
+    LoopbackCall *call_;
+};
+
+class SetDescriptionObserver: public webrtc::SetSessionDescriptionObserver {
+public:
+    // remote descriptions continue the negotiation once applied; local ones need nothing more
+    SetDescriptionObserver(LoopbackPeer *peer, LoopbackCall *call, bool remote, bool answer):
+        peer_(peer),
+        call_(call),
+        remote_(remote),
+        answer_(answer) {
+    }
+
+    void OnSuccess() override {
+        if (remote_) {
+            peer_->onRemoteDescriptionSet(answer_);
+        }
+    }
+
+    void OnFailure(const std::string &error) override {
+        call_->fail(std::string(remote_ ? "setting the remote" : "setting the local") + " description failed: " + error);
+    }
+
+private:
+    LoopbackPeer *peer_;
+    LoopbackCall *call_;
+    const bool remote_;
+    const bool answer_;
+};
+
+} // namespace
+
+void LoopbackPeer::createOffer() {
+    pc_->CreateOffer(new rtc::RefCountedObject<CreateDescriptionObserver>(this, call_),
+                     webrtc::PeerConnectionInterface::RTCOfferAnswerOptions());
+}
+
+void LoopbackPeer::onDescriptionCreated(webrtc::SessionDescriptionInterface *description) {
+    // serialize first: the connection takes ownership of the description
+    std::string sdp;
+    const std::string type = description->type();
+    if (!description->ToString(&sdp)) {
+        delete description;
+        call_->fail("serializing a " + type + " failed");
+        return;
+    }
+
+    pc_->SetLocalDescription(new rtc::RefCountedObject<SetDescriptionObserver>(this, call_, false, false), description);
+
+    LoopbackPeer *other = call_->getOtherPeer(this);
+    if (other != nullptr) {
+        other->receiveDescription(type, sdp);
+    }
+}
+
+void LoopbackPeer::receiveDescription(const std::string &type, const std::string &sdp) {
+    webrtc::SdpParseError error;
+    webrtc::SessionDescriptionInterface *description = webrtc::CreateSessionDescription(type, sdp, &error);
+    if (description == nullptr) {
+        call_->fail("parsing a " + type + " failed: " + error.description);
+        return;
+    }
+
+    const bool answer = type == webrtc::SessionDescriptionInterface::kOffer;
+    pc_->SetRemoteDescription(new rtc::RefCountedObject<SetDescriptionObserver>(this, call_, true, answer), description);
+}
+
+void LoopbackPeer::onRemoteDescriptionSet(bool answer) {
+    remote_description_set_ = true;
+    for (const auto &candidate: pending_candidates_) {
+        pc_->AddIceCandidate(candidate.get());
+    }
+    pending_candidates_.clear();
+
+    if (answer) {
+        pc_->CreateAnswer(new rtc::RefCountedObject<CreateDescriptionObserver>(this, call_),
+                          webrtc::PeerConnectionInterface::RTCOfferAnswerOptions());
+    }
+}
+
+void LoopbackPeer::receiveCandidate(const std::string &sdp_mid, int sdp_mline_index, const std::string &sdp) {
+    webrtc::SdpParseError error;
+    std::unique_ptr<webrtc::IceCandidateInterface> candidate(webrtc::CreateIceCandidate(sdp_mid, sdp_mline_index, sdp, &error));
+    if (!candidate) {
+        // a candidate the other side cannot use only narrows the choice of pairs
+        return;
+    }
+
+    if (!remote_description_set_) {
+        pending_candidates_.push_back(std::move(candidate));
+        return;
+    }
+    pc_->AddIceCandidate(candidate.get());
+}
+
+LoopbackCall::LoopbackCall(twilio::media::threads::MediaThreadGroup *threads,
+                           twilio::media::audio::HeadlessAudioDevice *audio_device):
+    state_(LoopbackState::kNew),
+    settled_(true, false) {
+    factory_ = webrtc::CreatePeerConnectionFactory(threads->getThread(twilio::media::threads::MediaThreadKind::kNetwork),
+                                                   threads->getThread(twilio::media::threads::MediaThreadKind::kWorker),
+                                                   threads->getThread(twilio::media::threads::MediaThreadKind::kSignaling),
+                                                   audio_device->getModule(),
+                                                   nullptr,
+                                                   nullptr);
+    if (!factory_) {
+        fail("creating the peer connection factory failed");
+        return;
+    }
+
+    // the peers reach each other over the loopback interface, which is ignored by default
+    webrtc::PeerConnectionFactoryInterface::Options options;
+    options.network_ignore_mask = 0;
+    factory_->SetOptions(options);
+
+    stream_ = factory_->CreateLocalMediaStream(kStreamLabel);
+}
+
+LoopbackCall::~LoopbackCall() {
+    stop();
+
+    caller_.reset();
+    callee_.reset();
+    {
+        rtc::CritScope cs(&lock_);
+        remote_tracks_.clear();
+    }
+    local_tracks_.clear();
+    stream_ = nullptr;
+    factory_ = nullptr;
+}
+
+int LoopbackCall::addVideoTrack(std::shared_ptr<twilio::media::capture::VideoFrameInjector> injector,
+                                const twilio::media::MediaConstraints *constraints) {
+    return addVideoTrack(twilio::media::capture::VideoCapturerFactory::CreateExternalVideoCapturer(injector), constraints);
+}
+
+int LoopbackCall::addFakeVideoTrack(const twilio::media::capture::FakeVideoCapturerOptions &options,
+                                    const twilio::media::MediaConstraints *constraints) {
+    return addVideoTrack(twilio::media::capture::VideoCapturerFactory::CreateFakeVideoCapturer(options), constraints);
+}
+
+int LoopbackCall::addVideoTrack(cricket::VideoCapturer *capturer, const twilio::media::MediaConstraints *constraints) {
+    if (!factory_ || getState() != LoopbackState::kNew) {
+        delete capturer;
+        return -1;
+    }
+
+    // the source takes ownership of the capturer
+    rtc::scoped_refptr<webrtc::VideoTrackSourceInterface> source = factory_->CreateVideoSource(capturer, constraints);
+    const int index = static_cast<int>(local_tracks_.size());
+    rtc::scoped_refptr<webrtc::VideoTrackInterface> track =
+        factory_->CreateVideoTrack(kVideoTrackPrefix + std::to_string(index), source);
+    if (!track) {
+        return -1;
+    }
+
+    stream_->AddTrack(track);
+    local_tracks_.push_back(track);
+    return index;
+}
+
+bool LoopbackCall::start() {
+    if (!factory_ || getState() != LoopbackState::kNew) {
+        return false;
+    }
+    {
+        rtc::CritScope cs(&lock_);
+        remote_tracks_.resize(local_tracks_.size());
+    }
+
+    webrtc::PeerConnectionInterface::RTCConfiguration configuration;
+    configuration.bundle_policy = webrtc::PeerConnectionInterface::kBundlePolicyMaxBundle;
+    configuration.rtcp_mux_policy = webrtc::PeerConnectionInterface::kRtcpMuxPolicyRequire;
+
+    caller_.reset(new LoopbackPeer(this, true));
+    callee_.reset(new LoopbackPeer(this, false));
+    caller_->setPeerConnection(factory_->CreatePeerConnection(configuration, nullptr, nullptr, caller_.get()));
+    callee_->setPeerConnection(factory_->CreatePeerConnection(configuration, nullptr, nullptr, callee_.get()));
+    if (caller_->getPeerConnection() == nullptr || callee_->getPeerConnection() == nullptr) {
+        fail("creating the peer connections failed");
+        return false;
+    }
+
+    if (!caller_->getPeerConnection()->AddStream(stream_)) {
+        fail("adding the local stream failed");
+        return false;
+    }
+
+    setState(LoopbackState::kNegotiating);
+    caller_->createOffer();
+    return true;
+}
+
+bool LoopbackCall::waitForConnected(int timeout_ms) {
+    settled_.Wait(timeout_ms);
+    return getState() == LoopbackState::kConnected;
+}
+
+void LoopbackCall::stop() {
+    if (caller_ && caller_->getPeerConnection() != nullptr) {
+        caller_->getPeerConnection()->Close();
+    }
+    if (callee_ && callee_->getPeerConnection() != nullptr) {
+        callee_->getPeerConnection()->Close();
+    }
+    setState(LoopbackState::kClosed);
+}
+
+LoopbackState LoopbackCall::getState() const {
+    rtc::CritScope cs(&lock_);
+    return state_;
+}
+
+std::string LoopbackCall::getError() const {
+    rtc::CritScope cs(&lock_);
+    return error_;
+}
+
+int LoopbackCall::getVideoTrackCount() const {
+    return static_cast<int>(local_tracks_.size());
+}
+
+webrtc::VideoTrackInterface *LoopbackCall::getLocalVideoTrack(int index) const {
+    if (index < 0 || static_cast<size_t>(index) >= local_tracks_.size()) {
+        return nullptr;
+    }
+    return local_tracks_[index].get();
+}
+
+webrtc::VideoTrackInterface *LoopbackCall::getRemoteVideoTrack(int index) const {
+    rtc::CritScope cs(&lock_);
+    if (index < 0 || static_cast<size_t>(index) >= remote_tracks_.size()) {
+        return nullptr;
+    }
+    return remote_tracks_[index].get();
+}
+
+void LoopbackCall::onRemoteStream(rtc::scoped_refptr<webrtc::MediaStreamInterface> stream) {
+    rtc::CritScope cs(&lock_);
+    for (const auto &track: stream->GetVideoTracks()) {
+        // the track ids survive the trip through the session descriptions
+        int index;
+        if (std::sscanf(track->id().c_str(), "video-%d", &index) == 1
+                && index >= 0 && static_cast<size_t>(index) < remote_tracks_.size()) {
+            remote_tracks_[index] = track;
+        }
+    }
+}
+
+void LoopbackCall::onConnectionChange(webrtc::PeerConnectionInterface::IceConnectionState state) {
+    switch (state) {
+    case webrtc::PeerConnectionInterface::kIceConnectionConnected:
+    case webrtc::PeerConnectionInterface::kIceConnectionCompleted:
+        setState(LoopbackState::kConnected);
+        break;
+    case webrtc::PeerConnectionInterface::kIceConnectionFailed:
+        fail("ICE failed");
+        break;
+    default:
+        break;
+    }
+}
+
+void LoopbackCall::fail(const std::string &error) {
+    {
+        rtc::CritScope cs(&lock_);
+        if (state_ == LoopbackState::kClosed || state_ == LoopbackState::kFailed) {
+            return;
+        }
+        error_ = error;
+    }
+    setState(LoopbackState::kFailed);
+}
+
+LoopbackPeer *LoopbackCall::getOtherPeer(const LoopbackPeer *peer) const {
+    return peer == caller_.get() ? callee_.get() : caller_.get();
+}
+
+void LoopbackCall::setState(LoopbackState state) {
+    {
+        rtc::CritScope cs(&lock_);
+        // a failed call can only be closed, and keeps its error when it is
+        if (state_ == LoopbackState::kClosed || (state_ == LoopbackState::kFailed && state != LoopbackState::kClosed)) {
+            return;
+        }
+        state_ = state;
+    }
+    if (state != LoopbackState::kNegotiating) {
+        settled_.Set();
+    }
+}
+
+} // namespace loopback
+} // namespace media
+} // namespace twilio
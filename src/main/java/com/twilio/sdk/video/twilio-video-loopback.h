@@ -0,0 +1,97 @@
+#ifndef _TWILIO_VIDEO_LOOPBACK_H_
+#define _TWILIO_VIDEO_LOOPBACK_H_
+
+#include <memory>
+#include <string>
+#include <vector>
+
+#include "webrtc/api/peerconnectioninterface.h"
+#include "webrtc/base/criticalsection.h"
+#include "webrtc/base/event.h"
+
+#include "media/media_constraints.h"
+
+#include "twilio-video-audio.h"
+#include "twilio-video-capture.h"
+#include "twilio-video-threads.h"
+
+namespace twilio {
+namespace media {
+namespace loopback {
+
+enum class LoopbackState {
+    kNew,
+    kNegotiating,
+    kConnected,
+    kFailed,
+    kClosed
+};
+
+class LoopbackPeer;
+
+// Sends video from one peer connection to another inside the process, so that the media path
+// (capture, encode, transport, decode, sinks) can be exercised and measured without a network or
+// a Twilio account. The two peers exchange offer, answer and ICE candidates as strings, the way a
+// signaling server would relay them, and connect over the loopback interface.
+//
+// This is plain WebRTC: there is no Room, and the received tracks are webrtc::VideoTrackInterface,
+// the type returned by RemoteVideoTrack::getWebRtcTrack(), so the same sinks can be attached.
+// Both the thread group and the audio device must outlive the call.
+class LoopbackCall {
+public:
+    LoopbackCall(twilio::media::threads::MediaThreadGroup *threads,
+                 twilio::media::audio::HeadlessAudioDevice *audio_device);
+    ~LoopbackCall();
+
+    // tracks can only be added before start(); returns the index of the track, or -1
+    int addVideoTrack(std::shared_ptr<twilio::media::capture::VideoFrameInjector> injector,
+                      const twilio::media::MediaConstraints *constraints);
+    int addFakeVideoTrack(const twilio::media::capture::FakeVideoCapturerOptions &options,
+                          const twilio::media::MediaConstraints *constraints);
+
+    // starts negotiating; false if the call was already started or the peers could not be created
+    bool start();
+    // false on timeout or failure
+    bool waitForConnected(int timeout_ms);
+    // closes both peer connections, which deleting the call also does
+    void stop();
+
+    LoopbackState getState() const;
+    std::string getError() const;
+
+    int getVideoTrackCount() const;
+    // owned by the call; nullptr for an invalid index
+    webrtc::VideoTrackInterface *getLocalVideoTrack(int index) const;
+    // nullptr until the receiving peer has seen the track
+    webrtc::VideoTrackInterface *getRemoteVideoTrack(int index) const;
+
+#ifndef SWIG
+    void onRemoteStream(rtc::scoped_refptr<webrtc::MediaStreamInterface> stream);
+    void onConnectionChange(webrtc::PeerConnectionInterface::IceConnectionState state);
+    void fail(const std::string &error);
+    LoopbackPeer *getOtherPeer(const LoopbackPeer *peer) const;
+#endif
+
+private:
+    int addVideoTrack(cricket::VideoCapturer *capturer, const twilio::media::MediaConstraints *constraints);
+    void setState(LoopbackState state);
+
+    rtc::scoped_refptr<webrtc::PeerConnectionFactoryInterface> factory_;
+    std::unique_ptr<LoopbackPeer> caller_;
+    std::unique_ptr<LoopbackPeer> callee_;
+    rtc::scoped_refptr<webrtc::MediaStreamInterface> stream_;
+    std::vector<rtc::scoped_refptr<webrtc::VideoTrackInterface>> local_tracks_;
+
+    mutable rtc::CriticalSection lock_;
+    std::vector<rtc::scoped_refptr<webrtc::VideoTrackInterface>> remote_tracks_;
+    LoopbackState state_;
+    std::string error_;
+    // set once the state is kConnected or beyond
+    rtc::Event settled_;
+};
+
+} // namespace loopback
+} // namespace media
+} // namespace twilio
+
+#endif // _TWILIO_VIDEO_LOOPBACK_H_
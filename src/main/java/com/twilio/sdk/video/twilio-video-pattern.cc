@@ -0,0 +1,305 @@
+
+#include "twilio-video-pattern.h"
+
+#include <algorithm>
+#include <cstring>
+
+namespace twilio {
+namespace media {
+namespace capture {
+
+namespace {
+
+const int kGlyphWidth = 5;
+const int kGlyphHeight = 7;
+const int kGlyphAdvance = 6;
+const int kRampSpan = 256;
+const int kNoiseTileSize = 512;
+const int kCounterBits = 32;
+
+const uint8_t kLumaBlack = 16;
+const uint8_t kLumaWhite = 235;
+const uint8_t kLumaBackground = 64;
+const uint8_t kChromaNeutral = 128;
+
+// 5x7 glyphs, one byte per row from the top, bit 4 is the leftmost column
+const uint8_t kDigitGlyphs[10][kGlyphHeight] = {
+    {0x0E, 0x11, 0x13, 0x15, 0x19, 0x11, 0x0E},
+    {0x04, 0x0C, 0x04, 0x04, 0x04, 0x04, 0x0E},
+    {0x0E, 0x11, 0x01, 0x02, 0x04, 0x08, 0x1F},
+    {0x1F, 0x02, 0x04, 0x02, 0x01, 0x11, 0x0E},
+    {0x02, 0x06, 0x0A, 0x12, 0x1F, 0x02, 0x02},
+    {0x1F, 0x10, 0x1E, 0x01, 0x01, 0x11, 0x0E},
+    {0x06, 0x08, 0x10, 0x1E, 0x11, 0x11, 0x0E},
+    {0x1F, 0x01, 0x02, 0x04, 0x08, 0x08, 0x08},
+    {0x0E, 0x11, 0x11, 0x0E, 0x11, 0x11, 0x0E},
+    {0x0E, 0x11, 0x11, 0x0F, 0x01, 0x02, 0x0C}
+};
+
+const uint8_t kLetterGlyphs[26][kGlyphHeight] = {
+    {0x0E, 0x11, 0x11, 0x1F, 0x11, 0x11, 0x11},
+    {0x1E, 0x11, 0x11, 0x1E, 0x11, 0x11, 0x1E},
+    {0x0E, 0x11, 0x10, 0x10, 0x10, 0x11, 0x0E},
+    {0x1C, 0x12, 0x11, 0x11, 0x11, 0x12, 0x1C},
+    {0x1F, 0x10, 0x10, 0x1E, 0x10, 0x10, 0x1F},
+    {0x1F, 0x10, 0x10, 0x1E, 0x10, 0x10, 0x10},
+    {0x0E, 0x11, 0x10, 0x17, 0x11, 0x11, 0x0F},
+    {0x11, 0x11, 0x11, 0x1F, 0x11, 0x11, 0x11},
+    {0x0E, 0x04, 0x04, 0x04, 0x04, 0x04, 0x0E},
+    {0x07, 0x02, 0x02, 0x02, 0x02, 0x12, 0x0C},
+    {0x11, 0x12, 0x14, 0x18, 0x14, 0x12, 0x11},
+    {0x10, 0x10, 0x10, 0x10, 0x10, 0x10, 0x1F},
+    {0x11, 0x1B, 0x15, 0x15, 0x11, 0x11, 0x11},
+    {0x11, 0x11, 0x19, 0x15, 0x13, 0x11, 0x11},
+    {0x0E, 0x11, 0x11, 0x11, 0x11, 0x11, 0x0E},
+    {0x1E, 0x11, 0x11, 0x1E, 0x10, 0x10, 0x10},
+    {0x0E, 0x11, 0x11, 0x11, 0x15, 0x12, 0x0D},
+    {0x1E, 0x11, 0x11, 0x1E, 0x14, 0x12, 0x11},
+    {0x0F, 0x10, 0x10, 0x0E, 0x01, 0x01, 0x1E},
+    {0x1F, 0x04, 0x04, 0x04, 0x04, 0x04, 0x04},
+    {0x11, 0x11, 0x11, 0x11, 0x11, 0x11, 0x0E},
+    {0x11, 0x11, 0x11, 0x11, 0x11, 0x0A, 0x04},
+    {0x11, 0x11, 0x11, 0x15, 0x15, 0x15, 0x0A},
+    {0x11, 0x11, 0x0A, 0x04, 0x0A, 0x11, 0x11},
+    {0x11, 0x11, 0x11, 0x0A, 0x04, 0x04, 0x04},
+    {0x1F, 0x01, 0x02, 0x04, 0x08, 0x10, 0x1F}
+};
+
+const uint8_t kDashGlyph[kGlyphHeight] = {0x00, 0x00, 0x00, 0x1F, 0x00, 0x00, 0x00};
+const uint8_t kColonGlyph[kGlyphHeight] = {0x00, 0x0C, 0x0C, 0x00, 0x0C, 0x0C, 0x00};
+const uint8_t kDotGlyph[kGlyphHeight] = {0x00, 0x00, 0x00, 0x00, 0x00, 0x0C, 0x0C};
+const uint8_t kBlankGlyph[kGlyphHeight] = {0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00};
+
+const uint8_t *glyphFor(char c) {
+    if (c >= '0' && c <= '9') {
+        return kDigitGlyphs[c - '0'];
+    } else if (c >= 'A' && c <= 'Z') {
+        return kLetterGlyphs[c - 'A'];
+    } else if (c >= 'a' && c <= 'z') {
+        return kLetterGlyphs[c - 'a'];
+    } else if (c == '-') {
+        return kDashGlyph;
+    } else if (c == ':') {
+        return kColonGlyph;
+    } else if (c == '.') {
+        return kDotGlyph;
+    }
+    return kBlankGlyph;
+}
+
+void fillBlock(uint8_t *plane, int stride, int plane_width, int plane_height,
+               int x, int y, int width, int height, uint8_t value) {
+    const int x0 = std::max(0, x);
+    const int y0 = std::max(0, y);
+    const int x1 = std::min(plane_width, x + width);
+    const int y1 = std::min(plane_height, y + height);
+    if (x1 <= x0) {
+        return;
+    }
+    for (int row = y0; row < y1; row++) {
+        memset(plane + (size_t) row * stride + x0, value, x1 - x0);
+    }
+}
+
+void drawGlyph(uint8_t *plane, int stride, int plane_width, int plane_height,
+               int x, int y, const uint8_t *glyph, int scale, uint8_t value) {
+    for (int row = 0; row < kGlyphHeight; row++) {
+        for (int col = 0; col < kGlyphWidth; col++) {
+            if (glyph[row] & (0x10 >> col)) {
+                fillBlock(plane, stride, plane_width, plane_height,
+                          x + col * scale, y + row * scale, scale, scale, value);
+            }
+        }
+    }
+}
+
+// copies count bytes of a periodic row starting at offset, wrapping around at src_width
+void copyWrapped(uint8_t *dst, const uint8_t *src, int src_width, int offset, int count) {
+    offset %= src_width;
+    while (count > 0) {
+        const int chunk = std::min(count, src_width - offset);
+        memcpy(dst, src + offset, chunk);
+        dst += chunk;
+        count -= chunk;
+        offset = 0;
+    }
+}
+
+} // namespace
+
+TestPatternGenerator::TestPatternGenerator(FakeVideoPattern pattern, int noise_level, const std::string &text):
+    pattern_(pattern),
+    noise_level_(std::min(100, std::max(0, noise_level))),
+    text_(text.empty() ? std::string("TWILIO VIDEO") : text),
+    width_(0),
+    height_(0),
+    scale_(1),
+    text_strip_width_(0) {
+}
+
+TestPatternGenerator::~TestPatternGenerator() {
+}
+
+bool TestPatternGenerator::isStatic() const {
+    return pattern_ == FakeVideoPattern::kBlack;
+}
+
+void TestPatternGenerator::fill(webrtc::I420Buffer *buffer, int64_t frame_index) {
+    if (buffer->width() != width_ || buffer->height() != height_) {
+        prepare(buffer->width(), buffer->height());
+    }
+
+    switch (pattern_) {
+        case FakeVideoPattern::kGradient:
+            fillGradient(buffer, frame_index);
+            break;
+        case FakeVideoPattern::kNoise:
+            fillNoise(buffer, frame_index);
+            break;
+        case FakeVideoPattern::kScrollingText:
+            fillScrollingText(buffer, frame_index);
+            break;
+        case FakeVideoPattern::kFrameCounter:
+            fillFrameCounter(buffer, frame_index);
+            break;
+        case FakeVideoPattern::kBlack:
+        default:
+            buffer->SetToBlack();
+            break;
+    }
+}
+
+void TestPatternGenerator::prepare(int width, int height) {
+    width_ = width;
+    height_ = height;
+    scale_ = std::max(1, height_ / 90);
+
+    // one period of the ramp plus a full row, so any shifted row is a single memcpy()
+    ramp_.resize(width_ + kRampSpan);
+    for (size_t i = 0; i < ramp_.size(); i++) {
+        ramp_[i] = static_cast<uint8_t>(i & 0xFF);
+    }
+
+    if (pattern_ == FakeVideoPattern::kNoise && noise_tile_.empty()) {
+        noise_tile_.resize(kNoiseTileSize * kNoiseTileSize);
+        uint32_t state = 0x9E3779B9;
+        for (size_t i = 0; i < noise_tile_.size(); i++) {
+            state ^= state << 13;
+            state ^= state >> 17;
+            state ^= state << 5;
+            const int sample = static_cast<int>(state & 0xFF) - 128;
+            noise_tile_[i] = static_cast<uint8_t>(128 + sample * noise_level_ / 100);
+        }
+    }
+
+    if (pattern_ == FakeVideoPattern::kScrollingText) {
+        // the text followed by a few blank cells, rendered once and scrolled by offset afterwards
+        const int strip_height = kGlyphHeight * scale_;
+        text_strip_width_ = static_cast<int>(text_.size() + 3) * kGlyphAdvance * scale_;
+        text_strip_.assign((size_t) text_strip_width_ * strip_height, kLumaBackground);
+        for (size_t i = 0; i < text_.size(); i++) {
+            drawGlyph(text_strip_.data(), text_strip_width_, text_strip_width_, strip_height,
+                      static_cast<int>(i) * kGlyphAdvance * scale_, 0, glyphFor(text_[i]), scale_, kLumaWhite);
+        }
+    }
+}
+
+void TestPatternGenerator::fillGradient(webrtc::I420Buffer *buffer, int64_t frame_index) {
+    const int shift = static_cast<int>((frame_index * 2) & 0xFF);
+    const int chroma_width = (width_ + 1) / 2;
+    const int chroma_height = (height_ + 1) / 2;
+
+    for (int y = 0; y < height_; y++) {
+        memcpy(buffer->MutableDataY() + (size_t) y * buffer->StrideY(), &ramp_[(y + shift) & 0xFF], width_);
+    }
+    for (int y = 0; y < chroma_height; y++) {
+        memcpy(buffer->MutableDataU() + (size_t) y * buffer->StrideU(), &ramp_[(2 * y + shift) & 0xFF], chroma_width);
+        memcpy(buffer->MutableDataV() + (size_t) y * buffer->StrideV(), &ramp_[(3 * y + 2 * shift) & 0xFF], chroma_width);
+    }
+}
+
+void TestPatternGenerator::fillNoise(webrtc::I420Buffer *buffer, int64_t frame_index) {
+    // moving the window over the tile by more than a typical motion search range keeps
+    // consecutive frames from predicting each other
+    const int offset_x = static_cast<int>((frame_index * 61) % kNoiseTileSize);
+    const int offset_y = static_cast<int>((frame_index * 37) % kNoiseTileSize);
+    const int chroma_width = (width_ + 1) / 2;
+    const int chroma_height = (height_ + 1) / 2;
+
+    for (int y = 0; y < height_; y++) {
+        const uint8_t *src = &noise_tile_[(size_t) ((y + offset_y) % kNoiseTileSize) * kNoiseTileSize];
+        copyWrapped(buffer->MutableDataY() + (size_t) y * buffer->StrideY(), src, kNoiseTileSize, offset_x, width_);
+    }
+    for (int y = 0; y < chroma_height; y++) {
+        const uint8_t *src_u = &noise_tile_[(size_t) ((y + offset_y + 101) % kNoiseTileSize) * kNoiseTileSize];
+        const uint8_t *src_v = &noise_tile_[(size_t) ((y + offset_y + 223) % kNoiseTileSize) * kNoiseTileSize];
+        copyWrapped(buffer->MutableDataU() + (size_t) y * buffer->StrideU(), src_u, kNoiseTileSize, offset_x + 173, chroma_width);
+        copyWrapped(buffer->MutableDataV() + (size_t) y * buffer->StrideV(), src_v, kNoiseTileSize, offset_x + 311, chroma_width);
+    }
+}
+
+void TestPatternGenerator::fillScrollingText(webrtc::I420Buffer *buffer, int64_t frame_index) {
+    const int strip_height = kGlyphHeight * scale_;
+    const int band_y = (height_ - strip_height) / 2;
+    const int offset = static_cast<int>((frame_index * 4 * scale_) % text_strip_width_);
+
+    fillBlock(buffer->MutableDataY(), buffer->StrideY(), width_, height_, 0, 0, width_, height_, kLumaBackground);
+    fillBlock(buffer->MutableDataU(), buffer->StrideU(), (width_ + 1) / 2, (height_ + 1) / 2,
+              0, 0, (width_ + 1) / 2, (height_ + 1) / 2, kChromaNeutral);
+    fillBlock(buffer->MutableDataV(), buffer->StrideV(), (width_ + 1) / 2, (height_ + 1) / 2,
+              0, 0, (width_ + 1) / 2, (height_ + 1) / 2, kChromaNeutral);
+
+    for (int row = 0; row < strip_height; row++) {
+        const int y = band_y + row;
+        if (y < 0 || y >= height_) {
+            continue;
+        }
+        copyWrapped(buffer->MutableDataY() + (size_t) y * buffer->StrideY(),
+                    &text_strip_[(size_t) row * text_strip_width_],
+                    text_strip_width_,
+                    offset,
+                    width_);
+    }
+}
+
+void TestPatternGenerator::fillFrameCounter(webrtc::I420Buffer *buffer, int64_t frame_index) {
+    // the moving gradient keeps the encoder busy while the counter makes every frame identifiable
+    fillGradient(buffer, frame_index);
+
+    const std::string digits = std::to_string(frame_index);
+    const int digit_scale = 2 * scale_;
+    const int box_x = 8 * scale_;
+    const int box_y = 8 * scale_;
+    const int box_width = (static_cast<int>(digits.size()) * kGlyphAdvance + 2) * digit_scale;
+    const int box_height = (kGlyphHeight + 2) * digit_scale;
+    const int chroma_width = (width_ + 1) / 2;
+    const int chroma_height = (height_ + 1) / 2;
+
+    fillBlock(buffer->MutableDataY(), buffer->StrideY(), width_, height_, box_x, box_y, box_width, box_height, kLumaBlack);
+    fillBlock(buffer->MutableDataU(), buffer->StrideU(), chroma_width, chroma_height,
+              box_x / 2, box_y / 2, box_width / 2 + 1, box_height / 2 + 1, kChromaNeutral);
+    fillBlock(buffer->MutableDataV(), buffer->StrideV(), chroma_width, chroma_height,
+              box_x / 2, box_y / 2, box_width / 2 + 1, box_height / 2 + 1, kChromaNeutral);
+    for (size_t i = 0; i < digits.size(); i++) {
+        drawGlyph(buffer->MutableDataY(), buffer->StrideY(), width_, height_,
+                  box_x + (1 + static_cast<int>(i) * kGlyphAdvance) * digit_scale, box_y + digit_scale,
+                  glyphFor(digits[i]), digit_scale, kLumaWhite);
+    }
+
+    // the low 32 bits of the frame index as black/white blocks along the bottom edge, which
+    // survive heavy compression and can be decoded on the receiving side
+    const int block = std::max(8, 4 * scale_);
+    const int code_y = height_ - 2 * block;
+    for (int bit = 0; bit < kCounterBits; bit++) {
+        const uint8_t value = ((frame_index >> (kCounterBits - 1 - bit)) & 1) ? kLumaWhite : kLumaBlack;
+        fillBlock(buffer->MutableDataY(), buffer->StrideY(), width_, height_, bit * block, code_y, block, block, value);
+    }
+    fillBlock(buffer->MutableDataU(), buffer->StrideU(), chroma_width, chroma_height,
+              0, code_y / 2, kCounterBits * block / 2, block / 2 + 1, kChromaNeutral);
+    fillBlock(buffer->MutableDataV(), buffer->StrideV(), chroma_width, chroma_height,
+              0, code_y / 2, kCounterBits * block / 2, block / 2 + 1, kChromaNeutral);
+}
+
+} // namespace capture
+} // namespace media
+} // namespace twilio
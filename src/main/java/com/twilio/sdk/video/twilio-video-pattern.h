@@ -0,0 +1,59 @@
+#ifndef _TWILIO_VIDEO_PATTERN_H_
+#define _TWILIO_VIDEO_PATTERN_H_
+
+#include <string>
+#include <vector>
+
+#include "webrtc/api/video/i420_buffer.h"
+
+namespace twilio {
+namespace media {
+namespace capture {
+
+enum class FakeVideoPattern {
+    kBlack,
+    kGradient,
+    kNoise,
+    kScrollingText,
+    kFrameCounter
+};
+
+// Fills frames with synthetic content. Everything that depends only on the frame size is
+// computed once into tiles, so producing a frame is mostly row-sized memcpy()/memset() calls.
+class TestPatternGenerator {
+public:
+    TestPatternGenerator(FakeVideoPattern pattern, int noise_level, const std::string &text);
+    ~TestPatternGenerator();
+
+    // true when every frame is identical, so a buffer only has to be filled once
+    bool isStatic() const;
+
+    void fill(webrtc::I420Buffer *buffer, int64_t frame_index);
+
+private:
+    void prepare(int width, int height);
+
+    void fillGradient(webrtc::I420Buffer *buffer, int64_t frame_index);
+    void fillNoise(webrtc::I420Buffer *buffer, int64_t frame_index);
+    void fillScrollingText(webrtc::I420Buffer *buffer, int64_t frame_index);
+    void fillFrameCounter(webrtc::I420Buffer *buffer, int64_t frame_index);
+
+    const FakeVideoPattern pattern_;
+    const int noise_level_;
+    const std::string text_;
+
+    int width_;
+    int height_;
+    int scale_;
+
+    std::vector<uint8_t> ramp_;
+    std::vector<uint8_t> noise_tile_;
+    std::vector<uint8_t> text_strip_;
+    int text_strip_width_;
+};
+
+} // namespace capture
+} // namespace media
+} // namespace twilio
+
+#endif /* !_TWILIO_VIDEO_PATTERN_H_ */
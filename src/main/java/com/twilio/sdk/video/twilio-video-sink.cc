@@ -0,0 +1,508 @@
+
+#include "twilio-video-sink.h"
+
+#include <cstring>
+
+#include "webrtc/base/bind.h"
+#include "webrtc/base/timeutils.h"
+
+namespace twilio {
+namespace media {
+namespace sink {
+
+VideoFrameBatch::VideoFrameBatch(): dropped_since_last_batch_(0) {
+}
+
+VideoFrameBatch::~VideoFrameBatch() {
+}
+
+size_t VideoFrameBatch::size() const {
+    return frames_.size();
+}
+
+rtc::scoped_refptr<webrtc::VideoFrameBuffer> VideoFrameBatch::getBuffer(size_t index) const {
+    if (index >= frames_.size()) {
+        return nullptr;
+    }
+    return frames_[index].buffer_;
+}
+
+int64_t VideoFrameBatch::getTimestampUs(size_t index) const {
+    if (index >= frames_.size()) {
+        return 0;
+    }
+    return frames_[index].timestamp_us_;
+}
+
+webrtc::VideoRotation VideoFrameBatch::getRotation(size_t index) const {
+    if (index >= frames_.size()) {
+        return webrtc::kVideoRotation_0;
+    }
+    return frames_[index].rotation_;
+}
+
+uint64_t VideoFrameBatch::getDroppedSinceLastBatch() const {
+    return dropped_since_last_batch_;
+}
+
+BatchingVideoSink::BatchingVideoSink(std::shared_ptr<VideoFrameBatchObserver> observer,
+                                     size_t capacity,
+                                     size_t batch_size,
+                                     int batch_interval_ms,
+                                     BackpressurePolicy policy):
+    observer_(observer),
+    capacity_(capacity > 0 ? capacity : 1),
+    batch_size_(batch_size > 0 ? std::min(batch_size, capacity_) : capacity_),
+    batch_interval_ms_(batch_interval_ms),
+    policy_(policy),
+    ring_(capacity_),
+    head_(0),
+    count_(0),
+    dropped_since_last_batch_(0),
+    delivery_pending_(false),
+    frames_received_(0),
+    frames_delivered_(0),
+    frames_dropped_(0),
+    batches_delivered_(0) {
+    delivery_thread_.reset(new rtc::Thread());
+    delivery_thread_->SetName("BatchingVideoSink", nullptr);
+    delivery_thread_->Start();
+    invoker_.reset(new rtc::AsyncInvoker());
+
+    if (batch_interval_ms_ > 0) {
+        invoker_->AsyncInvokeDelayed<void>(RTC_FROM_HERE, delivery_thread_.get(),
+                                           rtc::Bind(&BatchingVideoSink::deliverPeriodic, this),
+                                           batch_interval_ms_,
+                                           0);
+    }
+}
+
+BatchingVideoSink::~BatchingVideoSink() {
+    delivery_thread_->Stop();
+    invoker_.reset();
+    delivery_thread_.reset();
+}
+
+void BatchingVideoSink::OnFrame(const webrtc::VideoFrame &frame) {
+    frames_received_++;
+
+    bool batch_ready = false;
+    {
+        rtc::CritScope cs(&lock_);
+        if (count_ == capacity_) {
+            frames_dropped_++;
+            dropped_since_last_batch_++;
+            if (policy_ == BackpressurePolicy::kDropNewest) {
+                return;
+            }
+            // drop the oldest frame by advancing the head over it
+            head_ = (head_ + 1) % capacity_;
+            count_--;
+        }
+
+        QueuedFrame &slot = ring_[(head_ + count_) % capacity_];
+        slot.buffer_ = frame.video_frame_buffer();
+        slot.timestamp_us_ = frame.timestamp_us();
+        slot.rotation_ = frame.rotation();
+        count_++;
+
+        batch_ready = count_ >= batch_size_;
+    }
+
+    if (batch_ready && !delivery_pending_.exchange(true)) {
+        invoker_->AsyncInvoke<void>(RTC_FROM_HERE, delivery_thread_.get(),
+                                    rtc::Bind(&BatchingVideoSink::deliver, this));
+    }
+}
+
+void BatchingVideoSink::flush() {
+    if (!delivery_pending_.exchange(true)) {
+        invoker_->AsyncInvoke<void>(RTC_FROM_HERE, delivery_thread_.get(),
+                                    rtc::Bind(&BatchingVideoSink::deliver, this));
+    }
+}
+
+uint64_t BatchingVideoSink::getFramesReceived() const {
+    return frames_received_;
+}
+
+uint64_t BatchingVideoSink::getFramesDelivered() const {
+    return frames_delivered_;
+}
+
+uint64_t BatchingVideoSink::getFramesDropped() const {
+    return frames_dropped_;
+}
+
+uint64_t BatchingVideoSink::getBatchesDelivered() const {
+    return batches_delivered_;
+}
+
+size_t BatchingVideoSink::getQueuedFrames() const {
+    rtc::CritScope cs(&lock_);
+    return count_;
+}
+
+void BatchingVideoSink::deliver() {
+    delivery_pending_ = false;
+
+    // the batch is only touched on the delivery thread, so its storage is reused between batches
+    batch_.frames_.clear();
+    {
+        rtc::CritScope cs(&lock_);
+        for (size_t i = 0; i < count_; i++) {
+            QueuedFrame &slot = ring_[(head_ + i) % capacity_];
+            batch_.frames_.push_back(slot);
+            slot.buffer_ = nullptr;
+        }
+        head_ = 0;
+        count_ = 0;
+        batch_.dropped_since_last_batch_ = dropped_since_last_batch_;
+        dropped_since_last_batch_ = 0;
+    }
+
+    if (batch_.frames_.empty()) {
+        return;
+    }
+
+    std::shared_ptr<VideoFrameBatchObserver> observer = observer_.lock();
+    if (observer) {
+        observer->onFrames(batch_);
+        frames_delivered_ += batch_.frames_.size();
+        batches_delivered_++;
+    } else {
+        frames_dropped_ += batch_.frames_.size();
+    }
+    batch_.frames_.clear();
+}
+
+void BatchingVideoSink::deliverPeriodic() {
+    if (delivery_thread_->IsQuitting()) {
+        return;
+    }
+
+    deliver();
+
+    invoker_->AsyncInvokeDelayed<void>(RTC_FROM_HERE, delivery_thread_.get(),
+                                       rtc::Bind(&BatchingVideoSink::deliverPeriodic, this),
+                                       batch_interval_ms_,
+                                       0);
+}
+
+AudioBatch::AudioBatch():
+    sample_rate_(0),
+    channels_(0),
+    chunks_(0),
+    timestamp_us_(0),
+    dropped_since_last_batch_(0) {
+}
+
+AudioBatch::~AudioBatch() {
+}
+
+int AudioBatch::getSampleRate() const {
+    return sample_rate_;
+}
+
+size_t AudioBatch::getChannels() const {
+    return channels_;
+}
+
+size_t AudioBatch::getFrames() const {
+    return channels_ > 0 ? samples_.size() / channels_ : 0;
+}
+
+size_t AudioBatch::getChunks() const {
+    return chunks_;
+}
+
+int64_t AudioBatch::getTimestampUs() const {
+    return timestamp_us_;
+}
+
+uint64_t AudioBatch::getDroppedSinceLastBatch() const {
+    return dropped_since_last_batch_;
+}
+
+twilio::media::frame::FramePlane AudioBatch::getData() const {
+    return twilio::media::frame::FramePlane(reinterpret_cast<const uint8_t *>(samples_.data()),
+                                            samples_.size() * sizeof(int16_t));
+}
+
+BatchingAudioSink::BatchingAudioSink(std::shared_ptr<AudioBatchObserver> observer,
+                                     int batch_ms,
+                                     int max_queued_ms,
+                                     int output_sample_rate,
+                                     size_t output_channels,
+                                     BackpressurePolicy policy):
+    observer_(observer),
+    batch_chunks_(static_cast<size_t>(std::max(batch_ms / 10, 1))),
+    capacity_(std::max(static_cast<size_t>(std::max(max_queued_ms / 10, 1)), batch_chunks_)),
+    batch_interval_ms_(static_cast<int>(batch_chunks_) * 10),
+    output_sample_rate_(std::max(output_sample_rate, 0)),
+    output_channels_(std::min(output_channels, static_cast<size_t>(1))),
+    policy_(policy),
+    input_sample_rate_(0),
+    input_channels_(0),
+    input_frames_(0),
+    sample_rate_(0),
+    channels_(0),
+    chunk_samples_(0),
+    timestamps_(capacity_, 0),
+    head_(0),
+    count_(0),
+    dropped_since_last_batch_(0),
+    delivery_pending_(false),
+    chunks_received_(0),
+    chunks_delivered_(0),
+    chunks_dropped_(0),
+    batches_delivered_(0) {
+    delivery_thread_.reset(new rtc::Thread());
+    delivery_thread_->SetName("BatchingAudioSink", nullptr);
+    delivery_thread_->Start();
+    invoker_.reset(new rtc::AsyncInvoker());
+
+    // a batch is normally complete after batch_ms of audio; the timer only flushes chunks left behind
+    // when a track stalls
+    invoker_->AsyncInvokeDelayed<void>(RTC_FROM_HERE, delivery_thread_.get(),
+                                       rtc::Bind(&BatchingAudioSink::deliverPeriodic, this),
+                                       batch_interval_ms_,
+                                       0);
+}
+
+BatchingAudioSink::~BatchingAudioSink() {
+    delivery_thread_->Stop();
+    invoker_.reset();
+    delivery_thread_.reset();
+}
+
+void BatchingAudioSink::OnData(const void *audio_data,
+                               int bits_per_sample,
+                               int sample_rate,
+                               size_t number_of_channels,
+                               size_t number_of_frames) {
+    if (bits_per_sample != 16 || sample_rate <= 0 || number_of_channels == 0 || number_of_frames == 0) {
+        return;
+    }
+    chunks_received_++;
+
+    if (sample_rate != input_sample_rate_ || number_of_channels != input_channels_ || number_of_frames != input_frames_) {
+        configure(sample_rate, number_of_channels, number_of_frames);
+    }
+
+    const int16_t *samples = static_cast<const int16_t *>(audio_data);
+    size_t channels = number_of_channels;
+    if (output_channels_ == 1 && channels > 1) {
+        for (size_t i = 0; i < number_of_frames; i++) {
+            int32_t sum = 0;
+            for (size_t c = 0; c < channels; c++) {
+                sum += samples[i * channels + c];
+            }
+            mixed_[i] = static_cast<int16_t>(sum / static_cast<int32_t>(channels));
+        }
+        samples = mixed_.data();
+        channels = 1;
+    }
+
+    size_t length = number_of_frames * channels;
+    if (output_sample_rate_ > 0 && output_sample_rate_ != sample_rate) {
+        const int written = resampler_.Resample(samples, length, converted_.data(), converted_.size());
+        if (written < 0) {
+            // the resampler only takes whole 10 ms chunks
+            dropChunk();
+            return;
+        }
+        samples = converted_.data();
+        length = static_cast<size_t>(written);
+    }
+
+    bool batch_ready = false;
+    {
+        rtc::CritScope cs(&lock_);
+        if (length != chunk_samples_) {
+            // a chunk of any other size would be truncated or padded with stale samples in the ring
+            chunks_dropped_++;
+            dropped_since_last_batch_++;
+            return;
+        }
+        if (count_ == capacity_) {
+            chunks_dropped_++;
+            dropped_since_last_batch_++;
+            if (policy_ == BackpressurePolicy::kDropNewest) {
+                return;
+            }
+            head_ = (head_ + 1) % capacity_;
+            count_--;
+        }
+
+        const size_t slot = (head_ + count_) % capacity_;
+        std::memcpy(&ring_[slot * chunk_samples_], samples, chunk_samples_ * sizeof(int16_t));
+        timestamps_[slot] = rtc::TimeMicros();
+        count_++;
+
+        batch_ready = count_ >= batch_chunks_;
+    }
+
+    if (batch_ready && !delivery_pending_.exchange(true)) {
+        invoker_->AsyncInvoke<void>(RTC_FROM_HERE, delivery_thread_.get(),
+                                    rtc::Bind(&BatchingAudioSink::deliver, this));
+    }
+}
+
+void BatchingAudioSink::configure(int sample_rate, size_t channels, size_t frames) {
+    input_sample_rate_ = sample_rate;
+    input_channels_ = channels;
+    input_frames_ = frames;
+
+    const int output_rate = output_sample_rate_ > 0 ? output_sample_rate_ : sample_rate;
+    const size_t output_channels = output_channels_ > 0 ? output_channels_ : channels;
+    const size_t output_frames = static_cast<size_t>(static_cast<int64_t>(frames) * output_rate / sample_rate);
+
+    mixed_.assign(frames, 0);
+    converted_.assign(output_frames * output_channels, 0);
+    if (output_rate != sample_rate) {
+        resampler_.InitializeIfNeeded(sample_rate, output_rate, output_channels);
+    }
+
+    bool retired = false;
+    {
+        rtc::CritScope cs(&lock_);
+        if (output_rate == sample_rate_ && output_channels == channels_ && output_frames * output_channels == chunk_samples_) {
+            return;
+        }
+        // chunks of the previous format cannot share a batch with the new ones, so they are moved
+        // out of the ring into a batch of their own; format changes are rare enough to copy them
+        if (count_ > 0) {
+            retired_.push_back(AudioBatch());
+            AudioBatch &batch = retired_.back();
+            for (size_t i = 0; i < count_; i++) {
+                const int16_t *chunk = &ring_[((head_ + i) % capacity_) * chunk_samples_];
+                batch.samples_.insert(batch.samples_.end(), chunk, chunk + chunk_samples_);
+            }
+            batch.sample_rate_ = sample_rate_;
+            batch.channels_ = channels_;
+            batch.chunks_ = count_;
+            batch.timestamp_us_ = timestamps_[head_];
+            batch.dropped_since_last_batch_ = dropped_since_last_batch_;
+            dropped_since_last_batch_ = 0;
+            retired = true;
+        }
+        head_ = 0;
+        count_ = 0;
+
+        sample_rate_ = output_rate;
+        channels_ = output_channels;
+        chunk_samples_ = output_frames * output_channels;
+        ring_.assign(capacity_ * chunk_samples_, 0);
+    }
+
+    if (retired) {
+        flush();
+    }
+}
+
+void BatchingAudioSink::dropChunk() {
+    rtc::CritScope cs(&lock_);
+    chunks_dropped_++;
+    dropped_since_last_batch_++;
+}
+
+void BatchingAudioSink::flush() {
+    if (!delivery_pending_.exchange(true)) {
+        invoker_->AsyncInvoke<void>(RTC_FROM_HERE, delivery_thread_.get(),
+                                    rtc::Bind(&BatchingAudioSink::deliver, this));
+    }
+}
+
+uint64_t BatchingAudioSink::getChunksReceived() const {
+    return chunks_received_;
+}
+
+uint64_t BatchingAudioSink::getChunksDelivered() const {
+    return chunks_delivered_;
+}
+
+uint64_t BatchingAudioSink::getChunksDropped() const {
+    return chunks_dropped_;
+}
+
+uint64_t BatchingAudioSink::getBatchesDelivered() const {
+    return batches_delivered_;
+}
+
+size_t BatchingAudioSink::getQueuedChunks() const {
+    rtc::CritScope cs(&lock_);
+    return count_;
+}
+
+void BatchingAudioSink::deliver() {
+    delivery_pending_ = false;
+
+    // the batch is only touched on the delivery thread, so its storage is reused between batches
+    batch_.samples_.clear();
+    {
+        rtc::CritScope cs(&lock_);
+        std::swap(retired_, retired_delivering_);
+        for (size_t i = 0; i < count_; i++) {
+            const int16_t *chunk = &ring_[((head_ + i) % capacity_) * chunk_samples_];
+            batch_.samples_.insert(batch_.samples_.end(), chunk, chunk + chunk_samples_);
+        }
+        batch_.sample_rate_ = sample_rate_;
+        batch_.channels_ = channels_;
+        batch_.chunks_ = count_;
+        batch_.timestamp_us_ = count_ > 0 ? timestamps_[head_] : 0;
+        batch_.dropped_since_last_batch_ = dropped_since_last_batch_;
+        dropped_since_last_batch_ = 0;
+        head_ = 0;
+        count_ = 0;
+    }
+
+    if (batch_.chunks_ == 0 && retired_delivering_.empty()) {
+        return;
+    }
+
+    std::shared_ptr<AudioBatchObserver> observer = observer_.lock();
+    // chunks of earlier formats are older than any in the ring
+    for (AudioBatch &retired: retired_delivering_) {
+        deliverBatch(&retired, observer);
+    }
+    retired_delivering_.clear();
+    if (batch_.chunks_ > 0) {
+        deliverBatch(&batch_, observer);
+    }
+    batch_.samples_.clear();
+}
+
+void BatchingAudioSink::deliverBatch(AudioBatch *batch, const std::shared_ptr<AudioBatchObserver> &observer) {
+    if (observer) {
+        observer->onAudio(*batch);
+        chunks_delivered_ += batch->chunks_;
+        batches_delivered_++;
+    } else {
+        chunks_dropped_ += batch->chunks_;
+    }
+}
+
+void BatchingAudioSink::deliverPeriodic() {
+    if (delivery_thread_->IsQuitting()) {
+        return;
+    }
+
+    bool stalled = false;
+    {
+        rtc::CritScope cs(&lock_);
+        stalled = count_ > 0 && rtc::TimeMicros() - timestamps_[head_] >= 1000 * static_cast<int64_t>(batch_interval_ms_);
+    }
+    if (stalled) {
+        deliver();
+    }
+
+    invoker_->AsyncInvokeDelayed<void>(RTC_FROM_HERE, delivery_thread_.get(),
+                                       rtc::Bind(&BatchingAudioSink::deliverPeriodic, this),
+                                       batch_interval_ms_,
+                                       0);
+}
+
+} // namespace sink
+} // namespace media
+} // namespace twilio
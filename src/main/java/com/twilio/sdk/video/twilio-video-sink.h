@@ -0,0 +1,223 @@
+#ifndef _TWILIO_VIDEO_SINK_H_
+#define _TWILIO_VIDEO_SINK_H_
+
+#include <algorithm>
+#include <atomic>
+#include <memory>
+#include <vector>
+
+#include "webrtc/base/thread.h"
+#include "webrtc/base/asyncinvoker.h"
+#include "webrtc/base/criticalsection.h"
+#include "webrtc/api/video/video_frame.h"
+#include "webrtc/api/mediastreaminterface.h"
+#include "webrtc/media/base/videosinkinterface.h"
+#include "webrtc/common_audio/resampler/include/push_resampler.h"
+
+#include "twilio-video-frame.h"
+
+namespace twilio {
+namespace media {
+namespace sink {
+
+enum class BackpressurePolicy {
+    kDropOldest,
+    kDropNewest
+};
+
+struct QueuedFrame {
+    rtc::scoped_refptr<webrtc::VideoFrameBuffer> buffer_;
+    int64_t timestamp_us_;
+    webrtc::VideoRotation rotation_;
+
+    QueuedFrame(): timestamp_us_(0), rotation_(webrtc::kVideoRotation_0) {
+    }
+};
+
+class VideoFrameBatch {
+public:
+    VideoFrameBatch();
+    ~VideoFrameBatch();
+
+    size_t size() const;
+
+    rtc::scoped_refptr<webrtc::VideoFrameBuffer> getBuffer(size_t index) const;
+    int64_t getTimestampUs(size_t index) const;
+    webrtc::VideoRotation getRotation(size_t index) const;
+    uint64_t getDroppedSinceLastBatch() const;
+
+#ifndef SWIG
+    std::vector<QueuedFrame> frames_;
+    uint64_t dropped_since_last_batch_;
+#endif
+};
+
+class VideoFrameBatchObserver {
+public:
+    virtual ~VideoFrameBatchObserver() {}
+
+    virtual void onFrames(const VideoFrameBatch &batch) = 0;
+};
+
+class BatchingVideoSink: public rtc::VideoSinkInterface<webrtc::VideoFrame> {
+public:
+    BatchingVideoSink(std::shared_ptr<VideoFrameBatchObserver> observer,
+                      size_t capacity,
+                      size_t batch_size,
+                      int batch_interval_ms,
+                      BackpressurePolicy policy);
+    ~BatchingVideoSink();
+
+    void OnFrame(const webrtc::VideoFrame &frame) override;
+
+    void flush();
+
+    uint64_t getFramesReceived() const;
+    uint64_t getFramesDelivered() const;
+    uint64_t getFramesDropped() const;
+    uint64_t getBatchesDelivered() const;
+    size_t getQueuedFrames() const;
+
+private:
+    void deliver();
+    void deliverPeriodic();
+
+    std::weak_ptr<VideoFrameBatchObserver> observer_;
+    const size_t capacity_;
+    const size_t batch_size_;
+    const int batch_interval_ms_;
+    const BackpressurePolicy policy_;
+
+    mutable rtc::CriticalSection lock_;
+    std::vector<QueuedFrame> ring_;
+    size_t head_;
+    size_t count_;
+    uint64_t dropped_since_last_batch_;
+    VideoFrameBatch batch_;
+
+    std::unique_ptr<rtc::Thread> delivery_thread_;
+    std::unique_ptr<rtc::AsyncInvoker> invoker_;
+    std::atomic<bool> delivery_pending_;
+
+    std::atomic<uint64_t> frames_received_;
+    std::atomic<uint64_t> frames_delivered_;
+    std::atomic<uint64_t> frames_dropped_;
+    std::atomic<uint64_t> batches_delivered_;
+};
+
+// Interleaved 16-bit PCM of one remote audio track, made of consecutive 10 ms chunks.
+class AudioBatch {
+public:
+    AudioBatch();
+    ~AudioBatch();
+
+    int getSampleRate() const;
+    size_t getChannels() const;
+    // samples per channel
+    size_t getFrames() const;
+    size_t getChunks() const;
+    // rtc::TimeMicros() when the first chunk of the batch was received
+    int64_t getTimestampUs() const;
+    uint64_t getDroppedSinceLastBatch() const;
+    // the PCM, only valid during AudioBatchObserver::onAudio()
+    twilio::media::frame::FramePlane getData() const;
+
+#ifndef SWIG
+    std::vector<int16_t> samples_;
+    int sample_rate_;
+    size_t channels_;
+    size_t chunks_;
+    int64_t timestamp_us_;
+    uint64_t dropped_since_last_batch_;
+#endif
+};
+
+class AudioBatchObserver {
+public:
+    virtual ~AudioBatchObserver() {}
+
+    virtual void onAudio(const AudioBatch &batch) = 0;
+};
+
+// Collects the decoded 10 ms chunks of a remote audio track and hands them to Java in batches
+// on its own thread, optionally downmixed to mono and resampled natively first.
+class BatchingAudioSink: public webrtc::AudioTrackSinkInterface {
+public:
+    // output_sample_rate and output_channels of 0 keep the format of the track;
+    // output_channels may only be 0 or 1
+    BatchingAudioSink(std::shared_ptr<AudioBatchObserver> observer,
+                      int batch_ms,
+                      int max_queued_ms,
+                      int output_sample_rate,
+                      size_t output_channels,
+                      BackpressurePolicy policy);
+    ~BatchingAudioSink();
+
+    void OnData(const void *audio_data,
+                int bits_per_sample,
+                int sample_rate,
+                size_t number_of_channels,
+                size_t number_of_frames) override;
+
+    void flush();
+
+    uint64_t getChunksReceived() const;
+    uint64_t getChunksDelivered() const;
+    uint64_t getChunksDropped() const;
+    uint64_t getBatchesDelivered() const;
+    size_t getQueuedChunks() const;
+
+private:
+    void configure(int sample_rate, size_t channels, size_t frames);
+    void dropChunk();
+    void deliver();
+    void deliverBatch(AudioBatch *batch, const std::shared_ptr<AudioBatchObserver> &observer);
+    void deliverPeriodic();
+
+    std::weak_ptr<AudioBatchObserver> observer_;
+    const size_t batch_chunks_;
+    const size_t capacity_;
+    const int batch_interval_ms_;
+    const int output_sample_rate_;
+    const size_t output_channels_;
+    const BackpressurePolicy policy_;
+
+    // conversion state, only touched on the thread calling OnData()
+    int input_sample_rate_;
+    size_t input_channels_;
+    size_t input_frames_;
+    std::vector<int16_t> mixed_;
+    std::vector<int16_t> converted_;
+    webrtc::PushResampler<int16_t> resampler_;
+
+    mutable rtc::CriticalSection lock_;
+    int sample_rate_;
+    size_t channels_;
+    size_t chunk_samples_;
+    std::vector<int16_t> ring_;
+    std::vector<int64_t> timestamps_;
+    size_t head_;
+    size_t count_;
+    uint64_t dropped_since_last_batch_;
+    // chunks queued before a format change, delivered ahead of the ring in their own batches
+    std::vector<AudioBatch> retired_;
+    // only touched on the delivery thread
+    std::vector<AudioBatch> retired_delivering_;
+    AudioBatch batch_;
+
+    std::unique_ptr<rtc::Thread> delivery_thread_;
+    std::unique_ptr<rtc::AsyncInvoker> invoker_;
+    std::atomic<bool> delivery_pending_;
+
+    std::atomic<uint64_t> chunks_received_;
+    std::atomic<uint64_t> chunks_delivered_;
+    // chunks which did not fit, could not be converted, or reached no observer
+    std::atomic<uint64_t> chunks_dropped_;
+    std::atomic<uint64_t> batches_delivered_;
+};
+
+} // namespace sink
+} // namespace media
+} // namespace twilio
+
+#endif /* !_TWILIO_VIDEO_SINK_H_ */
@@ -0,0 +1,340 @@
+#include "twilio-video-stats.h"
+
+#include <algorithm>
+#include <cmath>
+#include <cstring>
+#include <limits>
+
+#include "webrtc/base/timeutils.h"
+
+namespace twilio {
+namespace media {
+namespace stats {
+
+namespace {
+
+const double kUnknown = std::numeric_limits<double>::quiet_NaN();
+
+inline size_t column(StatsMetric metric) {
+    return static_cast<size_t>(metric);
+}
+
+inline void set(double *sample, StatsMetric metric, double value) {
+    sample[column(metric)] = value;
+}
+
+inline double get(const double *sample, StatsMetric metric) {
+    return sample[column(metric)];
+}
+
+} // namespace
+
+StatsSeries::StatsSeries(const std::string &sid, StatsTrackKind kind, size_t capacity):
+    sid_(sid),
+    kind_(kind),
+    last_seen_poll_(0),
+    capacity_(capacity),
+    samples_(capacity * StatsCollector::kColumns, kUnknown),
+    head_(0),
+    count_(0) {
+}
+
+void StatsSeries::append(const double *sample) {
+    std::memcpy(&samples_[head_ * StatsCollector::kColumns], sample, StatsCollector::kColumns * sizeof(double));
+    head_ = (head_ + 1) % capacity_;
+    if (count_ < capacity_) {
+        count_++;
+    }
+    previous_.assign(sample, sample + StatsCollector::kColumns);
+}
+
+size_t StatsSeries::size() const {
+    return count_;
+}
+
+double StatsSeries::latest(StatsMetric metric) const {
+    if (count_ == 0) {
+        return kUnknown;
+    }
+    const size_t index = (head_ + capacity_ - 1) % capacity_;
+    return samples_[index * StatsCollector::kColumns + column(metric)];
+}
+
+size_t StatsSeries::copy(StatsMetric metric, double *out, size_t capacity) const {
+    const size_t count = std::min(count_, capacity);
+    // the newest `count` samples, oldest first
+    size_t index = (head_ + capacity_ - count) % capacity_;
+    for (size_t i = 0; i < count; i++) {
+        out[i] = samples_[index * StatsCollector::kColumns + column(metric)];
+        index = (index + 1) % capacity_;
+    }
+    return count;
+}
+
+class StatsCollector::Observer: public twilio::video::StatsObserver {
+public:
+    explicit Observer(StatsCollector *collector): collector_(collector) {
+    }
+
+    void onStats(const std::vector<twilio::video::StatsReport> &reports) override {
+        rtc::CritScope lock(&lock_);
+        if (collector_) {
+            collector_->onStats(reports);
+        }
+    }
+
+    // waits for a report being recorded right now
+    void detach() {
+        rtc::CritScope lock(&lock_);
+        collector_ = nullptr;
+    }
+
+private:
+    rtc::CriticalSection lock_;
+    StatsCollector *collector_;
+};
+
+StatsCollector::StatsCollector(size_t capacity):
+    capacity_(capacity > 0 ? capacity : 1),
+    polls_(0),
+    reports_(0),
+    last_report_time_ms_(0) {
+    observer_ = std::make_shared<Observer>(this);
+}
+
+StatsCollector::~StatsCollector() {
+    observer_->detach();
+}
+
+void StatsCollector::poll(twilio::video::Room *room) {
+    if (!room) {
+        return;
+    }
+
+    polls_++;
+    // the room only keeps a weak reference; observer_ lives as long as the collector
+    std::weak_ptr<twilio::video::StatsObserver> weak_observer(observer_);
+    room->getStats(weak_observer);
+}
+
+void StatsCollector::clear() {
+    rtc::CritScope lock(&lock_);
+    series_.clear();
+    order_.clear();
+}
+
+uint64_t StatsCollector::getPolls() const {
+    return polls_;
+}
+
+uint64_t StatsCollector::getReports() const {
+    rtc::CritScope lock(&lock_);
+    return reports_;
+}
+
+int64_t StatsCollector::getLastReportTimeMs() const {
+    rtc::CritScope lock(&lock_);
+    return last_report_time_ms_;
+}
+
+size_t StatsCollector::getCapacity() const {
+    return capacity_;
+}
+
+size_t StatsCollector::getTrackCount() const {
+    rtc::CritScope lock(&lock_);
+    return order_.size();
+}
+
+std::string StatsCollector::getTrackSid(size_t index) const {
+    rtc::CritScope lock(&lock_);
+    return index < order_.size() ? order_[index]->sid_ : std::string();
+}
+
+StatsTrackKind StatsCollector::getTrackKind(size_t index) const {
+    rtc::CritScope lock(&lock_);
+    return index < order_.size() ? order_[index]->kind_ : StatsTrackKind::kLocalAudio;
+}
+
+size_t StatsCollector::getSampleCount(const std::string &sid) const {
+    rtc::CritScope lock(&lock_);
+    auto it = series_.find(sid);
+    return it == series_.end() ? 0 : it->second->size();
+}
+
+double StatsCollector::getLatest(const std::string &sid, StatsMetric metric) const {
+    if (metric == StatsMetric::kMetricCount) {
+        return kUnknown;
+    }
+
+    rtc::CritScope lock(&lock_);
+    auto it = series_.find(sid);
+    return it == series_.end() ? kUnknown : it->second->latest(metric);
+}
+
+size_t StatsCollector::readSeries(const std::string &sid, StatsMetric metric, unsigned char *data, size_t capacity) const {
+    if (metric == StatsMetric::kMetricCount) {
+        return 0;
+    }
+
+    rtc::CritScope lock(&lock_);
+    auto it = series_.find(sid);
+    if (it == series_.end()) {
+        return 0;
+    }
+    return it->second->copy(metric, reinterpret_cast<double *>(data), capacity / sizeof(double));
+}
+
+size_t StatsCollector::readLatest(unsigned char *data, size_t capacity) const {
+    double *out = reinterpret_cast<double *>(data);
+    const size_t max_tracks = capacity / (kColumns * sizeof(double));
+
+    rtc::CritScope lock(&lock_);
+    const size_t count = std::min(max_tracks, order_.size());
+    for (size_t i = 0; i < count; i++) {
+        const StatsSeries *series = order_[i];
+        for (size_t c = 0; c < kColumns; c++) {
+            out[i * kColumns + c] = series->latest(static_cast<StatsMetric>(c));
+        }
+    }
+    return count;
+}
+
+void StatsCollector::onStats(const std::vector<twilio::video::StatsReport> &reports) {
+    const int64_t now_ms = rtc::TimeMillis();
+    double sample[kColumns];
+
+    rtc::CritScope lock(&lock_);
+    reports_++;
+    last_report_time_ms_ = now_ms;
+
+    for (const auto &report: reports) {
+        for (const auto &stats: report.local_audio_track_stats) {
+            std::fill(sample, sample + kColumns, kUnknown);
+            set(sample, StatsMetric::kTimestampMs, stats.timestamp);
+            set(sample, StatsMetric::kBytes, stats.bytes_sent);
+            set(sample, StatsMetric::kPackets, stats.packets_sent);
+            set(sample, StatsMetric::kPacketsLost, stats.packets_lost);
+            set(sample, StatsMetric::kAudioLevel, stats.audio_level);
+            set(sample, StatsMetric::kJitter, stats.jitter);
+            set(sample, StatsMetric::kRoundTripTimeMs, stats.round_trip_time);
+            record(series(stats.track_sid, StatsTrackKind::kLocalAudio), sample);
+        }
+
+        for (const auto &stats: report.local_video_track_stats) {
+            std::fill(sample, sample + kColumns, kUnknown);
+            set(sample, StatsMetric::kTimestampMs, stats.timestamp);
+            set(sample, StatsMetric::kBytes, stats.bytes_sent);
+            set(sample, StatsMetric::kPackets, stats.packets_sent);
+            set(sample, StatsMetric::kPacketsLost, stats.packets_lost);
+            set(sample, StatsMetric::kFrameRate, stats.frame_rate);
+            set(sample, StatsMetric::kWidth, stats.dimensions.width);
+            set(sample, StatsMetric::kHeight, stats.dimensions.height);
+            set(sample, StatsMetric::kRoundTripTimeMs, stats.round_trip_time);
+            record(series(stats.track_sid, StatsTrackKind::kLocalVideo), sample);
+        }
+
+        for (const auto &stats: report.remote_audio_track_stats) {
+            std::fill(sample, sample + kColumns, kUnknown);
+            set(sample, StatsMetric::kTimestampMs, stats.timestamp);
+            set(sample, StatsMetric::kBytes, stats.bytes_received);
+            set(sample, StatsMetric::kPackets, stats.packets_received);
+            set(sample, StatsMetric::kPacketsLost, stats.packets_lost);
+            set(sample, StatsMetric::kAudioLevel, stats.audio_level);
+            set(sample, StatsMetric::kJitter, stats.jitter);
+            record(series(stats.track_sid, StatsTrackKind::kRemoteAudio), sample);
+        }
+
+        for (const auto &stats: report.remote_video_track_stats) {
+            std::fill(sample, sample + kColumns, kUnknown);
+            set(sample, StatsMetric::kTimestampMs, stats.timestamp);
+            set(sample, StatsMetric::kBytes, stats.bytes_received);
+            set(sample, StatsMetric::kPackets, stats.packets_received);
+            set(sample, StatsMetric::kPacketsLost, stats.packets_lost);
+            set(sample, StatsMetric::kFrameRate, stats.frame_rate);
+            set(sample, StatsMetric::kWidth, stats.dimensions.width);
+            set(sample, StatsMetric::kHeight, stats.dimensions.height);
+            record(series(stats.track_sid, StatsTrackKind::kRemoteVideo), sample);
+        }
+
+        // only the pair carrying media; one series per peer connection
+        for (const auto &stats: report.ice_candidate_pair_stats) {
+            if (!stats.active_candidate_pair) {
+                continue;
+            }
+
+            std::fill(sample, sample + kColumns, kUnknown);
+            set(sample, StatsMetric::kTimestampMs, static_cast<double>(now_ms));
+            set(sample, StatsMetric::kBytes, static_cast<double>(stats.bytes_sent) + static_cast<double>(stats.bytes_received));
+            set(sample, StatsMetric::kRoundTripTimeMs, stats.current_round_trip_time * 1000.0);
+            set(sample, StatsMetric::kAvailableBitrateBps, stats.available_outgoing_bitrate);
+            record(series("pair:" + report.peer_connection_id, StatsTrackKind::kCandidatePair), sample);
+        }
+    }
+
+    evictStale();
+}
+
+StatsSeries *StatsCollector::series(const std::string &sid, StatsTrackKind kind) {
+    auto it = series_.find(sid);
+    if (it != series_.end()) {
+        return it->second.get();
+    }
+
+    StatsSeries *created = new StatsSeries(sid, kind, capacity_);
+    series_[sid].reset(created);
+    order_.push_back(created);
+    return created;
+}
+
+void StatsCollector::record(StatsSeries *series, double *sample) {
+    series->last_seen_poll_ = reports_;
+
+    const std::vector<double> &previous = series->previous_;
+    if (!previous.empty()) {
+        const double seconds = (get(sample, StatsMetric::kTimestampMs) - get(previous.data(), StatsMetric::kTimestampMs)) / 1000.0;
+        const double bytes = get(sample, StatsMetric::kBytes) - get(previous.data(), StatsMetric::kBytes);
+        const double packets = get(sample, StatsMetric::kPackets) - get(previous.data(), StatsMetric::kPackets);
+        const double lost = get(sample, StatsMetric::kPacketsLost) - get(previous.data(), StatsMetric::kPacketsLost);
+
+        // counters going backwards mean the track was re-created; treat it as a first sample
+        if (seconds > 0 && !(bytes < 0) && !(packets < 0)) {
+            set(sample, StatsMetric::kBitrateBps, bytes * 8.0 / seconds);
+            if (!std::isnan(packets)) {
+                set(sample, StatsMetric::kPacketRate, packets / seconds);
+            }
+            if (!std::isnan(packets) && !std::isnan(lost) && lost >= 0 && packets + lost > 0) {
+                set(sample, StatsMetric::kPacketLossPercent, 100.0 * lost / (packets + lost));
+            }
+        }
+    }
+
+    series->append(sample);
+}
+
+void StatsCollector::evictStale() {
+    // a track gone for a whole ring's worth of reports has nothing left worth reading
+    const uint64_t reports = reports_;
+    const size_t capacity = capacity_;
+    auto stale = [reports, capacity](const StatsSeries *series) {
+        return reports - series->last_seen_poll_ > capacity;
+    };
+
+    auto first_stale = std::remove_if(order_.begin(), order_.end(), stale);
+    if (first_stale == order_.end()) {
+        return;
+    }
+    order_.erase(first_stale, order_.end());
+
+    for (auto it = series_.begin(); it != series_.end();) {
+        if (stale(it->second.get())) {
+            it = series_.erase(it);
+        } else {
+            ++it;
+        }
+    }
+}
+
+} // namespace stats
+} // namespace media
+} // namespace twilio
@@ -0,0 +1,128 @@
+#ifndef _TWILIO_VIDEO_STATS_H_
+#define _TWILIO_VIDEO_STATS_H_
+
+#include <atomic>
+#include <map>
+#include <memory>
+#include <string>
+#include <vector>
+
+#include "webrtc/base/criticalsection.h"
+
+#include "video/room.h"
+#include "video/stats_report.h"
+#include "video/stats_observer.h"
+
+namespace twilio {
+namespace media {
+namespace stats {
+
+enum class StatsTrackKind {
+    kLocalAudio,
+    kLocalVideo,
+    kRemoteAudio,
+    kRemoteVideo,
+    kCandidatePair
+};
+
+// columns of a sample; cumulative counters are stored as reported, everything after
+// kPacketsLost is derived from the previous sample of the same track
+enum class StatsMetric {
+    kTimestampMs,
+    kBytes,
+    kPackets,
+    kPacketsLost,
+    kBitrateBps,
+    kPacketRate,
+    kPacketLossPercent,
+    kFrameRate,
+    kWidth,
+    kHeight,
+    kAudioLevel,
+    kJitter,
+    kRoundTripTimeMs,
+    kAvailableBitrateBps,
+    kMetricCount
+};
+
+// Fixed-capacity ring of samples of one track, stored as one flat array of doubles.
+class StatsSeries {
+public:
+    StatsSeries(const std::string &sid, StatsTrackKind kind, size_t capacity);
+
+    void append(const double *sample);
+    size_t size() const;
+    double latest(StatsMetric metric) const;
+    // copies the metric, oldest sample first; returns the number of values written
+    size_t copy(StatsMetric metric, double *out, size_t capacity) const;
+
+    const std::string sid_;
+    const StatsTrackKind kind_;
+    std::vector<double> previous_;
+    uint64_t last_seen_poll_;
+
+private:
+    const size_t capacity_;
+    std::vector<double> samples_;
+    size_t head_;
+    size_t count_;
+};
+
+// Polls Room::getStats() and keeps a per-track time series of counters and rates, all computed
+// natively, so reading them from Java takes one JNI call per series and no wrapper objects.
+class StatsCollector {
+public:
+    static const size_t kColumns = static_cast<size_t>(StatsMetric::kMetricCount);
+
+    explicit StatsCollector(size_t capacity);
+    ~StatsCollector();
+
+    // requests a report; the sample is appended when the SDK delivers it
+    void poll(twilio::video::Room *room);
+    void clear();
+
+    uint64_t getPolls() const;
+    uint64_t getReports() const;
+    int64_t getLastReportTimeMs() const;
+
+    size_t getCapacity() const;
+    size_t getTrackCount() const;
+    std::string getTrackSid(size_t index) const;
+    StatsTrackKind getTrackKind(size_t index) const;
+    size_t getSampleCount(const std::string &sid) const;
+    double getLatest(const std::string &sid, StatsMetric metric) const;
+
+    // writes native-endian doubles, oldest sample first; returns the number of values written
+    size_t readSeries(const std::string &sid, StatsMetric metric, unsigned char *data, size_t capacity) const;
+    // writes the latest sample of every track as kColumns doubles, in getTrackSid() order;
+    // returns the number of tracks written
+    size_t readLatest(unsigned char *data, size_t capacity) const;
+
+#ifndef SWIG
+    void onStats(const std::vector<twilio::video::StatsReport> &reports);
+#endif
+
+private:
+    class Observer;
+
+    StatsSeries *series(const std::string &sid, StatsTrackKind kind);
+    void record(StatsSeries *series, double *sample);
+    void evictStale();
+
+    const size_t capacity_;
+    std::shared_ptr<Observer> observer_;
+
+    mutable rtc::CriticalSection lock_;
+    std::map<std::string, std::unique_ptr<StatsSeries>> series_;
+    std::vector<StatsSeries *> order_;
+
+    std::atomic<uint64_t> polls_;
+    uint64_t reports_;
+    int64_t last_report_time_ms_;
+};
+
+} // namespace stats
+} // namespace media
+} // namespace twilio
+
+#endif /* !_TWILIO_VIDEO_STATS_H_ */
@@ -0,0 +1,98 @@
+#include "twilio-video-threads.h"
+
+#include "webrtc/base/timeutils.h"
+
+namespace twilio {
+namespace media {
+namespace threads {
+
+namespace {
+
+const char *kSuffixes[] = {"-worker", "-signaling", "-network"};
+
+inline size_t index(MediaThreadKind kind) {
+    return static_cast<size_t>(kind);
+}
+
+} // namespace
+
+class MediaThreadGroup::Prober: public rtc::MessageHandler {
+public:
+    Prober(): last_latency_us_(0), max_latency_us_(0), probes_(0) {
+    }
+
+    void OnMessage(rtc::Message *message) override {
+        rtc::ScopedMessageData<int64_t> *data = static_cast<rtc::ScopedMessageData<int64_t> *>(message->pdata);
+        const int64_t latency = rtc::TimeMicros() - *data->data();
+        delete data;
+
+        last_latency_us_.store(latency);
+        int64_t max = max_latency_us_.load();
+        while (latency > max && !max_latency_us_.compare_exchange_weak(max, latency)) {
+        }
+        probes_++;
+    }
+
+    std::atomic<int64_t> last_latency_us_;
+    std::atomic<int64_t> max_latency_us_;
+    std::atomic<uint64_t> probes_;
+};
+
+MediaThreadGroup::MediaThreadGroup(const std::string &name): name_(name) {
+    for (size_t i = 0; i < kThreads; i++) {
+        // only the network thread does socket I/O; the others just run posted tasks
+        threads_[i] = i == index(MediaThreadKind::kNetwork) ? rtc::Thread::CreateWithSocketServer() : rtc::Thread::Create();
+        threads_[i]->SetName(name_ + kSuffixes[i], this);
+        threads_[i]->Start();
+        probers_[i].reset(new Prober());
+    }
+}
+
+MediaThreadGroup::~MediaThreadGroup() {
+    for (size_t i = 0; i < kThreads; i++) {
+        threads_[i]->Stop();
+        // frees the data of probes which never ran
+        threads_[i]->Clear(probers_[i].get());
+    }
+}
+
+const std::string &MediaThreadGroup::getName() const {
+    return name_;
+}
+
+size_t MediaThreadGroup::getPendingMessages(MediaThreadKind kind) const {
+    return threads_[index(kind)]->size();
+}
+
+void MediaThreadGroup::probe() {
+    const int64_t now = rtc::TimeMicros();
+    for (size_t i = 0; i < kThreads; i++) {
+        threads_[i]->Post(RTC_FROM_HERE, probers_[i].get(), 0, new rtc::ScopedMessageData<int64_t>(new int64_t(now)));
+    }
+}
+
+int64_t MediaThreadGroup::getLastLatencyUs(MediaThreadKind kind) const {
+    return probers_[index(kind)]->last_latency_us_.load();
+}
+
+int64_t MediaThreadGroup::getMaxLatencyUs(MediaThreadKind kind) const {
+    return probers_[index(kind)]->max_latency_us_.load();
+}
+
+uint64_t MediaThreadGroup::getProbes(MediaThreadKind kind) const {
+    return probers_[index(kind)]->probes_.load();
+}
+
+void MediaThreadGroup::resetMaxLatency() {
+    for (size_t i = 0; i < kThreads; i++) {
+        probers_[i]->max_latency_us_.store(0);
+    }
+}
+
+rtc::Thread *MediaThreadGroup::getThread(MediaThreadKind kind) const {
+    return threads_[index(kind)].get();
+}
+
+} // namespace threads
+} // namespace media
+} // namespace twilio
@@ -0,0 +1,61 @@
+#ifndef _TWILIO_VIDEO_THREADS_H_
+#define _TWILIO_VIDEO_THREADS_H_
+
+#include <atomic>
+#include <memory>
+#include <string>
+
+#include "webrtc/base/messagehandler.h"
+#include "webrtc/base/thread.h"
+
+namespace twilio {
+namespace media {
+namespace threads {
+
+enum class MediaThreadKind {
+    kWorker,
+    kSignaling,
+    kNetwork,
+    kThreadCount
+};
+
+// The worker, signaling and network threads normally created by every MediaFactory. One group
+// can be set on the MediaOptions of any number of factories, so that many rooms share a bounded
+// set of native threads. The group must outlive every factory, room and track using it.
+class MediaThreadGroup {
+public:
+    explicit MediaThreadGroup(const std::string &name);
+    ~MediaThreadGroup();
+
+    const std::string &getName() const;
+
+    // messages queued on the thread, delayed ones included
+    size_t getPendingMessages(MediaThreadKind kind) const;
+
+    // posts a timestamped message to every thread; how long it waited in the queue shows up in
+    // getLastLatencyUs() once the thread gets to it, so probing never blocks the caller
+    void probe();
+    int64_t getLastLatencyUs(MediaThreadKind kind) const;
+    int64_t getMaxLatencyUs(MediaThreadKind kind) const;
+    uint64_t getProbes(MediaThreadKind kind) const;
+    void resetMaxLatency();
+
+#ifndef SWIG
+    rtc::Thread *getThread(MediaThreadKind kind) const;
+#endif
+
+private:
+    class Prober;
+
+    static const size_t kThreads = static_cast<size_t>(MediaThreadKind::kThreadCount);
+
+    const std::string name_;
+    std::unique_ptr<rtc::Thread> threads_[kThreads];
+    std::unique_ptr<Prober> probers_[kThreads];
+};
+
+} // namespace threads
+} // namespace media
+} // namespace twilio
+
+#endif /* !_TWILIO_VIDEO_THREADS_H_ */
@@ -15,6 +15,15 @@
 #include "webrtc/api/peerconnectioninterface.h"
 
 #include "twilio-video-capture.h"
+#include "twilio-video-sink.h"
+#include "twilio-video-frame.h"
+#include "twilio-video-stats.h"
+#include "twilio-video-threads.h"
+#include "twilio-video-audio.h"
+#include "twilio-video-data.h"
+#include "twilio-video-loopback.h"
+#include "twilio-video-adapter.h"
+#include "twilio-video-convert.h"
 
 #include "media/codec.h"
 #include "media/stats.h"
@@ -105,8 +114,18 @@ twilio::video::Room *connect(twilio::video::ConnectOptions options, std::shared_
 %ignore webrtc::VideoFrame::VideoFrame(const VideoFrame&);
 %ignore webrtc::VideoFrame::VideoFrame(VideoFrame&);
 
+// raw plane pointers carry no size; planes are read through getPlaneY(), getPlaneU() and getPlaneV() instead
+%ignore webrtc::VideoFrameBuffer::DataY;
+%ignore webrtc::VideoFrameBuffer::DataU;
+%ignore webrtc::VideoFrameBuffer::DataV;
+
 // ignore twilio::video::connect(), which returns std::unique_ptr; replace with raw pointer
 %ignore twilio::video::connect(ConnectOptions connect_options, std::weak_ptr<RoomObserver> room_observer);
+// the replacement releases the std::unique_ptr, so the returned Room is owned by its Java proxy
+%newobject twilio::video::connect;
+
+// errors passed to director callbacks may only live as long as the callback; copies are owned by Java
+%newobject twilio::video::TwilioError::copy;
 
 // same for twilio::video::LocalParticipant::setObserver(), which takes std::weak_ptr; replace with std::shared_ptr
 %ignore twilio::video::LocalParticipant::setObserver(std::weak_ptr<LocalParticipantObserver> observer);
@@ -131,7 +150,8 @@ twilio::video::Room *connect(twilio::video::ConnectOptions options, std::shared_
 %ignore twilio::media::IceServer::RTCIceServer(const IceServer& server);
 
 // ignore cricket::WebRtcVideoDecoderFactory and cricket::WebRtcVideoEncoderFactory in twilio::media::MediaOptions;
-// also ignore threads and device module
+// also ignore threads and device module; threads are shared through MediaOptions.setThreadGroup() and
+// a headless device module is set through MediaOptions.setAudioDevice()
 %ignore twilio::media::MediaOptions::video_decoder_factory;
 %ignore twilio::media::MediaOptions::video_encoder_factory;
 %ignore twilio::media::MediaOptions::worker_thread;
@@ -157,6 +177,9 @@ twilio::video::Room *connect(twilio::video::ConnectOptions options, std::shared_
 // replace automatically generated accessors for IceServer::urls with custom ones
 %ignore twilio::media::IceServer::urls;
 
+// copies of reports outlive the vector passed to StatsObserver::onStats()
+%copyctor twilio::video::StatsReport;
+
 // do not generate setters for the following fields
 %immutable twilio::video::StatsReport::peer_connection_id;
 %immutable twilio::video::StatsReport::local_audio_track_stats;
@@ -257,6 +280,10 @@ twilio::video::Room *connect(twilio::video::ConnectOptions options, std::shared_
 %feature("director") twilio::video::LocalParticipantObserver;
 %feature("director") twilio::video::RemoteParticipantObserver;
 %feature("director") rtc::VideoSinkInterface<webrtc::VideoFrame>;
+%feature("director") twilio::media::sink::VideoFrameBatchObserver;
+%feature("director") twilio::media::sink::AudioBatchObserver;
+%feature("director") twilio::media::data::ReceivedDataBatchObserver;
+%feature("director") twilio::media::convert::ConvertedFrameObserver;
 
 // use value wrappers for classes with no default/copy c-tor
 %feature("valuewrapper") twilio::media::DataTrackOptions;
@@ -283,6 +310,10 @@ twilio::video::Room *connect(twilio::video::ConnectOptions options, std::shared_
 %shared_ptr_vector_as_immutable_list(twilio::media::LocalDataTrackPublication, LocalDataTrackPublication)
 %shared_ptr_vector_as_immutable_list(twilio::media::RemoteDataTrackPublication, RemoteDataTrackPublication)
 
+%shared_ptr_vector_version(twilio::video::RemoteParticipant, getRemoteAudioTracks, getRemoteAudioTracksVersion)
+%shared_ptr_vector_version(twilio::video::RemoteParticipant, getRemoteVideoTracks, getRemoteVideoTracksVersion)
+%shared_ptr_vector_version(twilio::video::RemoteParticipant, getRemoteDataTracks, getRemoteDataTracksVersion)
+
 // typemaps for various int types
 %include "stdint.i"
 
@@ -293,21 +324,22 @@ twilio::video::Room *connect(twilio::video::ConnectOptions options, std::shared_
 %include "enums.swg"
 %javaconst(1);
 
-// wrap VideoFrameBuffer data in java.nio.ByteBuffer
-%typemap(jni) const unsigned char* "jobject"
-%typemap(jtype) const unsigned char* "java.nio.ByteBuffer"
-%typemap(jstype) const unsigned char* "java.nio.ByteBuffer"
-
-%typemap(out) const unsigned char* {
-#ifdef __cplusplus
-  $result = jenv->NewDirectByteBuffer($1, 1000);
-#else
-  $result = NewDirectByteBuffer(jenv, $1, 1000);
-#endif
+// wrap a single VideoFrameBuffer plane in a read-only java.nio.ByteBuffer sized to the plane;
+// the buffer aliases native memory, so keep the owning VideoFrameBufferRef or FrameHandle alive while using it
+%feature("novaluewrapper") twilio::media::frame::FramePlane;
+%typemap(jni) twilio::media::frame::FramePlane "jobject"
+%typemap(jtype) twilio::media::frame::FramePlane "java.nio.ByteBuffer"
+%typemap(jstype) twilio::media::frame::FramePlane "java.nio.ByteBuffer"
+
+%typemap(out) twilio::media::frame::FramePlane {
+  if ($1.data_ != nullptr && $1.size_ > 0) {
+    $result = JCALL2(NewDirectByteBuffer, jenv, (void *) $1.data_, (jlong) $1.size_);
+  }
 }
 
-%typemap(javaout) const unsigned char * {
-  return $jnicall;
+%typemap(javaout) twilio::media::frame::FramePlane {
+    final java.nio.ByteBuffer plane = $jnicall;
+    return plane == null ? null : plane.asReadOnlyBuffer();
 }
 
 // rtc::scoped_refptr instantiations
@@ -345,6 +377,13 @@ twilio::video::Room *connect(twilio::video::ConnectOptions options, std::shared_
 %shared_ptr(twilio::media::RemoteDataTrackObserver)
 %shared_ptr(twilio::video::LocalParticipantObserver)
 %shared_ptr(twilio::video::RemoteParticipantObserver)
+%shared_ptr(twilio::media::sink::VideoFrameBatchObserver)
+%shared_ptr(twilio::media::sink::AudioBatchObserver)
+%shared_ptr(twilio::media::data::ReceivedDataBatchObserver)
+%shared_ptr(twilio::media::convert::ConvertedFrameObserver)
+%shared_ptr(twilio::media::data::BatchingDataReceiver)
+%shared_ptr(twilio::media::frame::FramePool)
+%shared_ptr(twilio::media::capture::VideoFrameInjector)
 
 %shared_ptr(twilio::video::Participant)
 %shared_ptr(twilio::video::LocalParticipant)
@@ -379,6 +418,52 @@ twilio::video::Room *connect(twilio::video::ConnectOptions options, std::shared_
 %director_shared_ptr(twilio::media::RemoteAudioTrackPublication)
 %director_shared_ptr(twilio::media::RemoteVideoTrackPublication)
 
+// AutoCloseable proxies, released by a cleaner instead of finalize() when they are not closed
+%include "twilio-native-resources.i"
+%native_resource(twilio::video::Room)
+%native_resource(twilio::media::MediaFactory)
+%native_resource(twilio::media::Track)
+%native_resource(twilio::video::Participant)
+%native_resource(twilio::media::TrackPublication)
+%native_resource(twilio::media::frame::FramePool)
+%native_resource(twilio::media::frame::FrameHandle)
+%native_resource(twilio::media::capture::VideoFrameInjector)
+%native_resource(twilio::media::stats::StatsCollector)
+%native_resource(twilio::media::threads::MediaThreadGroup)
+%native_resource(twilio::media::audio::HeadlessAudioDevice)
+%native_resource(twilio::media::data::DataTrackSender)
+%native_resource(twilio::media::loopback::LoopbackCall)
+
+%native_resource_derived(twilio::media::DataTrack)
+%native_resource_derived(twilio::media::AudioTrack)
+%native_resource_derived(twilio::media::VideoTrack)
+%native_resource_derived(twilio::media::LocalDataTrack)
+%native_resource_derived(twilio::media::LocalAudioTrack)
+%native_resource_derived(twilio::media::LocalVideoTrack)
+%native_resource_derived(twilio::media::RemoteDataTrack)
+%native_resource_derived(twilio::media::RemoteAudioTrack)
+%native_resource_derived(twilio::media::RemoteVideoTrack)
+
+%native_resource_derived(twilio::video::LocalParticipant)
+%native_resource_derived(twilio::video::RemoteParticipant)
+
+%native_resource_derived(twilio::media::DataTrackPublication)
+%native_resource_derived(twilio::media::AudioTrackPublication)
+%native_resource_derived(twilio::media::VideoTrackPublication)
+%native_resource_derived(twilio::media::LocalDataTrackPublication)
+%native_resource_derived(twilio::media::LocalAudioTrackPublication)
+%native_resource_derived(twilio::media::LocalVideoTrackPublication)
+%native_resource_derived(twilio::media::RemoteDataTrackPublication)
+%native_resource_derived(twilio::media::RemoteAudioTrackPublication)
+%native_resource_derived(twilio::media::RemoteVideoTrackPublication)
+
+%native_resource_plain_derived(twilio::media::sink::BatchingVideoSink)
+%native_resource_plain_derived(twilio::media::sink::BatchingAudioSink)
+%native_resource_plain_derived(twilio::media::convert::ConvertingVideoSink)
+%native_resource_plain_derived(twilio::media::adapter::AdaptingVideoSink)
+
+%native_resource_director_derived(twilio::media::data::BatchingDataReceiver, RemoteDataTrackObserver)
+
 // rtc::VideoSinkInterface<webrtc::VideoFrame>
 %include "webrtc/api/video/video_rotation.h"
 %include "webrtc/api/video/video_frame_buffer.h"
@@ -426,6 +511,9 @@ namespace std {
 
 // handle byte array conversion in twilio::media::LocalDataTrack::send(const uint8_t* message, size_t size)
 %include "various.i"
+
+// direct java.nio.ByteBuffer arguments
+%include "twilio-direct-buffers.i"
 %apply (char *STRING, size_t LENGTH) { (const uint8_t* message, size_t size) }
 
 // define rtc::Optional here to avoid pulling in a lot of crap
@@ -497,6 +585,58 @@ public:
 %include "video/stats_report.h"
 %include "video/video.h"
 
+// capturer options and the Java-fed frame injector; the capturers themselves are only created through MediaFactory
+%ignore twilio::media::capture::FakeVideoCapturer;
+%ignore twilio::media::capture::ExternalVideoCapturer;
+%ignore twilio::media::capture::InFlightFrames;
+%ignore twilio::media::capture::VideoCapturerFactory;
+%ignore twilio::media::capture::TestPatternGenerator;
+%apply (unsigned char *DIRECT, size_t CAPACITY) { (unsigned char *data_y, size_t capacity_y),
+                                                 (unsigned char *data_u, size_t capacity_u),
+                                                 (unsigned char *data_v, size_t capacity_v),
+                                                 (unsigned char *data, size_t capacity) }
+%include "twilio-video-pattern.h"
+%include "twilio-video-capture.h"
+
+// pooled off-heap frame storage; handles returned by FramePool::acquire() are owned by Java
+%ignore twilio::media::frame::FramePlane;
+%newobject twilio::media::frame::FramePool::acquire;
+%include "twilio-video-frame.h"
+
+// native sinks which can be attached to video tracks in place of a VideoSinkForVideoFrame director,
+// and to audio tracks through AudioTrackInterface::AddSink()
+%ignore twilio::media::sink::QueuedFrame;
+%include "twilio-video-sink.h"
+
+// stats time series kept natively; Java reads whole series into direct buffers
+%ignore twilio::media::stats::StatsSeries;
+%include "twilio-video-stats.h"
+
+// native threads shared by the factories of a MediaFactoryPool
+%include "twilio-video-threads.h"
+
+// virtual audio device fed and drained by Java through direct buffers
+%ignore twilio::media::audio::PcmRing;
+%include "twilio-video-audio.h"
+
+// data track sends from direct buffers; gathered messages are laid out back to back, with their
+// lengths as native int32 values in a second buffer
+%apply (unsigned char *DIRECT, size_t CAPACITY) { (unsigned char *messages, size_t messages_capacity),
+                                                 (unsigned char *lengths, size_t lengths_capacity) }
+// the receiver is only called by the tracks it observes
+%ignore twilio::media::data::BatchingDataReceiver::onMessage;
+%include "twilio-video-data.h"
+
+// two peer connections in one process, connected over the loopback interface without a Room
+%include "twilio-video-loopback.h"
+
+// per-sink resolution and frame rate limits, applied between a track and the sink they wrap
+%include "twilio-video-adapter.h"
+
+// sinks which crop, scale and convert frames natively, into a reused buffer or a direct buffer of the caller
+%ignore twilio::media::convert::FrameConverter;
+%include "twilio-video-convert.h"
+
 // extentions
 namespace webrtc {
 %extend MediaConstraintsInterface::Constraints {
@@ -508,6 +648,28 @@ namespace webrtc {
         return value;
     }
 };
+
+%extend VideoFrameBuffer {
+    twilio::media::frame::FramePlane getPlaneY() const {
+        return twilio::media::frame::FramePlane($self->DataY(), (size_t) $self->StrideY() * $self->height());
+    }
+
+    twilio::media::frame::FramePlane getPlaneU() const {
+        return twilio::media::frame::FramePlane($self->DataU(), (size_t) $self->StrideU() * (($self->height() + 1) / 2));
+    }
+
+    twilio::media::frame::FramePlane getPlaneV() const {
+        return twilio::media::frame::FramePlane($self->DataV(), (size_t) $self->StrideV() * (($self->height() + 1) / 2));
+    }
+
+    int getChromaWidth() const {
+        return ($self->width() + 1) / 2;
+    }
+
+    int getChromaHeight() const {
+        return ($self->height() + 1) / 2;
+    }
+};
 }
 
 namespace twilio {
@@ -522,6 +684,49 @@ namespace media {
     }
 };
 
+// the setters below dereference their argument right away, so a null one is refused before it reaches them
+%typemap(check) twilio::media::threads::MediaThreadGroup *group, twilio::media::audio::HeadlessAudioDevice *device %{
+    if (!$1) {
+        SWIG_JavaThrowException(jenv, SWIG_JavaNullPointerException, "$1_name cannot be null");
+        return $null;
+    }
+%}
+
+%extend MediaOptions {
+    // the threads stay owned by the group, which must outlive the factory created from these options
+    void setThreadGroup(twilio::media::threads::MediaThreadGroup *group) {
+        $self->worker_thread = group->getThread(twilio::media::threads::MediaThreadKind::kWorker);
+        $self->signaling_thread = group->getThread(twilio::media::threads::MediaThreadKind::kSignaling);
+        $self->networking_thread = group->getThread(twilio::media::threads::MediaThreadKind::kNetwork);
+    }
+
+    // WebRTC keeps its own reference to the module, so the device may be closed before the factory
+    void setAudioDevice(twilio::media::audio::HeadlessAudioDevice *device) {
+        $self->audio_device_module = device->getModule();
+    }
+};
+
+%clear twilio::media::threads::MediaThreadGroup *group, twilio::media::audio::HeadlessAudioDevice *device;
+
+%extend LocalDataTrack {
+    // sends `length` bytes at `offset` of a direct buffer, without copying it into a Java array
+    bool send(unsigned char *data, size_t capacity, size_t offset, size_t length) {
+        return twilio::media::data::sendDirect($self, data, capacity, offset, length);
+    }
+
+    // sends `count` messages in one call; returns how many were sent before the first failure
+    size_t sendBatch(unsigned char *messages, size_t messages_capacity,
+                     unsigned char *lengths, size_t lengths_capacity,
+                     size_t count) {
+        return twilio::media::data::sendGather($self, messages, messages_capacity, lengths, lengths_capacity, count);
+    }
+    // returns `tracks` unchanged; measures both directions of the shared_ptr vector typemap without a room,
+    // since every real accessor returning such a vector belongs to a connected participant
+    static std::vector<std::shared_ptr<twilio::media::LocalDataTrack>> echoTracks(std::vector<std::shared_ptr<twilio::media::LocalDataTrack>> tracks) {
+        return tracks;
+    }
+};
+
 %extend RemoteDataTrack {
     void setObserver(std::shared_ptr<twilio::media::RemoteDataTrackObserver> observer) {
         std::weak_ptr<twilio::media::RemoteDataTrackObserver> weak_observer(observer);
@@ -562,6 +767,18 @@ namespace media {
 
         return self->createVideoTrack(self->createVideoSource(capturer, constraints), options);
     }
+
+    std::shared_ptr<twilio::media::LocalVideoTrack> createVideoTrack(std::shared_ptr<twilio::media::capture::VideoFrameInjector> injector, const twilio::media::VideoTrackOptions &options, const MediaConstraints *constraints) {
+        cricket::VideoCapturer *capturer = twilio::media::capture::VideoCapturerFactory::CreateExternalVideoCapturer(injector);
+
+        return self->createVideoTrack(self->createVideoSource(capturer, constraints), options);
+    }
+
+    std::shared_ptr<twilio::media::LocalVideoTrack> createVideoTrack(const twilio::media::capture::FakeVideoCapturerOptions &capturer_options, const twilio::media::VideoTrackOptions &options, const MediaConstraints *constraints) {
+        cricket::VideoCapturer *capturer = twilio::media::capture::VideoCapturerFactory::CreateFakeVideoCapturer(capturer_options);
+
+        return self->createVideoTrack(self->createVideoSource(capturer, constraints), options);
+    }
 };
 }
 
@@ -600,5 +817,11 @@ twilio::video::Room *connect(twilio::video::ConnectOptions options, std::shared_
         self->getStats(weak_observer);
     }
 };
+
+%extend TwilioError {
+    twilio::video::TwilioError *copy() const {
+        return new twilio::video::TwilioError(*self);
+    }
+};
 }
 }
@@ -0,0 +1,255 @@
+package com.twilio.sdk.video.util;
+
+import java.io.PrintStream;
+import java.lang.ref.PhantomReference;
+import java.lang.ref.ReferenceQueue;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Releases native objects whose proxies became unreachable without being closed.
+ *
+ * This is a Java 8 equivalent of <code>java.lang.ref.Cleaner</code>: one daemon thread drains a
+ * reference queue of phantom references, so unlike finalizers the proxies themselves are never
+ * resurrected and a slow release does not hold up unrelated finalizable objects.
+ *
+ * Such a release is counted as a leak. With leak tracking enabled, either with
+ * {@link #setLeakTracking(boolean)} or with <code>-Dtwilio.video.leakTracking=true</code>, every
+ * registration records the stack trace of its allocation, which is reported with the leak and by
+ * {@link #dumpLive(PrintStream)}.
+ */
+public final class NativeCleaner {
+    public static final String LEAK_TRACKING_PROPERTY = "twilio.video.leakTracking";
+
+    /**
+     * A native object that was released by the cleaner rather than by <code>close()</code>.
+     */
+    public static final class Leak {
+        private final String type;
+        private final Throwable allocation;
+
+        Leak(final String type, final Throwable allocation) {
+            this.type = type;
+            this.allocation = allocation;
+        }
+
+        public String getType() {
+            return this.type;
+        }
+
+        /**
+         * @return where the proxy was created, or null if leak tracking was off at the time
+         */
+        public Throwable getAllocation() {
+            return this.allocation;
+        }
+    }
+
+    /**
+     * Ties a proxy to the action releasing its native object.
+     */
+    public static final class Registration extends PhantomReference<Object> {
+        private final Runnable release;
+        private final String type;
+        private final boolean tracked;
+        private final Throwable allocation;
+        private final AtomicBoolean released;
+
+        Registration(final Object owner, final Runnable release, final boolean tracked) {
+            super(owner, QUEUE);
+            this.release = release;
+            this.type = owner.getClass().getSimpleName();
+            this.tracked = tracked;
+            this.allocation = tracked && leakTracking ? new Throwable(this.type + " allocated here") : null;
+            this.released = new AtomicBoolean();
+        }
+
+        /**
+         * Runs the release action unless it already ran.
+         *
+         * @return true if this call released the native object
+         */
+        public boolean release() {
+            if (!this.released.compareAndSet(false, true)) {
+                return false;
+            }
+
+            REGISTRATIONS.remove(this);
+            if (this.tracked) {
+                count(this.type).decrement();
+            }
+            clear();
+            this.release.run();
+            return true;
+        }
+
+        public boolean isReleased() {
+            return this.released.get();
+        }
+    }
+
+    private static final ReferenceQueue<Object> QUEUE = new ReferenceQueue<>();
+    private static final Set<Registration> REGISTRATIONS = ConcurrentHashMap.newKeySet();
+    private static final ConcurrentMap<String, LongAdder> LIVE = new ConcurrentHashMap<>();
+    private static final LongAdder REGISTERED = new LongAdder();
+    private static final LongAdder LEAKED = new LongAdder();
+    private static final LongAdder FAILED = new LongAdder();
+    private static final Consumer<Throwable> NO_ERROR_HANDLER = error -> { };
+
+    private static volatile boolean leakTracking = Boolean.getBoolean(LEAK_TRACKING_PROPERTY);
+    private static volatile Consumer<Leak> leakListener = NativeCleaner::report;
+    private static volatile Consumer<Throwable> errorHandler = NO_ERROR_HANDLER;
+
+    static {
+        final Thread thread = new Thread(NativeCleaner::drain, "twilio-video-cleaner");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private NativeCleaner() {
+    }
+
+    /**
+     * Releases the native object with <code>release</code> once <code>owner</code> is unreachable,
+     * unless {@link Registration#release()} is called first.
+     */
+    public static Registration register(final Object owner, final Runnable release) {
+        if (owner == null || release == null)
+            throw new IllegalArgumentException("owner and release cannot be null");
+
+        final Registration registration = new Registration(owner, release, true);
+        REGISTRATIONS.add(registration);
+        REGISTERED.increment();
+        count(registration.type).increment();
+        return registration;
+    }
+
+    /**
+     * Like {@link #register(Object, Runnable)}, for memory held by an object that does not own the
+     * native object it refers to, e.g. the pointer copies behind a borrowed proxy. Such registrations
+     * are neither counted as live nor reported as leaks.
+     */
+    public static Registration attach(final Object owner, final Runnable release) {
+        if (owner == null || release == null)
+            throw new IllegalArgumentException("owner and release cannot be null");
+
+        final Registration registration = new Registration(owner, release, false);
+        REGISTRATIONS.add(registration);
+        return registration;
+    }
+
+    public static void setLeakTracking(final boolean enabled) {
+        leakTracking = enabled;
+    }
+
+    public static boolean isLeakTracking() {
+        return leakTracking;
+    }
+
+    /**
+     * Called on the cleaner thread for every leak; by default tracked leaks are printed to <code>System.err</code>.
+     */
+    public static void setLeakListener(final Consumer<Leak> listener) {
+        leakListener = listener == null ? NativeCleaner::report : listener;
+    }
+
+    /**
+     * Called on the cleaner thread with exceptions thrown by release actions and leak listeners; ignored
+     * by default, since they are always counted in {@link #getReleaseFailures()}.
+     */
+    public static void setErrorHandler(final Consumer<Throwable> handler) {
+        errorHandler = handler == null ? NO_ERROR_HANDLER : handler;
+    }
+
+    public static long getRegistered() {
+        return REGISTERED.sum();
+    }
+
+    public static long getLive() {
+        long live = 0;
+        for (final LongAdder count: LIVE.values()) {
+            live += count.sum();
+        }
+        return live;
+    }
+
+    public static long getLeaked() {
+        return LEAKED.sum();
+    }
+
+    public static long getReleaseFailures() {
+        return FAILED.sum();
+    }
+
+    /**
+     * @return the number of live native objects per proxy class
+     */
+    public static Map<String, Long> getLiveByType() {
+        final Map<String, Long> live = new TreeMap<>();
+        for (final Map.Entry<String, LongAdder> entry: LIVE.entrySet()) {
+            final long count = entry.getValue().sum();
+            if (count > 0) {
+                live.put(entry.getKey(), count);
+            }
+        }
+        return live;
+    }
+
+    /**
+     * Prints every live native object, with its allocation stack trace when it was tracked.
+     */
+    public static void dumpLive(final PrintStream out) {
+        for (final Registration registration: REGISTRATIONS) {
+            if (!registration.tracked) {
+                continue;
+            }
+            if (registration.allocation != null) {
+                registration.allocation.printStackTrace(out);
+            } else {
+                out.println(registration.type);
+            }
+        }
+    }
+
+    private static LongAdder count(final String type) {
+        return LIVE.computeIfAbsent(type, key -> new LongAdder());
+    }
+
+    private static void drain() {
+        while (true) {
+            try {
+                final Registration registration = (Registration) QUEUE.remove();
+                if (registration.release() && registration.tracked) {
+                    LEAKED.increment();
+                    leakListener.accept(new Leak(registration.type, registration.allocation));
+                }
+            } catch (final InterruptedException e) {
+                // the cleaner thread lives as long as the process
+            } catch (final Throwable t) {
+                FAILED.increment();
+                fail(t);
+            }
+        }
+    }
+
+    private static void fail(final Throwable error) {
+        try {
+            errorHandler.accept(error);
+        } catch (final Throwable t) {
+            // nothing is left to report to, and the cleaner thread has to keep draining
+        }
+    }
+
+    private static void report(final Leak leak) {
+        if (leak.getAllocation() != null) {
+            System.err.println(String.format("%s was not closed; released by the cleaner", leak.getType()));
+            leak.getAllocation().printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.twilio.sdk.video.util;
+
+/**
+ * Implemented by proxies which own a native object.
+ *
+ * <code>close()</code> releases the native object immediately and may be called any number of
+ * times; proxies which are never closed are released by {@link NativeCleaner} once they become
+ * unreachable.
+ */
+public interface NativeResource extends AutoCloseable {
+    /**
+     * Releases the native object; generated by SWIG.
+     */
+    void delete();
+
+    boolean isClosed();
+
+    @Override
+    default void close() {
+        delete();
+    }
+}
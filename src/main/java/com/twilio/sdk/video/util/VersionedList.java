@@ -0,0 +1,78 @@
+package com.twilio.sdk.video.util;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Caches a list returned by a native accessor and reloads it only when its version changes.
+ *
+ * The version supplier is expected to be cheap (a single JNI call returning a primitive), e.g. one
+ * of the <code>get...Version()</code> methods generated by <code>%shared_ptr_vector_version</code>:
+ *
+ * <pre>
+ * final VersionedList&lt;RemoteVideoTrackPublication&gt; tracks = new VersionedList&lt;&gt;(
+ *         participant::getRemoteVideoTracksVersion,
+ *         participant::getRemoteVideoTracks);
+ * </pre>
+ *
+ * @param <T> element type
+ */
+public class VersionedList<T> {
+    private static final class Snapshot<T> {
+        final long version;
+        final List<T> list;
+
+        Snapshot(final long version, final List<T> list) {
+            this.version = version;
+            this.list = list;
+        }
+    }
+
+    private final LongSupplier version;
+    private final Supplier<List<T>> loader;
+    private final AtomicLong reloads;
+
+    private volatile Snapshot<T> snapshot;
+
+    public VersionedList(final LongSupplier version, final Supplier<List<T>> loader) {
+        if (version == null || loader == null)
+            throw new IllegalArgumentException("version and loader cannot be null");
+
+        this.version = version;
+        this.loader = loader;
+        this.reloads = new AtomicLong();
+    }
+
+    /**
+     * @return the cached list if the version did not change since it was loaded, otherwise a freshly loaded one
+     */
+    public List<T> get() {
+        final long current = this.version.getAsLong();
+        final Snapshot<T> cached = this.snapshot;
+        if (cached != null && cached.version == current) {
+            return cached.list;
+        }
+
+        // a concurrent change between reading the version and loading only causes one more reload later
+        final Snapshot<T> loaded = new Snapshot<>(current, this.loader.get());
+        this.snapshot = loaded;
+        this.reloads.incrementAndGet();
+        return loaded.list;
+    }
+
+    /**
+     * Drops the cached list, so that the next {@link #get()} reloads it.
+     */
+    public void invalidate() {
+        this.snapshot = null;
+    }
+
+    /**
+     * @return how many times the list was loaded across JNI
+     */
+    public long getReloads() {
+        return this.reloads.get();
+    }
+}
@@ -3,14 +3,20 @@ package com.twilio.sdk.video;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.util.List;
+import java.util.Queue;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
@@ -23,6 +29,7 @@ import org.slf4j.LoggerFactory;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.Uninterruptibles;
 
 import com.twilio.http.TwilioRestClient;
 import com.twilio.jwt.accesstoken.AccessToken;
@@ -30,7 +37,14 @@ import com.twilio.jwt.accesstoken.VideoGrant;
 import com.twilio.rest.video.v1.RoomCreator;
 import com.twilio.rest.video.v1.RoomUpdater;
 import com.twilio.sdk.video.Room.State;
+import com.twilio.sdk.video.async.AsyncRoom;
+import com.twilio.sdk.video.event.DispatchingRoomObserver;
+import com.twilio.sdk.video.event.EventDispatcher;
 import com.twilio.sdk.video.loader.NativeLoader;
+import com.twilio.sdk.video.media.MediaFactoryPool;
+import com.twilio.sdk.video.media.SinkTier;
+import com.twilio.sdk.video.media.TieredVideoSink;
+import com.twilio.sdk.video.room.ParticipantRegistry;
 
 import static com.google.common.base.Strings.isNullOrEmpty;
 import static com.twilio.rest.video.v1.Room.RoomType.GROUP;
@@ -77,7 +91,7 @@ public class VideoTest {
     }
 
     private static class TestRemoteParticipantObserver extends RemoteParticipantObserver {
-        private ConcurrentMap<String, VideoSinkForVideoFrame> videoTrackObservers;
+        private ConcurrentMap<String, TieredVideoSink> videoTrackObservers;
 
         public TestRemoteParticipantObserver() {
             super();
@@ -155,14 +169,12 @@ public class VideoTest {
                 RemoteVideoTrack track) {
             LOG.info("Subscribed to video track {} of participant {}", publication.getTrackSid(), participant.getIdentity());
 
-            final VideoSinkForVideoFrame videoTrackObserver = new TestSinkForVideoFrame();
+            // scaled down natively, with rotation left as frame metadata, and black frames while disabled
+            final TieredVideoSink videoTrackObserver = new TieredVideoSink(track.getWebRtcTrack(),
+                    new TestSinkForVideoFrame(),
+                    SinkTier.SD,
+                    true);
             this.videoTrackObservers.put(publication.getTrackSid(), videoTrackObserver);
-
-            final VideoSinkWants videoSinkWants = new VideoSinkWants();
-            videoSinkWants.setBlack_frames(true);
-            videoSinkWants.setRotation_applied(true);
-
-            track.getWebRtcTrack().AddOrUpdateSink(videoTrackObserver, videoSinkWants);
         }
 
         @Override
@@ -182,7 +194,10 @@ public class VideoTest {
                 RemoteVideoTrack track) {
             LOG.info("Unsubscribed from video track {} of participant {}", publication.getTrackSid(), participant.getIdentity());
 
-            track.getWebRtcTrack().RemoveSink(this.videoTrackObservers.get(publication.getTrackSid()));
+            final TieredVideoSink videoTrackObserver = this.videoTrackObservers.remove(publication.getTrackSid());
+            if (videoTrackObserver != null) {
+                videoTrackObserver.close();
+            }
         }
 
         @Override
@@ -225,11 +240,13 @@ public class VideoTest {
         final private RemoteParticipantObserver observer;
         final private CompletableFuture<Room> connected;
         final private CompletableFuture<Void> disconnected;
+        final private ParticipantRegistry participants;
 
         volatile private boolean isConnected;
 
         public TestRoomObserver(final RemoteParticipantObserver observer) {
             this.observer = observer;
+            this.participants = new ParticipantRegistry();
             this.connected = new CompletableFuture<>();
             this.disconnected = new CompletableFuture<>();
 
@@ -252,25 +269,27 @@ public class VideoTest {
 
         @Override
         public void onConnected(Room room) {
+            this.participants.onConnected(room);
+
             LOG.info("Connected to room {} with SID {}", room.getName(), room.getSid());
-            LOG.info("Number of participants in the room: {}", room.getRemoteParticipants().size());
+            LOG.info("Number of participants in the room: {}", this.participants.size());
 
             this.isConnected = true;
             this.connected.complete(room);
 
-            final List<String> identities = room.getRemoteParticipants().keys();
-            for (final String identity: identities) {
-                LOG.info("Adding observer for participant {}", identity);
+            this.participants.forEach(participant -> {
+                LOG.info("Adding observer for participant {}", participant.getIdentity());
 
-                final RemoteParticipant participant = room.getRemoteParticipants().get(identity);
                 participant.setObserver(this.observer);
-            }
+            });
         }
 
         @Override
         public void onDisconnected(Room room, TwilioError error) {
             LOG.info("Room {} disconnected (with{} error)", room.getName(), error == null ? "out" : "");
-            
+
+            this.participants.onDisconnected();
+
             this.isConnected = false;
 
             if (error != null) {
@@ -293,6 +312,7 @@ public class VideoTest {
         public void onParticipantConnected(Room room, RemoteParticipant participant) {
             LOG.info("Particpant {} connected to room {}, adding observer ...", participant.getIdentity(), room.getName());
 
+            this.participants.onParticipantConnected(participant);
             participant.setObserver(this.observer);
         }
 
@@ -300,6 +320,7 @@ public class VideoTest {
         public void onParticipantDisconnected(Room room, RemoteParticipant participant) {
             LOG.info("Particpant {} disconnected from room {}, removing observer ...", participant.getIdentity(), room.getName());
 
+            this.participants.onParticipantDisconnected(participant);
             participant.setObserver(null);
         }
 
@@ -314,6 +335,87 @@ public class VideoTest {
         }
     }
 
+    // records subscriptions delivered through an EventDispatcher, long after the native callbacks returned
+    private static class RecordingRemoteParticipantObserver extends TestRemoteParticipantObserver {
+        private final Queue<String> subscribed = new ConcurrentLinkedQueue<>();
+
+        @Override
+        public void onAudioTrackSubscribed(RemoteParticipant participant,
+                RemoteAudioTrackPublication publication,
+                RemoteAudioTrack track) {
+            assertNotNull(track);
+            this.subscribed.add(participant.getIdentity() + "/" + publication.getTrackSid());
+            super.onAudioTrackSubscribed(participant, publication, track);
+        }
+
+        @Override
+        public void onVideoTrackSubscribed(RemoteParticipant participant,
+                RemoteVideoTrackPublication publication,
+                RemoteVideoTrack track) {
+            assertNotNull(track);
+            this.subscribed.add(participant.getIdentity() + "/" + publication.getTrackSid());
+            super.onVideoTrackSubscribed(participant, publication, track);
+        }
+    }
+
+    // holds every later event of its room in the dispatcher until released
+    private static class HoldingRoomObserver extends RoomObserver {
+        final private RecordingRemoteParticipantObserver observer;
+        final private CountDownLatch release;
+        final private CompletableFuture<Room> connected;
+        final private CompletableFuture<String> participantDisconnected;
+        final private CompletableFuture<Void> disconnected;
+
+        volatile private DispatchingRoomObserver dispatching;
+
+        public HoldingRoomObserver(final RecordingRemoteParticipantObserver observer) {
+            this.observer = observer;
+            this.release = new CountDownLatch(1);
+            this.connected = new CompletableFuture<>();
+            this.participantDisconnected = new CompletableFuture<>();
+            this.disconnected = new CompletableFuture<>();
+        }
+
+        @Override
+        public void onConnected(Room room) {
+            final RemoteParticipantMap participants = room.getRemoteParticipants();
+            for (final String identity: participants.keys()) {
+                participants.get(identity).setObserver(this.dispatching.wrap(this.observer));
+            }
+            this.connected.complete(room);
+
+            Uninterruptibles.awaitUninterruptibly(this.release);
+        }
+
+        @Override
+        public void onDisconnected(Room room, TwilioError error) {
+            this.disconnected.complete(null);
+        }
+
+        @Override
+        public void onConnectFailure(Room room, TwilioError error) {
+            this.connected.completeExceptionally(new RuntimeException(error.getMessage()));
+        }
+
+        @Override
+        public void onParticipantConnected(Room room, RemoteParticipant participant) {
+            participant.setObserver(this.dispatching.wrap(this.observer));
+        }
+
+        @Override
+        public void onParticipantDisconnected(Room room, RemoteParticipant participant) {
+            this.participantDisconnected.complete(participant.getIdentity());
+        }
+
+        @Override
+        public void onRecordingStarted(Room room) {
+        }
+
+        @Override
+        public void onRecordingStopped(Room room) {
+        }
+    }
+
     private String account;
     private String apiKey;
     private String apiKeySecret;
@@ -332,6 +434,10 @@ public class VideoTest {
     private TestRoomObserver roomObserverAlice;
     private TestRoomObserver roomObserverBob;
 
+    // owned by the test; the rooms passed to observer callbacks are not
+    private Room roomAlice = null;
+    private Room roomBob = null;
+
     private MediaFactory mfAlice = null;
     private MediaFactory mfBob = null;
 
@@ -388,16 +494,30 @@ public class VideoTest {
 
     @After
     public void teardown() {
+        // after the tests have disconnected, and before the tracks and factories the rooms use
+        this.roomBob = close(this.roomBob);
+        this.roomAlice = close(this.roomAlice);
         this.roomObserverAlice = null;
         this.roomObserverBob = null;
 
-        this.audioTrackBob = null;
-        this.videoTrackBob = null;
-        this.audioTrackAlice = null;
-        this.videoTrackBob = null;
+        this.audioTrackBob = close(this.audioTrackBob);
+        this.videoTrackBob = close(this.videoTrackBob);
+        this.audioTrackAlice = close(this.audioTrackAlice);
+        this.videoTrackAlice = close(this.videoTrackAlice);
+
+        this.mfBob = close(this.mfBob);
+        this.mfAlice = close(this.mfAlice);
+    }
 
-        this.mfBob = null;
-        this.mfAlice = null;
+    private static <T extends AutoCloseable> T close(final T resource) {
+        if (resource != null) {
+            try {
+                resource.close();
+            } catch (final Exception e) {
+                LOG.warn("Failed to close {}", resource, e);
+            }
+        }
+        return null;
     }
 
     @Test
@@ -438,6 +558,34 @@ public class VideoTest {
         }
     }
 
+    @Test
+    public void testAsyncConnectStatsDisconnect() throws InterruptedException, ExecutionException, TimeoutException {
+        if (checkForAccountInfo()) {
+            assertTrue(createRoom(this.room, this.mediaRegion, null, GROUP, null));
+            setupIdentityAlice();
+            this.mfAlice = MediaFactory.create(new MediaOptions());
+            this.audioTrackAlice = this.mfAlice.createAudioTrack(new AudioTrackOptions(true));
+
+            final AsyncRoom asyncRoom = new AsyncRoom();
+            final Room roomAlice = asyncRoom.connectAsync(getConnectOptions(this.tokenAlice,
+                            this.room,
+                            this.mfAlice,
+                            null,
+                            Lists.newArrayList(this.audioTrackAlice),
+                            null),
+                    10, TimeUnit.SECONDS).get();
+            assertEquals(roomAlice.getState(), State.kConnected);
+
+            final List<StatsReport> reports = asyncRoom.statsAsync(10, TimeUnit.SECONDS).get();
+            assertNotNull(reports);
+
+            asyncRoom.disconnectAsync(10, TimeUnit.SECONDS).get();
+            assertEquals(roomAlice.getState(), State.kDisconnected);
+            asyncRoom.close();
+            assertTrue(completeRoom(this.room));
+        }
+    }
+
     @Test
     public void testTwoParticipantConnectToP2PRoom() throws InterruptedException, ExecutionException, TimeoutException {
         if (checkForAccountInfo()) {
@@ -531,6 +679,101 @@ public class VideoTest {
         }
     }
 
+    @Test
+    public void testTwoParticipantsShareMediaFactoryPool() throws InterruptedException, ExecutionException, TimeoutException {
+        if (checkForAccountInfo()) {
+            assertTrue(createRoom(this.room, this.mediaRegion, null, GROUP, Lists.newArrayList(VP8, H264)));
+            setupIdentityAlice();
+            setupIdentityBob();
+
+            // both rooms run on one set of native threads, as the rooms of a gateway would
+            try (final MediaFactoryPool pool = new MediaFactoryPool(1)) {
+                try (final MediaFactoryPool.Lease leaseAlice = pool.acquire();
+                        final MediaFactoryPool.Lease leaseBob = pool.acquire()) {
+                    assertSame(leaseAlice.getMediaFactory(), leaseBob.getMediaFactory());
+                    assertEquals(2, pool.getActiveLeases(0));
+
+                    this.roomObserverAlice = new TestRoomObserver(this.remoteParticipantObserver);
+                    this.roomObserverBob = new TestRoomObserver(this.remoteParticipantObserver);
+                    try (final LocalVideoTrack videoTrack = leaseAlice.getMediaFactory().createVideoTrack(true, MediaConstraints.defaultVideoConstraints());
+                            final Room roomAlice = video.connect(getConnectOptions(this.tokenAlice,
+                                            this.room,
+                                            leaseAlice.getMediaFactory(),
+                                            null,
+                                            null,
+                                            Lists.newArrayList(videoTrack)),
+                                    this.roomObserverAlice);
+                            final Room roomBob = video.connect(getConnectOptions(this.tokenBob,
+                                            this.room,
+                                            leaseBob.getMediaFactory(),
+                                            null,
+                                            null,
+                                            null),
+                                    this.roomObserverBob)) {
+                        this.roomObserverAlice.waitForRoomConnect(10, TimeUnit.SECONDS);
+                        this.roomObserverBob.waitForRoomConnect(10, TimeUnit.SECONDS);
+                        assertEquals(roomAlice.getState(), State.kConnected);
+                        assertEquals(roomBob.getState(), State.kConnected);
+                        Thread.sleep(5000);
+                        roomBob.disconnect();
+                        this.roomObserverBob.waitForRoomDisconnect(10, TimeUnit.SECONDS);
+                        roomAlice.disconnect();
+                        this.roomObserverAlice.waitForRoomDisconnect(10, TimeUnit.SECONDS);
+                    }
+                }
+                assertEquals(0, pool.getActiveLeases());
+                assertEquals(2, pool.getTotalLeases(0));
+            }
+            assertTrue(completeRoom(this.room));
+        }
+    }
+
+    @Test
+    public void testDispatchedParticipantEventsOutliveCallbacks() throws InterruptedException, ExecutionException, TimeoutException {
+        if (checkForAccountInfo()) {
+            assertTrue(createRoom(this.room, this.mediaRegion, null, GROUP, Lists.newArrayList(VP8, H264)));
+            setupIdentityAlice();
+            final Room roomAlice = connectAlice(null);
+            assertEquals(roomAlice.getState(), State.kConnected);
+
+            setupIdentityBob();
+            this.mfBob = MediaFactory.create(new MediaOptions());
+            final ExecutorService executor = Executors.newSingleThreadExecutor();
+            final EventDispatcher dispatcher = new EventDispatcher(executor, 1024, EventDispatcher.OverflowPolicy.DROP);
+            final RecordingRemoteParticipantObserver recorder = new RecordingRemoteParticipantObserver();
+            final HoldingRoomObserver holder = new HoldingRoomObserver(recorder);
+            holder.dispatching = dispatcher.wrap(holder);
+            try (final Room roomBob = video.connect(getConnectOptions(this.tokenBob, this.room, this.mfBob, null, null, null),
+                    holder.dispatching)) {
+                holder.connected.get(10, TimeUnit.SECONDS);
+
+                // Bob subscribes to Alice's tracks and sees her leave while his handlers are held
+                Thread.sleep(5000);
+                roomAlice.disconnect();
+                this.roomObserverAlice.waitForRoomDisconnect(10, TimeUnit.SECONDS);
+                Thread.sleep(2000);
+                assertTrue(dispatcher.getQueuedEvents() > 1);
+                System.gc();
+                holder.release.countDown();
+
+                assertEquals(this.identityAlice, holder.participantDisconnected.get(10, TimeUnit.SECONDS));
+                assertFalse(recorder.subscribed.isEmpty());
+                for (final String subscription: recorder.subscribed) {
+                    assertTrue(subscription.startsWith(this.identityAlice + "/"));
+                }
+                assertEquals(0, dispatcher.getEventsDropped());
+                assertEquals(0, dispatcher.getHandlerFailures());
+
+                roomBob.disconnect();
+                holder.disconnected.get(10, TimeUnit.SECONDS);
+            } finally {
+                holder.release.countDown();
+                executor.shutdown();
+            }
+            assertTrue(completeRoom(this.room));
+        }
+    }
+
     protected boolean checkForAccountInfo() {
         if (isNullOrEmpty(this.account) || isNullOrEmpty(this.apiKey) || isNullOrEmpty(this.apiKeySecret)) {
             System.out.println("Account information is not configured, cannot generate access token!");
@@ -596,14 +839,15 @@ public class VideoTest {
 
         LOG.info("Connecting Alice to the room {}", this.room);
         this.roomObserverAlice = new TestRoomObserver(this.remoteParticipantObserver);
-        video.connect(getConnectOptions(this.tokenAlice,
+        this.roomAlice = video.connect(getConnectOptions(this.tokenAlice,
                         this.room,
                         this.mfAlice,
                         preferredVCodecs,
                         Lists.newArrayList(this.audioTrackAlice),
                         Lists.newArrayList(this.videoTrackAlice)),
                 this.roomObserverAlice);
-        return this.roomObserverAlice.waitForRoomConnect(10, TimeUnit.SECONDS);
+        this.roomObserverAlice.waitForRoomConnect(10, TimeUnit.SECONDS);
+        return this.roomAlice;
     }
 
     protected Room connectBob(final List<VideoCodec> preferredVCodecs) throws InterruptedException, ExecutionException, TimeoutException {
@@ -616,14 +860,15 @@ public class VideoTest {
 
         LOG.info("Connecting Bob to the room {}", this.room);
         this.roomObserverBob = new TestRoomObserver(this.remoteParticipantObserver);
-        video.connect(getConnectOptions(this.tokenBob,
+        this.roomBob = video.connect(getConnectOptions(this.tokenBob,
                         this.room,
                         mfBob,
                         preferredVCodecs,
                         Lists.newArrayList(this.audioTrackBob),
                         Lists.newArrayList(this.videoTrackBob)),
                 this.roomObserverBob);
-        return this.roomObserverBob.waitForRoomConnect(10, TimeUnit.SECONDS);
+        this.roomObserverBob.waitForRoomConnect(10, TimeUnit.SECONDS);
+        return this.roomBob;
     }
 
     protected TwilioRestClient getTwilioRestClient() {
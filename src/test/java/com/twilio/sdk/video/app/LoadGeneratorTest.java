@@ -0,0 +1,31 @@
+package com.twilio.sdk.video.app;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class LoadGeneratorTest {
+    @Test
+    public void testParsesWeightedCodecs() {
+        assertEquals(Arrays.asList("H264", "H264", "H264", "VP8"), LoadGenerator.parseCodecs("H264:3,VP8:1"));
+        assertEquals(Arrays.asList("VP8", "VP9"), LoadGenerator.parseCodecs(" vp8 , VP9 "));
+        assertEquals(Arrays.asList("H264", "VP8", "VP8"), LoadGenerator.parseCodecs("H264, VP8 : 2"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsUnknownCodec() {
+        LoadGenerator.parseCodecs("H264,AV1");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsNonPositiveWeight() {
+        LoadGenerator.parseCodecs("H264:0");
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void testRejectsMalformedWeight() {
+        LoadGenerator.parseCodecs("H264:x");
+    }
+}
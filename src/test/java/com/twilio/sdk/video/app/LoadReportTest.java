@@ -0,0 +1,31 @@
+package com.twilio.sdk.video.app;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class LoadReportTest {
+    private static final double DELTA = 1e-9;
+
+    @Test
+    public void testNearestRankPercentile() {
+        final double[] sorted = { 15, 20, 35, 40, 50 };
+        assertEquals(15, LoadReport.percentile(sorted, 0), DELTA);
+        assertEquals(15, LoadReport.percentile(sorted, 5), DELTA);
+        assertEquals(20, LoadReport.percentile(sorted, 30), DELTA);
+        assertEquals(20, LoadReport.percentile(sorted, 40), DELTA);
+        assertEquals(35, LoadReport.percentile(sorted, 50), DELTA);
+        assertEquals(50, LoadReport.percentile(sorted, 99), DELTA);
+        assertEquals(50, LoadReport.percentile(sorted, 100), DELTA);
+    }
+
+    @Test
+    public void testPercentileEdgeCases() {
+        assertEquals(0, LoadReport.percentile(new double[0], 50), DELTA);
+        assertEquals(7, LoadReport.percentile(new double[] { 7 }, 99), DELTA);
+        // out-of-range percentiles are clamped
+        final double[] sorted = { 1, 2, 3 };
+        assertEquals(1, LoadReport.percentile(sorted, -10), DELTA);
+        assertEquals(3, LoadReport.percentile(sorted, 150), DELTA);
+    }
+}
@@ -0,0 +1,46 @@
+package com.twilio.sdk.video.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+import com.twilio.sdk.video.DataTrackOptions;
+import com.twilio.sdk.video.DataTrackSender;
+import com.twilio.sdk.video.LocalDataTrack;
+import com.twilio.sdk.video.MediaFactory;
+import com.twilio.sdk.video.MediaOptions;
+import com.twilio.sdk.video.loader.NativeLoader;
+
+public class DataTrackSenderTest {
+    private static final int CAPACITY = 64 * 1024;
+    private static final int TIMEOUT_MS = 5_000;
+
+    static {
+        NativeLoader.loadNativeLibraries();
+    }
+
+    @Test
+    public void testAcceptsLargeMessageIntoEmptyRingAtAnyPosition() {
+        try (final MediaFactory factory = MediaFactory.create(new MediaOptions());
+                final LocalDataTrack track = factory.createDataTrack(new DataTrackOptions.Builder().build());
+                final DataTrackSender sender = new DataTrackSender(track, CAPACITY)) {
+            // leaves the empty ring with its write position in the middle
+            final ByteBuffer small = ByteBuffer.allocateDirect(30_000);
+            assertTrue(sender.offer(small, 0, small.capacity()));
+            assertTrue(sender.waitForBufferedBelow(0, TIMEOUT_MS));
+
+            // more than half the ring, so it fits neither before the end nor after padding to it
+            final ByteBuffer large = ByteBuffer.allocateDirect(40 * 1024);
+            for (int i = 0; i < 3; i++) {
+                assertTrue(sender.offer(large, 0, large.capacity()));
+                assertTrue(sender.waitForBufferedBelow(0, TIMEOUT_MS));
+            }
+            assertEquals(0, sender.getMessagesRejected().longValue());
+            // the track is not published, so the messages may be refused by it rather than sent
+            assertEquals(4, sender.getMessagesSent().longValue() + sender.getMessagesFailed().longValue());
+        }
+    }
+}
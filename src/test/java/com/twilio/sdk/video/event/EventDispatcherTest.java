@@ -0,0 +1,140 @@
+package com.twilio.sdk.video.event;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class EventDispatcherTest {
+    @Test
+    public void testKeepsOrderWithinLane() throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final EventDispatcher dispatcher = new EventDispatcher(executor, 1024, EventDispatcher.OverflowPolicy.BLOCK);
+            final EventDispatcher.Lane lane = dispatcher.newLane();
+            final List<Integer> seen = Collections.synchronizedList(new ArrayList<>());
+            final CountDownLatch done = new CountDownLatch(500);
+
+            for (int i = 0; i < 500; i++) {
+                final int index = i;
+                assertTrue(lane.submit(EventType.PARTICIPANT_CONNECTED, () -> {
+                    seen.add(index);
+                    done.countDown();
+                }));
+            }
+
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+            for (int i = 0; i < 500; i++) {
+                assertEquals(i, seen.get(i).intValue());
+            }
+            // latency is recorded once a handler has returned, just after the last one counted down
+            for (int i = 0; i < 100 && dispatcher.getEventsDispatched() < 500; i++) {
+                Thread.sleep(10);
+            }
+            assertEquals(500, dispatcher.getLatency(EventType.PARTICIPANT_CONNECTED).getCount());
+            assertEquals(0, dispatcher.getLatency(EventType.CONNECTED).getCount());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testDropsWhenFull() throws Exception {
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final EventDispatcher dispatcher = new EventDispatcher(executor, 2, EventDispatcher.OverflowPolicy.DROP);
+            final EventDispatcher.Lane lane = dispatcher.newLane();
+            final CountDownLatch release = new CountDownLatch(1);
+            final CountDownLatch done = new CountDownLatch(2);
+
+            assertTrue(lane.submit(EventType.CONNECTED, () -> {
+                try {
+                    release.await();
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                done.countDown();
+            }));
+            assertTrue(lane.submit(EventType.RECORDING_STARTED, done::countDown));
+            assertFalse(lane.submit(EventType.RECORDING_STOPPED, done::countDown));
+
+            assertEquals(2, dispatcher.getQueuedEvents());
+            assertEquals(1, dispatcher.getEventsDropped());
+
+            release.countDown();
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+            assertEquals(3, dispatcher.getEventsSubmitted());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testHandlerFailureDoesNotStopLane() throws Exception {
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final EventDispatcher dispatcher = new EventDispatcher(executor, 16, EventDispatcher.OverflowPolicy.BLOCK);
+            final List<Throwable> errors = Collections.synchronizedList(new ArrayList<>());
+            dispatcher.setErrorHandler(errors::add);
+
+            final EventDispatcher.Lane lane = dispatcher.newLane();
+            final CountDownLatch done = new CountDownLatch(1);
+            lane.submit(EventType.CONNECTED, () -> {
+                throw new IllegalStateException("handler failed");
+            });
+            lane.submit(EventType.DISCONNECTED, done::countDown);
+
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+            assertEquals(1, dispatcher.getHandlerFailures());
+            assertEquals(1, errors.size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testRejectedLaneDropsBacklog() {
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        executor.shutdown();
+
+        final EventDispatcher dispatcher = new EventDispatcher(executor, 16, EventDispatcher.OverflowPolicy.BLOCK);
+        final List<Throwable> errors = Collections.synchronizedList(new ArrayList<>());
+        dispatcher.setErrorHandler(errors::add);
+
+        final EventDispatcher.Lane lane = dispatcher.newLane();
+        final List<EventType> ran = Collections.synchronizedList(new ArrayList<>());
+        lane.submit(EventType.CONNECTED, () -> ran.add(EventType.CONNECTED));
+        lane.submit(EventType.DISCONNECTED, () -> ran.add(EventType.DISCONNECTED));
+
+        // nothing runs on the notifier thread once the executor refuses the lane
+        assertTrue(ran.isEmpty());
+        assertEquals(2, dispatcher.getEventsDropped());
+        assertEquals(0, dispatcher.getQueuedEvents());
+        assertEquals(2, errors.size());
+        assertTrue(errors.get(0) instanceof RejectedExecutionException);
+    }
+
+    @Test
+    public void testHistogramPercentiles() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 99; i++) {
+            histogram.record(TimeUnit.MICROSECONDS.toNanos(10));
+        }
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(100));
+
+        assertEquals(100, histogram.getCount());
+        assertEquals(16, histogram.getPercentile(50, TimeUnit.MICROSECONDS));
+        assertEquals(16, histogram.getPercentile(99, TimeUnit.MICROSECONDS));
+        assertEquals(100, histogram.getMax(TimeUnit.MILLISECONDS));
+    }
+}
@@ -0,0 +1,183 @@
+package com.twilio.sdk.video.media;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.twilio.sdk.video.ConvertOptions;
+import com.twilio.sdk.video.ConvertedFrame;
+import com.twilio.sdk.video.LocalVideoTrack;
+import com.twilio.sdk.video.MediaConstraints;
+import com.twilio.sdk.video.MediaFactory;
+import com.twilio.sdk.video.MediaOptions;
+import com.twilio.sdk.video.PixelFormat;
+import com.twilio.sdk.video.VideoFrameInjector;
+import com.twilio.sdk.video.VideoRotation;
+import com.twilio.sdk.video.VideoTrackOptions;
+import com.twilio.sdk.video.loader.NativeLoader;
+
+public class FrameReaderTest {
+    private static final int WIDTH = 320;
+    private static final int HEIGHT = 240;
+    private static final int START_TIMEOUT_MS = 5_000;
+    // the capturer may drop a frame pushed faster than its capture format allows
+    private static final int ATTEMPTS = 50;
+    private static final int FRAME_INTERVAL_MS = 40;
+    private static final byte WHITE = (byte) 235;
+    private static final byte BLACK = (byte) 16;
+
+    static {
+        NativeLoader.loadNativeLibraries();
+    }
+
+    private MediaFactory factory;
+    private VideoFrameInjector injector;
+    private LocalVideoTrack track;
+    private ByteBuffer y;
+    private ByteBuffer u;
+    private ByteBuffer v;
+
+    @Before
+    public void setup() throws InterruptedException {
+        this.factory = MediaFactory.create(new MediaOptions());
+        this.injector = new VideoFrameInjector(4);
+        this.track = this.factory.createVideoTrack(this.injector, new VideoTrackOptions(true), MediaConstraints.defaultVideoConstraints());
+        for (int i = 0; i < START_TIMEOUT_MS / 10 && !this.injector.isStarted(); i++) {
+            Thread.sleep(10);
+        }
+        assertTrue(this.injector.isStarted());
+
+        // a white top row on black, so that the direction of a rotation shows in the output
+        this.y = ByteBuffer.allocateDirect(WIDTH * HEIGHT);
+        for (int i = 0; i < WIDTH * HEIGHT; i++) {
+            this.y.put(i, i < WIDTH ? WHITE : BLACK);
+        }
+        this.u = ByteBuffer.allocateDirect(WIDTH * HEIGHT / 4);
+        this.v = ByteBuffer.allocateDirect(WIDTH * HEIGHT / 4);
+        for (int i = 0; i < WIDTH * HEIGHT / 4; i++) {
+            this.u.put(i, (byte) 128);
+            this.v.put(i, (byte) 128);
+        }
+    }
+
+    @After
+    public void teardown() {
+        this.track.close();
+        this.injector.close();
+        this.factory.close();
+    }
+
+    private ByteBuffer pushAndRead(final FrameReader reader, final VideoRotation rotation) throws InterruptedException {
+        for (int i = 0; i < ATTEMPTS; i++) {
+            this.injector.pushI420(this.y, WIDTH, this.u, WIDTH / 2, this.v, WIDTH / 2, WIDTH, HEIGHT, 0, rotation);
+            final ByteBuffer pixels = reader.read();
+            if (pixels != null) {
+                return pixels;
+            }
+            Thread.sleep(FRAME_INTERVAL_MS);
+        }
+        return null;
+    }
+
+    private static ConvertOptions size(final int width, final int height, final PixelFormat format) {
+        final ConvertOptions options = new ConvertOptions();
+        options.setWidth(width);
+        options.setHeight(height);
+        options.setFormat(format);
+        return options;
+    }
+
+    @Test
+    public void testReadsExpectedSizePerFormat() throws InterruptedException {
+        final int width = 160;
+        final int height = 120;
+        final int chroma = 2 * (width / 2) * (height / 2);
+        final PixelFormat[] formats = {PixelFormat.kI420, PixelFormat.kNV12, PixelFormat.kBGRA, PixelFormat.kRGBA, PixelFormat.kBGR24, PixelFormat.kRGB24};
+        final int[] sizes = {width * height + chroma, width * height + chroma, width * height * 4, width * height * 4, width * height * 3, width * height * 3};
+
+        try (final FrameReader reader = new FrameReader(this.track.getWebRtcTrack(), size(width, height, formats[0]))) {
+            for (int i = 0; i < formats.length; i++) {
+                reader.setOptions(size(width, height, formats[i]));
+                final ByteBuffer pixels = pushAndRead(reader, VideoRotation.kVideoRotation_0);
+                assertNotNull(pixels);
+                assertEquals(0, pixels.position());
+                assertEquals(sizes[i], pixels.remaining());
+
+                final ConvertedFrame frame = reader.getLastFrame();
+                assertEquals(width, frame.getWidth());
+                assertEquals(height, frame.getHeight());
+                assertEquals(formats[i], frame.getFormat());
+                assertEquals(WIDTH, frame.getSourceWidth());
+                assertEquals(HEIGHT, frame.getSourceHeight());
+            }
+        }
+    }
+
+    @Test
+    public void testDerivesMissingDimensionFromAspectRatio() throws InterruptedException {
+        try (final FrameReader reader = new FrameReader(this.track.getWebRtcTrack(), size(100, 0, PixelFormat.kBGRA))) {
+            assertEquals(100 * 75 * 4, pushAndRead(reader, VideoRotation.kVideoRotation_0).remaining());
+            assertEquals(75, reader.getLastFrame().getHeight());
+
+            reader.setOptions(size(0, 90, PixelFormat.kBGRA));
+            assertEquals(120 * 90 * 4, pushAndRead(reader, VideoRotation.kVideoRotation_0).remaining());
+            assertEquals(120, reader.getLastFrame().getWidth());
+
+            // both 0 keeps the source size
+            reader.setOptions(size(0, 0, PixelFormat.kBGRA));
+            assertEquals(WIDTH * HEIGHT * 4, pushAndRead(reader, VideoRotation.kVideoRotation_0).remaining());
+        }
+    }
+
+    @Test
+    public void testRoundsCropOriginToEvenPixels() throws InterruptedException {
+        // an odd origin moves one pixel up and left, so a crop up to the edge grows by one
+        final ConvertOptions options = size(0, 0, PixelFormat.kI420);
+        options.setCrop_x(WIDTH - 5);
+        options.setCrop_y(HEIGHT - 3);
+
+        try (final FrameReader reader = new FrameReader(this.track.getWebRtcTrack(), options)) {
+            assertEquals(6 * 4 + 2 * 3 * 2, pushAndRead(reader, VideoRotation.kVideoRotation_0).remaining());
+            assertEquals(6, reader.getLastFrame().getWidth());
+            assertEquals(4, reader.getLastFrame().getHeight());
+
+            // a crop which starts past the frame leaves nothing to read
+            options.setCrop_x(WIDTH + 2);
+            reader.setOptions(options);
+            assertNull(reader.read());
+        }
+    }
+
+    @Test
+    public void testAppliesRotationOnlyWhenAsked() throws InterruptedException {
+        try (final FrameReader reader = new FrameReader(this.track.getWebRtcTrack(), size(0, 0, PixelFormat.kI420))) {
+            ByteBuffer pixels = pushAndRead(reader, VideoRotation.kVideoRotation_90);
+            ConvertedFrame frame = reader.getLastFrame();
+            assertEquals(HEIGHT, frame.getWidth());
+            assertEquals(WIDTH, frame.getHeight());
+            assertEquals(VideoRotation.kVideoRotation_0, frame.getRotation());
+            // turned clockwise, the white top row is now the right column
+            assertEquals(WHITE, pixels.get(HEIGHT - 1));
+            assertEquals(WHITE, pixels.get((WIDTH - 1) * HEIGHT + HEIGHT - 1));
+            assertEquals(BLACK, pixels.get(0));
+
+            final ConvertOptions options = size(0, 0, PixelFormat.kI420);
+            options.setApply_rotation(false);
+            reader.setOptions(options);
+            pixels = pushAndRead(reader, VideoRotation.kVideoRotation_90);
+            frame = reader.getLastFrame();
+            assertEquals(WIDTH, frame.getWidth());
+            assertEquals(HEIGHT, frame.getHeight());
+            assertEquals(VideoRotation.kVideoRotation_90, frame.getRotation());
+            assertEquals(WHITE, pixels.get(WIDTH - 1));
+            assertEquals(BLACK, pixels.get(WIDTH * (HEIGHT - 1)));
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.twilio.sdk.video.media;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import com.twilio.sdk.video.MediaOptions;
+import com.twilio.sdk.video.MediaThreadGroup;
+import com.twilio.sdk.video.MediaThreadKind;
+import com.twilio.sdk.video.loader.NativeLoader;
+
+public class MediaFactoryPoolTest {
+    static {
+        NativeLoader.loadNativeLibraries();
+    }
+
+    @Test
+    public void testLeasesLeastLoadedFactory() {
+        try (final MediaFactoryPool pool = new MediaFactoryPool("test", 2, MediaOptions::new)) {
+            assertFalse(pool.isStarted(0));
+
+            final MediaFactoryPool.Lease first = pool.acquire();
+            final MediaFactoryPool.Lease second = pool.acquire();
+            assertEquals(0, first.getIndex());
+            assertEquals(1, second.getIndex());
+            assertNotSame(first.getMediaFactory(), second.getMediaFactory());
+            assertEquals("test-0", first.getThreadGroup().getName());
+
+            first.close();
+            first.close();
+            assertEquals(0, pool.getActiveLeases(0));
+
+            final MediaFactoryPool.Lease third = pool.acquire();
+            assertEquals(0, third.getIndex());
+            assertSame(first.getMediaFactory(), third.getMediaFactory());
+            assertEquals(2, pool.getTotalLeases(0));
+
+            third.close();
+            second.close();
+            assertEquals(0, pool.getActiveLeases());
+        }
+    }
+
+    @Test
+    public void testCloseFailsWhileLeased() {
+        final MediaFactoryPool pool = new MediaFactoryPool("test", 1, MediaOptions::new);
+        final MediaFactoryPool.Lease lease = pool.acquire();
+        try {
+            pool.close();
+            fail("closed a pool with an active lease");
+        } catch (final IllegalStateException e) {
+            // expected
+        } finally {
+            lease.close();
+        }
+
+        pool.close();
+        try {
+            pool.acquire();
+            fail("leased from a closed pool");
+        } catch (final IllegalStateException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testProbesStartedThreads() throws InterruptedException {
+        try (final MediaFactoryPool pool = new MediaFactoryPool("test", 2, MediaOptions::new)) {
+            pool.prestart(1);
+            assertTrue(pool.isStarted(0));
+            assertFalse(pool.isStarted(1));
+
+            final MediaThreadGroup group = pool.getThreadGroup(0);
+            assertNotNull(group);
+            pool.probe();
+            for (int i = 0; i < 100 && group.getProbes(MediaThreadKind.kWorker).longValue() == 0; i++) {
+                Thread.sleep(10);
+            }
+            assertEquals(1, group.getProbes(MediaThreadKind.kWorker).longValue());
+            assertTrue(group.getLastLatencyUs(MediaThreadKind.kWorker) >= 0);
+        }
+    }
+}
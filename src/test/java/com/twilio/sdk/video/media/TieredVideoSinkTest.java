@@ -0,0 +1,128 @@
+package com.twilio.sdk.video.media;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.twilio.sdk.video.FakeVideoCapturerOptions;
+import com.twilio.sdk.video.MediaConstraints;
+import com.twilio.sdk.video.VideoFrame;
+import com.twilio.sdk.video.VideoSinkForVideoFrame;
+import com.twilio.sdk.video.VideoSinkWants;
+import com.twilio.sdk.video.VideoTrackInterface;
+import com.twilio.sdk.video.loader.NativeLoader;
+
+public class TieredVideoSinkTest {
+    private static final int FRAME_RATE = 30;
+    private static final int CONNECT_TIMEOUT_MS = 10_000;
+    // long enough for the rate limit to show, and for a few frames of slack either way
+    private static final int WINDOW_MS = 3_000;
+    // frames adapted for the previous tier may still be on their way to the sink
+    private static final int SETTLE_MS = 500;
+    // share of the expected frames which must arrive despite delivery and decode jitter
+    private static final double MIN_RATE_FRACTION = 0.8;
+
+    static {
+        NativeLoader.loadNativeLibraries();
+    }
+
+    // counts frames and the largest frame since the last reset
+    private static class RecordingSink extends VideoSinkForVideoFrame {
+        private int frames;
+        private int maxPixelCount;
+
+        @Override
+        public synchronized void OnFrame(final VideoFrame frame) {
+            this.frames++;
+            this.maxPixelCount = Math.max(this.maxPixelCount, frame.width() * frame.height());
+            notifyAll();
+        }
+
+        synchronized void awaitFrames(final int count, final long timeoutMs) throws InterruptedException {
+            final long deadline = System.currentTimeMillis() + timeoutMs;
+            while (this.frames < count && System.currentTimeMillis() < deadline) {
+                wait(Math.max(1, deadline - System.currentTimeMillis()));
+            }
+        }
+
+        synchronized void reset() {
+            this.frames = 0;
+            this.maxPixelCount = 0;
+        }
+
+        synchronized int getFrames() {
+            return this.frames;
+        }
+
+        synchronized int getMaxPixelCount() {
+            return this.maxPixelCount;
+        }
+    }
+
+    private static VideoTrackInterface awaitRemoteVideoTrack(final Loopback loopback, final int index)
+            throws InterruptedException {
+        for (int i = 0; i < CONNECT_TIMEOUT_MS / 10; i++) {
+            final VideoTrackInterface track = loopback.getRemoteVideoTrack(index);
+            if (track != null) {
+                return track;
+            }
+            Thread.sleep(10);
+        }
+        return null;
+    }
+
+    private static void measure(final RecordingSink sink) throws InterruptedException {
+        Thread.sleep(SETTLE_MS);
+        sink.reset();
+        Thread.sleep(WINDOW_MS);
+    }
+
+    private static int expectedFrames(final int frameRate) {
+        return frameRate * WINDOW_MS / 1000;
+    }
+
+    @Test
+    public void testAppliesTierToReceivedFrames() throws InterruptedException {
+        final FakeVideoCapturerOptions options = new FakeVideoCapturerOptions();
+        options.setFrame_rate(FRAME_RATE);
+
+        try (final Loopback loopback = new Loopback("tiered")) {
+            final int index = loopback.addFakeVideoTrack(options, MediaConstraints.defaultVideoConstraints());
+            loopback.connect(CONNECT_TIMEOUT_MS);
+            final VideoTrackInterface track = awaitRemoteVideoTrack(loopback, index);
+            assertNotNull(track);
+
+            final RecordingSink sink = new RecordingSink();
+            final TieredVideoSink tiered = new TieredVideoSink(track, sink, SinkTier.THUMBNAIL, true);
+            try {
+                VideoSinkWants wants = tiered.getAdapter().getWants();
+                assertTrue(wants.getBlack_frames());
+                assertFalse(wants.getRotation_applied());
+                assertEquals(SinkTier.THUMBNAIL.getMaxPixelCount(), wants.getMax_pixel_count());
+
+                sink.awaitFrames(1, CONNECT_TIMEOUT_MS);
+                measure(sink);
+                assertTrue(sink.getMaxPixelCount() <= SinkTier.THUMBNAIL.getMaxPixelCount());
+                assertTrue(sink.getFrames() >= expectedFrames(SinkTier.THUMBNAIL.getMaxFrameRate()) * MIN_RATE_FRACTION);
+                assertTrue(sink.getFrames() <= expectedFrames(SinkTier.THUMBNAIL.getMaxFrameRate()) + 1);
+
+                tiered.setTier(SinkTier.HD);
+                wants = tiered.getAdapter().getWants();
+                assertTrue(wants.getBlack_frames());
+                assertEquals(SinkTier.HD.getMaxPixelCount(), wants.getMax_pixel_count());
+
+                measure(sink);
+                // the capturer's frames fit into HD, so they are passed on unscaled and at its rate
+                assertTrue(sink.getMaxPixelCount() > SinkTier.THUMBNAIL.getMaxPixelCount());
+                assertTrue(sink.getMaxPixelCount() <= SinkTier.HD.getMaxPixelCount());
+                assertTrue(sink.getFrames() >= expectedFrames(FRAME_RATE) * MIN_RATE_FRACTION);
+                assertTrue(sink.getFrames() <= expectedFrames(SinkTier.HD.getMaxFrameRate()) + 1);
+            } finally {
+                tiered.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.twilio.sdk.video.metrics;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.AttributeNotFoundException;
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+
+import org.junit.Test;
+
+public class JmxExporterTest {
+    private static final String NAME = "com.twilio.sdk.video.test:type=Metrics";
+
+    @Test
+    public void testGetAttributeReadsOnlyItsOwner() throws Exception {
+        final MetricsRegistry registry = new MetricsRegistry();
+        final AtomicInteger gaugeReads = new AtomicInteger();
+        final AtomicInteger sourceReads = new AtomicInteger();
+        registry.gauge("queued", "Queued frames", () -> 2, "sink", "a");
+        registry.gauge("other", "Another gauge", gaugeReads::incrementAndGet);
+        registry.register(visitor -> {
+            sourceReads.incrementAndGet();
+            visitor.sample(MetricsRegistry.Type.GAUGE, "bitrate", "Bitrate", MetricsRegistry.labels("track", "MT1"), 100);
+        });
+
+        final MBeanServer server = MBeanServerFactory.newMBeanServer();
+        try (final JmxExporter exporter = new JmxExporter(registry, NAME, server)) {
+            // the first read finds the owners of every attribute
+            assertEquals(2.0, (Double) server.getAttribute(new ObjectName(NAME), "queued.a"), 0);
+            final int gauges = gaugeReads.get();
+            final int sources = sourceReads.get();
+
+            assertEquals(2.0, (Double) exporter.getAttribute("queued.a"), 0);
+            assertEquals(100.0, (Double) exporter.getAttribute("bitrate.MT1"), 0);
+            assertEquals(gauges, gaugeReads.get());
+            assertEquals(sources + 1, sourceReads.get());
+        }
+    }
+
+    @Test(expected = AttributeNotFoundException.class)
+    public void testUnknownAttribute() throws Exception {
+        try (final JmxExporter exporter = new JmxExporter(new MetricsRegistry(), NAME, MBeanServerFactory.newMBeanServer())) {
+            exporter.getAttribute("missing");
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.twilio.sdk.video.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class PrometheusExporterTest {
+    @Test
+    public void testRendersFamiliesOnce() {
+        final MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("frames_total", "Frames", "sink", "a").add(3);
+        registry.counter("frames_total", "Frames", "sink", "b\"c").add(4);
+        registry.gauge("queued", "Queued frames", () -> 1.5);
+        registry.histogram("latency_seconds", "Latency").record(TimeUnit.MICROSECONDS.toNanos(3));
+
+        final String text = new PrometheusExporter(registry).render();
+
+        assertEquals(1, occurrences(text, "# TYPE frames_total counter"));
+        assertTrue(text.contains("frames_total{sink=\"a\"} 3\n"));
+        assertTrue(text.contains("frames_total{sink=\"b\\\"c\"} 4\n"));
+        assertTrue(text.contains("# TYPE queued gauge\nqueued 1.5\n"));
+        assertTrue(text.contains("latency_seconds_bucket{le=\"2.0E-6\"} 0\n"));
+        assertTrue(text.contains("latency_seconds_bucket{le=\"4.0E-6\"} 1\n"));
+        assertTrue(text.contains("latency_seconds_bucket{le=\"+Inf\"} 1\n"));
+        assertTrue(text.contains("latency_seconds_count 1\n"));
+    }
+
+    @Test
+    public void testServesMetrics() throws Exception {
+        final MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("connects_total", "Connects").increment();
+
+        try (final PrometheusExporter exporter = new PrometheusExporter(registry)) {
+            exporter.start(0);
+
+            final HttpURLConnection connection = (HttpURLConnection) new URL("http://127.0.0.1:" + exporter.getPort() + "/metrics").openConnection();
+            assertEquals(200, connection.getResponseCode());
+            assertTrue(connection.getContentType().startsWith("text/plain"));
+            assertTrue(read(connection.getInputStream()).contains("connects_total 1\n"));
+        }
+    }
+
+    @Test
+    public void testCloseStopsServingThread() throws Exception {
+        final PrometheusExporter exporter = new PrometheusExporter(new MetricsRegistry());
+        exporter.start(0);
+        final HttpURLConnection connection = (HttpURLConnection) new URL("http://127.0.0.1:" + exporter.getPort() + "/metrics").openConnection();
+        assertEquals(200, connection.getResponseCode());
+        read(connection.getInputStream());
+
+        exporter.close();
+        for (int i = 0; i < 100 && servingThreads() > 0; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, servingThreads());
+        assertEquals(-1, exporter.getPort());
+    }
+
+    private static int servingThreads() {
+        int count = 0;
+        for (final Thread thread: Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().equals("twilio-video-metrics") && thread.isAlive()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static int occurrences(final String text, final String needle) {
+        int count = 0;
+        for (int index = text.indexOf(needle); index >= 0; index = text.indexOf(needle, index + 1)) {
+            count++;
+        }
+        return count;
+    }
+
+    private static String read(final InputStream in) throws Exception {
+        try (final InputStream stream = in) {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[4096];
+            int read;
+            while ((read = stream.read(buffer)) > 0) {
+                out.write(buffer, 0, read);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.twilio.sdk.video.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class NativeCleanerTest {
+    private static final class Resource {
+    }
+
+    @Test
+    public void testReleaseRunsOnce() {
+        final AtomicInteger releases = new AtomicInteger();
+        final Resource resource = new Resource();
+        final NativeCleaner.Registration registration = NativeCleaner.register(resource, releases::incrementAndGet);
+
+        assertTrue(registration.release());
+        assertFalse(registration.release());
+        assertTrue(registration.isReleased());
+        assertEquals(1, releases.get());
+    }
+
+    @Test
+    public void testReleasesUnreachableOwner() throws Exception {
+        final CountDownLatch released = new CountDownLatch(1);
+        final long leaked = NativeCleaner.getLeaked();
+
+        register(released);
+
+        for (int i = 0; i < 50 && released.getCount() > 0; i++) {
+            System.gc();
+            released.await(100, TimeUnit.MILLISECONDS);
+        }
+
+        assertTrue(released.await(1, TimeUnit.SECONDS));
+        // the leak is counted after the release action ran
+        for (int i = 0; i < 50 && NativeCleaner.getLeaked() == leaked; i++) {
+            Thread.sleep(10);
+        }
+        assertTrue(NativeCleaner.getLeaked() > leaked);
+    }
+
+    @Test
+    public void testAttachedIsNeitherLiveNorLeaked() throws Exception {
+        final CountDownLatch released = new CountDownLatch(1);
+        final long live = NativeCleaner.getLive();
+        final long leaked = NativeCleaner.getLeaked();
+
+        attach(released);
+        assertEquals(live, NativeCleaner.getLive());
+        assertFalse(NativeCleaner.getLiveByType().containsKey(Resource.class.getSimpleName()));
+
+        for (int i = 0; i < 50 && released.getCount() > 0; i++) {
+            System.gc();
+            released.await(100, TimeUnit.MILLISECONDS);
+        }
+
+        assertTrue(released.await(1, TimeUnit.SECONDS));
+        Thread.sleep(100);
+        assertEquals(leaked, NativeCleaner.getLeaked());
+    }
+
+    @Test
+    public void testReportsFailedRelease() throws Exception {
+        final CountDownLatch reported = new CountDownLatch(1);
+        final long failures = NativeCleaner.getReleaseFailures();
+        NativeCleaner.setErrorHandler(error -> reported.countDown());
+        try {
+            attachFailing();
+
+            for (int i = 0; i < 50 && reported.getCount() > 0; i++) {
+                System.gc();
+                reported.await(100, TimeUnit.MILLISECONDS);
+            }
+
+            assertTrue(reported.await(1, TimeUnit.SECONDS));
+            assertTrue(NativeCleaner.getReleaseFailures() > failures);
+        } finally {
+            NativeCleaner.setErrorHandler(null);
+        }
+    }
+
+    private static void attachFailing() {
+        NativeCleaner.attach(new Resource(), () -> {
+            throw new IllegalStateException("release failed");
+        });
+    }
+
+    private static void attach(final CountDownLatch released) {
+        NativeCleaner.attach(new Resource(), released::countDown);
+    }
+
+    private static void register(final CountDownLatch released) {
+        NativeCleaner.register(new Resource(), released::countDown);
+    }
+}
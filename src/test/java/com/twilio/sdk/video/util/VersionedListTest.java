@@ -0,0 +1,37 @@
+package com.twilio.sdk.video.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+public class VersionedListTest {
+    @Test
+    public void testReloadsOnlyWhenVersionChanges() {
+        final AtomicLong version = new AtomicLong(1);
+        final AtomicInteger loads = new AtomicInteger();
+        final VersionedList<String> list = new VersionedList<>(version::get, () -> {
+            loads.incrementAndGet();
+            return Arrays.asList("a", "b");
+        });
+
+        final List<String> first = list.get();
+        assertSame(first, list.get());
+        assertEquals(1, loads.get());
+        assertEquals(1, list.getReloads());
+
+        version.set(2);
+        list.get();
+        assertEquals(2, loads.get());
+
+        list.invalidate();
+        list.get();
+        assertEquals(3, loads.get());
+        assertEquals(3, list.getReloads());
+    }
+}